@@ -0,0 +1,104 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import ru.yandex.practicum.filmorate.events.ChangeFeed;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.recommendations.FilmRecommendationProperties;
+import ru.yandex.practicum.filmorate.recommendations.FilmRecommender;
+import ru.yandex.practicum.filmorate.recommendations.FriendRecommender;
+import ru.yandex.practicum.filmorate.recommendations.RecommendationProperties;
+import ru.yandex.practicum.filmorate.search.FilmSearchIndex;
+import ru.yandex.practicum.filmorate.services.FilmService;
+import ru.yandex.practicum.filmorate.storage.InMemoryFilmStorage;
+import ru.yandex.practicum.filmorate.storage.InMemoryUserStorage;
+import ru.yandex.practicum.filmorate.storage.interfaces.FilmStorage;
+import ru.yandex.practicum.filmorate.storage.interfaces.UserStorage;
+import ru.yandex.practicum.filmorate.trending.TrendingIndex;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.SplittableRandom;
+
+// Генераторы наборов данных для бенчмарков. Все генераторы детерминированы при одинаковом seed
+public final class BenchmarkData {
+    public static final long SEED = 42;
+
+    private BenchmarkData() {
+    }
+
+    public static Film film(int index) {
+        Film film = new Film();
+        film.setName("Film " + index);
+        film.setDescription("Description of film " + index);
+        film.setReleaseDate(LocalDate.of(1950, 1, 1).plusDays(index % 25_000));
+        film.setDuration(60 + index % 120);
+        return film;
+    }
+
+    public static User user(int index) {
+        User user = new User();
+        user.setEmail("user" + index + "@example.com");
+        user.setLogin("user" + index);
+        user.setName("User " + index);
+        user.setBirthday(LocalDate.of(1960, 1, 1).plusDays(index % 15_000));
+        return user;
+    }
+
+    // Сервис фильмов со всеми индексами, как в приложении; рекомендации пересчитываются фоновым потоком
+    public static FilmService filmService(FilmStorage films, UserStorage users) {
+        return new FilmService(films, users, new SimpleMeterRegistry(),
+                new TrendingIndex(Duration.ofHours(24), Clock.systemUTC()),
+                new FilmRecommender(new FilmRecommendationProperties(50, 200, 2000, 1_000_000, 100, Duration.ofSeconds(1))),
+                new FilmSearchIndex(), changeFeed());
+    }
+
+    // Лента изменений с емкостью по умолчанию; бенчмаркам подписчики не нужны, буфер просто перезаписывается
+    public static ChangeFeed changeFeed() {
+        return new ChangeFeed(65_536);
+    }
+
+    // Рекомендации с настройками по умолчанию и без кэша: бенчмарк меряет сам подсчет
+    public static FriendRecommender recommender(UserStorage users) {
+        return new FriendRecommender(users, new RecommendationProperties(1000, 64, 100, false, 0));
+    }
+
+    public static InMemoryUserStorage users(int count) {
+        InMemoryUserStorage storage = new InMemoryUserStorage();
+        for (int i = 0; i < count; i++) {
+            storage.create(user(i));
+        }
+        return storage;
+    }
+
+    public static InMemoryFilmStorage films(int count) {
+        InMemoryFilmStorage storage = new InMemoryFilmStorage();
+        for (int i = 0; i < count; i++) {
+            storage.create(film(i));
+        }
+        return storage;
+    }
+
+    // Лайки распределены по фильмам по Ципфу (немного хитов и длинный хвост), пользователи - равномерно
+    public static void likes(FilmStorage films, int filmCount, int userCount, long likeCount, double skew) {
+        Zipfian popularity = new Zipfian(filmCount, skew);
+        SplittableRandom random = new SplittableRandom(SEED);
+        for (long i = 0; i < likeCount; i++) {
+            films.addLike(popularity.next(random) + 1, random.nextInt(userCount) + 1);
+        }
+    }
+
+    // Случайный граф дружбы со средней степенью вершины около degree
+    public static void friends(UserStorage users, int userCount, int degree) {
+        SplittableRandom random = new SplittableRandom(SEED);
+        long edges = (long) userCount * degree / 2;
+        for (long i = 0; i < edges; i++) {
+            int userId = random.nextInt(userCount) + 1;
+            int friendId = random.nextInt(userCount) + 1;
+            if (userId != friendId) {
+                users.addFriend(userId, friendId);
+            }
+        }
+    }
+}
@@ -0,0 +1,69 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import ru.yandex.practicum.filmorate.events.ChangeEvent;
+import ru.yandex.practicum.filmorate.events.ChangeFeed;
+
+import java.util.concurrent.TimeUnit;
+
+// Публикация в ленту изменений со всех ядер и она же на фоне читателя, который идет за головой ленты.
+// Писатели не должны замедляться от читателя: сравнивать publish и publishUnderReader
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ChangeFeedBenchmark {
+
+    @Param({"65536"})
+    public int capacity;
+
+    private ChangeFeed feed;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        feed = new ChangeFeed(capacity);
+    }
+
+    @Benchmark
+    @Threads(Threads.MAX)
+    public long publish() {
+        return feed.publish(ChangeEvent.Type.LIKE_ADDED, 1, 2);
+    }
+
+    @Benchmark
+    @Group("publishUnderReader")
+    @GroupThreads(4)
+    public long writer() {
+        return feed.publish(ChangeEvent.Type.LIKE_ADDED, 1, 2);
+    }
+
+    @Benchmark
+    @Group("publishUnderReader")
+    @GroupThreads(1)
+    public ChangeFeed.Batch reader(ReaderState state) {
+        ChangeFeed.Batch batch = feed.read(state.next, 256);
+        state.next = batch.next();
+        return batch;
+    }
+
+    @State(Scope.Thread)
+    public static class ReaderState {
+        long next;
+    }
+}
@@ -0,0 +1,107 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.services.FilmService;
+import ru.yandex.practicum.filmorate.services.UserService;
+import ru.yandex.practicum.filmorate.storage.InMemoryFilmStorage;
+import ru.yandex.practicum.filmorate.storage.InMemoryUserStorage;
+
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+// Конкурентные лайки и дружба: все потоки работают с общими хранилищами,
+// фильмы выбираются по Ципфу, поэтому популярные фильмы действительно конкурируют
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ConcurrentMutationBenchmark {
+    @Param({"100000"})
+    public int catalogueSize;
+
+    @Param({"10000"})
+    public int userCount;
+
+    @Param({"1.0"})
+    public double likeSkew;
+
+    private FilmService filmService;
+    private UserService userService;
+    private Zipfian popularity;
+
+    @State(Scope.Thread)
+    public static class ThreadState {
+        private SplittableRandom random;
+
+        @Setup(Level.Trial)
+        public void setUp() {
+            random = new SplittableRandom(Thread.currentThread().threadId());
+        }
+    }
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        InMemoryUserStorage users = BenchmarkData.users(userCount);
+        InMemoryFilmStorage films = BenchmarkData.films(catalogueSize);
+        BenchmarkData.likes(films, catalogueSize, userCount, catalogueSize * 10L, likeSkew);
+        BenchmarkData.friends(users, userCount, 20);
+        filmService = BenchmarkData.filmService(films, users);
+        userService = new UserService(users, new SimpleMeterRegistry(), BenchmarkData.recommender(users), filmService,
+                BenchmarkData.changeFeed());
+        popularity = new Zipfian(catalogueSize, likeSkew);
+    }
+
+    @Benchmark
+    @Threads(Threads.MAX)
+    public void likeAndUnlike(ThreadState state) {
+        int filmId = popularity.next(state.random) + 1;
+        int userId = state.random.nextInt(userCount) + 1;
+        filmService.addLike(filmId, userId);
+        filmService.removeLike(filmId, userId);
+    }
+
+    @Benchmark
+    @Threads(Threads.MAX)
+    public void friendAndUnfriend(ThreadState state) {
+        int userId = state.random.nextInt(userCount) + 1;
+        int friendId = state.random.nextInt(userCount) + 1;
+        if (userId != friendId) {
+            userService.addFriend(userId, friendId);
+            userService.deleteFriend(userId, friendId);
+        }
+    }
+
+    // Чтения топа на фоне записи лайков
+    @Benchmark
+    @Group("popularUnderLikes")
+    @GroupThreads(4)
+    public void likes(ThreadState state) {
+        filmService.addLike(popularity.next(state.random) + 1, state.random.nextInt(userCount) + 1);
+    }
+
+    @Benchmark
+    @Group("popularUnderLikes")
+    @GroupThreads(2)
+    public List<Film> popular() {
+        return filmService.getPopularFilms(10);
+    }
+}
@@ -0,0 +1,84 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import ru.yandex.practicum.filmorate.recommendations.FilmRecommendationProperties;
+import ru.yandex.practicum.filmorate.recommendations.FilmRecommender;
+
+import java.time.Duration;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+// Рекомендации фильмов на миллионах лайков с распределением фильмов по Ципфу.
+// recommend - время выдачи одному пользователю, refreshBatch - стоимость применения пачки новых лайков на один лайк
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx8g")
+public class FilmRecommendationBenchmark {
+    private static final int USERS = 1024;
+    private static final int BATCH_SIZE = 10_000;
+
+    @Param({"1000000", "5000000"})
+    public long likeCount;
+
+    @Param({"20000"})
+    public int filmCount;
+
+    @Param({"500000"})
+    public int userCount;
+
+    @Param({"1.0"})
+    public double skew;
+
+    private FilmRecommender recommender;
+    private Zipfian popularity;
+    private SplittableRandom random;
+    private final int[] userIds = new int[USERS];
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        // Без фонового потока: пачки применяются явным вызовом refresh()
+        recommender = new FilmRecommender(new FilmRecommendationProperties(50, 200, 2000, 1_000_000, 100, Duration.ZERO));
+        popularity = new Zipfian(filmCount, skew);
+        random = new SplittableRandom(BenchmarkData.SEED);
+        for (long i = 0; i < likeCount; i++) {
+            recommender.likeAdded(popularity.next(random) + 1, random.nextInt(userCount) + 1);
+            if (i % 1_000_000 == 999_999) {
+                recommender.refresh();
+            }
+        }
+        recommender.refresh();
+        for (int i = 0; i < USERS; i++) {
+            userIds[i] = random.nextInt(userCount) + 1;
+        }
+    }
+
+    @Benchmark
+    public int[] recommend() {
+        return recommender.recommend(userIds[next++ & (USERS - 1)], 10);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH_SIZE)
+    public void refreshBatch() {
+        for (int i = 0; i < BATCH_SIZE; i++) {
+            recommender.likeAdded(popularity.next(random) + 1, random.nextInt(userCount) + 1);
+        }
+        recommender.refresh();
+    }
+}
@@ -0,0 +1,75 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.services.UserService;
+import ru.yandex.practicum.filmorate.storage.InMemoryFilmStorage;
+import ru.yandex.practicum.filmorate.storage.InMemoryUserStorage;
+
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class FriendsBenchmark {
+    private static final int PAIRS = 1024;
+
+    @Param({"10000", "100000"})
+    public int userCount;
+
+    @Param({"10", "100", "1000"})
+    public int degree;
+
+    private UserService userService;
+    private final int[] firstIds = new int[PAIRS];
+    private final int[] secondIds = new int[PAIRS];
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        InMemoryUserStorage users = BenchmarkData.users(userCount);
+        BenchmarkData.friends(users, userCount, degree);
+        userService = new UserService(users, new SimpleMeterRegistry(), BenchmarkData.recommender(users),
+                BenchmarkData.filmService(new InMemoryFilmStorage(), users), BenchmarkData.changeFeed());
+        SplittableRandom random = new SplittableRandom(BenchmarkData.SEED);
+        for (int i = 0; i < PAIRS; i++) {
+            firstIds[i] = random.nextInt(userCount) + 1;
+            do {
+                secondIds[i] = random.nextInt(userCount) + 1;
+            } while (secondIds[i] == firstIds[i]);
+        }
+    }
+
+    @Benchmark
+    public List<User> mutualFriends() {
+        int i = next++ & (PAIRS - 1);
+        return userService.getMutualFriends(firstIds[i], secondIds[i]);
+    }
+
+    @Benchmark
+    public List<User> recommendations() {
+        return userService.getRecommendations(firstIds[next++ & (PAIRS - 1)], 10);
+    }
+
+    @Benchmark
+    public List<User> friends() {
+        return userService.getFriends(firstIds[next++ & (PAIRS - 1)]);
+    }
+}
@@ -0,0 +1,155 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+import ru.yandex.practicum.filmorate.FilmorateApplication;
+import ru.yandex.practicum.filmorate.storage.interfaces.FilmStorage;
+import ru.yandex.practicum.filmorate.storage.interfaces.UserStorage;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+// Нагрузочный тест HTTP: приложение поднимается целиком, запросы идут по сети из множества потоков.
+// Сравнивает пул платформенных потоков Tomcat и виртуальные потоки (virtualThreads) на хранилище в памяти
+// и на H2 (storage=jdbc), где запросы блокируются на JDBC. Режим SampleTime дает p99 в отчете JMH
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+@Threads(256)
+public class HttpLoadBenchmark {
+    @Param({"false", "true"})
+    public boolean virtualThreads;
+
+    @Param({"memory", "jdbc"})
+    public String storage;
+
+    // С включенным контролем допуска часть запросов получает 503 вместо ожидания в очереди
+    @Param({"false"})
+    public boolean admission;
+
+    @Param({"10000"})
+    public int catalogueSize;
+
+    // Лог запросов: off - выключен, full - прежний синхронный со всеми телами (профиль full-request-log),
+    // sampled - асинхронный с выборкой тел. Сравнение режимов: -p requestLog=full,sampled
+    @Param({"off"})
+    public String requestLog;
+
+    private ConfigurableApplicationContext context;
+    private HttpClient client;
+    private String baseUrl;
+    private HttpRequest popularFilms;
+    // Тот же запрос с If-None-Match: пока топ не меняется, ответ - 304 без тела
+    private HttpRequest popularFilmsConditional;
+    // Фильм с пустым названием: отказ с готовым телом ответа
+    private HttpRequest invalidFilm;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException, InterruptedException {
+        SpringApplication application = new SpringApplication(FilmorateApplication.class);
+        List<String> profiles = new ArrayList<>();
+        if ("jdbc".equals(storage)) {
+            profiles.add("jdbc");
+        }
+        if ("full".equals(requestLog)) {
+            profiles.add("full-request-log");
+        }
+        application.setAdditionalProfiles(profiles.toArray(String[]::new));
+        context = application.run(
+                "--server.port=0",
+                "--spring.threads.virtual.enabled=" + virtualThreads,
+                "--filmorate.admission.enabled=" + admission,
+                "--spring.datasource.url=jdbc:h2:mem:benchmark;DB_CLOSE_DELAY=-1",
+                "--logging.level.org.zalando.logbook=" + ("off".equals(requestLog) ? "OFF" : "TRACE"));
+        seed(context.getBean(FilmStorage.class), context.getBean(UserStorage.class));
+
+        int port = ((WebServerApplicationContext) context).getWebServer().getPort();
+        baseUrl = "http://localhost:" + port;
+        client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+        popularFilms = HttpRequest.newBuilder(URI.create(baseUrl + "/films/popular?count=10")).build();
+        popularFilmsConditional = client.send(popularFilms, HttpResponse.BodyHandlers.discarding()).headers()
+                .firstValue("ETag")
+                .map(eTag -> HttpRequest.newBuilder(popularFilms.uri()).header("If-None-Match", eTag).build())
+                .orElse(popularFilms);
+        invalidFilm = HttpRequest.newBuilder(URI.create(baseUrl + "/films"))
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString("{\"name\":\"\",\"description\":\"\","
+                        + "\"releaseDate\":\"2000-01-01\",\"duration\":90}"))
+                .build();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        client.close();
+        context.close();
+    }
+
+    @Benchmark
+    public int popularFilms() throws IOException, InterruptedException {
+        return send(popularFilms);
+    }
+
+    @Benchmark
+    public int popularFilmsNotModified() throws IOException, InterruptedException {
+        return send(popularFilmsConditional);
+    }
+
+    @Benchmark
+    public int friends() throws IOException, InterruptedException {
+        int userId = ThreadLocalRandom.current().nextInt(catalogueSize) + 1;
+        return send(HttpRequest.newBuilder(URI.create(baseUrl + "/users/" + userId + "/friends")).build());
+    }
+
+    @Benchmark
+    public int like() throws IOException, InterruptedException {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        int filmId = random.nextInt(catalogueSize) + 1;
+        int userId = random.nextInt(catalogueSize) + 1;
+        return send(HttpRequest.newBuilder(URI.create(baseUrl + "/films/" + filmId + "/like/" + userId))
+                .PUT(HttpRequest.BodyPublishers.noBody())
+                .build());
+    }
+
+    @Benchmark
+    public int invalidFilm() throws IOException, InterruptedException {
+        return send(invalidFilm);
+    }
+
+    private int send(HttpRequest request) throws IOException, InterruptedException {
+        return client.send(request, HttpResponse.BodyHandlers.discarding()).statusCode();
+    }
+
+    private void seed(FilmStorage films, UserStorage users) {
+        for (int i = 0; i < catalogueSize; i++) {
+            films.create(BenchmarkData.film(i));
+            users.create(BenchmarkData.user(i));
+        }
+        BenchmarkData.likes(films, catalogueSize, catalogueSize, catalogueSize * 10L, 1.0);
+        BenchmarkData.friends(users, catalogueSize, 10);
+    }
+}
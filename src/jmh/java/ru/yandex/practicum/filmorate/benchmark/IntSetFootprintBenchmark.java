@@ -0,0 +1,70 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jol.info.GraphLayout;
+import ru.yandex.practicum.filmorate.model.IntSet;
+
+import java.util.HashSet;
+import java.util.Set;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+// Память на один лайк и скорость проверки наличия для HashSet<Integer> (прежнее представление) и IntSet.
+// Объем считается через JOL и печатается в конце прогона строкой "bytes per like"
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 2, time = 1)
+@Measurement(iterations = 3, time = 1)
+@Fork(1)
+public class IntSetFootprintBenchmark {
+    private static final int SETS = 1_000;
+
+    @Param({"HashSet", "IntSet"})
+    public String implementation;
+
+    @Param({"16", "256", "4096"})
+    public int likesPerFilm;
+
+    @Param({"100000"})
+    public int userCount;
+
+    private final Set<?>[] sets = new Set<?>[SETS];
+    private SplittableRandom random;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        random = new SplittableRandom(BenchmarkData.SEED);
+        for (int i = 0; i < SETS; i++) {
+            Set<Integer> set = "IntSet".equals(implementation) ? new IntSet() : new HashSet<>();
+            while (set.size() < likesPerFilm) {
+                set.add(random.nextInt(userCount) + 1);
+            }
+            sets[i] = set;
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void report() {
+        long bytes = GraphLayout.parseInstance((Object[]) sets).totalSize();
+        System.out.printf("%s, %d likes per film: %.1f bytes per like%n",
+                implementation, likesPerFilm, (double) bytes / ((long) SETS * likesPerFilm));
+    }
+
+    @Benchmark
+    public boolean contains() {
+        return sets[random.nextInt(SETS)].contains(random.nextInt(userCount) + 1);
+    }
+}
@@ -0,0 +1,90 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.util.unit.DataSize;
+import ru.yandex.practicum.filmorate.controller.EntityJson;
+import ru.yandex.practicum.filmorate.controller.FilmView;
+import ru.yandex.practicum.filmorate.controller.JsonCacheProperties;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.storage.InMemoryFilmStorage;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// Тело списка фильмов с тысячами лайков у каждого: Jackson на каждый запрос против склейки готовых фрагментов.
+// afterLike - склейка, когда один фильм списка только что изменился и сериализуется заново
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class JsonFragmentBenchmark {
+
+    @Param({"1000"})
+    public int catalogueSize;
+
+    @Param({"1000000"})
+    public long likeCount;
+
+    @Param({"100"})
+    public int listSize;
+
+    private InMemoryFilmStorage films;
+    private ObjectMapper objectMapper;
+    private EntityJson json;
+    private List<Film> list;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        films = BenchmarkData.films(catalogueSize);
+        BenchmarkData.likes(films, catalogueSize, 100_000, likeCount, 1.0);
+        objectMapper = Jackson2ObjectMapperBuilder.json().build();
+        json = new EntityJson(objectMapper, new JsonCacheProperties(true, DataSize.ofMegabytes(256)),
+                new SimpleMeterRegistry());
+        list = films.getPopularFilms(listSize);
+        json.films(list, FilmView.FULL).toByteArray();
+        json.films(list, FilmView.COMPACT).toByteArray();
+    }
+
+    @Benchmark
+    public byte[] jackson() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(list);
+    }
+
+    @Benchmark
+    public byte[] fragments() {
+        return json.films(list, FilmView.FULL).toByteArray();
+    }
+
+    @Benchmark
+    public byte[] compact() {
+        return json.films(list, FilmView.COMPACT).toByteArray();
+    }
+
+    @Benchmark
+    public byte[] afterLike() {
+        Film film = list.get(next++ % list.size());
+        // Пользователь вне диапазона генератора лайков: лайк всегда новый, тело фильма остается прежним,
+        // а версия меняется
+        films.addLike(film.getId(), Integer.MAX_VALUE);
+        films.removeLike(film.getId(), Integer.MAX_VALUE);
+        return json.films(list, FilmView.FULL).toByteArray();
+    }
+}
@@ -0,0 +1,125 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import ru.yandex.practicum.filmorate.services.FilmService;
+import ru.yandex.practicum.filmorate.services.UserService;
+import ru.yandex.practicum.filmorate.storage.InMemoryFilmStorage;
+import ru.yandex.practicum.filmorate.storage.InMemoryUserStorage;
+
+import java.lang.management.ManagementFactory;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+// Выделение памяти на горячем пути мутаций. Запускать с профилировщиком GC, смотреть gc.alloc.rate.norm:
+//   mvn -Pjmh test-compile exec:exec -Djmh.args="MutationAllocation -prof gc"
+// Дружба проверяется и без профилировщика: после итерации число байт на операцию сравнивается с maxBytesPerOp,
+// превышение роняет прогон; событие ленты изменений пишется в заранее выделенную ячейку и бюджет не тратит.
+// Лайк в сервисе по-прежнему выделяет узлы skip-list в индексах популярности и трендов, поэтому для лайков
+// бюджет здесь не проверяется, только измеряется; его проверяет MutationAllocationTest
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class MutationAllocationBenchmark {
+    private static final int PAIRS = 1024;
+
+    @Param({"100000"})
+    public int catalogueSize;
+
+    @Param({"10000"})
+    public int userCount;
+
+    // Запас на редкое расширение массивов IntSet, распределенное по всем операциям итерации
+    @Param({"8"})
+    public long maxBytesPerOp;
+
+    private InMemoryFilmStorage films;
+    private FilmService filmService;
+    private UserService userService;
+    private final int[] filmIds = new int[PAIRS];
+    private final int[] userIds = new int[PAIRS];
+    private final int[] friendIds = new int[PAIRS];
+    private int next;
+    private long operations;
+    private long allocatedAtStart;
+    private boolean checkBudget;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        InMemoryUserStorage users = BenchmarkData.users(userCount);
+        films = BenchmarkData.films(catalogueSize);
+        BenchmarkData.likes(films, catalogueSize, userCount, catalogueSize * 10L, 1.0);
+        BenchmarkData.friends(users, userCount, 20);
+        filmService = BenchmarkData.filmService(films, users);
+        userService = new UserService(users, new SimpleMeterRegistry(), BenchmarkData.recommender(users), filmService,
+                BenchmarkData.changeFeed());
+        SplittableRandom random = new SplittableRandom(BenchmarkData.SEED);
+        for (int i = 0; i < PAIRS; i++) {
+            filmIds[i] = random.nextInt(catalogueSize) + 1;
+            userIds[i] = random.nextInt(userCount) + 1;
+            do {
+                friendIds[i] = random.nextInt(userCount) + 1;
+            } while (friendIds[i] == userIds[i]);
+        }
+    }
+
+    @Setup(Level.Iteration)
+    public void startIteration() {
+        operations = 0;
+        checkBudget = false;
+        allocatedAtStart = allocatedBytes();
+    }
+
+    @TearDown(Level.Iteration)
+    public void checkAllocation() {
+        long perOp = operations == 0 ? 0 : (allocatedBytes() - allocatedAtStart) / operations;
+        if (checkBudget && perOp > maxBytesPerOp) {
+            throw new IllegalStateException("Дружба выделяет " + perOp + " байт на операцию, бюджет " + maxBytesPerOp);
+        }
+    }
+
+    @Benchmark
+    public void friendAndUnfriend() {
+        int i = next++ & (PAIRS - 1);
+        userService.addFriend(userIds[i], friendIds[i]);
+        userService.deleteFriend(userIds[i], friendIds[i]);
+        operations++;
+        checkBudget = true;
+    }
+
+    @Benchmark
+    public void likeAndUnlike() {
+        int i = next++ & (PAIRS - 1);
+        filmService.addLike(filmIds[i], userIds[i]);
+        filmService.removeLike(filmIds[i], userIds[i]);
+        operations++;
+    }
+
+    // Только хранилище: поиск фильма, IntSet лайков, обратный индекс и индекс популярности
+    @Benchmark
+    public boolean storageLikeAndUnlike() {
+        int i = next++ & (PAIRS - 1);
+        films.addLike(filmIds[i], userIds[i]);
+        operations++;
+        return films.removeLike(filmIds[i], userIds[i]);
+    }
+
+    private static long allocatedBytes() {
+        return ((com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean()).getCurrentThreadAllocatedBytes();
+    }
+}
@@ -0,0 +1,57 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.services.FilmService;
+import ru.yandex.practicum.filmorate.storage.InMemoryFilmStorage;
+import ru.yandex.practicum.filmorate.storage.InMemoryUserStorage;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PopularFilmsBenchmark {
+    @Param({"10000", "100000"})
+    public int catalogueSize;
+
+    @Param({"10"})
+    public int likesPerFilm;
+
+    @Param({"1.0"})
+    public double likeSkew;
+
+    @Param({"10", "100"})
+    public int count;
+
+    private FilmService filmService;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        int userCount = Math.max(1_000, catalogueSize / 10);
+        InMemoryUserStorage users = BenchmarkData.users(userCount);
+        InMemoryFilmStorage films = BenchmarkData.films(catalogueSize);
+        BenchmarkData.likes(films, catalogueSize, userCount, (long) catalogueSize * likesPerFilm, likeSkew);
+        filmService = BenchmarkData.filmService(films, users);
+    }
+
+    @Benchmark
+    public List<Film> popularFilms() {
+        return filmService.getPopularFilms(count);
+    }
+}
@@ -0,0 +1,119 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.search.FilmSearchIndex;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+// Поиск по каталогу из миллиона фильмов. Слова названий и описаний берутся из словаря по Ципфу,
+// половина словаря кириллическая. exact - два целых слова, prefix - второе слово обрезано до трех букв,
+// common - одно из десяти самых частых слов (длинные списки, где работает остановка по слоям лайков)
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx8g")
+public class SearchBenchmark {
+    private static final String[] SYLLABLES = {
+            "ка", "ло", "ми", "ра", "то", "не", "су", "ды", "ве", "жу",
+            "ba", "co", "di", "fe", "ga", "lu", "mo", "ni", "pa", "ro"};
+    private static final int QUERIES = 1024;
+    private static final int TITLE_WORDS = 3;
+    private static final int DESCRIPTION_WORDS = 12;
+
+    @Param({"1000000"})
+    public int catalogueSize;
+
+    @Param({"50000"})
+    public int vocabularySize;
+
+    @Param({"1.0"})
+    public double skew;
+
+    @Param({"20"})
+    public int limit;
+
+    private FilmSearchIndex index;
+    private final String[] exactQueries = new String[QUERIES];
+    private final String[] prefixQueries = new String[QUERIES];
+    private final String[] commonQueries = new String[QUERIES];
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        Zipfian words = new Zipfian(vocabularySize, skew);
+        SplittableRandom random = new SplittableRandom(BenchmarkData.SEED);
+        index = new FilmSearchIndex();
+        for (int i = 1; i <= catalogueSize; i++) {
+            Film film = new Film();
+            film.setId(i);
+            film.setName(text(words, random, TITLE_WORDS));
+            film.setDescription(text(words, random, DESCRIPTION_WORDS));
+            for (int like = random.nextInt(10); like > 0; like--) {
+                film.getLikeScore().add(random.nextInt(100_000) + 1);
+            }
+            index.index(film);
+        }
+        // Слова запросов берутся из того же распределения: частые слова дают длинные списки фильмов
+        for (int i = 0; i < QUERIES; i++) {
+            String first = word(words.next(random));
+            String second = word(words.next(random));
+            exactQueries[i] = first + " " + second;
+            prefixQueries[i] = first + " " + second.substring(0, Math.min(3, second.length()));
+            commonQueries[i] = word(i % 10);
+        }
+    }
+
+    @Benchmark
+    public int[] exact() {
+        return index.search(exactQueries[next++ & (QUERIES - 1)], limit);
+    }
+
+    @Benchmark
+    public int[] prefix() {
+        return index.search(prefixQueries[next++ & (QUERIES - 1)], limit);
+    }
+
+    @Benchmark
+    public int[] common() {
+        return index.search(commonQueries[next++ & (QUERIES - 1)], limit);
+    }
+
+    private static String text(Zipfian words, SplittableRandom random, int count) {
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < count; i++) {
+            if (i > 0) {
+                text.append(' ');
+            }
+            text.append(word(words.next(random)));
+        }
+        return text.toString();
+    }
+
+    // Слово с номером n - запись n в системе счисления по слогам; четные номера - кириллица, нечетные - латиница
+    private static String word(int n) {
+        int offset = (n & 1) == 0 ? 0 : SYLLABLES.length / 2;
+        int base = SYLLABLES.length / 2;
+        StringBuilder word = new StringBuilder();
+        int rest = n >>> 1;
+        do {
+            word.append(SYLLABLES[offset + rest % base]);
+            rest /= base;
+        } while (rest > 0);
+        return word.toString();
+    }
+}
@@ -0,0 +1,102 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.storage.InMemoryFilmStorage;
+import ru.yandex.practicum.filmorate.storage.InMemoryUserStorage;
+import ru.yandex.practicum.filmorate.storage.shard.ShardedFilmStorage;
+import ru.yandex.practicum.filmorate.storage.shard.ShardedUserStorage;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+// Цена маршрутизации и scatter-gather при разном числе шардов в одном процессе: топ популярных сливается
+// из топов шардов, общие друзья собираются со всех шардов, лайк уходит в один шард
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ShardedStorageBenchmark {
+    private static final int PAIRS = 1024;
+
+    @Param({"1", "4", "8"})
+    public int shards;
+
+    @Param({"100000"})
+    public int catalogueSize;
+
+    @Param({"10000"})
+    public int userCount;
+
+    private ShardedFilmStorage films;
+    private ShardedUserStorage users;
+    private final int[] firstIds = new int[PAIRS];
+    private final int[] secondIds = new int[PAIRS];
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        List<InMemoryFilmStorage> filmNodes = new ArrayList<>();
+        List<InMemoryUserStorage> userNodes = new ArrayList<>();
+        for (int i = 0; i < shards; i++) {
+            filmNodes.add(new InMemoryFilmStorage());
+            userNodes.add(new InMemoryUserStorage());
+        }
+        films = new ShardedFilmStorage(filmNodes, 128);
+        users = new ShardedUserStorage(userNodes, 128);
+        for (int i = 0; i < catalogueSize; i++) {
+            films.create(BenchmarkData.film(i));
+        }
+        for (int i = 0; i < userCount; i++) {
+            users.create(BenchmarkData.user(i));
+        }
+        BenchmarkData.likes(films, catalogueSize, userCount, catalogueSize * 10L, 1.0);
+        BenchmarkData.friends(users, userCount, 20);
+        SplittableRandom random = new SplittableRandom(BenchmarkData.SEED);
+        for (int i = 0; i < PAIRS; i++) {
+            firstIds[i] = random.nextInt(userCount) + 1;
+            secondIds[i] = random.nextInt(userCount) + 1;
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        films.close();
+        users.close();
+    }
+
+    @Benchmark
+    public List<Film> popularFilms() {
+        return films.getPopularFilms(10);
+    }
+
+    @Benchmark
+    public List<User> commonFriends() {
+        int i = next++ & (PAIRS - 1);
+        return users.getCommonFriends(firstIds[i], secondIds[i]);
+    }
+
+    @Benchmark
+    public boolean likeAndUnlike() {
+        int i = next++ & (PAIRS - 1);
+        films.addLike(i % catalogueSize + 1, firstIds[i]);
+        return films.removeLike(i % catalogueSize + 1, firstIds[i]);
+    }
+}
@@ -0,0 +1,67 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.storage.InMemoryFilmStorage;
+import ru.yandex.practicum.filmorate.storage.InMemoryUserStorage;
+
+import java.util.concurrent.TimeUnit;
+
+// Создание и обновление сущностей в хранилищах. Хранилища пересоздаются на каждой итерации,
+// чтобы размер каталога не рос неограниченно
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class StorageBenchmark {
+    @Param({"100000"})
+    public int catalogueSize;
+
+    private InMemoryFilmStorage films;
+    private InMemoryUserStorage users;
+    private int next;
+
+    @Setup(Level.Iteration)
+    public void setUp() {
+        films = BenchmarkData.films(catalogueSize);
+        users = BenchmarkData.users(catalogueSize);
+    }
+
+    @Benchmark
+    public Film createFilm() {
+        return films.create(BenchmarkData.film(next++));
+    }
+
+    @Benchmark
+    public Film updateFilm() {
+        Film film = BenchmarkData.film(next);
+        film.setId(next++ % catalogueSize + 1);
+        return films.update(film);
+    }
+
+    @Benchmark
+    public User createUser() {
+        return users.create(BenchmarkData.user(next++));
+    }
+
+    @Benchmark
+    public User updateUser() {
+        User user = BenchmarkData.user(next);
+        user.setId(next++ % catalogueSize + 1);
+        return users.update(user);
+    }
+}
@@ -0,0 +1,118 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import ru.yandex.practicum.filmorate.exceptions.ValidationException;
+import ru.yandex.practicum.filmorate.model.BatchResult;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.services.FilmService;
+import ru.yandex.practicum.filmorate.validation.EntityValidators;
+import ru.yandex.practicum.filmorate.validation.Violation;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// Стоимость проверки корректного и некорректного тела на запрос. Некорректные фильмы нарушают по очереди
+// каждое правило; rejectInService - отказ через сервис с заранее созданным исключением, как в контроллере.
+// Выделение памяти на отказ (ожидается 0): -prof gc, метрика gc.alloc.rate.norm
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ValidationBenchmark {
+    private static final int ITEMS = 1024;
+
+    private final Film[] validFilms = new Film[ITEMS];
+    private final Film[] invalidFilms = new Film[ITEMS];
+    private final User[] validUsers = new User[ITEMS];
+    private final User[] invalidUsers = new User[ITEMS];
+    private final List<Film> batch = new ArrayList<>(ITEMS);
+    private FilmService filmService;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        for (int i = 0; i < ITEMS; i++) {
+            validFilms[i] = BenchmarkData.film(i);
+            invalidFilms[i] = invalidFilm(i);
+            validUsers[i] = BenchmarkData.user(i);
+            invalidUsers[i] = invalidUser(i);
+            batch.add(i % 2 == 0 ? validFilms[i] : invalidFilms[i]);
+        }
+        filmService = BenchmarkData.filmService(BenchmarkData.films(0), BenchmarkData.users(0));
+    }
+
+    @Benchmark
+    public Violation validFilm() {
+        return EntityValidators.FILM.check(validFilms[next++ & (ITEMS - 1)]);
+    }
+
+    @Benchmark
+    public Violation invalidFilm() {
+        return EntityValidators.FILM.check(invalidFilms[next++ & (ITEMS - 1)]);
+    }
+
+    @Benchmark
+    public Violation validUser() {
+        return EntityValidators.USER.check(validUsers[next++ & (ITEMS - 1)]);
+    }
+
+    @Benchmark
+    public Violation invalidUser() {
+        return EntityValidators.USER.check(invalidUsers[next++ & (ITEMS - 1)]);
+    }
+
+    @Benchmark
+    public String rejectInService() {
+        try {
+            return filmService.create(invalidFilms[next++ & (ITEMS - 1)]).getName();
+        } catch (ValidationException e) {
+            return e.getMessage();
+        }
+    }
+
+    // Половина пакета некорректна: на элемент приходится проверка и запись в отчет или в список корректных
+    @Benchmark
+    @OperationsPerInvocation(ITEMS)
+    public List<Film> validateBatch() {
+        List<BatchResult.ItemError> errors = new ArrayList<>();
+        return EntityValidators.FILM.validateAll(batch, errors);
+    }
+
+    private static Film invalidFilm(int index) {
+        Film film = BenchmarkData.film(index);
+        switch (index % 5) {
+            case 0 -> film.setName(" ");
+            case 1 -> film.setDescription("x".repeat(201));
+            case 2 -> film.setReleaseDate(LocalDate.of(1800, 1, 1));
+            case 3 -> film.setReleaseDate(LocalDate.now().plusYears(1));
+            default -> film.setDuration(-1);
+        }
+        return film;
+    }
+
+    private static User invalidUser(int index) {
+        User user = BenchmarkData.user(index);
+        switch (index % 3) {
+            case 0 -> user.setEmail("user" + index + ".example.com");
+            case 1 -> user.setLogin("user " + index);
+            default -> user.setBirthday(LocalDate.now().plusDays(1));
+        }
+        return user;
+    }
+}
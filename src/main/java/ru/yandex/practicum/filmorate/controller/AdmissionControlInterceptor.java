@@ -0,0 +1,81 @@
+package ru.yandex.practicum.filmorate.controller;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.DispatcherType;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.AsyncHandlerInterceptor;
+
+import java.lang.reflect.Method;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+// Контроль допуска: у каждого эндпоинта свой лимит одновременных запросов. Сверх лимита запрос
+// сразу получает 503 с Retry-After, а не копится в очереди. Для потоковых ответов место
+// держится до конца асинхронной отдачи
+@Slf4j
+public class AdmissionControlInterceptor implements AsyncHandlerInterceptor {
+    private static final String PERMIT_ATTRIBUTE = AdmissionControlInterceptor.class.getName() + ".permit";
+
+    private final AdmissionProperties properties;
+    private final MeterRegistry registry;
+    private final String retryAfterSeconds;
+    private final Map<Method, Endpoint> endpoints = new ConcurrentHashMap<>();
+
+    public AdmissionControlInterceptor(AdmissionProperties properties, MeterRegistry registry) {
+        this.properties = properties;
+        this.registry = registry;
+        this.retryAfterSeconds = String.valueOf(Math.max(1, properties.retryAfter().toSeconds()));
+    }
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler)
+            throws Exception {
+        if (!(handler instanceof HandlerMethod handlerMethod) || request.getDispatcherType() == DispatcherType.ASYNC) {
+            return true;
+        }
+        Endpoint endpoint = endpoints.computeIfAbsent(handlerMethod.getMethod(), method -> newEndpoint(handlerMethod));
+        if (!acquire(endpoint.permits)) {
+            endpoint.rejected.increment();
+            log.debug("Превышен лимит одновременных запросов к {}", endpoint.name);
+            response.setHeader(HttpHeaders.RETRY_AFTER, retryAfterSeconds);
+            response.sendError(HttpStatus.SERVICE_UNAVAILABLE.value());
+            return false;
+        }
+        request.setAttribute(PERMIT_ATTRIBUTE, endpoint.permits);
+        return true;
+    }
+
+    @Override
+    public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler,
+                                Exception ex) {
+        if (request.getAttribute(PERMIT_ATTRIBUTE) instanceof Semaphore permits) {
+            request.removeAttribute(PERMIT_ATTRIBUTE);
+            permits.release();
+        }
+    }
+
+    private boolean acquire(Semaphore permits) throws InterruptedException {
+        if (properties.maxWait().isZero()) {
+            return permits.tryAcquire();
+        }
+        return permits.tryAcquire(properties.maxWait().toNanos(), TimeUnit.NANOSECONDS);
+    }
+
+    private Endpoint newEndpoint(HandlerMethod handlerMethod) {
+        String name = handlerMethod.getBeanType().getSimpleName() + "." + handlerMethod.getMethod().getName();
+        int limit = properties.limits().getOrDefault(name, properties.defaultLimit());
+        Counter rejected = registry.counter("filmorate.admission.rejected", "endpoint", name);
+        return new Endpoint(name, new Semaphore(limit), rejected);
+    }
+
+    private record Endpoint(String name, Semaphore permits, Counter rejected) {
+    }
+}
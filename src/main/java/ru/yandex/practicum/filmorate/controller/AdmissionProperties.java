@@ -0,0 +1,19 @@
+package ru.yandex.practicum.filmorate.controller;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.time.Duration;
+import java.util.Map;
+
+// Ограничение одновременных запросов на каждый эндпоинт. Ключ в limits - Контроллер.метод,
+// например FilmController.getPopularFilms; для остальных эндпоинтов действует defaultLimit
+@ConfigurationProperties(prefix = "filmorate.admission")
+public record AdmissionProperties(
+        @DefaultValue("true") boolean enabled,
+        @DefaultValue("256") int defaultLimit,
+        @DefaultValue Map<String, Integer> limits,
+        // Сколько запрос может ждать свободного места, прежде чем получить 503
+        @DefaultValue("0ms") Duration maxWait,
+        @DefaultValue("1s") Duration retryAfter) {
+}
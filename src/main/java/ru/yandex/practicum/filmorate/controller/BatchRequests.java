@@ -0,0 +1,25 @@
+package ru.yandex.practicum.filmorate.controller;
+
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+// Чтение пакетов в формате NDJSON: по одной сущности на строку, без промежуточного массива в памяти
+final class BatchRequests {
+    private BatchRequests() {
+    }
+
+    static <T> List<T> readNdjson(ObjectMapper objectMapper, Class<T> type, InputStream body) throws IOException {
+        List<T> items = new ArrayList<>();
+        try (MappingIterator<T> iterator = objectMapper.readerFor(type).readValues(body)) {
+            while (iterator.hasNextValue()) {
+                items.add(iterator.nextValue());
+            }
+        }
+        return items;
+    }
+}
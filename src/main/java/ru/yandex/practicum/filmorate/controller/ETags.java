@@ -0,0 +1,51 @@
+package ru.yandex.practicum.filmorate.controller;
+
+import org.springframework.http.ResponseEntity;
+
+import java.util.List;
+import java.util.function.ToIntFunction;
+import java.util.function.ToLongFunction;
+
+// Сильные ETag из версий хранилища: тег считается без сериализации тела, а совпавший If-None-Match
+// превращает ответ в 304 еще до сериализации (это делает Spring для ResponseEntity с ETag).
+// Версии хранилищ в памяти начинаются заново при каждом запуске, поэтому в тег входит метка запуска
+final class ETags {
+    private static final String EPOCH = Long.toString(System.currentTimeMillis(), 36);
+
+    private ETags() {
+    }
+
+    // Тег всей коллекции; null, если хранилище версий не ведет
+    static String ofVersion(long version) {
+        return version == 0 ? null : quote("c" + Long.toString(version, 36));
+    }
+
+    // Тег списка по id и версиям в порядке выдачи: меняется и при изменении любой сущности, и при перестановке
+    static <T> String ofList(List<T> items, ToIntFunction<T> idOf, ToLongFunction<T> versionOf) {
+        long hash = items.size();
+        for (T item : items) {
+            long version = versionOf.applyAsLong(item);
+            if (version == 0) {
+                return null;
+            }
+            hash = mix(mix(hash + idOf.applyAsInt(item)) + version);
+        }
+        return quote("l" + Long.toHexString(hash));
+    }
+
+    static ResponseEntity.BodyBuilder ok(String eTag) {
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+        return eTag == null ? response : response.eTag(eTag);
+    }
+
+    private static String quote(String value) {
+        return "\"" + EPOCH + "-" + value + "\"";
+    }
+
+    // Финализатор MurmurHash3
+    private static long mix(long value) {
+        value = (value ^ (value >>> 33)) * 0xff51afd7ed558ccdL;
+        value = (value ^ (value >>> 33)) * 0xc4ceb9fe1a85ec53L;
+        return value ^ (value >>> 33);
+    }
+}
@@ -0,0 +1,124 @@
+package ru.yandex.practicum.filmorate.controller;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.FilmSummary;
+import ru.yandex.practicum.filmorate.model.User;
+
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+// Готовый JSON каждой сущности, чтобы списки не сериализовали заново фильмы с тысячами лайков.
+// Фрагмент хранится вместе с версией сущности и годен, пока версия та же: обновление, лайк и дружба
+// меняют версию в хранилище. Версия читается до сериализации, поэтому фрагмент не старее своей версии.
+// Без версий (хранилище в БД) сущности сериализуются каждый раз
+@Component
+public class EntityJson {
+    private final ObjectWriter filmWriter;
+    private final ObjectWriter summaryWriter;
+    private final ObjectWriter userWriter;
+    private final Cache<Integer, Fragment> films;
+    private final Cache<Integer, Fragment> summaries;
+    private final Cache<Integer, Fragment> users;
+
+    public EntityJson(ObjectMapper objectMapper, JsonCacheProperties properties, MeterRegistry registry) {
+        this.filmWriter = objectMapper.writerFor(Film.class);
+        this.summaryWriter = objectMapper.writerFor(FilmSummary.class);
+        this.userWriter = objectMapper.writerFor(User.class);
+        this.films = newCache(properties, registry, "films-json");
+        this.summaries = newCache(properties, registry, "films-compact-json");
+        this.users = newCache(properties, registry, "users-json");
+    }
+
+    public byte[] film(Film film) {
+        long version = film.getVersion();
+        byte[] json = cached(films, film.getId(), version);
+        return json != null ? json : store(films, film.getId(), version, serialize(filmWriter, film));
+    }
+
+    public byte[] summary(Film film) {
+        long version = film.getVersion();
+        byte[] json = cached(summaries, film.getId(), version);
+        return json != null ? json
+                : store(summaries, film.getId(), version, serialize(summaryWriter, FilmSummary.of(film)));
+    }
+
+    public byte[] user(User user) {
+        long version = user.getVersion();
+        byte[] json = cached(users, user.getId(), version);
+        return json != null ? json : store(users, user.getId(), version, serialize(userWriter, user));
+    }
+
+    public JsonArray films(Collection<Film> list, FilmView view) {
+        boolean compact = view == FilmView.COMPACT;
+        return new JsonArray(() -> {
+            List<byte[]> fragments = new ArrayList<>(list.size());
+            for (Film film : list) {
+                fragments.add(compact ? summary(film) : film(film));
+            }
+            return fragments;
+        });
+    }
+
+    public JsonArray users(Collection<User> list) {
+        return new JsonArray(() -> {
+            List<byte[]> fragments = new ArrayList<>(list.size());
+            for (User user : list) {
+                fragments.add(user(user));
+            }
+            return fragments;
+        });
+    }
+
+    // Фрагмент той же версии или null
+    private static byte[] cached(Cache<Integer, Fragment> cache, int id, long version) {
+        if (cache == null || version == 0) {
+            return null;
+        }
+        Fragment fragment = cache.getIfPresent(id);
+        return fragment != null && fragment.version() == version ? fragment.json() : null;
+    }
+
+    private static byte[] store(Cache<Integer, Fragment> cache, int id, long version, byte[] json) {
+        if (cache != null && version != 0) {
+            // Опоздавший поток со старой версией не затирает более новый фрагмент
+            cache.asMap().merge(id, new Fragment(version, json),
+                    (old, fresh) -> old.version() >= fresh.version() ? old : fresh);
+        }
+        return json;
+    }
+
+    private static byte[] serialize(ObjectWriter writer, Object value) {
+        try {
+            return writer.writeValueAsBytes(value);
+        } catch (JsonProcessingException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static Cache<Integer, Fragment> newCache(JsonCacheProperties properties, MeterRegistry registry,
+                                                     String name) {
+        if (!properties.enabled()) {
+            return null;
+        }
+        Cache<Integer, Fragment> cache = Caffeine.newBuilder()
+                .maximumWeight(properties.maximumSize().toBytes())
+                .weigher((Integer id, Fragment fragment) -> fragment.json().length)
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(registry, cache, name);
+        return cache;
+    }
+
+    private record Fragment(long version, byte[] json) {
+    }
+}
@@ -1,13 +1,23 @@
 package ru.yandex.practicum.filmorate.controller;
 
-import jakarta.validation.Valid;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import ru.yandex.practicum.filmorate.model.BatchResult;
 import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.FilmQuery;
+import ru.yandex.practicum.filmorate.model.Like;
 import ru.yandex.practicum.filmorate.services.FilmService;
+import ru.yandex.practicum.filmorate.trending.TrendWindow;
 
-import java.util.Collection;
+import java.io.IOException;
+import java.io.InputStream;
+import java.time.LocalDate;
 import java.util.List;
 
 @RestController
@@ -16,22 +26,76 @@ import java.util.List;
 @RequiredArgsConstructor
 public class FilmController {
     private final FilmService filmService;
+    private final ObjectMapper objectMapper;
+    private final PopularFilmsCache popularFilms;
+    private final EntityJson json;
 
     @GetMapping
-    public Collection<Film> getAllFilms() {
-        return filmService.getAllFilms();
+    public ResponseEntity<JsonArray> getAllFilms(@RequestParam(required = false) Integer after,
+                                                 @RequestParam(required = false) Integer limit,
+                                                 @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE)
+                                                 LocalDate releasedFrom,
+                                                 @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE)
+                                                 LocalDate releasedTo,
+                                                 @RequestParam(required = false) Integer minDuration,
+                                                 @RequestParam(required = false) Integer maxDuration,
+                                                 @RequestParam(defaultValue = "full") String view) {
+        FilmQuery query = new FilmQuery(releasedFrom, releasedTo, minDuration, maxDuration);
+        FilmView filmView = FilmView.fromParam(view);
+        if (after == null && limit == null && query.isEmpty()) {
+            // Версия хранилища читается до фильмов: тег не бывает новее тела
+            return ETags.ok(ETags.ofVersion(filmService.getVersion()))
+                    .body(json.films(filmService.getAllFilms(), filmView));
+        }
+        int pageSize = Pagination.limit(limit);
+        int afterId = after == null ? 0 : after;
+        List<Film> page = query.isEmpty() ? filmService.getFilms(afterId, pageSize)
+                : filmService.findFilms(query, afterId, pageSize);
+        return Pagination.page(page, pageSize, Film::getId, Film::getVersion).body(json.films(page, filmView));
+    }
+
+    @GetMapping(params = "stream=true")
+    public ResponseEntity<StreamingResponseBody> streamFilms(@RequestParam(defaultValue = "0") int after) {
+        return Pagination.stream(json::film, after,
+                afterId -> filmService.getFilms(afterId, Pagination.STREAM_CHUNK_SIZE), Film::getId);
     }
 
     @PostMapping
-    public Film create(@Valid @RequestBody Film film) {
+    public Film create(@RequestBody Film film) {
         return filmService.create(film);
     }
 
+    // Пакетная загрузка: JSON-массив или NDJSON, в ответе отчет по каждому отклоненному элементу
+    @PostMapping(value = "/batch", consumes = MediaType.APPLICATION_JSON_VALUE)
+    public BatchResult createAll(@RequestBody List<Film> films) {
+        return filmService.createAll(films);
+    }
+
+    @PostMapping(value = "/batch", consumes = Pagination.NDJSON_VALUE)
+    public BatchResult createAll(InputStream body) throws IOException {
+        return filmService.createAll(BatchRequests.readNdjson(objectMapper, Film.class, body));
+    }
+
+    @PostMapping(value = "/likes/batch", consumes = MediaType.APPLICATION_JSON_VALUE)
+    public BatchResult addLikes(@RequestBody List<Like> likes) {
+        return filmService.addLikes(likes);
+    }
+
+    @PostMapping(value = "/likes/batch", consumes = Pagination.NDJSON_VALUE)
+    public BatchResult addLikes(InputStream body) throws IOException {
+        return filmService.addLikes(BatchRequests.readNdjson(objectMapper, Like.class, body));
+    }
+
     @PutMapping
-    public Film update(@Valid @RequestBody Film film) {
+    public Film update(@RequestBody Film film) {
         return filmService.update(film);
     }
 
+    @DeleteMapping("/{id}")
+    public void delete(@PathVariable int id) {
+        filmService.delete(id);
+    }
+
     @PutMapping("/{id}/like/{userId}")
     public void addLike(@PathVariable int id, @PathVariable int userId) {
         filmService.addLike(id, userId);
@@ -43,8 +107,44 @@ public class FilmController {
     }
 
     @GetMapping("/popular")
-    public List<Film> getPopularFilms(@RequestParam(defaultValue = "10") int count) {
-        return filmService.getPopularFilms(count);
+    public ResponseEntity<?> getPopularFilms(@RequestParam(defaultValue = "10") int count,
+                                             @RequestParam(required = false) String window,
+                                             @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE)
+                                             LocalDate releasedFrom,
+                                             @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE)
+                                             LocalDate releasedTo,
+                                             @RequestParam(required = false) Integer minDuration,
+                                             @RequestParam(required = false) Integer maxDuration,
+                                             @RequestParam(defaultValue = "full") String view) {
+        FilmQuery query = new FilmQuery(releasedFrom, releasedTo, minDuration, maxDuration);
+        FilmView filmView = FilmView.fromParam(view);
+        List<Film> films;
+        if (window != null) {
+            films = filmService.getPopularFilms(count, TrendWindow.fromParam(window));
+        } else if (!query.isEmpty()) {
+            films = filmService.getPopularFilms(count, query);
+        } else if (filmView == FilmView.FULL) {
+            return popularFilms.response(count, filmService.getPopularFilms(count));
+        } else {
+            films = filmService.getPopularFilms(count);
+        }
+        return filmList(films, filmView);
+    }
+
+    @GetMapping("/search")
+    public ResponseEntity<JsonArray> search(@RequestParam String q, @RequestParam(defaultValue = "20") int limit,
+                                            @RequestParam(defaultValue = "full") String view) {
+        return filmList(filmService.search(q, limit), FilmView.fromParam(view));
+    }
+
+    @GetMapping("/trending")
+    public ResponseEntity<JsonArray> getTrendingFilms(@RequestParam(defaultValue = "10") int count,
+                                                      @RequestParam(defaultValue = "full") String view) {
+        return filmList(filmService.getTrendingFilms(count), FilmView.fromParam(view));
+    }
+
+    private ResponseEntity<JsonArray> filmList(List<Film> films, FilmView view) {
+        return ETags.ok(ETags.ofList(films, Film::getId, Film::getVersion)).body(json.films(films, view));
     }
 }
 
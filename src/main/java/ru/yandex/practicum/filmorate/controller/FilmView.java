@@ -0,0 +1,24 @@
+package ru.yandex.practicum.filmorate.controller;
+
+import ru.yandex.practicum.filmorate.exceptions.ValidationException;
+
+// Представление фильмов в списках (?view=full|compact)
+public enum FilmView {
+    FULL("full"),
+    COMPACT("compact");
+
+    private final String param;
+
+    FilmView(String param) {
+        this.param = param;
+    }
+
+    public static FilmView fromParam(String param) {
+        for (FilmView view : values()) {
+            if (view.param.equals(param)) {
+                return view;
+            }
+        }
+        throw new ValidationException("Представление должно быть full или compact");
+    }
+}
@@ -0,0 +1,62 @@
+package ru.yandex.practicum.filmorate.controller;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.List;
+import java.util.function.Supplier;
+
+// Тело-массив JSON из готовых фрагментов сущностей. Фрагменты достаются только при записи ответа:
+// на 304 кэш не трогается. Записывает JsonArrayHttpMessageConverter
+public final class JsonArray {
+    private final Supplier<List<byte[]>> source;
+    private List<byte[]> fragments;
+
+    JsonArray(Supplier<List<byte[]>> source) {
+        this.source = source;
+    }
+
+    public long length() {
+        List<byte[]> parts = fragments();
+        long length = 2 + Math.max(0, parts.size() - 1);
+        for (byte[] part : parts) {
+            length += part.length;
+        }
+        return length;
+    }
+
+    void writeTo(OutputStream out) throws IOException {
+        out.write('[');
+        List<byte[]> parts = fragments();
+        for (int i = 0; i < parts.size(); i++) {
+            if (i > 0) {
+                out.write(',');
+            }
+            out.write(parts.get(i));
+        }
+        out.write(']');
+    }
+
+    public byte[] toByteArray() {
+        byte[] result = new byte[Math.toIntExact(length())];
+        int position = 0;
+        result[position++] = '[';
+        List<byte[]> parts = fragments();
+        for (int i = 0; i < parts.size(); i++) {
+            if (i > 0) {
+                result[position++] = ',';
+            }
+            byte[] part = parts.get(i);
+            System.arraycopy(part, 0, result, position, part.length);
+            position += part.length;
+        }
+        result[position] = ']';
+        return result;
+    }
+
+    private List<byte[]> fragments() {
+        if (fragments == null) {
+            fragments = source.get();
+        }
+        return fragments;
+    }
+}
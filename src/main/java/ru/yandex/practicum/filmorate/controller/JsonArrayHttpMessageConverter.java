@@ -0,0 +1,42 @@
+package ru.yandex.practicum.filmorate.controller;
+
+import org.springframework.http.HttpInputMessage;
+import org.springframework.http.HttpOutputMessage;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.AbstractHttpMessageConverter;
+import org.springframework.http.converter.HttpMessageNotReadableException;
+
+import java.io.IOException;
+
+// Пишет JsonArray прямо в поток ответа, без промежуточного буфера и с известной длиной
+class JsonArrayHttpMessageConverter extends AbstractHttpMessageConverter<JsonArray> {
+
+    JsonArrayHttpMessageConverter() {
+        super(MediaType.APPLICATION_JSON);
+    }
+
+    @Override
+    protected boolean supports(Class<?> clazz) {
+        return JsonArray.class.isAssignableFrom(clazz);
+    }
+
+    @Override
+    protected boolean canRead(MediaType mediaType) {
+        return false;
+    }
+
+    @Override
+    protected JsonArray readInternal(Class<? extends JsonArray> clazz, HttpInputMessage inputMessage) {
+        throw new HttpMessageNotReadableException("JsonArray только для ответов", inputMessage);
+    }
+
+    @Override
+    protected Long getContentLength(JsonArray array, MediaType contentType) {
+        return array.length();
+    }
+
+    @Override
+    protected void writeInternal(JsonArray array, HttpOutputMessage outputMessage) throws IOException {
+        array.writeTo(outputMessage.getBody());
+    }
+}
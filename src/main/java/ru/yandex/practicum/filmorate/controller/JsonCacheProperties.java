@@ -0,0 +1,12 @@
+package ru.yandex.practicum.filmorate.controller;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+import org.springframework.util.unit.DataSize;
+
+@ConfigurationProperties(prefix = "filmorate.json-cache")
+public record JsonCacheProperties(
+        @DefaultValue("true") boolean enabled,
+        // Предел суммарного размера готового JSON на каждый кэш (фильмы, компактные фильмы, пользователи)
+        @DefaultValue("128MB") DataSize maximumSize) {
+}
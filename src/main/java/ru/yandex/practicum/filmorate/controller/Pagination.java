@@ -0,0 +1,70 @@
+package ru.yandex.practicum.filmorate.controller;
+
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import ru.yandex.practicum.filmorate.exceptions.ValidationException;
+
+import java.util.List;
+import java.util.function.Function;
+import java.util.function.IntFunction;
+import java.util.function.ToIntFunction;
+import java.util.function.ToLongFunction;
+
+// Постраничная выдача по курсору (?after=<id>&limit=) и потоковая выдача в NDJSON
+final class Pagination {
+    static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
+    static final String NDJSON_VALUE = "application/x-ndjson";
+    static final MediaType NDJSON = MediaType.parseMediaType(NDJSON_VALUE);
+    static final int DEFAULT_PAGE_SIZE = 100;
+    static final int MAX_PAGE_SIZE = 1000;
+    // Сколько сущностей за раз забирается из хранилища при потоковой выдаче
+    static final int STREAM_CHUNK_SIZE = 500;
+
+    private Pagination() {
+    }
+
+    static int limit(Integer limit) {
+        if (limit == null) {
+            return DEFAULT_PAGE_SIZE;
+        }
+        if (limit <= 0) {
+            throw new ValidationException("Limit должен быть больше 0");
+        }
+        return Math.min(limit, MAX_PAGE_SIZE);
+    }
+
+    // Заголовки страницы: если она заполнена целиком, передается курсор для следующего запроса;
+    // ETag собирается из id и версий ее сущностей
+    static <T> ResponseEntity.BodyBuilder page(List<T> page, int limit, ToIntFunction<T> idOf,
+                                               ToLongFunction<T> versionOf) {
+        ResponseEntity.BodyBuilder response = ETags.ok(ETags.ofList(page, idOf, versionOf));
+        if (page.size() == limit) {
+            response.header(NEXT_CURSOR_HEADER, String.valueOf(idOf.applyAsInt(page.get(page.size() - 1))));
+        }
+        return response;
+    }
+
+    // Сущности пишутся по одной на строку по мере чтения из хранилища, весь список в памяти не собирается.
+    // JSON сущности берется готовым из EntityJson
+    static <T> ResponseEntity<StreamingResponseBody> stream(Function<T, byte[]> json, int afterId,
+                                                           IntFunction<List<T>> chunkAfter, ToIntFunction<T> idOf) {
+        StreamingResponseBody body = out -> {
+            int cursor = afterId;
+            List<T> chunk = chunkAfter.apply(cursor);
+            while (!chunk.isEmpty()) {
+                for (T entity : chunk) {
+                    out.write(json.apply(entity));
+                    out.write('\n');
+                }
+                out.flush();
+                if (chunk.size() < STREAM_CHUNK_SIZE) {
+                    break;
+                }
+                cursor = idOf.applyAsInt(chunk.get(chunk.size() - 1));
+                chunk = chunkAfter.apply(cursor);
+            }
+        };
+        return ResponseEntity.ok().contentType(NDJSON).body(body);
+    }
+}
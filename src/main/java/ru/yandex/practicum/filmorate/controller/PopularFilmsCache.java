@@ -0,0 +1,50 @@
+package ru.yandex.practicum.filmorate.controller;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.model.Film;
+
+import java.util.List;
+
+// Готовые байты ответа /films/popular без фильтров, по записи на каждый count. Запись заменяется, только когда
+// меняется тег топа - состав, порядок или версия одного из его фильмов (в теле есть лайки, так что лайк фильму
+// из топа тоже меняет ответ). Пока топ прежний, список берется из индекса популярности, но не сериализуется
+@Component
+class PopularFilmsCache {
+    // Разных count на практике единицы; предел защищает от перебора count в запросах
+    private static final int MAX_ENTRIES = 64;
+
+    private final EntityJson json;
+    private final Cache<Integer, Entry> entries;
+
+    PopularFilmsCache(EntityJson json, MeterRegistry registry) {
+        this.json = json;
+        this.entries = Caffeine.newBuilder()
+                .maximumSize(MAX_ENTRIES)
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(registry, entries, "popular-films");
+    }
+
+    ResponseEntity<?> response(int count, List<Film> films) {
+        String eTag = ETags.ofList(films, Film::getId, Film::getVersion);
+        if (eTag == null) {
+            return ResponseEntity.ok(films);
+        }
+        Entry entry = entries.getIfPresent(count);
+        if (entry == null || !entry.eTag().equals(eTag)) {
+            // Собирается из фрагментов фильмов: после лайка заново сериализуется только этот фильм
+            entry = new Entry(eTag, json.films(films, FilmView.FULL).toByteArray());
+            entries.put(count, entry);
+        }
+        return ResponseEntity.ok().eTag(eTag).contentType(MediaType.APPLICATION_JSON).body(entry.body());
+    }
+
+    private record Entry(String eTag, byte[] body) {
+    }
+}
@@ -1,14 +1,24 @@
 package ru.yandex.practicum.filmorate.controller;
 
-import jakarta.validation.Valid;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import ru.yandex.practicum.filmorate.model.BatchResult;
+import ru.yandex.practicum.filmorate.model.Friendship;
 import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.model.UserQuery;
+import ru.yandex.practicum.filmorate.services.FilmService;
 import ru.yandex.practicum.filmorate.services.UserService;
 
-import java.util.Collection;
-import java.util.Set;
+import java.io.IOException;
+import java.io.InputStream;
+import java.time.LocalDate;
+import java.util.List;
 
 @RestController
 @Slf4j
@@ -16,22 +26,76 @@ import java.util.Set;
 @RequiredArgsConstructor
 public class UserController {
     private final UserService userService;
+    private final FilmService filmService;
+    private final ObjectMapper objectMapper;
+    private final EntityJson json;
 
     @GetMapping
-    public Collection<User> getAllUsers() {
-        return userService.getAllUsers();
+    public ResponseEntity<JsonArray> getAllUsers(@RequestParam(required = false) Integer after,
+                                                 @RequestParam(required = false) Integer limit,
+                                                 @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE)
+                                                 LocalDate bornFrom,
+                                                 @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE)
+                                                 LocalDate bornTo) {
+        UserQuery query = new UserQuery(bornFrom, bornTo);
+        if (after == null && limit == null && query.isEmpty()) {
+            return ETags.ok(ETags.ofVersion(userService.getVersion()))
+                    .body(json.users(userService.getAllUsers()));
+        }
+        int pageSize = Pagination.limit(limit);
+        int afterId = after == null ? 0 : after;
+        List<User> page = query.isEmpty() ? userService.getUsers(afterId, pageSize)
+                : userService.findUsers(query, afterId, pageSize);
+        return Pagination.page(page, pageSize, User::getId, User::getVersion).body(json.users(page));
+    }
+
+    @GetMapping(params = "stream=true")
+    public ResponseEntity<StreamingResponseBody> streamUsers(@RequestParam(defaultValue = "0") int after) {
+        return Pagination.stream(json::user, after,
+                afterId -> userService.getUsers(afterId, Pagination.STREAM_CHUNK_SIZE), User::getId);
     }
 
     @PostMapping
-    public User create(@Valid @RequestBody User user) {
+    public User create(@RequestBody User user) {
         return userService.create(user);
     }
 
+    // Пакетная загрузка: JSON-массив или NDJSON, в ответе отчет по каждому отклоненному элементу
+    @PostMapping(value = "/batch", consumes = MediaType.APPLICATION_JSON_VALUE)
+    public BatchResult createAll(@RequestBody List<User> users) {
+        return userService.createAll(users);
+    }
+
+    @PostMapping(value = "/batch", consumes = Pagination.NDJSON_VALUE)
+    public BatchResult createAll(InputStream body) throws IOException {
+        return userService.createAll(BatchRequests.readNdjson(objectMapper, User.class, body));
+    }
+
+    @PostMapping(value = "/friends/batch", consumes = MediaType.APPLICATION_JSON_VALUE)
+    public BatchResult addFriends(@RequestBody List<Friendship> friendships) {
+        return userService.addFriends(friendships);
+    }
+
+    @PostMapping(value = "/friends/batch", consumes = Pagination.NDJSON_VALUE)
+    public BatchResult addFriends(InputStream body) throws IOException {
+        return userService.addFriends(BatchRequests.readNdjson(objectMapper, Friendship.class, body));
+    }
+
     @PutMapping
-    public User update(@Valid @RequestBody User user) {
+    public User update(@RequestBody User user) {
         return userService.update(user);
     }
 
+    @DeleteMapping("/{id}")
+    public void delete(@PathVariable int id) {
+        userService.delete(id);
+    }
+
+    @GetMapping("/{id}/likes")
+    public ResponseEntity<JsonArray> getLikedFilms(@PathVariable int id) {
+        return ResponseEntity.ok(json.films(filmService.getLikedFilms(id), FilmView.FULL));
+    }
+
     @PutMapping("/{id}/friends/{friendId}")
     public void addFriend(@PathVariable int id, @PathVariable int friendId) {
         userService.addFriend(id, friendId);
@@ -43,12 +107,28 @@ public class UserController {
     }
 
     @GetMapping("/{id}/friends/common/{otherId}")
-    public Set<User> getMutualFriends(@PathVariable int id, @PathVariable int otherId) {
-        return userService.getMutualFriends(id, otherId);
+    public ResponseEntity<JsonArray> getMutualFriends(@PathVariable int id, @PathVariable int otherId) {
+        return userList(userService.getMutualFriends(id, otherId));
+    }
+
+    @GetMapping("/{id}/recommendations")
+    public ResponseEntity<JsonArray> getRecommendations(@PathVariable int id,
+                                                        @RequestParam(defaultValue = "10") int count) {
+        return ResponseEntity.ok(json.users(userService.getRecommendations(id, count)));
+    }
+
+    @GetMapping("/{id}/recommended-films")
+    public ResponseEntity<JsonArray> getRecommendedFilms(@PathVariable int id,
+                                                         @RequestParam(defaultValue = "10") int count) {
+        return ResponseEntity.ok(json.films(filmService.getRecommendedFilms(id, count), FilmView.FULL));
     }
 
     @GetMapping("/{id}/friends")
-    public Set<User> getFriends(@PathVariable int id) {
-        return userService.getFriends(id);
+    public ResponseEntity<JsonArray> getFriends(@PathVariable int id) {
+        return userList(userService.getFriends(id));
+    }
+
+    private ResponseEntity<JsonArray> userList(List<User> users) {
+        return ETags.ok(ETags.ofList(users, User::getId, User::getVersion)).body(json.users(users));
     }
 }
@@ -0,0 +1,33 @@
+package ru.yandex.practicum.filmorate.controller;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+import java.util.List;
+
+@Configuration
+@EnableConfigurationProperties({AdmissionProperties.class, JsonCacheProperties.class})
+@RequiredArgsConstructor
+public class WebConfiguration implements WebMvcConfigurer {
+    private final AdmissionProperties admissionProperties;
+    private final MeterRegistry registry;
+
+    @Override
+    public void addInterceptors(InterceptorRegistry interceptors) {
+        if (admissionProperties.enabled()) {
+            interceptors.addInterceptor(new AdmissionControlInterceptor(admissionProperties, registry))
+                    .addPathPatterns("/films/**", "/users/**", "/events");
+        }
+    }
+
+    // Списки из готовых фрагментов JSON пишутся раньше, чем до них дойдет Jackson
+    @Override
+    public void extendMessageConverters(List<HttpMessageConverter<?>> converters) {
+        converters.add(0, new JsonArrayHttpMessageConverter());
+    }
+}
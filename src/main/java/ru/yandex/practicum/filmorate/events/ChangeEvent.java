@@ -0,0 +1,19 @@
+package ru.yandex.practicum.filmorate.events;
+
+// Событие ленты изменений. Несет только id: потребитель сам запрашивает актуальное состояние сущности.
+// otherId - пользователь лайка или друг в событиях дружбы, в остальных событиях 0
+public record ChangeEvent(long offset, Type type, int id, int otherId, long timestamp) {
+
+    public enum Type {
+        FILM_CREATED,
+        FILM_UPDATED,
+        FILM_DELETED,
+        LIKE_ADDED,
+        LIKE_REMOVED,
+        USER_CREATED,
+        USER_UPDATED,
+        USER_DELETED,
+        FRIEND_ADDED,
+        FRIEND_REMOVED
+    }
+}
@@ -0,0 +1,121 @@
+package ru.yandex.practicum.filmorate.events;
+
+import java.lang.invoke.VarHandle;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+// Лента изменений в кольцевом буфере фиксированного размера. Ячейки выделены заранее, поэтому публикация
+// не создает объектов: писатель берет смещение одним getAndIncrement, помечает ячейку смещение & mask как
+// занятую, записывает поля и публикует смещение в ячейке. Писатель не ждет читателей; читатель проверяет
+// смещение ячейки до и после чтения полей и, если писатели ушли на круг вперед, получает разрыв
+public class ChangeFeed {
+    private static final ChangeEvent.Type[] TYPES = ChangeEvent.Type.values();
+
+    // В ячейке хранится смещение + 1: 0 - ячейка пуста, отрицательное - идет запись этого смещения
+    private final AtomicLongArray sequences;
+    private final int[] types;
+    // id << 32 | otherId
+    private final long[] ids;
+    private final long[] timestamps;
+    private final int mask;
+    private final AtomicLong sequence = new AtomicLong();
+
+    public ChangeFeed(int capacity) {
+        if (capacity <= 0 || Integer.bitCount(capacity) != 1) {
+            throw new IllegalArgumentException("Емкость ленты изменений должна быть степенью двойки: " + capacity);
+        }
+        this.sequences = new AtomicLongArray(capacity);
+        this.types = new int[capacity];
+        this.ids = new long[capacity];
+        this.timestamps = new long[capacity];
+        this.mask = capacity - 1;
+    }
+
+    public long publish(ChangeEvent.Type type, int id, int otherId) {
+        long offset = sequence.getAndIncrement();
+        long stamp = offset + 1;
+        int index = (int) (offset & mask);
+        while (true) {
+            long current = sequences.get(index);
+            if (Math.abs(current) >= stamp) {
+                // Ячейку уже занял следующий круг: это событие читатели и так увидят как пропущенное
+                return offset;
+            }
+            if (current < 0) {
+                // Писатель прошлого круга еще пишет поля. Возможно, только если буфер обернулся за время
+                // нескольких записей одного потока; ожидание ограничено этими записями
+                Thread.onSpinWait();
+                continue;
+            }
+            if (sequences.compareAndSet(index, current, -stamp)) {
+                break;
+            }
+        }
+        types[index] = type.ordinal();
+        ids[index] = ((long) id << 32) | (otherId & 0xFFFFFFFFL);
+        timestamps[index] = System.currentTimeMillis();
+        sequences.set(index, stamp);
+        return offset;
+    }
+
+    // Смещение, которое получит следующее событие
+    public long head() {
+        return sequence.get();
+    }
+
+    // Самое старое смещение, которое еще может лежать в буфере
+    public long oldest() {
+        return Math.max(0, sequence.get() - sequences.length());
+    }
+
+    // До max событий начиная со смещения from. Если первые из них уже перезаписаны, missed - сколько смещений
+    // пропущено начиная с from, и чтение продолжается с самого старого сохранившегося. Разрыв всегда идет
+    // перед событиями пачки: обнаруженный после них оставляется следующему чтению
+    public Batch read(long from, int max) {
+        List<ChangeEvent> events = new ArrayList<>(Math.min(max, 64));
+        long next = Math.max(0, from);
+        long missed = 0;
+        while (events.size() < max) {
+            long oldest = oldest();
+            if (next < oldest) {
+                if (!events.isEmpty()) {
+                    break;
+                }
+                missed += oldest - next;
+                next = oldest;
+            }
+            int index = (int) (next & mask);
+            long stamp = next + 1;
+            long current = sequences.get(index);
+            if (Math.abs(current) > stamp) {
+                // Ячейку занял следующий круг: на следующей итерации next догонит oldest
+                continue;
+            }
+            if (current != stamp) {
+                // Смещение еще не выдано или писатель не успел его опубликовать: дальше читать нечего
+                break;
+            }
+            int type = types[index];
+            long pair = ids[index];
+            long timestamp = timestamps[index];
+            VarHandle.acquireFence();
+            if (sequences.get(index) != stamp) {
+                // Пока читались поля, ячейку начал переписывать следующий круг
+                continue;
+            }
+            events.add(new ChangeEvent(next, TYPES[type], (int) (pair >>> 32), (int) pair, timestamp));
+            next++;
+        }
+        return new Batch(events, next, missed);
+    }
+
+    public int capacity() {
+        return sequences.length();
+    }
+
+    // next - смещение, с которого читать дальше
+    public record Batch(List<ChangeEvent> events, long next, long missed) {
+    }
+}
@@ -0,0 +1,22 @@
+package ru.yandex.practicum.filmorate.events;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+@EnableConfigurationProperties(ChangeFeedProperties.class)
+public class ChangeFeedConfiguration {
+
+    @Bean
+    public ChangeFeed changeFeed(ChangeFeedProperties properties) {
+        return new ChangeFeed(properties.capacity());
+    }
+
+    @Bean
+    public ChangeFeedStreamer changeFeedStreamer(ChangeFeed changeFeed, ChangeFeedProperties properties,
+                                                 MeterRegistry registry) {
+        return new ChangeFeedStreamer(changeFeed, properties, registry);
+    }
+}
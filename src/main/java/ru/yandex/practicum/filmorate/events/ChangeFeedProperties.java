@@ -0,0 +1,20 @@
+package ru.yandex.practicum.filmorate.events;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.time.Duration;
+
+@ConfigurationProperties(prefix = "filmorate.events")
+public record ChangeFeedProperties(
+        // Сколько последних событий хранит кольцевой буфер (степень двойки); столько может отстать подписчик
+        @DefaultValue("65536") int capacity,
+        // Как часто догнавший ленту подписчик проверяет новые события
+        @DefaultValue("50ms") Duration pollInterval,
+        // Сколько событий подписчик забирает за одно чтение
+        @DefaultValue("256") int batchSize,
+        // Комментарий в простаивающий поток: проверяет, что клиент еще подключен
+        @DefaultValue("15s") Duration heartbeat,
+        // После этого подписка закрывается, клиент переподключается с Last-Event-ID
+        @DefaultValue("30m") Duration timeout) {
+}
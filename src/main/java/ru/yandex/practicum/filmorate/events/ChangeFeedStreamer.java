@@ -0,0 +1,128 @@
+package ru.yandex.practicum.filmorate.events;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.MediaType;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Отдает ленту изменений подписчикам по Server-Sent Events. У каждого подписчика свой виртуальный поток
+// и свое смещение: медленный клиент задерживает только себя, писатели ленты его не ждут. Отставший больше
+// чем на емкость буфера получает событие gap с диапазоном потерянных смещений и читает дальше
+@Slf4j
+public class ChangeFeedStreamer implements Closeable {
+    private final ChangeFeed feed;
+    private final ChangeFeedProperties properties;
+    private final Set<Subscription> subscriptions = ConcurrentHashMap.newKeySet();
+    private final AtomicLong subscriptionIds = new AtomicLong();
+    private final Counter missed;
+
+    public ChangeFeedStreamer(ChangeFeed feed, ChangeFeedProperties properties, MeterRegistry registry) {
+        this.feed = feed;
+        this.properties = properties;
+        this.missed = registry.counter("filmorate.events.missed");
+        registry.gauge("filmorate.events.subscribers", subscriptions, Set::size);
+        registry.gauge("filmorate.events.head", feed, ChangeFeed::head);
+    }
+
+    // Подписка с события, следующего за after; без after - только новые события
+    public SseEmitter subscribe(Long after) {
+        long from = after == null ? feed.head() : after + 1;
+        SseEmitter emitter = new SseEmitter(properties.timeout().toMillis());
+        Subscription subscription = new Subscription(subscriptionIds.incrementAndGet(), emitter, from);
+        subscriptions.add(subscription);
+        emitter.onCompletion(subscription::stop);
+        emitter.onTimeout(subscription::stop);
+        emitter.onError(error -> subscription.stop());
+        subscription.thread = Thread.ofVirtual().name("change-feed-" + subscription.id).start(subscription::run);
+        log.info("Подписка {} на ленту изменений со смещения {}", subscription.id, from);
+        return emitter;
+    }
+
+    @Override
+    public void close() {
+        for (Subscription subscription : subscriptions) {
+            subscription.emitter.complete();
+            subscription.stop();
+        }
+    }
+
+    private final class Subscription {
+        private final long id;
+        private final SseEmitter emitter;
+        private long next;
+        private volatile boolean stopped;
+        private volatile Thread thread;
+
+        private Subscription(long id, SseEmitter emitter, long next) {
+            this.id = id;
+            this.emitter = emitter;
+            this.next = next;
+        }
+
+        private void run() {
+            long idleSince = System.nanoTime();
+            try {
+                while (!stopped) {
+                    ChangeFeed.Batch batch = feed.read(next, properties.batchSize());
+                    if (batch.missed() > 0) {
+                        sendGap(Math.max(0, next), batch.missed());
+                    }
+                    for (ChangeEvent event : batch.events()) {
+                        emitter.send(SseEmitter.event()
+                                .id(Long.toString(event.offset()))
+                                .name(event.type().name())
+                                .data(event, MediaType.APPLICATION_JSON));
+                    }
+                    next = batch.next();
+                    if (!batch.events().isEmpty() || batch.missed() > 0) {
+                        idleSince = System.nanoTime();
+                        continue;
+                    }
+                    if (System.nanoTime() - idleSince >= properties.heartbeat().toNanos()) {
+                        emitter.send(SseEmitter.event().comment("heartbeat"));
+                        idleSince = System.nanoTime();
+                    }
+                    TimeUnit.NANOSECONDS.sleep(properties.pollInterval().toNanos());
+                }
+            } catch (IOException | IllegalStateException e) {
+                // Клиент отключился или подписка уже завершена
+                log.debug("Подписка {} на ленту изменений прервана: {}", id, e.getMessage());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } finally {
+                stop();
+            }
+        }
+
+        // Событие gap без id: Last-Event-ID клиента остается последним полученным событием
+        private void sendGap(long from, long count) throws IOException {
+            missed.increment(count);
+            log.warn("Подписчик {} отстал от ленты изменений, пропущено {} событий", id, count);
+            emitter.send(SseEmitter.event()
+                    .name("gap")
+                    .data(Map.of("from", from, "to", from + count), MediaType.APPLICATION_JSON));
+        }
+
+        private synchronized void stop() {
+            if (stopped) {
+                return;
+            }
+            stopped = true;
+            subscriptions.remove(this);
+            Thread current = thread;
+            if (current != null && current != Thread.currentThread()) {
+                current.interrupt();
+            }
+            log.info("Подписка {} на ленту изменений закрыта", id);
+        }
+    }
+}
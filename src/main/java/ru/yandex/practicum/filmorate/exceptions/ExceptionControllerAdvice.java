@@ -1,18 +1,28 @@
 package ru.yandex.practicum.filmorate.exceptions;
 
+import com.fasterxml.jackson.core.JsonProcessingException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
-import org.springframework.validation.FieldError;
-import org.springframework.web.bind.MethodArgumentNotValidException;
+import org.springframework.http.converter.HttpMessageNotReadableException;
 import org.springframework.web.bind.annotation.ControllerAdvice;
 import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.bind.annotation.ResponseStatus;
+import ru.yandex.practicum.filmorate.validation.ViolationException;
 
-import java.util.HashMap;
 import java.util.Map;
 
 @ControllerAdvice
 public class ExceptionControllerAdvice {
+    // Ошибки валидации: правил фильмов и пользователей (тело запроса) и остальных проверок в сервисах
+    private final Counter invalidBodies;
+    private final Counter invalidRequests;
+
+    public ExceptionControllerAdvice(MeterRegistry registry) {
+        this.invalidBodies = registry.counter("filmorate.validation.failures", "source", "body");
+        this.invalidRequests = registry.counter("filmorate.validation.failures", "source", "service");
+    }
 
     @ExceptionHandler(NotFoundException.class)
     @ResponseStatus(HttpStatus.NOT_FOUND)
@@ -20,22 +30,22 @@ public class ExceptionControllerAdvice {
         return ResponseEntity.status(HttpStatus.NOT_FOUND).body(Map.of("error", "Объект не найден", "message", ex.getMessage()));
     }
 
-    @ExceptionHandler({IllegalArgumentException.class, ValidationException.class, FriendsException.class})
+    @ExceptionHandler({IllegalArgumentException.class, ValidationException.class, FriendsException.class,
+            HttpMessageNotReadableException.class, JsonProcessingException.class})
     @ResponseStatus(HttpStatus.BAD_REQUEST)
     public ResponseEntity<Map<String, String>> handleBadRequest(Exception ex) {
+        if (ex instanceof ValidationException) {
+            invalidRequests.increment();
+        }
         return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(Map.of("error", "Неверный запрос", "message", ex.getMessage()));
     }
 
-    @ExceptionHandler(MethodArgumentNotValidException.class)
+    // Тело ответа готово заранее у каждого правила: отказ не собирает новую карту
+    @ExceptionHandler(ViolationException.class)
     @ResponseStatus(HttpStatus.BAD_REQUEST)
-    public ResponseEntity<Map<String, String>> handleValidationExceptions(MethodArgumentNotValidException ex) {
-        Map<String, String> errors = new HashMap<>();
-        ex.getBindingResult().getAllErrors().forEach((error) -> {
-            String fieldName = ((FieldError) error).getField();
-            String errorMessage = error.getDefaultMessage();
-            errors.put(fieldName, errorMessage);
-        });
-        return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(errors);
+    public ResponseEntity<Map<String, String>> handleViolation(ViolationException ex) {
+        invalidBodies.increment();
+        return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(ex.getViolation().body());
     }
 
     @ExceptionHandler(Exception.class)
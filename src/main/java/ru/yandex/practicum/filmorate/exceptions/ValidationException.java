@@ -4,4 +4,9 @@ public class ValidationException extends RuntimeException {
     public ValidationException(String message) {
         super(message);
     }
+
+    // Для заранее созданных исключений, которые бросаются многократно: стек не заполняется
+    protected ValidationException(String message, boolean writableStackTrace) {
+        super(message, null, false, writableStackTrace);
+    }
 }
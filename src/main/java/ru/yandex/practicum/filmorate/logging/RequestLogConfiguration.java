@@ -0,0 +1,21 @@
+package ru.yandex.practicum.filmorate.logging;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+import org.zalando.logbook.Strategy;
+
+// Выборочный лог запросов. Профиль full-request-log возвращает прежний режим: стратегия Logbook по умолчанию
+// (все тела) и синхронная запись в консоль (см. logback-spring.xml)
+@Configuration
+@Profile("!full-request-log")
+@EnableConfigurationProperties(RequestLogProperties.class)
+public class RequestLogConfiguration {
+
+    @Bean
+    public Strategy sampledBodyStrategy(RequestLogProperties properties, MeterRegistry registry) {
+        return new SampledBodyStrategy(properties, registry);
+    }
+}
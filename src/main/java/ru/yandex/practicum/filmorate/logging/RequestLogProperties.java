@@ -0,0 +1,16 @@
+package ru.yandex.practicum.filmorate.logging;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.time.Duration;
+
+@ConfigurationProperties(prefix = "filmorate.request-log")
+public record RequestLogProperties(
+        // Доля обычных запросов, которые пишутся в лог с телами; остальные - только заголовки и статус
+        @DefaultValue("0.01") double sampleRate,
+        // Запросы дольше этого пишутся с телами всегда
+        @DefaultValue("500ms") Duration slowThreshold,
+        // Ответы с этим статусом и выше пишутся с телами всегда
+        @DefaultValue("400") int errorStatus) {
+}
@@ -0,0 +1,78 @@
+package ru.yandex.practicum.filmorate.logging;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.zalando.logbook.Correlation;
+import org.zalando.logbook.HttpRequest;
+import org.zalando.logbook.HttpResponse;
+import org.zalando.logbook.Precorrelation;
+import org.zalando.logbook.Sink;
+import org.zalando.logbook.Strategy;
+
+import java.io.IOException;
+import java.util.concurrent.ThreadLocalRandom;
+
+// Запрос и ответ пишутся одной записью после ответа. Тела попадают в нее у ошибок, медленных запросов и у выборки
+// sampleRate остальных; прочие записи - без тел. Статус и длительность известны только в конце, поэтому тела
+// буферизуются у всех запросов, а экономится их форматирование и запись
+public class SampledBodyStrategy implements Strategy {
+    private final double sampleRate;
+    private final long slowNanos;
+    private final int errorStatus;
+    private final Counter errors;
+    private final Counter slow;
+    private final Counter sampled;
+    private final Counter skipped;
+
+    public SampledBodyStrategy(RequestLogProperties properties, MeterRegistry registry) {
+        this.sampleRate = properties.sampleRate();
+        this.slowNanos = properties.slowThreshold().toNanos();
+        this.errorStatus = properties.errorStatus();
+        this.errors = registry.counter("filmorate.request.log", "bodies", "error");
+        this.slow = registry.counter("filmorate.request.log", "bodies", "slow");
+        this.sampled = registry.counter("filmorate.request.log", "bodies", "sampled");
+        this.skipped = registry.counter("filmorate.request.log", "bodies", "skipped");
+    }
+
+    @Override
+    public HttpRequest process(HttpRequest request) throws IOException {
+        return request.withBody();
+    }
+
+    // Запрос откладывается до ответа: решение о телах зависит от статуса и длительности
+    @Override
+    public void write(Precorrelation precorrelation, HttpRequest request, Sink sink) {
+    }
+
+    @Override
+    public HttpResponse process(HttpRequest request, HttpResponse response) throws IOException {
+        return response.withBody();
+    }
+
+    @Override
+    public void write(Correlation correlation, HttpRequest request, HttpResponse response, Sink sink)
+            throws IOException {
+        if (withBodies(correlation, response)) {
+            sink.write(correlation, request, response);
+        } else {
+            skipped.increment();
+            sink.write(correlation, request.withoutBody(), response.withoutBody());
+        }
+    }
+
+    private boolean withBodies(Correlation correlation, HttpResponse response) {
+        if (response.getStatus() >= errorStatus) {
+            errors.increment();
+            return true;
+        }
+        if (correlation.getDuration().toNanos() >= slowNanos) {
+            slow.increment();
+            return true;
+        }
+        if (ThreadLocalRandom.current().nextDouble() < sampleRate) {
+            sampled.increment();
+            return true;
+        }
+        return false;
+    }
+}
@@ -0,0 +1,34 @@
+package ru.yandex.practicum.filmorate.metrics;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.storage.interfaces.FilmStorage;
+import ru.yandex.practicum.filmorate.storage.interfaces.UserStorage;
+
+// Размеры хранилищ. Значения снимаются только при чтении метрик, на запросы это не влияет
+// Имена без суффикса .total: Prometheus дает его счетчикам filmorate.likes и filmorate.friendships из сервисов
+@Component
+@RequiredArgsConstructor
+public class StorageMetrics implements MeterBinder {
+    private final FilmStorage filmStorage;
+    private final UserStorage userStorage;
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("filmorate.films", filmStorage, FilmStorage::getFilmCount)
+                .description("Количество фильмов")
+                .register(registry);
+        Gauge.builder("filmorate.likes.stored", filmStorage, FilmStorage::getLikeCount)
+                .description("Сумма лайков по всем фильмам")
+                .register(registry);
+        Gauge.builder("filmorate.users", userStorage, UserStorage::getUserCount)
+                .description("Количество пользователей")
+                .register(registry);
+        Gauge.builder("filmorate.friendships.stored", userStorage, UserStorage::getFriendshipCount)
+                .description("Количество пар друзей")
+                .register(registry);
+    }
+}
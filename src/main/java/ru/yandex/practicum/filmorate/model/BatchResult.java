@@ -0,0 +1,12 @@
+package ru.yandex.practicum.filmorate.model;
+
+import java.util.List;
+
+// Итог пакетной операции: ids - id созданных сущностей в порядке входа (для связей пусто),
+// errors - отклоненные элементы с их номером во входном массиве. Для лайков и дружбы accepted - только новые связи,
+// duplicates - уже существовавшие и повторенные в пакете; accepted + rejected + duplicates = число элементов
+public record BatchResult(int accepted, int rejected, int duplicates, int[] ids, List<ItemError> errors) {
+
+    public record ItemError(int index, String message) {
+    }
+}
@@ -1,44 +1,44 @@
 package ru.yandex.practicum.filmorate.model;
 
-import jakarta.validation.constraints.*;
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import lombok.Data;
 import lombok.EqualsAndHashCode;
 
 import java.time.LocalDate;
-import java.util.HashSet;
-import java.util.Set;
 
+// Ограничения полей проверяет EntityValidators.FILM
 @Data
 public class Film {
     @EqualsAndHashCode.Include
     private int id;
 
-    @NotBlank(message = "Name cannot be blank")
     @EqualsAndHashCode.Exclude
     private String name;
 
-    @Size(max = 200, message = "Description cannot exceed 200 characters")
     @EqualsAndHashCode.Exclude
     private String description;
 
-    @NotNull(message = "Release date cannot be null")
-    @Past(message = "Release date must be in the past") // Добавлено @Past
     @EqualsAndHashCode.Exclude
     private LocalDate releaseDate;
 
-    @Positive(message = "Duration must be positive")
     @EqualsAndHashCode.Exclude
     private int duration;
 
     @EqualsAndHashCode.Exclude
-    private Set<Integer> likeScore = new HashSet<>();
+    private IntSet likeScore = new IntSet();
 
-    public void addLike(int userId) {
-        likeScore.add(userId);
+    // Значение счетчика хранилища при последнем изменении, основа ETag; 0 - хранилище версий не ведет.
+    // Ставится после самого изменения, поэтому прочитанная до сериализации версия не новее тела ответа
+    @JsonIgnore
+    @EqualsAndHashCode.Exclude
+    private volatile long version;
+
+    public boolean addLike(int userId) {
+        return likeScore.add(userId);
     }
 
-    public void removeLike(int userId) {
-        likeScore.remove(userId);
+    public boolean removeLike(int userId) {
+        return likeScore.remove(userId);
     }
 }
 
@@ -0,0 +1,29 @@
+package ru.yandex.practicum.filmorate.model;
+
+import java.time.LocalDate;
+
+// Условия выборки фильмов по диапазонам; null - без ограничения, границы включаются
+public record FilmQuery(LocalDate releasedFrom, LocalDate releasedTo, Integer minDuration, Integer maxDuration) {
+    public boolean isEmpty() {
+        return releasedFrom == null && releasedTo == null && minDuration == null && maxDuration == null;
+    }
+
+    public boolean hasReleaseRange() {
+        return releasedFrom != null || releasedTo != null;
+    }
+
+    public boolean hasDurationRange() {
+        return minDuration != null || maxDuration != null;
+    }
+
+    public boolean matches(Film film) {
+        LocalDate releaseDate = film.getReleaseDate();
+        if (hasReleaseRange() && (releaseDate == null
+                || releasedFrom != null && releaseDate.isBefore(releasedFrom)
+                || releasedTo != null && releaseDate.isAfter(releasedTo))) {
+            return false;
+        }
+        return (minDuration == null || film.getDuration() >= minDuration)
+                && (maxDuration == null || film.getDuration() <= maxDuration);
+    }
+}
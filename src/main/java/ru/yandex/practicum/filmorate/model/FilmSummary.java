@@ -0,0 +1,12 @@
+package ru.yandex.practicum.filmorate.model;
+
+import java.time.LocalDate;
+
+// Компактное представление фильма (?view=compact): число лайков вместо списка лайкнувших
+public record FilmSummary(int id, String name, String description, LocalDate releaseDate, int duration, int likes) {
+
+    public static FilmSummary of(Film film) {
+        return new FilmSummary(film.getId(), film.getName(), film.getDescription(), film.getReleaseDate(),
+                film.getDuration(), film.getLikeScore().size());
+    }
+}
@@ -0,0 +1,173 @@
+package ru.yandex.practicum.filmorate.model;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.PrimitiveIterator;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.IntFunction;
+
+// Конкурентная таблица id -> значение без упаковки ключей: поиск по int не выделяет Integer, как Map<Integer, T>.
+// id выдаются подряд, поэтому значения лежат в страницах по 1024 ячейки, страница ищется по старшим битам id.
+// Чтение без блокировок; страницы только добавляются, а таблица страниц растет копированием под монитором.
+// Обход идет по возрастанию id и, как у конкурентных карт, видит изменения, сделанные во время обхода, или нет.
+// Отрицательные id не хранятся
+public class IdTable<T> {
+    private static final int PAGE_BITS = 10;
+    private static final int PAGE_SIZE = 1 << PAGE_BITS;
+    private static final int PAGE_MASK = PAGE_SIZE - 1;
+    private static final VarHandle SLOTS = MethodHandles.arrayElementVarHandle(Object[].class);
+
+    private volatile Object[][] pages = new Object[16][];
+    private final AtomicInteger size = new AtomicInteger();
+
+    @SuppressWarnings("unchecked")
+    public T get(int id) {
+        Object[] page = page(id);
+        return page == null ? null : (T) SLOTS.getAcquire(page, id & PAGE_MASK);
+    }
+
+    public boolean containsKey(int id) {
+        return get(id) != null;
+    }
+
+    @SuppressWarnings("unchecked")
+    public T put(int id, T value) {
+        T old = (T) SLOTS.getAndSet(pageForWrite(id), id & PAGE_MASK, value);
+        if (old == null) {
+            size.incrementAndGet();
+        }
+        return old;
+    }
+
+    // Текущее значение, если оно есть; иначе value
+    @SuppressWarnings("unchecked")
+    public T putIfAbsent(int id, T value) {
+        T witness = (T) SLOTS.compareAndExchange(pageForWrite(id), id & PAGE_MASK, null, value);
+        if (witness == null) {
+            size.incrementAndGet();
+        }
+        return witness;
+    }
+
+    // Как у ConcurrentHashMap, но фабрика может вызваться и у проигравшего гонку потока: ее результат выбрасывается
+    public T computeIfAbsent(int id, IntFunction<T> factory) {
+        T value = get(id);
+        if (value != null) {
+            return value;
+        }
+        T created = factory.apply(id);
+        T witness = putIfAbsent(id, created);
+        return witness == null ? created : witness;
+    }
+
+    @SuppressWarnings("unchecked")
+    public T remove(int id) {
+        Object[] page = page(id);
+        if (page == null) {
+            return null;
+        }
+        T old = (T) SLOTS.getAndSet(page, id & PAGE_MASK, null);
+        if (old != null) {
+            size.decrementAndGet();
+        }
+        return old;
+    }
+
+    // Удаляет значение, только если по id лежит именно оно
+    public boolean remove(int id, T expected) {
+        Object[] page = page(id);
+        if (page == null || !SLOTS.compareAndSet(page, id & PAGE_MASK, expected, null)) {
+            return false;
+        }
+        size.decrementAndGet();
+        return true;
+    }
+
+    public int size() {
+        return size.get();
+    }
+
+    // Ближайший занятый id больше afterId или -1
+    public int nextId(int afterId) {
+        if (afterId == Integer.MAX_VALUE) {
+            return -1;
+        }
+        Object[][] snapshot = pages;
+        int id = Math.max(afterId + 1, 0);
+        for (int pageIndex = id >>> PAGE_BITS; pageIndex < snapshot.length; pageIndex++) {
+            Object[] page = snapshot[pageIndex];
+            if (page != null) {
+                for (int slot = pageIndex == id >>> PAGE_BITS ? id & PAGE_MASK : 0; slot < PAGE_SIZE; slot++) {
+                    if (SLOTS.getAcquire(page, slot) != null) {
+                        return (pageIndex << PAGE_BITS) | slot;
+                    }
+                }
+            }
+        }
+        return -1;
+    }
+
+    // Занятые id больше afterId по возрастанию
+    public PrimitiveIterator.OfInt ids(int afterId) {
+        return new PrimitiveIterator.OfInt() {
+            private int next = nextId(afterId);
+
+            @Override
+            public boolean hasNext() {
+                return next >= 0;
+            }
+
+            @Override
+            public int nextInt() {
+                if (next < 0) {
+                    throw new NoSuchElementException();
+                }
+                int id = next;
+                next = nextId(id);
+                return id;
+            }
+        };
+    }
+
+    // Снимок значений по возрастанию id
+    public List<T> values() {
+        List<T> result = new ArrayList<>(size());
+        for (int id = nextId(-1); id >= 0; id = nextId(id)) {
+            T value = get(id);
+            if (value != null) {
+                result.add(value);
+            }
+        }
+        return result;
+    }
+
+    private Object[] page(int id) {
+        Object[][] snapshot = pages;
+        int pageIndex = id >>> PAGE_BITS;
+        return id < 0 || pageIndex >= snapshot.length ? null : snapshot[pageIndex];
+    }
+
+    private Object[] pageForWrite(int id) {
+        if (id < 0) {
+            throw new IllegalArgumentException("Отрицательный id: " + id);
+        }
+        Object[] page = page(id);
+        return page != null ? page : addPage(id >>> PAGE_BITS);
+    }
+
+    private synchronized Object[] addPage(int pageIndex) {
+        Object[][] snapshot = pages;
+        if (pageIndex >= snapshot.length) {
+            snapshot = Arrays.copyOf(snapshot, Math.max(pageIndex + 1, snapshot.length * 2));
+        }
+        if (snapshot[pageIndex] == null) {
+            snapshot[pageIndex] = new Object[PAGE_SIZE];
+        }
+        pages = snapshot;
+        return snapshot[pageIndex];
+    }
+}
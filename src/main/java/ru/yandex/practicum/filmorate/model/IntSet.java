@@ -0,0 +1,257 @@
+package ru.yandex.practicum.filmorate.model;
+
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+// Компактное множество int без упаковки в Integer. Небольшие множества хранятся отсортированным массивом,
+// плотные - битовой картой. Для Jackson и остального кода это обычный Set<Integer>
+public class IntSet extends AbstractSet<Integer> {
+    private static final int[] EMPTY_VALUES = new int[0];
+    // Меньше этого размера отсортированный массив всегда выгоднее битовой карты
+    private static final int MIN_BITMAP_SIZE = 64;
+
+    private int[] values = EMPTY_VALUES;
+    private long[] words;
+    private int size;
+
+    public IntSet() {
+    }
+
+    public IntSet(int... ids) {
+        for (int id : ids) {
+            add(id);
+        }
+    }
+
+    public synchronized boolean add(int value) {
+        if (words != null) {
+            // Значение за концом карты растит ее, только если карта останется плотной (то же правило,
+            // что при переходе из массива); иначе множество возвращается в массив
+            if (value >= 0 && (value >> 6 < words.length || wordsFor(value) * 2 <= size + 1)) {
+                return addToBitmap(value);
+            }
+            toArrayMode();
+        }
+        return addToArray(value);
+    }
+
+    public synchronized boolean remove(int value) {
+        if (words == null) {
+            return removeFromArray(value);
+        }
+        if (!removeFromBitmap(value)) {
+            return false;
+        }
+        // Разреженную карту возвращаем в массив, когда он становится вдвое компактнее
+        if (size < words.length) {
+            toArrayMode();
+        }
+        return true;
+    }
+
+    public synchronized boolean contains(int value) {
+        if (words == null) {
+            return Arrays.binarySearch(values, 0, size, value) >= 0;
+        }
+        int word = value >> 6;
+        return value >= 0 && word < words.length && (words[word] & (1L << value)) != 0;
+    }
+
+    // Снимок содержимого в порядке возрастания
+    public synchronized int[] toIntArray() {
+        if (words == null) {
+            return Arrays.copyOf(values, size);
+        }
+        int[] result = new int[size];
+        int index = 0;
+        for (int i = 0; i < words.length; i++) {
+            long word = words[i];
+            while (word != 0) {
+                result[index++] = (i << 6) + Long.numberOfTrailingZeros(word);
+                word &= word - 1;
+            }
+        }
+        return result;
+    }
+
+    // Пересечение с другим множеством в порядке возрастания. Меньшее множество копируется,
+    // большее читается под его блокировкой, чтобы галопирование не трогало его целиком
+    public int[] intersect(IntSet other) {
+        if (other == this) {
+            return toIntArray();
+        }
+        IntSet small = size() <= other.size() ? this : other;
+        IntSet large = small == this ? other : this;
+        int[] smallValues;
+        long[] smallWords;
+        int smallSize;
+        synchronized (small) {
+            smallSize = small.size;
+            smallWords = small.words == null ? null : small.words.clone();
+            smallValues = small.words == null ? Arrays.copyOf(small.values, smallSize) : EMPTY_VALUES;
+        }
+        synchronized (large) {
+            return IntSetIntersection.intersect(smallValues, smallSize, smallWords, large.values, large.size, large.words);
+        }
+    }
+
+    // Текущее представление, для проверок переходов между массивом и картой
+    synchronized boolean isBitmap() {
+        return words != null;
+    }
+
+    @Override
+    public synchronized int size() {
+        return size;
+    }
+
+    @Override
+    public synchronized void clear() {
+        values = EMPTY_VALUES;
+        words = null;
+        size = 0;
+    }
+
+    @Override
+    public boolean add(Integer value) {
+        return add(value.intValue());
+    }
+
+    @Override
+    public boolean remove(Object value) {
+        return value instanceof Integer id && remove(id.intValue());
+    }
+
+    @Override
+    public boolean contains(Object value) {
+        return value instanceof Integer id && contains(id.intValue());
+    }
+
+    @Override
+    public synchronized int hashCode() {
+        int hash = 0;
+        if (words == null) {
+            for (int i = 0; i < size; i++) {
+                hash += values[i];
+            }
+            return hash;
+        }
+        for (int i = 0; i < words.length; i++) {
+            long word = words[i];
+            while (word != 0) {
+                hash += (i << 6) + Long.numberOfTrailingZeros(word);
+                word &= word - 1;
+            }
+        }
+        return hash;
+    }
+
+    // Итерация идет по снимку, поэтому параллельные изменения не приводят к ConcurrentModificationException
+    @Override
+    public Iterator<Integer> iterator() {
+        int[] snapshot = toIntArray();
+        return new Iterator<>() {
+            private int next;
+
+            @Override
+            public boolean hasNext() {
+                return next < snapshot.length;
+            }
+
+            @Override
+            public Integer next() {
+                if (next >= snapshot.length) {
+                    throw new NoSuchElementException();
+                }
+                return snapshot[next++];
+            }
+
+            @Override
+            public void remove() {
+                if (next == 0) {
+                    throw new IllegalStateException();
+                }
+                IntSet.this.remove(snapshot[next - 1]);
+            }
+        };
+    }
+
+    private boolean addToArray(int value) {
+        int index = Arrays.binarySearch(values, 0, size, value);
+        if (index >= 0) {
+            return false;
+        }
+        index = -index - 1;
+        if (size == values.length) {
+            values = Arrays.copyOf(values, Math.max(4, size + (size >> 1)));
+        }
+        System.arraycopy(values, index, values, index + 1, size - index);
+        values[index] = value;
+        size++;
+        if (size >= MIN_BITMAP_SIZE && values[0] >= 0 && wordsFor(values[size - 1]) * 2 <= size) {
+            toBitmapMode();
+        }
+        return true;
+    }
+
+    private boolean removeFromArray(int value) {
+        int index = Arrays.binarySearch(values, 0, size, value);
+        if (index < 0) {
+            return false;
+        }
+        System.arraycopy(values, index + 1, values, index, size - index - 1);
+        size--;
+        if (values.length > 16 && size < values.length >> 2) {
+            values = Arrays.copyOf(values, values.length >> 1);
+        }
+        return true;
+    }
+
+    private boolean addToBitmap(int value) {
+        int word = value >> 6;
+        if (word >= words.length) {
+            // Запас на рост не выводит карту за правило плотности
+            int grown = Math.min(words.length + (words.length >> 1), (size + 1) / 2);
+            words = Arrays.copyOf(words, Math.max(word + 1, grown));
+        }
+        long mask = 1L << value;
+        if ((words[word] & mask) != 0) {
+            return false;
+        }
+        words[word] |= mask;
+        size++;
+        return true;
+    }
+
+    private boolean removeFromBitmap(int value) {
+        int word = value >> 6;
+        long mask = 1L << value;
+        if (value < 0 || word >= words.length || (words[word] & mask) == 0) {
+            return false;
+        }
+        words[word] &= ~mask;
+        size--;
+        return true;
+    }
+
+    private void toBitmapMode() {
+        long[] bitmap = new long[wordsFor(values[size - 1])];
+        for (int i = 0; i < size; i++) {
+            bitmap[values[i] >> 6] |= 1L << values[i];
+        }
+        words = bitmap;
+        values = EMPTY_VALUES;
+    }
+
+    private void toArrayMode() {
+        int[] array = toIntArray();
+        words = null;
+        values = array;
+    }
+
+    private static int wordsFor(int maxValue) {
+        return (maxValue >> 6) + 1;
+    }
+}
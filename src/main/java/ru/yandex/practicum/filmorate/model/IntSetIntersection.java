@@ -0,0 +1,166 @@
+package ru.yandex.practicum.filmorate.model;
+
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+// Алгоритмы пересечения для представлений IntSet. Первое множество всегда не больше второго
+final class IntSetIntersection {
+    // Во сколько раз большее множество должно превосходить меньшее, чтобы галопирование выигрывало у слияния
+    private static final int GALLOP_RATIO = 16;
+    // Размер меньшего массива, начиная с которого пересечение делится между потоками
+    private static final int PARALLEL_VALUES = 1 << 15;
+    // Длина битовых карт (в словах по 64 id), начиная с которой AND выполняется параллельно
+    private static final int PARALLEL_WORDS = 1 << 14;
+    private static final int[] EMPTY = new int[0];
+
+    private IntSetIntersection() {
+    }
+
+    static int[] intersect(int[] small, int smallSize, long[] smallWords, int[] large, int largeSize, long[] largeWords) {
+        if (smallWords == null && largeWords == null) {
+            return arrays(small, smallSize, large, largeSize);
+        }
+        if (smallWords == null) {
+            return probe(small, smallSize, largeWords);
+        }
+        if (largeWords == null) {
+            return probe(large, largeSize, smallWords);
+        }
+        return bitmaps(smallWords, largeWords);
+    }
+
+    private static int[] arrays(int[] small, int smallSize, int[] large, int largeSize) {
+        if (smallSize == 0 || largeSize == 0) {
+            return EMPTY;
+        }
+        if (smallSize >= PARALLEL_VALUES) {
+            return ForkJoinPool.commonPool().invoke(new ArrayIntersectionTask(small, 0, smallSize, large, largeSize));
+        }
+        return arrays(small, 0, smallSize, large, largeSize);
+    }
+
+    private static int[] arrays(int[] small, int from, int to, int[] large, int largeSize) {
+        int[] result = new int[to - from];
+        // Кусок меньшего массива начинаем сопоставлять с первого подходящего элемента большего
+        int start = Arrays.binarySearch(large, 0, largeSize, small[from]);
+        if (start < 0) {
+            start = -start - 1;
+        }
+        int count = (long) (to - from) * GALLOP_RATIO < largeSize - start
+                ? gallop(small, from, to, large, start, largeSize, result)
+                : merge(small, from, to, large, start, largeSize, result);
+        return count == result.length ? result : Arrays.copyOf(result, count);
+    }
+
+    private static int merge(int[] small, int from, int to, int[] large, int start, int largeSize, int[] result) {
+        int count = 0;
+        int i = from;
+        int j = start;
+        while (i < to && j < largeSize) {
+            int a = small[i];
+            int b = large[j];
+            if (a < b) {
+                i++;
+            } else if (a > b) {
+                j++;
+            } else {
+                result[count++] = a;
+                i++;
+                j++;
+            }
+        }
+        return count;
+    }
+
+    // Для каждого элемента меньшего массива экспоненциально ищем границу в большем, затем бинарный поиск
+    private static int gallop(int[] small, int from, int to, int[] large, int start, int largeSize, int[] result) {
+        int count = 0;
+        int low = start;
+        for (int i = from; i < to && low < largeSize; i++) {
+            int value = small[i];
+            int bound = 1;
+            while (low + bound < largeSize && large[low + bound] < value) {
+                bound <<= 1;
+            }
+            int index = Arrays.binarySearch(large, low + (bound >> 1), Math.min(low + bound + 1, largeSize), value);
+            if (index >= 0) {
+                result[count++] = value;
+                low = index + 1;
+            } else {
+                low = -index - 1;
+            }
+        }
+        return count;
+    }
+
+    private static int[] probe(int[] values, int size, long[] words) {
+        int[] result = new int[size];
+        int count = 0;
+        for (int i = 0; i < size; i++) {
+            int value = values[i];
+            int word = value >> 6;
+            if (value >= 0 && word < words.length && (words[word] & (1L << value)) != 0) {
+                result[count++] = value;
+            }
+        }
+        return count == size ? result : Arrays.copyOf(result, count);
+    }
+
+    private static int[] bitmaps(long[] first, long[] second) {
+        int length = Math.min(first.length, second.length);
+        long[] and = new long[length];
+        if (length >= PARALLEL_WORDS) {
+            Arrays.parallelSetAll(and, i -> first[i] & second[i]);
+        } else {
+            for (int i = 0; i < length; i++) {
+                and[i] = first[i] & second[i];
+            }
+        }
+        int count = 0;
+        for (long word : and) {
+            count += Long.bitCount(word);
+        }
+        int[] result = new int[count];
+        int index = 0;
+        for (int i = 0; i < length; i++) {
+            long word = and[i];
+            while (word != 0) {
+                result[index++] = (i << 6) + Long.numberOfTrailingZeros(word);
+                word &= word - 1;
+            }
+        }
+        return result;
+    }
+
+    private static final class ArrayIntersectionTask extends RecursiveTask<int[]> {
+        private final int[] small;
+        private final int from;
+        private final int to;
+        private final int[] large;
+        private final int largeSize;
+
+        private ArrayIntersectionTask(int[] small, int from, int to, int[] large, int largeSize) {
+            this.small = small;
+            this.from = from;
+            this.to = to;
+            this.large = large;
+            this.largeSize = largeSize;
+        }
+
+        @Override
+        protected int[] compute() {
+            if (to - from <= PARALLEL_VALUES) {
+                return arrays(small, from, to, large, largeSize);
+            }
+            int middle = (from + to) >>> 1;
+            ArrayIntersectionTask left = new ArrayIntersectionTask(small, from, middle, large, largeSize);
+            left.fork();
+            int[] right = new ArrayIntersectionTask(small, middle, to, large, largeSize).compute();
+            int[] head = left.join();
+            int[] result = Arrays.copyOf(head, head.length + right.length);
+            System.arraycopy(right, 0, result, head.length, right.length);
+            return result;
+        }
+    }
+}
@@ -0,0 +1,86 @@
+package ru.yandex.practicum.filmorate.model;
+
+import java.util.Arrays;
+
+// Отбор limit id с наибольшим счетом без сортировки всех кандидатов: куча на limit упакованных ключей.
+// Счет лежит в старших 32 битах, Integer.MAX_VALUE - id в младших, поэтому при равном счете выше меньший id
+public final class TopIds {
+    private final long[] heap;
+    private int size;
+
+    public TopIds(int limit) {
+        this.heap = new long[Math.max(0, limit)];
+    }
+
+    public void offer(int id, int score) {
+        offer(((long) score << 32) | (Integer.MAX_VALUE - id));
+    }
+
+    // Для неотрицательных float порядок битового представления совпадает с порядком значений
+    public void offer(int id, float score) {
+        offer(id, Float.floatToIntBits(Math.max(0f, score)));
+    }
+
+    // Может ли кандидат с таким счетом еще попасть в отбор. Для ранней остановки: счет - верхняя граница
+    public boolean accepts(float score) {
+        return size < heap.length || size > 0 && Float.floatToIntBits(Math.max(0f, score)) >= (int) (heap[0] >>> 32);
+    }
+
+    public int size() {
+        return size;
+    }
+
+    // Отобранные id по убыванию счета
+    public int[] ids() {
+        long[] sorted = Arrays.copyOf(heap, size);
+        Arrays.sort(sorted);
+        int[] result = new int[size];
+        for (int i = 0; i < size; i++) {
+            result[i] = Integer.MAX_VALUE - (int) sorted[size - 1 - i];
+        }
+        return result;
+    }
+
+    private void offer(long key) {
+        if (size < heap.length) {
+            heap[size] = key;
+            siftUp(size++);
+        } else if (size > 0 && key > heap[0]) {
+            heap[0] = key;
+            siftDown();
+        }
+    }
+
+    private void siftUp(int index) {
+        long value = heap[index];
+        while (index > 0) {
+            int parent = (index - 1) >>> 1;
+            if (heap[parent] <= value) {
+                break;
+            }
+            heap[index] = heap[parent];
+            index = parent;
+        }
+        heap[index] = value;
+    }
+
+    private void siftDown() {
+        long value = heap[0];
+        int index = 0;
+        while (true) {
+            int child = 2 * index + 1;
+            if (child >= size) {
+                break;
+            }
+            if (child + 1 < size && heap[child + 1] < heap[child]) {
+                child++;
+            }
+            if (heap[child] >= value) {
+                break;
+            }
+            heap[index] = heap[child];
+            index = child;
+        }
+        heap[index] = value;
+    }
+}
@@ -1,41 +1,37 @@
 package ru.yandex.practicum.filmorate.model;
 
-import jakarta.validation.constraints.Email;
-import jakarta.validation.constraints.NotBlank;
-import jakarta.validation.constraints.PastOrPresent;
-import jakarta.validation.constraints.Pattern;
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import lombok.Data;
 import lombok.EqualsAndHashCode;
 
 import java.time.LocalDate;
-import java.util.HashSet;
-import java.util.Set;
 
+// Ограничения полей проверяет EntityValidators.USER
 @Data
 public class User {
     @EqualsAndHashCode.Include
     private int id;
-    @NotBlank(message = "Email cannot be blank")
-    @Email(message = "Invalid email format")
     @EqualsAndHashCode.Exclude
     private String email;
-    @NotBlank(message = "Login cannot be blank")
-    @Pattern(regexp = "^\\S*$", message = "Login cannot contain spaces")
     @EqualsAndHashCode.Exclude
     private String login;
     @EqualsAndHashCode.Exclude
     private String name;
-    @PastOrPresent(message = "Birthday cannot be in the future")
     @EqualsAndHashCode.Exclude
     private LocalDate birthday;
     @EqualsAndHashCode.Exclude
-    private Set<Integer> friendsList = new HashSet<>();
+    private IntSet friendsList = new IntSet();
+    // Значение счетчика хранилища при последнем изменении, основа ETag; 0 - хранилище версий не ведет.
+    // Ставится после самого изменения, поэтому прочитанная до сериализации версия не новее тела ответа
+    @JsonIgnore
+    @EqualsAndHashCode.Exclude
+    private volatile long version;
 
-    public void addFriend(int friendId) {
-        friendsList.add(friendId);
+    public boolean addFriend(int friendId) {
+        return friendsList.add(friendId);
     }
 
-    public void removeFriend(int friendId) {
-        friendsList.remove(friendId);
+    public boolean removeFriend(int friendId) {
+        return friendsList.remove(friendId);
     }
 }
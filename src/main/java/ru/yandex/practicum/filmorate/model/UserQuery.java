@@ -0,0 +1,20 @@
+package ru.yandex.practicum.filmorate.model;
+
+import java.time.LocalDate;
+
+// Условия выборки пользователей по дате рождения; null - без ограничения, границы включаются
+public record UserQuery(LocalDate bornFrom, LocalDate bornTo) {
+    public boolean isEmpty() {
+        return bornFrom == null && bornTo == null;
+    }
+
+    public boolean matches(User user) {
+        if (isEmpty()) {
+            return true;
+        }
+        LocalDate birthday = user.getBirthday();
+        return birthday != null
+                && (bornFrom == null || !birthday.isBefore(bornFrom))
+                && (bornTo == null || !birthday.isAfter(bornTo));
+    }
+}
@@ -0,0 +1,22 @@
+package ru.yandex.practicum.filmorate.recommendations;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.time.Duration;
+
+@ConfigurationProperties(prefix = "filmorate.film-recommendations")
+public record FilmRecommendationProperties(
+        // Сколько самых похожих фильмов хранится у каждого фильма
+        @DefaultValue("50") int neighbors,
+        // Сколько лайков пользователя учитывается при выдаче (у активных берется равномерная выборка)
+        // и в совместных лайках (учитываются первые maxUserLikes действующих лайков)
+        @DefaultValue("200") int maxUserLikes,
+        // Сколько фильмов с наибольшим числом совместных лайков хранится в строке матрицы у одного фильма
+        @DefaultValue("2000") int maxRowSize,
+        // Предел буфера событий; при заполнении его применяет сам поток, поставивший лайк
+        @DefaultValue("1000000") int maxPending,
+        @DefaultValue("100") int maxResults,
+        // Как часто накопленные лайки применяются к матрице совместных лайков; 0 - только вызовом refresh()
+        @DefaultValue("1s") Duration refreshInterval) {
+}
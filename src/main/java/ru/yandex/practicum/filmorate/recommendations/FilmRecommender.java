@@ -0,0 +1,260 @@
+package ru.yandex.practicum.filmorate.recommendations;
+
+import lombok.extern.slf4j.Slf4j;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.IntSet;
+import ru.yandex.practicum.filmorate.model.TopIds;
+
+import java.io.Closeable;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+// Рекомендации фильмов по совместным лайкам (item-item). Лайки копятся в буфере событий, поток пересчета
+// применяет их пачкой: обновляет индекс пользователь -> фильмы и матрицу совместных лайков, после чего
+// пересчитывает соседей только у затронутых фильмов. Выдача суммирует готовых соседей понравившихся фильмов
+// и не трогает матрицу, поэтому укладывается в миллисекунды. Рекомендации отстают от лайков на интервал пересчета.
+// Работа ограничена сверху: у пользователя в совместные лайки идут не больше maxUserLikes фильмов, строка матрицы
+// держит maxRowSize фильмов с наибольшим числом совместных лайков, буфер событий - не больше maxPending
+@Slf4j
+public class FilmRecommender implements Closeable {
+    // Сходство хранится целым числом с фиксированной точкой, чтобы суммировать его в IntCounter
+    private static final int SIMILARITY_SCALE = 1_000_000;
+    // Старший бит события отмечает снятие лайка
+    private static final long REMOVED = Long.MIN_VALUE;
+    private static final int[] EMPTY = new int[0];
+
+    private final int neighborCount;
+    private final int maxUserLikes;
+    private final int maxResults;
+    private final int maxRowSize;
+    private final int maxPending;
+    // Индекс пользователь -> понравившиеся фильмы. Пишет только поток пересчета, читает выдача
+    private final Map<Integer, IntSet> filmsByUser = new ConcurrentHashMap<>();
+    // Лайки пользователя, учтенные в совместных лайках (не больше maxUserLikes). Только поток пересчета
+    private final Map<Integer, IntSet> countedByUser = new HashMap<>();
+    // Фильм -> (другой фильм -> сколько пользователей лайкнули оба) и число лайков фильма. Только поток пересчета
+    private final Map<Integer, IntCounter> coLikes = new HashMap<>();
+    private final IntCounter likeCounts = new IntCounter(1024);
+    // Готовые соседи фильма: заменяются целиком и читаются без блокировок
+    private final Map<Integer, Neighbors> neighbors = new ConcurrentHashMap<>();
+    private final Object pendingLock = new Object();
+    private long[] pending = new long[1024];
+    private int pendingSize;
+    // Разобранный буфер событий отдается под следующие: при ровном потоке лайков массив не растет заново
+    // на пути лайка. Только под монитором пересчета
+    private long[] spare;
+    private final ScheduledExecutorService refresher;
+
+    public FilmRecommender(FilmRecommendationProperties properties) {
+        this.neighborCount = properties.neighbors();
+        this.maxUserLikes = properties.maxUserLikes();
+        this.maxResults = properties.maxResults();
+        this.maxRowSize = properties.maxRowSize();
+        this.maxPending = properties.maxPending();
+        Duration interval = properties.refreshInterval();
+        if (interval.isZero()) {
+            this.refresher = null;
+        } else {
+            this.refresher = Executors.newSingleThreadScheduledExecutor(
+                    Thread.ofPlatform().name("film-recommendations").daemon().factory());
+            refresher.scheduleWithFixedDelay(this::refreshQuietly, interval.toMillis(), interval.toMillis(),
+                    TimeUnit.MILLISECONDS);
+        }
+    }
+
+    public void likeAdded(int filmId, int userId) {
+        enqueue(((long) filmId << 32) | (userId & 0xFFFFFFFFL));
+    }
+
+    public void likeRemoved(int filmId, int userId) {
+        enqueue(REMOVED | ((long) filmId << 32) | (userId & 0xFFFFFFFFL));
+    }
+
+    // Начальная загрузка лайков, уже лежащих в хранилище. Повторно примененный лайк индекс отбрасывает
+    public void load(Collection<Film> films) {
+        long likes = 0;
+        for (Film film : films) {
+            for (int userId : film.getLikeScore().toIntArray()) {
+                likeAdded(film.getId(), userId);
+                likes++;
+            }
+        }
+        log.info("В рекомендации фильмов поставлено {} лайков из хранилища", likes);
+    }
+
+    // До count id фильмов, которые пользователь еще не лайкал, по убыванию суммарного сходства
+    public int[] recommend(int userId, int count) {
+        IntSet liked = filmsByUser.get(userId);
+        if (liked == null) {
+            return EMPTY;
+        }
+        int[] likedIds = liked.toIntArray();
+        int[] sources = Sampling.evenly(likedIds, maxUserLikes);
+        IntCounter scores = new IntCounter(sources.length * neighborCount);
+        for (int filmId : sources) {
+            Neighbors similar = neighbors.get(filmId);
+            if (similar == null) {
+                continue;
+            }
+            int[] ids = similar.ids();
+            int[] weights = similar.weights();
+            for (int i = 0; i < ids.length; i++) {
+                // Сумма до maxUserLikes сходств по SIMILARITY_SCALE может не уместиться в int
+                if (Arrays.binarySearch(likedIds, ids[i]) < 0) {
+                    scores.addCapped(ids[i], weights[i]);
+                }
+            }
+        }
+        return scores.top(Math.min(count, maxResults));
+    }
+
+    // Применяет накопленные события. Вызывается потоком пересчета; без него - напрямую (бенчмарки)
+    public synchronized void refresh() {
+        long[] events;
+        int size;
+        synchronized (pendingLock) {
+            size = pendingSize;
+            if (size == 0) {
+                return;
+            }
+            events = pending;
+            pending = spare != null ? spare : new long[Math.min(Math.max(1024, size / 2), maxPending)];
+            pendingSize = 0;
+        }
+        spare = null;
+        IntSet dirty = new IntSet();
+        for (int i = 0; i < size; i++) {
+            long event = events[i];
+            int filmId = (int) ((event & ~REMOVED) >>> 32);
+            int userId = (int) event;
+            boolean added = (event & REMOVED) == 0;
+            IntSet liked = filmsByUser.computeIfAbsent(userId, id -> new IntSet());
+            if (added ? !liked.add(filmId) : !liked.remove(filmId)) {
+                continue;
+            }
+            IntSet counted = countedByUser.computeIfAbsent(userId, id -> new IntSet());
+            // Лайки сверх maxUserLikes не учитываются в матрице: работа на событие не больше maxUserLikes
+            if (added ? counted.size() < maxUserLikes && counted.add(filmId) : counted.remove(filmId)) {
+                count(filmId, counted, added ? 1 : -1, dirty);
+            }
+            // Без лайков не остается и совместных лайков: строки и индекс пользователя не копятся после удалений
+            if (!added && liked.isEmpty()) {
+                filmsByUser.remove(userId);
+                countedByUser.remove(userId);
+            }
+        }
+        for (int filmId : dirty.toIntArray()) {
+            updateNeighbors(filmId);
+        }
+        // Буфер, раздутый всплеском, не удерживается: следующий снова начнется с половины его заполнения
+        if (events.length <= 2 * Math.max(1024, size)) {
+            spare = events;
+        }
+        log.debug("Рекомендации фильмов: применено {} событий, пересчитано соседей у {} фильмов", size, dirty.size());
+    }
+
+    @Override
+    public void close() {
+        if (refresher != null) {
+            refresher.shutdownNow();
+        }
+    }
+
+    private void count(int filmId, IntSet counted, int delta, IntSet dirty) {
+        IntCounter row = coLikes.computeIfAbsent(filmId, id -> new IntCounter(16));
+        for (int other : counted.toIntArray()) {
+            if (other != filmId) {
+                addCoLike(row, other, delta);
+                addCoLike(coLikes.computeIfAbsent(other, id -> new IntCounter(16)), filmId, delta);
+                dirty.add(other);
+            }
+        }
+        likeCounts.add(filmId, delta);
+        dirty.add(filmId);
+        if (likeCounts.get(filmId) <= 0) {
+            coLikes.remove(filmId);
+        }
+    }
+
+    // Строка сжимается до maxRowSize, когда вырастает вдвое: вытесняются фильмы с наименьшим числом совместных
+    // лайков. Вытесненная пара при новом совместном лайке начинает счет заново, ее снятие пропускается
+    private void addCoLike(IntCounter row, int other, int delta) {
+        if (delta > 0) {
+            row.add(other, delta);
+            if (row.size() > 2 * maxRowSize) {
+                row.retainTop(maxRowSize);
+            }
+        } else {
+            row.addIfPresent(other, delta);
+        }
+    }
+
+    // Косинусное сходство по пользователям: совместные лайки / sqrt(лайки a * лайки b)
+    private void updateNeighbors(int filmId) {
+        IntCounter row = coLikes.get(filmId);
+        int likes = likeCounts.get(filmId);
+        if (row == null || likes <= 0) {
+            neighbors.remove(filmId);
+            return;
+        }
+        TopIds top = new TopIds(neighborCount);
+        row.forEach((other, together) -> {
+            int similarity = similarity(likes, together, likeCounts.get(other));
+            if (similarity > 0) {
+                top.offer(other, similarity);
+            }
+        });
+        int[] ids = top.ids();
+        if (ids.length == 0) {
+            neighbors.remove(filmId);
+            return;
+        }
+        int[] similarity = new int[ids.length];
+        for (int i = 0; i < ids.length; i++) {
+            similarity[i] = similarity(likes, row.get(ids[i]), likeCounts.get(ids[i]));
+        }
+        neighbors.put(filmId, new Neighbors(ids, similarity));
+    }
+
+    private static int similarity(int likes, int together, int otherLikes) {
+        if (together <= 0 || otherLikes <= 0) {
+            return 0;
+        }
+        // В double: SIMILARITY_SCALE * together в int переполняется уже с 2148 совместных лайков
+        return Math.max(1, (int) (SIMILARITY_SCALE * (double) together / Math.sqrt((double) likes * otherLikes)));
+    }
+
+    // Полный буфер применяет поток, пришедший с новым событием: память ограничена, события не теряются
+    private void enqueue(long event) {
+        while (true) {
+            synchronized (pendingLock) {
+                if (pendingSize < maxPending) {
+                    if (pendingSize == pending.length) {
+                        pending = Arrays.copyOf(pending, Math.min(pendingSize * 2, maxPending));
+                    }
+                    pending[pendingSize++] = event;
+                    return;
+                }
+            }
+            refresh();
+        }
+    }
+
+    private void refreshQuietly() {
+        try {
+            refresh();
+        } catch (RuntimeException e) {
+            log.error("Ошибка пересчета рекомендаций фильмов", e);
+        }
+    }
+
+    private record Neighbors(int[] ids, int[] weights) {
+    }
+}
@@ -0,0 +1,138 @@
+package ru.yandex.practicum.filmorate.recommendations;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import lombok.extern.slf4j.Slf4j;
+import ru.yandex.practicum.filmorate.exceptions.NotFoundException;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.storage.interfaces.UserStorage;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+// Рекомендации друзей: друзья друзей, упорядоченные по числу общих друзей, при равенстве - по id.
+// Списки друзей загружаются одним обращением к хранилищу, подсчет делится между потоками fork/join.
+// У пользователей с очень большим числом друзей просматривается равномерная выборка из maxFanOut друзей
+@Slf4j
+public class FriendRecommender {
+    private static final int[] EMPTY = new int[0];
+
+    private final UserStorage userStorage;
+    private final int maxFanOut;
+    private final int parallelThreshold;
+    private final int maxResults;
+    // Готовые ранжированные списки по id пользователя; null, если кэш выключен
+    private final Cache<Integer, int[]> cache;
+
+    public FriendRecommender(UserStorage userStorage, RecommendationProperties properties) {
+        this(userStorage, properties, null);
+    }
+
+    public FriendRecommender(UserStorage userStorage, RecommendationProperties properties, Cache<Integer, int[]> cache) {
+        this.userStorage = userStorage;
+        this.maxFanOut = properties.maxFanOut();
+        this.parallelThreshold = properties.parallelThreshold();
+        this.maxResults = properties.maxResults();
+        this.cache = cache;
+    }
+
+    // До count id рекомендованных пользователей, лучшие первыми
+    public int[] recommend(int userId, int count) {
+        int[] ranked = cache == null ? rank(userId) : cache.get(userId, this::rank);
+        return ranked.length <= count ? ranked : Arrays.copyOf(ranked, count);
+    }
+
+    // Дружба a - b меняет друзей друзей у самих a и b и у всех их друзей
+    public void friendshipChanged(int userId, int friendId) {
+        if (cache == null) {
+            return;
+        }
+        for (int id : new int[]{userId, friendId}) {
+            cache.invalidate(id);
+            userStorage.getUserById(id).ifPresent(user -> cache.invalidateAll(user.getFriendsList()));
+        }
+    }
+
+    // Пакеты и замена списка друзей целиком затрагивают слишком много окрестностей - кэш сбрасывается полностью
+    public void invalidateAll() {
+        if (cache != null) {
+            cache.invalidateAll();
+        }
+    }
+
+    private int[] rank(int userId) {
+        User user = userStorage.getUserById(userId).orElseThrow(() -> {
+            log.error("Пользователь с ID {} не найден", userId);
+            return new NotFoundException("Пользователь с ID " + userId + " не найден");
+        });
+        int[] friends = user.getFriendsList().toIntArray();
+        if (friends.length == 0) {
+            return EMPTY;
+        }
+        List<User> friendUsers = userStorage.getUsersByIds(Sampling.evenly(friends, maxFanOut));
+        int[][] adjacency = new int[friendUsers.size()][];
+        for (int i = 0; i < adjacency.length; i++) {
+            adjacency[i] = Sampling.evenly(friendUsers.get(i).getFriendsList().toIntArray(), maxFanOut);
+        }
+        CountTask task = new CountTask(adjacency, 0, adjacency.length, userId, friends, parallelThreshold);
+        IntCounter counts = adjacency.length > parallelThreshold ? ForkJoinPool.commonPool().invoke(task) : task.compute();
+        log.debug("Для пользователя {} найдено {} кандидатов", userId, counts.size());
+        return counts.top(maxResults);
+    }
+
+    // Каждая подзадача считает свою часть списков в собственный счетчик, счетчики сливаются при join
+    private static final class CountTask extends RecursiveTask<IntCounter> {
+        private final int[][] adjacency;
+        private final int from;
+        private final int to;
+        private final int userId;
+        // Свои друзья пользователя, отсортированы; рекомендовать их не нужно
+        private final int[] friends;
+        private final int threshold;
+
+        private CountTask(int[][] adjacency, int from, int to, int userId, int[] friends, int threshold) {
+            this.adjacency = adjacency;
+            this.from = from;
+            this.to = to;
+            this.userId = userId;
+            this.friends = friends;
+            this.threshold = threshold;
+        }
+
+        @Override
+        protected IntCounter compute() {
+            if (to - from <= threshold) {
+                return countRange();
+            }
+            int middle = (from + to) >>> 1;
+            CountTask left = new CountTask(adjacency, from, middle, userId, friends, threshold);
+            left.fork();
+            IntCounter right = new CountTask(adjacency, middle, to, userId, friends, threshold).compute();
+            IntCounter joined = left.join();
+            // Меньший счетчик вливается в больший
+            if (joined.size() < right.size()) {
+                right.addAll(joined);
+                return right;
+            }
+            joined.addAll(right);
+            return joined;
+        }
+
+        private IntCounter countRange() {
+            int expected = 0;
+            for (int i = from; i < to; i++) {
+                expected += adjacency[i].length;
+            }
+            IntCounter counts = new IntCounter(expected);
+            for (int i = from; i < to; i++) {
+                for (int candidate : adjacency[i]) {
+                    if (candidate != userId && Arrays.binarySearch(friends, candidate) < 0) {
+                        counts.add(candidate, 1);
+                    }
+                }
+            }
+            return counts;
+        }
+    }
+}
@@ -0,0 +1,142 @@
+package ru.yandex.practicum.filmorate.recommendations;
+
+import ru.yandex.practicum.filmorate.model.TopIds;
+
+// Счетчик int -> int на открытой адресации, без упаковки в Integer и без объектов на запись.
+// Ключ 0 обозначает пустую ячейку: id пользователей начинаются с 1
+final class IntCounter {
+    private int[] keys;
+    private int[] counts;
+    private int size;
+
+    IntCounter(int expectedSize) {
+        int capacity = Integer.highestOneBit(Math.max(16, expectedSize * 2) - 1) << 1;
+        keys = new int[capacity];
+        counts = new int[capacity];
+    }
+
+    void add(int key, int delta) {
+        int mask = keys.length - 1;
+        int index = mix(key) & mask;
+        while (true) {
+            int current = keys[index];
+            if (current == key) {
+                counts[index] += delta;
+                return;
+            }
+            if (current == 0) {
+                keys[index] = key;
+                counts[index] = delta;
+                if (++size * 2 > keys.length) {
+                    grow();
+                }
+                return;
+            }
+            index = (index + 1) & mask;
+        }
+    }
+
+    // Положительное приращение без переполнения: счетчик останавливается на Integer.MAX_VALUE
+    void addCapped(int key, int delta) {
+        add(key, (int) Math.min(delta, Integer.MAX_VALUE - (long) get(key)));
+    }
+
+    // Меняет только уже существующий счетчик: снятие совместного лайка, вытесненного из строки, пропускается
+    void addIfPresent(int key, int delta) {
+        int mask = keys.length - 1;
+        int index = mix(key) & mask;
+        while (keys[index] != 0) {
+            if (keys[index] == key) {
+                counts[index] += delta;
+                return;
+            }
+            index = (index + 1) & mask;
+        }
+    }
+
+    int get(int key) {
+        int mask = keys.length - 1;
+        int index = mix(key) & mask;
+        while (keys[index] != 0) {
+            if (keys[index] == key) {
+                return counts[index];
+            }
+            index = (index + 1) & mask;
+        }
+        return 0;
+    }
+
+    void forEach(EntryConsumer consumer) {
+        for (int i = 0; i < keys.length; i++) {
+            if (keys[i] != 0) {
+                consumer.accept(keys[i], counts[i]);
+            }
+        }
+    }
+
+    void addAll(IntCounter other) {
+        for (int i = 0; i < other.keys.length; i++) {
+            if (other.keys[i] != 0) {
+                add(other.keys[i], other.counts[i]);
+            }
+        }
+    }
+
+    int size() {
+        return size;
+    }
+
+    // До limit ключей с наибольшими счетчиками (при равенстве - с меньшим ключом) по убыванию.
+    // Отбор идет через кучу на limit элементов, весь счетчик не сортируется
+    int[] top(int limit) {
+        TopIds top = new TopIds(Math.min(limit, size));
+        for (int i = 0; i < keys.length; i++) {
+            if (keys[i] != 0) {
+                top.offer(keys[i], counts[i]);
+            }
+        }
+        return top.ids();
+    }
+
+    // Оставляет limit ключей с наибольшими положительными счетчиками, остальные удаляются
+    void retainTop(int limit) {
+        int[] ids = top(limit);
+        int[] kept = new int[ids.length];
+        for (int i = 0; i < ids.length; i++) {
+            kept[i] = get(ids[i]);
+        }
+        int capacity = Integer.highestOneBit(Math.max(16, ids.length * 2) - 1) << 1;
+        keys = new int[capacity];
+        counts = new int[capacity];
+        size = 0;
+        for (int i = 0; i < ids.length; i++) {
+            if (kept[i] > 0) {
+                add(ids[i], kept[i]);
+            }
+        }
+    }
+
+    private void grow() {
+        int[] oldKeys = keys;
+        int[] oldCounts = counts;
+        keys = new int[oldKeys.length * 2];
+        counts = new int[oldKeys.length * 2];
+        size = 0;
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] != 0) {
+                add(oldKeys[i], oldCounts[i]);
+            }
+        }
+    }
+
+    @FunctionalInterface
+    interface EntryConsumer {
+        void accept(int key, int count);
+    }
+
+    // Последовательные id не должны попадать в соседние ячейки одной цепочкой
+    private static int mix(int key) {
+        int hash = key * 0x9E3779B9;
+        return hash ^ (hash >>> 16);
+    }
+}
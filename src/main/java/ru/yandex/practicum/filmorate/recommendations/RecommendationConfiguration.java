@@ -0,0 +1,45 @@
+package ru.yandex.practicum.filmorate.recommendations;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.event.EventListener;
+import ru.yandex.practicum.filmorate.storage.interfaces.FilmStorage;
+import ru.yandex.practicum.filmorate.storage.interfaces.UserStorage;
+
+// Кэш рекомендаций включается свойством filmorate.recommendations.cache-enabled и виден в метриках как cache=recommendations
+@Configuration
+@EnableConfigurationProperties({RecommendationProperties.class, FilmRecommendationProperties.class})
+public class RecommendationConfiguration {
+
+    @Bean
+    public FriendRecommender friendRecommender(UserStorage userStorage, RecommendationProperties properties,
+                                               MeterRegistry registry) {
+        if (!properties.cacheEnabled()) {
+            return new FriendRecommender(userStorage, properties);
+        }
+        Cache<Integer, int[]> cache = Caffeine.newBuilder()
+                .maximumSize(properties.cacheSize())
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(registry, cache, "recommendations");
+        return new FriendRecommender(userStorage, properties, cache);
+    }
+
+    @Bean
+    public FilmRecommender filmRecommender(FilmRecommendationProperties properties) {
+        return new FilmRecommender(properties);
+    }
+
+    // Лайки из хранилища загружаются, когда хранилища уже восстановлены из снимка и журнала
+    @EventListener(ApplicationReadyEvent.class)
+    public void loadFilmLikes(ApplicationReadyEvent event) {
+        FilmStorage filmStorage = event.getApplicationContext().getBean(FilmStorage.class);
+        event.getApplicationContext().getBean(FilmRecommender.class).load(filmStorage.getAllFilms());
+    }
+}
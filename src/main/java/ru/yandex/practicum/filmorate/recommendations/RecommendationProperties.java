@@ -0,0 +1,16 @@
+package ru.yandex.practicum.filmorate.recommendations;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+@ConfigurationProperties(prefix = "filmorate.recommendations")
+public record RecommendationProperties(
+        // Сколько друзей одного пользователя просматривается; у более общительных берется равномерная выборка
+        @DefaultValue("1000") int maxFanOut,
+        // Сколько списков друзей считает одна подзадача fork/join
+        @DefaultValue("64") int parallelThreshold,
+        // Сколько кандидатов ранжируется и хранится в кэше на пользователя
+        @DefaultValue("100") int maxResults,
+        @DefaultValue("false") boolean cacheEnabled,
+        @DefaultValue("10000") long cacheSize) {
+}
@@ -0,0 +1,18 @@
+package ru.yandex.practicum.filmorate.recommendations;
+
+final class Sampling {
+    private Sampling() {
+    }
+
+    // Равномерная выборка не больше max элементов из отсортированного списка; короткий список возвращается как есть
+    static int[] evenly(int[] ids, int max) {
+        if (ids.length <= max) {
+            return ids;
+        }
+        int[] result = new int[max];
+        for (int i = 0; i < max; i++) {
+            result[i] = ids[(int) ((long) i * ids.length / max)];
+        }
+        return result;
+    }
+}
@@ -0,0 +1,412 @@
+package ru.yandex.practicum.filmorate.search;
+
+import lombok.extern.slf4j.Slf4j;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.IdTable;
+import ru.yandex.practicum.filmorate.model.IntSet;
+import ru.yandex.practicum.filmorate.model.TopIds;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Инвертированный индекс по названию и описанию фильмов. Все слова запроса должны встретиться в фильме,
+// последнее слово ищется и как префикс (автодополнение). Релевантность: слово в названии весит больше,
+// чем в описании, продолжение префикса - меньше точного совпадения; к ней добавляется логарифм числа лайков.
+// Кандидаты перебираются проходами по убыванию лучшего текстового счета (см. Search), а внутри прохода - по слоям
+// числа лайков (слой t - от 2^(t-1) до 2^t - 1 лайков) сверху вниз. Слой пропускается, когда даже лучший текстовый
+// счет прохода с наибольшим для слоя числом лайков не попадает в набранный топ: у частых слов нижние слои,
+// где лежит большая часть каталога, не обходятся.
+// Изменения индекса идут по одному (synchronized), поиск читает конкурентные структуры без блокировок
+@Slf4j
+public class FilmSearchIndex {
+    private static final float TITLE_WEIGHT = 3f;
+    private static final float DESCRIPTION_WEIGHT = 1f;
+    // Совпадение только по префиксу последнего слова весит вдвое меньше точного
+    private static final float PREFIX_FACTOR = 0.5f;
+    private static final float LIKES_WEIGHT = 0.5f;
+    // Сколько продолжений префикса учитывается: берутся встречающиеся в наибольшем числе фильмов
+    private static final int MAX_PREFIX_TERMS = 64;
+    private static final int TIERS = Integer.SIZE;
+    private static final int[] NO_FILMS = new int[0];
+    private static final Comparator<Postings> BY_FREQUENCY = Comparator.comparingInt(postings -> postings.films.size());
+
+    // Упорядоченная карта нужна для поиска по префиксу
+    private final NavigableMap<String, Postings> terms = new ConcurrentSkipListMap<>();
+    private final IdTable<Document> documents = new IdTable<>();
+    private final IntSet[] tiers = new IntSet[TIERS];
+
+    public FilmSearchIndex() {
+        for (int i = 0; i < TIERS; i++) {
+            tiers[i] = new IntSet();
+        }
+    }
+
+    // Добавляет или переиндексирует фильм: меняются только слова, которых стало или не стало
+    public synchronized void index(Film film) {
+        int filmId = film.getId();
+        Set<String> titleTerms = new HashSet<>();
+        Tokenizer.addTokens(film.getName(), titleTerms);
+        Set<String> allTerms = new HashSet<>(titleTerms);
+        Tokenizer.addTokens(film.getDescription(), allTerms);
+        Document old = documents.get(filmId);
+        if (old != null) {
+            for (String term : old.terms) {
+                if (!allTerms.contains(term)) {
+                    removePosting(term, filmId);
+                }
+            }
+        }
+        for (String term : allTerms) {
+            Postings postings = terms.computeIfAbsent(term, Postings::new);
+            postings.films.add(filmId);
+            if (titleTerms.contains(term)) {
+                postings.titles.add(filmId);
+            } else {
+                postings.titles.remove(filmId);
+            }
+        }
+        if (old != null) {
+            synchronized (old) {
+                tiers[old.tier].remove(filmId);
+                old.removed = true;
+            }
+        }
+        Document document = new Document(allTerms.toArray(String[]::new), film.getLikeScore().size());
+        tiers[document.tier].add(filmId);
+        documents.put(filmId, document);
+    }
+
+    public void indexAll(Collection<Film> films) {
+        for (Film film : films) {
+            index(film);
+        }
+        log.info("В поисковый индекс добавлено {} фильмов, слов: {}", documents.size(), terms.size());
+    }
+
+    public synchronized void remove(int filmId) {
+        Document old = documents.remove(filmId);
+        if (old != null) {
+            synchronized (old) {
+                tiers[old.tier].remove(filmId);
+                old.removed = true;
+            }
+            for (String term : old.terms) {
+                removePosting(term, filmId);
+            }
+        }
+    }
+
+    public void likeAdded(int filmId) {
+        Document document = documents.get(filmId);
+        if (document != null) {
+            retier(filmId, document, document.likes.incrementAndGet());
+        }
+    }
+
+    public void likeRemoved(int filmId) {
+        Document document = documents.get(filmId);
+        if (document != null) {
+            retier(filmId, document, document.likes.decrementAndGet());
+        }
+    }
+
+    public void likesChanged(int filmId, int likes) {
+        Document document = documents.get(filmId);
+        if (document != null) {
+            document.likes.set(likes);
+            retier(filmId, document, likes);
+        }
+    }
+
+    // До limit id фильмов по убыванию релевантности с учетом лайков
+    public int[] search(String query, int limit) {
+        List<String> tokens = Tokenizer.tokens(query);
+        if (tokens.isEmpty() || limit <= 0) {
+            return NO_FILMS;
+        }
+        int last = tokens.size() - 1;
+        Postings[] exact = new Postings[last];
+        for (int i = 0; i < last; i++) {
+            exact[i] = terms.get(tokens.get(i));
+            if (exact[i] == null) {
+                return NO_FILMS;
+            }
+        }
+        String prefix = tokens.get(last);
+        List<Postings> completions = completions(prefix);
+        if (completions.isEmpty()) {
+            return NO_FILMS;
+        }
+        Postings exactLast = completions.get(0).term.equals(prefix) ? completions.get(0) : null;
+        Search search = new Search(exact, completions, exactLast, limit);
+        int topTier = TIERS - 1;
+        while (topTier > 0 && tiers[topTier].isEmpty()) {
+            topTier--;
+        }
+        // Проходы упорядочены по убыванию лучшего текстового счета, слои - по убыванию лайков
+        for (int pass = 0; pass < search.passes.size(); pass++) {
+            IntSet films = search.passes.get(pass);
+            float bestText = search.bestText(pass);
+            for (int tier = topTier; tier >= 0; tier--) {
+                if (!search.top.accepts(bestText + likesScore(maxLikes(tier)))) {
+                    break;
+                }
+                IntSet layer = tiers[tier];
+                if (layer.isEmpty()) {
+                    continue;
+                }
+                if (layer.size() < films.size()) {
+                    for (int filmId : layer.intersect(films)) {
+                        consider(search, pass, filmId, documents.get(filmId));
+                    }
+                    continue;
+                }
+                // Оставшиеся слои не меньше списка прохода: один проход по нему без уже просмотренных слоев
+                for (int filmId : films.toIntArray()) {
+                    Document document = documents.get(filmId);
+                    if (document != null && document.tier <= tier) {
+                        consider(search, pass, filmId, document);
+                    }
+                }
+                break;
+            }
+        }
+        // Фильм, перешедший в другой слой во время поиска, мог попасть в отбор дважды
+        return Arrays.stream(search.top.ids()).distinct().toArray();
+    }
+
+    // Фильм оценивается, только если даже лучший для прохода текстовый счет с его лайками попадает в топ,
+    // и только в том проходе, которому он принадлежит
+    private static void consider(Search search, int pass, int filmId, Document document) {
+        float likes = likesScore(document == null ? 0 : Math.max(0, document.likes.get()));
+        if (!search.top.accepts(search.bestText(pass) + likes) || search.passOf(filmId) != pass) {
+            return;
+        }
+        float relevance = search.relevance(filmId, pass);
+        if (relevance > 0) {
+            search.top.offer(filmId, relevance + likes);
+        }
+    }
+
+    private static float likesScore(int likes) {
+        return LIKES_WEIGHT * (float) Math.log1p(likes);
+    }
+
+    public int size() {
+        return documents.size();
+    }
+
+    // Наибольшее число лайков в слое
+    private static int maxLikes(int tier) {
+        return tier == 0 ? 0 : (int) Math.min(Integer.MAX_VALUE, (1L << tier) - 1);
+    }
+
+    private static int tier(int likes) {
+        return likes <= 0 ? 0 : Integer.SIZE - Integer.numberOfLeadingZeros(likes);
+    }
+
+    // Фильм переходит в другой слой только на степенях двойки, поэтому монитор документа берется редко
+    private void retier(int filmId, Document document, int likes) {
+        if (tier(likes) == document.tier) {
+            return;
+        }
+        synchronized (document) {
+            int tier = tier(document.likes.get());
+            if (!document.removed && tier != document.tier) {
+                tiers[document.tier].remove(filmId);
+                tiers[tier].add(filmId);
+                document.tier = tier;
+            }
+        }
+    }
+
+    private static float prefixRelevance(int filmId, List<Postings> completions, Postings exactLast) {
+        if (exactLast != null && exactLast.films.contains(filmId)) {
+            return exactLast.titles.contains(filmId) ? TITLE_WEIGHT : DESCRIPTION_WEIGHT;
+        }
+        float best = 0;
+        for (Postings postings : completions) {
+            if (postings != exactLast && postings.films.contains(filmId)) {
+                best = Math.max(best, postings.titles.contains(filmId) ? TITLE_WEIGHT : DESCRIPTION_WEIGHT);
+                if (best == TITLE_WEIGHT) {
+                    break;
+                }
+            }
+        }
+        return best * PREFIX_FACTOR;
+    }
+
+    // Само слово (если есть) идет первым: оно наименьший ключ среди своих продолжений. Из остальных
+    // продолжений берутся MAX_PREFIX_TERMS самых частых, а не первые по алфавиту
+    private List<Postings> completions(String prefix) {
+        Postings exact = null;
+        PriorityQueue<Postings> frequent = new PriorityQueue<>(MAX_PREFIX_TERMS + 1, BY_FREQUENCY);
+        for (Map.Entry<String, Postings> entry : terms.tailMap(prefix, true).entrySet()) {
+            if (!entry.getKey().startsWith(prefix)) {
+                break;
+            }
+            if (entry.getKey().equals(prefix)) {
+                exact = entry.getValue();
+                continue;
+            }
+            frequent.add(entry.getValue());
+            if (frequent.size() > MAX_PREFIX_TERMS - (exact == null ? 0 : 1)) {
+                frequent.poll();
+            }
+        }
+        List<Postings> result = new ArrayList<>(frequent.size() + 1);
+        if (exact != null) {
+            result.add(exact);
+        }
+        result.addAll(frequent);
+        return result;
+    }
+
+    private void removePosting(String term, int filmId) {
+        Postings postings = terms.get(term);
+        if (postings == null) {
+            return;
+        }
+        postings.films.remove(filmId);
+        postings.titles.remove(filmId);
+        if (postings.films.isEmpty()) {
+            terms.remove(term, postings);
+        }
+    }
+
+    // Разбор одного запроса на проходы. Если самый короткий список у одного из точных слов, проходов два:
+    // фильмы, где это слово в названии, и остальные с ним. Иначе проходы идут по продолжениям последнего слова:
+    // само слово в названии, продолжения в названии, само слово в описании, продолжения в описании
+    private static final class Search {
+        private final Postings[] exact;
+        private final Postings exactLast;
+        private final Postings driver;
+        private final List<Postings> others;
+        private final List<IntSet> passes = new ArrayList<>();
+        private final float[] weights;
+        private final float bestExact;
+        private final TopIds top;
+
+        private Search(Postings[] exact, List<Postings> completions, Postings exactLast, int limit) {
+            this.exact = exact;
+            this.exactLast = exactLast;
+            this.others = exactLast == null ? completions : completions.subList(1, completions.size());
+            this.bestExact = TITLE_WEIGHT * exact.length;
+            this.top = new TopIds(limit);
+            Postings smallest = null;
+            for (Postings postings : exact) {
+                if (smallest == null || postings.films.size() < smallest.films.size()) {
+                    smallest = postings;
+                }
+            }
+            long completionSize = 0;
+            for (Postings postings : completions) {
+                completionSize += postings.films.size();
+            }
+            this.driver = smallest != null && smallest.films.size() <= completionSize ? smallest : null;
+            if (driver != null) {
+                float bestPrefix = exactLast != null ? TITLE_WEIGHT : TITLE_WEIGHT * PREFIX_FACTOR;
+                passes.add(driver.titles);
+                passes.add(driver.films);
+                weights = new float[]{bestPrefix, bestPrefix - TITLE_WEIGHT + DESCRIPTION_WEIGHT};
+                return;
+            }
+            // Веса продолжений: 3, 1.5, 1, 0.5 - порядок проходов совпадает с убыванием веса
+            weights = new float[completions.size() * 2];
+            if (exactLast != null) {
+                add(exactLast.titles, TITLE_WEIGHT);
+            }
+            for (Postings postings : others) {
+                add(postings.titles, TITLE_WEIGHT * PREFIX_FACTOR);
+            }
+            if (exactLast != null) {
+                add(exactLast.films, DESCRIPTION_WEIGHT);
+            }
+            for (Postings postings : others) {
+                add(postings.films, DESCRIPTION_WEIGHT * PREFIX_FACTOR);
+            }
+        }
+
+        private void add(IntSet films, float weight) {
+            weights[passes.size()] = weight;
+            passes.add(films);
+        }
+
+        // Верхняя граница текстового счета фильмов прохода
+        private float bestText(int pass) {
+            return bestExact + weights[pass];
+        }
+
+        // Проход, к которому относится фильм: так фильм из нескольких списков оценивается один раз.
+        // Точное последнее слово важнее продолжений, как в prefixRelevance
+        private int passOf(int filmId) {
+            if (driver != null) {
+                return driver.titles.contains(filmId) ? 0 : 1;
+            }
+            int shift = exactLast == null ? 0 : 1;
+            if (exactLast != null && exactLast.films.contains(filmId)) {
+                return exactLast.titles.contains(filmId) ? 0 : shift + others.size();
+            }
+            for (int i = 0; i < others.size(); i++) {
+                if (others.get(i).titles.contains(filmId)) {
+                    return shift + i;
+                }
+            }
+            for (int i = 0; i < others.size(); i++) {
+                if (others.get(i).films.contains(filmId)) {
+                    return 2 * shift + others.size() + i;
+                }
+            }
+            return -1;
+        }
+
+        // Текстовая релевантность; 0, если в фильме нет какого-то из слов. Вес последнего слова в проходах
+        // по продолжениям известен из прохода
+        private float relevance(int filmId, int pass) {
+            float relevance = 0;
+            for (Postings postings : exact) {
+                if (!postings.films.contains(filmId)) {
+                    return 0;
+                }
+                relevance += postings.titles.contains(filmId) ? TITLE_WEIGHT : DESCRIPTION_WEIGHT;
+            }
+            float prefixRelevance = driver == null ? weights[pass] : prefixRelevance(filmId, others, exactLast);
+            return prefixRelevance == 0 ? 0 : relevance + prefixRelevance;
+        }
+    }
+
+    // Фильмы со словом и те из них, где слово есть в названии
+    private static final class Postings {
+        private final String term;
+        private final IntSet films = new IntSet();
+        private final IntSet titles = new IntSet();
+
+        private Postings(String term) {
+            this.term = term;
+        }
+    }
+
+    // Слой меняется под монитором документа
+    private static final class Document {
+        private final String[] terms;
+        private final AtomicInteger likes;
+        private volatile int tier;
+        private boolean removed;
+
+        private Document(String[] terms, int likes) {
+            this.terms = terms;
+            this.likes = new AtomicInteger(likes);
+            this.tier = tier(likes);
+        }
+    }
+}
@@ -0,0 +1,24 @@
+package ru.yandex.practicum.filmorate.search;
+
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.event.EventListener;
+import ru.yandex.practicum.filmorate.storage.interfaces.FilmStorage;
+
+// Индекс строится в памяти при старте и дальше обновляется сервисом фильмов
+@Configuration
+public class SearchConfiguration {
+
+    @Bean
+    public FilmSearchIndex filmSearchIndex() {
+        return new FilmSearchIndex();
+    }
+
+    // Фильмы индексируются, когда хранилища уже восстановлены из снимка и журнала
+    @EventListener(ApplicationReadyEvent.class)
+    public void indexFilms(ApplicationReadyEvent event) {
+        FilmStorage filmStorage = event.getApplicationContext().getBean(FilmStorage.class);
+        event.getApplicationContext().getBean(FilmSearchIndex.class).indexAll(filmStorage.getAllFilms());
+    }
+}
@@ -0,0 +1,45 @@
+package ru.yandex.practicum.filmorate.search;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+// Разбиение текста на слова: буквы и цифры любого алфавита (кириллица, латиница) подряд, в нижнем регистре,
+// "ё" приводится к "е". Одинаково применяется к тексту фильма и к запросу
+final class Tokenizer {
+    private Tokenizer() {
+    }
+
+    // Слова в порядке появления, без повторов
+    static List<String> tokens(String text) {
+        Set<String> result = new LinkedHashSet<>();
+        addTokens(text, result);
+        return new ArrayList<>(result);
+    }
+
+    static void addTokens(String text, Set<String> result) {
+        if (text == null) {
+            return;
+        }
+        StringBuilder token = new StringBuilder();
+        int i = 0;
+        while (i < text.length()) {
+            int codePoint = text.codePointAt(i);
+            i += Character.charCount(codePoint);
+            if (Character.isLetterOrDigit(codePoint)) {
+                token.appendCodePoint(normalize(Character.toLowerCase(codePoint)));
+            } else if (!token.isEmpty()) {
+                result.add(token.toString());
+                token.setLength(0);
+            }
+        }
+        if (!token.isEmpty()) {
+            result.add(token.toString());
+        }
+    }
+
+    private static int normalize(int codePoint) {
+        return codePoint == 'ё' ? 'е' : codePoint;
+    }
+}
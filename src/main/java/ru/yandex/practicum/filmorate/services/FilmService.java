@@ -1,72 +1,321 @@
 package ru.yandex.practicum.filmorate.services;
 
-import lombok.RequiredArgsConstructor;
+import io.micrometer.core.annotation.Timed;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
+import ru.yandex.practicum.filmorate.events.ChangeEvent;
+import ru.yandex.practicum.filmorate.events.ChangeFeed;
 import ru.yandex.practicum.filmorate.exceptions.NotFoundException;
 import ru.yandex.practicum.filmorate.exceptions.ValidationException;
+import ru.yandex.practicum.filmorate.model.BatchResult;
 import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.FilmQuery;
+import ru.yandex.practicum.filmorate.model.IntSet;
+import ru.yandex.practicum.filmorate.model.Like;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.recommendations.FilmRecommender;
+import ru.yandex.practicum.filmorate.search.FilmSearchIndex;
 import ru.yandex.practicum.filmorate.storage.interfaces.FilmStorage;
+import ru.yandex.practicum.filmorate.storage.interfaces.PairChanges;
 import ru.yandex.practicum.filmorate.storage.interfaces.UserStorage;
+import ru.yandex.practicum.filmorate.trending.TrendWindow;
+import ru.yandex.practicum.filmorate.trending.TrendingIndex;
+import ru.yandex.practicum.filmorate.validation.EntityValidators;
 
-import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
 import java.util.Collection;
 import java.util.Comparator;
 import java.util.List;
-import java.util.stream.Collectors;
 
+// @Timed стоит на методах, а не на классе: лайки и дружба меряются MethodTimer без аспекта
 @Slf4j
 @Service
-@RequiredArgsConstructor
 public class FilmService {
     private final FilmStorage filmStorage;
     private final UserStorage userStorage;
+    private final TrendingIndex trending;
+    private final FilmRecommender recommender;
+    private final FilmSearchIndex searchIndex;
+    private final ChangeFeed changeFeed;
+    // Счетчики регистрируются один раз, на горячем пути только инкремент
+    private final Counter likesAdded;
+    private final Counter likesRemoved;
+    private final MethodTimer addLikeTimer;
+    private final MethodTimer removeLikeTimer;
 
+    public FilmService(FilmStorage filmStorage, UserStorage userStorage, MeterRegistry registry,
+                       TrendingIndex trending, FilmRecommender recommender, FilmSearchIndex searchIndex,
+                       ChangeFeed changeFeed) {
+        this.filmStorage = filmStorage;
+        this.userStorage = userStorage;
+        this.trending = trending;
+        this.recommender = recommender;
+        this.searchIndex = searchIndex;
+        this.changeFeed = changeFeed;
+        this.likesAdded = registry.counter("filmorate.likes", "action", "added");
+        this.likesRemoved = registry.counter("filmorate.likes", "action", "removed");
+        this.addLikeTimer = new MethodTimer(registry, FilmService.class, "addLike");
+        this.removeLikeTimer = new MethodTimer(registry, FilmService.class, "removeLike");
+    }
+
+    // Горячий путь: фильм ищется один раз самим хранилищем (оно же сообщает о его отсутствии),
+    // пользователь только проверяется на существование; без Optional, лямбд и упаковки аргументов лога
+    // Пользователь проверяется еще раз после записи лайка: если его удалили в промежутке, лайк снимается здесь,
+    // иначе удаление пользователя начнется позже записи и его каскад лайк увидит
     public void addLike(int filmId, int userId) {
-        getFilmById(filmId);
-        userStorage.getUserById(userId).orElseThrow(() -> new NotFoundException("Пользователь с ID " + userId + " не найден"));
-        Film film = getFilmById(filmId);
-        film.addLike(userId);
-        filmStorage.update(film);
-        log.info("Пользователь {} поставил лайк фильму {}", userId, filmId);
+        long start = System.nanoTime();
+        try {
+            requireUser(userId);
+            if (filmStorage.addLike(filmId, userId)) {
+                if (!userStorage.exists(userId)) {
+                    filmStorage.removeLike(filmId, userId);
+                    requireUser(userId);
+                }
+                trending.likeAdded(filmId, userId);
+                recommender.likeAdded(filmId, userId);
+                searchIndex.likeAdded(filmId);
+                changeFeed.publish(ChangeEvent.Type.LIKE_ADDED, filmId, userId);
+                likesAdded.increment();
+            }
+            if (log.isDebugEnabled()) {
+                log.debug("Пользователь {} поставил лайк фильму {}", userId, filmId);
+            }
+        } catch (RuntimeException e) {
+            addLikeTimer.failed(start, e);
+            throw e;
+        }
+        addLikeTimer.succeeded(start);
     }
 
     public void removeLike(int filmId, int userId) {
-        getFilmById(filmId);
-        userStorage.getUserById(userId).orElseThrow(() -> new NotFoundException("Пользователь с ID " + userId + " не найден"));
-
-        Film film = getFilmById(filmId);
-        film.removeLike(userId);
-        filmStorage.update(film);
-        log.info("Пользователь {} убрал лайк с фильма {}", userId, filmId);
+        long start = System.nanoTime();
+        try {
+            requireUser(userId);
+            if (filmStorage.removeLike(filmId, userId)) {
+                trending.likeRemoved(filmId, userId);
+                recommender.likeRemoved(filmId, userId);
+                searchIndex.likeRemoved(filmId);
+                changeFeed.publish(ChangeEvent.Type.LIKE_REMOVED, filmId, userId);
+                likesRemoved.increment();
+            }
+            if (log.isDebugEnabled()) {
+                log.debug("Пользователь {} убрал лайк с фильма {}", userId, filmId);
+            }
+        } catch (RuntimeException e) {
+            removeLikeTimer.failed(start, e);
+            throw e;
+        }
+        removeLikeTimer.succeeded(start);
     }
 
+    @Timed(value = MethodTimer.METRIC, histogram = true)
     public List<Film> getPopularFilms(int count) {
-        if (count <= 0) {
-            log.error("Неверное значение count: {}", count);
-            throw new ValidationException("Count должен быть больше 0");
+        validateCount(count);
+        log.atInfo().setMessage("Получение популярных фильмов").addKeyValue("count", count).log();
+        return filmStorage.getPopularFilms(count);
+    }
+
+    @Timed(value = MethodTimer.METRIC, histogram = true)
+    public List<Film> getPopularFilms(int count, FilmQuery query) {
+        validateCount(count);
+        validateQuery(query);
+        log.atInfo().setMessage("Получение популярных фильмов по условиям")
+                .addKeyValue("count", count).addKeyValue("query", query).log();
+        return filmStorage.findPopularFilms(query, count);
+    }
+
+    // Популярные за окно: id берутся из индекса трендов, фильмы - из хранилища
+    @Timed(value = MethodTimer.METRIC, histogram = true)
+    public List<Film> getPopularFilms(int count, TrendWindow window) {
+        validateCount(count);
+        log.atInfo().setMessage("Получение популярных фильмов за окно")
+                .addKeyValue("count", count).addKeyValue("window", window.param()).log();
+        return filmsByIds(trending.top(window, count));
+    }
+
+    @Timed(value = MethodTimer.METRIC, histogram = true)
+    public List<Film> getTrendingFilms(int count) {
+        validateCount(count);
+        log.atInfo().setMessage("Получение трендовых фильмов").addKeyValue("count", count).log();
+        return filmsByIds(trending.topTrending(count));
+    }
+
+    // Фильмы, похожие по совместным лайкам на понравившиеся пользователю
+    @Timed(value = MethodTimer.METRIC, histogram = true)
+    public List<Film> getRecommendedFilms(int userId, int count) {
+        validateCount(count);
+        requireUser(userId);
+        log.atInfo().setMessage("Получение рекомендованных фильмов")
+                .addKeyValue("userId", userId).addKeyValue("count", count).log();
+        return filmsByIds(recommender.recommend(userId, count));
+    }
+
+    @Timed(value = MethodTimer.METRIC, histogram = true)
+    public List<Film> getLikedFilms(int userId) {
+        requireUser(userId);
+        log.atInfo().setMessage("Получение фильмов, которые лайкнул пользователь").addKeyValue("userId", userId).log();
+        return filmsByIds(filmStorage.getLikedFilmIds(userId));
+    }
+
+    // Снимает лайки удаляемого пользователя по обратному индексу, не обходя каталог
+    @Timed(value = MethodTimer.METRIC, histogram = true)
+    public void removeUserLikes(int userId) {
+        int[] unliked = filmStorage.removeUserLikes(userId);
+        for (int filmId : unliked) {
+            trending.likeRemoved(filmId, userId);
+            recommender.likeRemoved(filmId, userId);
+            searchIndex.likeRemoved(filmId);
+            changeFeed.publish(ChangeEvent.Type.LIKE_REMOVED, filmId, userId);
         }
-        log.info("Получение {} популярных фильмов", count);
-        return filmStorage.getAllFilms().stream().sorted(Comparator.<Film>comparingInt(film -> film.getLikeScore().size()).reversed()).limit(count).collect(Collectors.toList());
+        likesRemoved.increment(unliked.length);
+        log.atInfo().setMessage("Сняты лайки пользователя")
+                .addKeyValue("userId", userId).addKeyValue("films", unliked.length).log();
     }
 
+    // Лайки фильма хранилище возвращает при удалении: лайк, поставленный до удаления, в них уже есть
+    @Timed(value = MethodTimer.METRIC, histogram = true)
+    public void delete(int filmId) {
+        int[] likedBy = filmStorage.delete(filmId);
+        trending.filmDeleted(filmId);
+        searchIndex.remove(filmId);
+        for (int userId : likedBy) {
+            recommender.likeRemoved(filmId, userId);
+        }
+        changeFeed.publish(ChangeEvent.Type.FILM_DELETED, filmId, 0);
+        log.atInfo().setMessage("Удален фильм").addKeyValue("filmId", filmId).log();
+    }
+
+    // Все слова запроса должны встретиться в названии или описании, последнее может быть началом слова
+    @Timed(value = MethodTimer.METRIC, histogram = true)
+    public List<Film> search(String query, int limit) {
+        validateCount(limit);
+        log.atInfo().setMessage("Поиск фильмов").addKeyValue("query", query).log();
+        return filmsByIds(searchIndex.search(query, limit));
+    }
+
+    @Timed(value = MethodTimer.METRIC, histogram = true)
+    public long getVersion() {
+        return filmStorage.getVersion();
+    }
+
+    @Timed(value = MethodTimer.METRIC, histogram = true)
     public Collection<Film> getAllFilms() {
-        log.info("Получение всех фильмов");
+        log.atInfo().setMessage("Получение всех фильмов").log();
         return filmStorage.getAllFilms();
     }
 
+    @Timed(value = MethodTimer.METRIC, histogram = true)
+    public List<Film> getFilms(int afterId, int limit) {
+        log.atInfo().setMessage("Получение страницы фильмов")
+                .addKeyValue("afterId", afterId).addKeyValue("limit", limit).log();
+        return filmStorage.getFilms(afterId, limit);
+    }
+
+    @Timed(value = MethodTimer.METRIC, histogram = true)
+    public List<Film> findFilms(FilmQuery query, int afterId, int limit) {
+        validateQuery(query);
+        log.atInfo().setMessage("Получение страницы фильмов по условиям")
+                .addKeyValue("afterId", afterId).addKeyValue("limit", limit).addKeyValue("query", query).log();
+        return filmStorage.findFilms(query, afterId, limit);
+    }
+
+    @Timed(value = MethodTimer.METRIC, histogram = true)
     public Film create(Film film) {
         validateFilm(film);
         Film createdFilm = filmStorage.create(film);
-        log.info("Создан фильм с ID: {}", createdFilm.getId());
+        filmLoaded(createdFilm);
+        changeFeed.publish(ChangeEvent.Type.FILM_CREATED, createdFilm.getId(), 0);
+        log.atInfo().setMessage("Создан фильм").addKeyValue("filmId", createdFilm.getId()).log();
         return createdFilm;
     }
 
+    // Пакетная загрузка: некорректные фильмы попадают в отчет, остальные создаются одним вызовом хранилища
+    @Timed(value = MethodTimer.METRIC, histogram = true)
+    public BatchResult createAll(List<Film> films) {
+        List<BatchResult.ItemError> errors = new ArrayList<>();
+        List<Film> created = filmStorage.createAll(EntityValidators.FILM.validateAll(films, errors));
+        int[] ids = new int[created.size()];
+        for (int i = 0; i < ids.length; i++) {
+            Film film = created.get(i);
+            filmLoaded(film);
+            changeFeed.publish(ChangeEvent.Type.FILM_CREATED, film.getId(), 0);
+            ids[i] = film.getId();
+        }
+        log.atInfo().setMessage("Пакетная загрузка фильмов")
+                .addKeyValue("created", ids.length).addKeyValue("rejected", errors.size()).log();
+        return new BatchResult(ids.length, errors.size(), 0, ids, errors);
+    }
+
+    // Пользователи проверяются одним запросом к хранилищу, отсутствие фильмов сообщает само хранилище
+    @Timed(value = MethodTimer.METRIC, histogram = true)
+    public BatchResult addLikes(List<Like> likes) {
+        int[] userIds = likes.stream().mapToInt(Like::userId).distinct().toArray();
+        IntSet existingUsers = new IntSet();
+        for (User user : userStorage.getUsersByIds(userIds)) {
+            existingUsers.add(user.getId());
+        }
+        List<BatchResult.ItemError> errors = new ArrayList<>();
+        int[] positions = new int[likes.size()];
+        int[] filmIds = new int[likes.size()];
+        int[] likedBy = new int[likes.size()];
+        int count = 0;
+        for (int i = 0; i < likes.size(); i++) {
+            Like like = likes.get(i);
+            if (!existingUsers.contains(like.userId())) {
+                errors.add(new BatchResult.ItemError(i, "Пользователь с ID " + like.userId() + " не найден"));
+                continue;
+            }
+            positions[count] = i;
+            filmIds[count] = like.filmId();
+            likedBy[count++] = like.userId();
+        }
+        PairChanges changes = filmStorage.addLikes(Arrays.copyOf(filmIds, count), Arrays.copyOf(likedBy, count));
+        BitSet missing = changes.missing();
+        for (int i = missing.nextSetBit(0); i >= 0; i = missing.nextSetBit(i + 1)) {
+            errors.add(new BatchResult.ItemError(positions[i], "Фильм с ID " + filmIds[i] + " не найден"));
+        }
+        // Дальше расходятся только действительно поставленные лайки: повтор не меняет ни тренды, ни ленту
+        BitSet added = changes.added();
+        dropLikesOfDeletedUsers(added, positions, filmIds, likedBy, errors);
+        IntSet likedFilms = new IntSet();
+        for (int i = added.nextSetBit(0); i >= 0; i = added.nextSetBit(i + 1)) {
+            trending.likeAdded(filmIds[i], likedBy[i]);
+            recommender.likeAdded(filmIds[i], likedBy[i]);
+            changeFeed.publish(ChangeEvent.Type.LIKE_ADDED, filmIds[i], likedBy[i]);
+            likedFilms.add(filmIds[i]);
+        }
+        // Поиску достаточно итогового числа лайков каждого затронутого фильма
+        for (Film film : filmsByIds(likedFilms.toIntArray())) {
+            searchIndex.likesChanged(film.getId(), film.getLikeScore().size());
+        }
+        errors.sort(Comparator.comparingInt(BatchResult.ItemError::index));
+        // Повтор уже существующего лайка не ошибка, но и не новый лайк: он считается отдельно
+        int accepted = added.cardinality();
+        int duplicates = likes.size() - accepted - errors.size();
+        likesAdded.increment(accepted);
+        log.atInfo().setMessage("Пакетная загрузка лайков").addKeyValue("accepted", accepted)
+                .addKeyValue("rejected", errors.size()).addKeyValue("duplicates", duplicates).log();
+        return new BatchResult(accepted, errors.size(), duplicates, new int[0], errors);
+    }
+
+    @Timed(value = MethodTimer.METRIC, histogram = true)
     public Film update(Film film) {
         validateFilm(film);
-        getFilmById(film.getId());
+        int[] oldLikes = getFilmById(film.getId()).getLikeScore().toIntArray();
         Film updatedFilm = filmStorage.update(film);
-        log.info("Обновлен фильм с ID: {}", updatedFilm.getId());
+        // Обновление заменяет лайки целиком: в рекомендации уходит разница со старым набором
+        for (int userId : oldLikes) {
+            if (!updatedFilm.getLikeScore().contains(userId)) {
+                recommender.likeRemoved(updatedFilm.getId(), userId);
+            }
+        }
+        filmLoaded(updatedFilm);
+        changeFeed.publish(ChangeEvent.Type.FILM_UPDATED, updatedFilm.getId(), 0);
+        log.atInfo().setMessage("Обновлен фильм").addKeyValue("filmId", updatedFilm.getId()).log();
         return updatedFilm;
     }
 
@@ -77,29 +326,76 @@ public class FilmService {
         });
     }
 
-    private void validateFilm(Film film) {
-        if (film == null) {
-            log.error("Передан null film");
-            throw new ValidationException("Фильм не может быть null");
+    // Как в addLike: лайки пользователей, удаленных, пока шел пакет, снимаются и попадают в ошибки
+    private void dropLikesOfDeletedUsers(BitSet added, int[] positions, int[] filmIds, int[] likedBy,
+                                         List<BatchResult.ItemError> errors) {
+        if (added.isEmpty()) {
+            return;
+        }
+        IntSet users = new IntSet();
+        for (int i = added.nextSetBit(0); i >= 0; i = added.nextSetBit(i + 1)) {
+            users.add(likedBy[i]);
+        }
+        IntSet existing = new IntSet();
+        for (User user : userStorage.getUsersByIds(users.toIntArray())) {
+            existing.add(user.getId());
+        }
+        if (existing.size() == users.size()) {
+            return;
+        }
+        for (int i = added.nextSetBit(0); i >= 0; i = added.nextSetBit(i + 1)) {
+            if (!existing.contains(likedBy[i])) {
+                filmStorage.removeLike(filmIds[i], likedBy[i]);
+                added.clear(i);
+                errors.add(new BatchResult.ItemError(positions[i], "Пользователь с ID " + likedBy[i] + " не найден"));
+            }
+        }
+    }
+
+    private void requireUser(int userId) {
+        if (!userStorage.exists(userId)) {
+            log.error("Пользователь с ID {} не найден", userId);
+            throw new NotFoundException("Пользователь с ID " + userId + " не найден");
         }
+    }
 
-        if (film.getName() == null || film.getName().isEmpty()) {
-            log.error("Пустое имя фильма");
-            throw new ValidationException("Имя фильма не может быть пустым");
+    // Новый или обновленный фильм попадает в поисковый индекс, его лайки - в рекомендации
+    private void filmLoaded(Film film) {
+        for (int userId : film.getLikeScore().toIntArray()) {
+            recommender.likeAdded(film.getId(), userId);
         }
+        searchIndex.index(film);
+    }
 
-        if (film.getDescription() == null || film.getDescription().length() > 200) {
-            log.error("Неверное описание фильма");
-            throw new ValidationException("Длина описания фильма должна быть до 200 символов");
+    private List<Film> filmsByIds(int[] ids) {
+        List<Film> result = new ArrayList<>(ids.length);
+        for (int id : ids) {
+            filmStorage.getFilmById(id).ifPresent(result::add);
         }
-        if (film.getReleaseDate() == null || film.getReleaseDate().isBefore(LocalDate.of(1895, 12, 28))) {
-            log.error("Неверная дата релиза фильма");
-            throw new ValidationException("Дата релиза фильма не может быть раньше 28 декабря 1895 года");
+        return result;
+    }
+
+    private static void validateCount(int count) {
+        if (count <= 0) {
+            log.error("Неверное значение count: {}", count);
+            throw new ValidationException("Count должен быть больше 0");
         }
-        if (film.getDuration() <= 0) {
-            log.error("Неверная продолжительность фильма");
-            throw new ValidationException("Продолжительность фильма должна быть положительной");
+    }
+
+    private static void validateQuery(FilmQuery query) {
+        if (query.releasedFrom() != null && query.releasedTo() != null && query.releasedFrom().isAfter(query.releasedTo())) {
+            log.error("Неверный диапазон дат релиза: {} - {}", query.releasedFrom(), query.releasedTo());
+            throw new ValidationException("releasedFrom не может быть позже releasedTo");
         }
+        if (query.minDuration() != null && query.maxDuration() != null && query.minDuration() > query.maxDuration()) {
+            log.error("Неверный диапазон продолжительности: {} - {}", query.minDuration(), query.maxDuration());
+            throw new ValidationException("minDuration не может быть больше maxDuration");
+        }
+    }
+
+    // Отказ не пишется в лог: под потоком некорректных запросов его видно по метрике filmorate.validation.failures
+    private static void validateFilm(Film film) {
+        EntityValidators.FILM.validate(film);
     }
 }
 
@@ -0,0 +1,41 @@
+package ru.yandex.practicum.filmorate.services;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+import java.util.concurrent.TimeUnit;
+
+// Таймер метода сервиса с тем же именем и тегами, что ставит TimedAspect по @Timed. Лайки и дружба меряются им,
+// а не аспектом: аспект на каждом вызове создает точку соединения, строит теги и ищет таймер в реестре.
+// Таймер успешного вызова регистрируется один раз, таймеры исключений - при первом исключении
+final class MethodTimer {
+    static final String METRIC = "filmorate.service";
+
+    private final MeterRegistry registry;
+    private final String className;
+    private final String method;
+    private final Timer succeeded;
+
+    MethodTimer(MeterRegistry registry, Class<?> type, String method) {
+        this.registry = registry;
+        this.className = type.getName();
+        this.method = method;
+        this.succeeded = timer("none");
+    }
+
+    void succeeded(long startNanos) {
+        succeeded.record(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
+    }
+
+    void failed(long startNanos, Throwable e) {
+        Throwable tagged = e.getCause() == null ? e : e.getCause();
+        timer(tagged.getClass().getSimpleName()).record(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
+    }
+
+    private Timer timer(String exception) {
+        return Timer.builder(METRIC)
+                .tags("class", className, "method", method, "exception", exception)
+                .publishPercentileHistogram()
+                .register(registry);
+    }
+}
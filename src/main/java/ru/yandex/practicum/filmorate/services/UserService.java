@@ -1,93 +1,250 @@
 package ru.yandex.practicum.filmorate.services;
 
-import lombok.RequiredArgsConstructor;
+import io.micrometer.core.annotation.Timed;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
+import ru.yandex.practicum.filmorate.events.ChangeEvent;
+import ru.yandex.practicum.filmorate.events.ChangeFeed;
 import ru.yandex.practicum.filmorate.exceptions.FriendsException;
 import ru.yandex.practicum.filmorate.exceptions.NotFoundException;
 import ru.yandex.practicum.filmorate.exceptions.ValidationException;
+import ru.yandex.practicum.filmorate.model.BatchResult;
+import ru.yandex.practicum.filmorate.model.Friendship;
 import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.model.UserQuery;
+import ru.yandex.practicum.filmorate.recommendations.FriendRecommender;
+import ru.yandex.practicum.filmorate.storage.interfaces.PairChanges;
 import ru.yandex.practicum.filmorate.storage.interfaces.UserStorage;
+import ru.yandex.practicum.filmorate.validation.EntityValidators;
 
-import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
 import java.util.Collection;
-import java.util.Optional;
-import java.util.Set;
-import java.util.stream.Collectors;
+import java.util.Comparator;
+import java.util.List;
 
+// @Timed стоит на методах, а не на классе: лайки и дружба меряются MethodTimer без аспекта
 @Slf4j
 @Service
-@RequiredArgsConstructor
 public class UserService {
     private final UserStorage userStorage;
+    private final FriendRecommender recommender;
+    private final FilmService filmService;
+    private final ChangeFeed changeFeed;
+    private final Counter friendsAdded;
+    private final Counter friendsRemoved;
+    private final MethodTimer addFriendTimer;
+    private final MethodTimer deleteFriendTimer;
 
-    public void addFriend(int userId, int friendId) {
-        if (userId == friendId) {
-            log.error("Попытка добавить себя в друзья: userId={}, friendId={}", userId, friendId);
-            throw new FriendsException("Нельзя добавить/удалить самого себя из друзей");
-        }
+    public UserService(UserStorage userStorage, MeterRegistry registry, FriendRecommender recommender,
+                       FilmService filmService, ChangeFeed changeFeed) {
+        this.userStorage = userStorage;
+        this.recommender = recommender;
+        this.filmService = filmService;
+        this.changeFeed = changeFeed;
+        this.friendsAdded = registry.counter("filmorate.friendships", "action", "added");
+        this.friendsRemoved = registry.counter("filmorate.friendships", "action", "removed");
+        this.addFriendTimer = new MethodTimer(registry, UserService.class, "addFriend");
+        this.deleteFriendTimer = new MethodTimer(registry, UserService.class, "deleteFriend");
+    }
 
-        User user = getUserById(userId);
-        User friend = getUserById(friendId);
+    public void addFriend(int userId, int friendId) {
+        long start = System.nanoTime();
+        try {
+            if (userId == friendId) {
+                log.error("Попытка добавить себя в друзья: userId={}, friendId={}", userId, friendId);
+                throw new FriendsException("Нельзя добавить/удалить самого себя из друзей");
+            }
 
-        user.addFriend(friendId);
-        friend.addFriend(userId);
-        userStorage.update(user);
-        userStorage.update(friend);
-        log.info("Пользователь {} добавил в друзья пользователя {}", userId, friendId);
+            // Повтор ничего не меняет: лента, рекомендации и счетчик его не видят
+            if (userStorage.addFriend(userId, friendId)) {
+                recommender.friendshipChanged(userId, friendId);
+                changeFeed.publish(ChangeEvent.Type.FRIEND_ADDED, userId, friendId);
+                friendsAdded.increment();
+            }
+            if (log.isDebugEnabled()) {
+                log.debug("Пользователь {} добавил в друзья пользователя {}", userId, friendId);
+            }
+        } catch (RuntimeException e) {
+            addFriendTimer.failed(start, e);
+            throw e;
+        }
+        addFriendTimer.succeeded(start);
     }
 
     public void deleteFriend(int userId, int friendId) {
-        if (userId == friendId) {
-            log.error("Попытка удалить себя из друзей: userId={}, friendId={}", userId, friendId);
-            throw new FriendsException("Нельзя добавить/удалить самого себя из друзей");
-        }
+        long start = System.nanoTime();
+        try {
+            if (userId == friendId) {
+                log.error("Попытка удалить себя из друзей: userId={}, friendId={}", userId, friendId);
+                throw new FriendsException("Нельзя добавить/удалить самого себя из друзей");
+            }
 
-        User user = getUserById(userId);
-        User friend = getUserById(friendId);
-
-        user.removeFriend(friendId);
-        friend.removeFriend(userId);
-        userStorage.update(user);
-        userStorage.update(friend);
-        log.info("Пользователь {} удалил из друзей пользователя {}", userId, friendId);
+            // Повтор ничего не меняет: лента, рекомендации и счетчик его не видят
+            if (userStorage.removeFriend(userId, friendId)) {
+                recommender.friendshipChanged(userId, friendId);
+                changeFeed.publish(ChangeEvent.Type.FRIEND_REMOVED, userId, friendId);
+                friendsRemoved.increment();
+            }
+            if (log.isDebugEnabled()) {
+                log.debug("Пользователь {} удалил из друзей пользователя {}", userId, friendId);
+            }
+        } catch (RuntimeException e) {
+            deleteFriendTimer.failed(start, e);
+            throw e;
+        }
+        deleteFriendTimer.succeeded(start);
     }
 
-    public Set<User> getMutualFriends(int userId, int otherId) {
+    @Timed(value = MethodTimer.METRIC, histogram = true)
+    public List<User> getMutualFriends(int userId, int otherId) {
+        log.atInfo().setMessage("Получение общих друзей")
+                .addKeyValue("userId", userId).addKeyValue("otherId", otherId).log();
+        return userStorage.getCommonFriends(userId, otherId);
+    }
 
-        User user1 = getUserById(userId);
-        User user2 = getUserById(otherId);
+    // Друзья друзей по убыванию числа общих друзей
+    @Timed(value = MethodTimer.METRIC, histogram = true)
+    public List<User> getRecommendations(int userId, int count) {
+        if (count <= 0) {
+            log.error("Неверное значение count: {}", count);
+            throw new ValidationException("Count должен быть больше 0");
+        }
+        log.atInfo().setMessage("Получение рекомендаций друзей")
+                .addKeyValue("userId", userId).addKeyValue("count", count).log();
+        return userStorage.getUsersByIds(recommender.recommend(userId, count));
+    }
 
-        log.info("Получение общих друзей пользователей {} и {}", userId, otherId);
-        return user1.getFriendsList().stream().filter(user2.getFriendsList()::contains).map(userStorage::getUserById).flatMap(Optional::stream).collect(Collectors.toSet());
+    @Timed(value = MethodTimer.METRIC, histogram = true)
+    public List<User> getFriends(int userId) {
+        log.atInfo().setMessage("Получение списка друзей").addKeyValue("userId", userId).log();
+        return userStorage.getFriends(userId);
     }
 
-    public Set<User> getFriends(int userId) {
-        User user = getUserById(userId);
-        log.info("Получение списка друзей пользователя {}", userId);
-        return user.getFriendsList().stream().map(userStorage::getUserById).flatMap(Optional::stream).collect(Collectors.toSet());
+    @Timed(value = MethodTimer.METRIC, histogram = true)
+    public long getVersion() {
+        return userStorage.getVersion();
     }
 
+    @Timed(value = MethodTimer.METRIC, histogram = true)
     public Collection<User> getAllUsers() {
-        log.info("Получение всех пользователей");
+        log.atInfo().setMessage("Получение всех пользователей").log();
         return userStorage.getAllUsers();
     }
 
+    @Timed(value = MethodTimer.METRIC, histogram = true)
+    public List<User> getUsers(int afterId, int limit) {
+        log.atInfo().setMessage("Получение страницы пользователей")
+                .addKeyValue("afterId", afterId).addKeyValue("limit", limit).log();
+        return userStorage.getUsers(afterId, limit);
+    }
+
+    @Timed(value = MethodTimer.METRIC, histogram = true)
+    public List<User> findUsers(UserQuery query, int afterId, int limit) {
+        if (query.bornFrom() != null && query.bornTo() != null && query.bornFrom().isAfter(query.bornTo())) {
+            log.error("Неверный диапазон дат рождения: {} - {}", query.bornFrom(), query.bornTo());
+            throw new ValidationException("bornFrom не может быть позже bornTo");
+        }
+        log.atInfo().setMessage("Получение страницы пользователей по условиям")
+                .addKeyValue("afterId", afterId).addKeyValue("limit", limit).addKeyValue("query", query).log();
+        return userStorage.findUsers(query, afterId, limit);
+    }
+
+    @Timed(value = MethodTimer.METRIC, histogram = true)
     public User create(User user) {
         validateUser(user);
         User createdUser = userStorage.create(user);
-        log.info("Создан пользователь с ID: {}", createdUser.getId());
+        if (!createdUser.getFriendsList().isEmpty()) {
+            recommender.invalidateAll();
+        }
+        changeFeed.publish(ChangeEvent.Type.USER_CREATED, createdUser.getId(), 0);
+        log.atInfo().setMessage("Создан пользователь").addKeyValue("userId", createdUser.getId()).log();
         return createdUser;
     }
 
+    // Пакетная загрузка: некорректные пользователи попадают в отчет, остальные создаются одним вызовом хранилища
+    @Timed(value = MethodTimer.METRIC, histogram = true)
+    public BatchResult createAll(List<User> users) {
+        List<BatchResult.ItemError> errors = new ArrayList<>();
+        List<User> valid = EntityValidators.USER.validateAll(users, errors);
+        int[] ids = userStorage.createAll(valid).stream().mapToInt(User::getId).toArray();
+        if (valid.stream().anyMatch(user -> !user.getFriendsList().isEmpty())) {
+            recommender.invalidateAll();
+        }
+        for (int id : ids) {
+            changeFeed.publish(ChangeEvent.Type.USER_CREATED, id, 0);
+        }
+        log.atInfo().setMessage("Пакетная загрузка пользователей")
+                .addKeyValue("created", ids.length).addKeyValue("rejected", errors.size()).log();
+        return new BatchResult(ids.length, errors.size(), 0, ids, errors);
+    }
+
+    @Timed(value = MethodTimer.METRIC, histogram = true)
+    public BatchResult addFriends(List<Friendship> friendships) {
+        List<BatchResult.ItemError> errors = new ArrayList<>();
+        int[] positions = new int[friendships.size()];
+        int[] userIds = new int[friendships.size()];
+        int[] friendIds = new int[friendships.size()];
+        int count = 0;
+        for (int i = 0; i < friendships.size(); i++) {
+            Friendship friendship = friendships.get(i);
+            if (friendship.userId() == friendship.friendId()) {
+                errors.add(new BatchResult.ItemError(i, "Нельзя добавить/удалить самого себя из друзей"));
+                continue;
+            }
+            positions[count] = i;
+            userIds[count] = friendship.userId();
+            friendIds[count++] = friendship.friendId();
+        }
+        PairChanges changes = userStorage.addFriends(Arrays.copyOf(userIds, count), Arrays.copyOf(friendIds, count));
+        BitSet missing = changes.missing();
+        for (int i = missing.nextSetBit(0); i >= 0; i = missing.nextSetBit(i + 1)) {
+            errors.add(new BatchResult.ItemError(positions[i], "Пользователь с ID " + userIds[i] + " или "
+                    + friendIds[i] + " не найден"));
+        }
+        // Как у лайков: дальше идет только появившаяся дружба, уже существовавшая считается повтором
+        BitSet added = changes.added();
+        if (!added.isEmpty()) {
+            recommender.invalidateAll();
+        }
+        for (int i = added.nextSetBit(0); i >= 0; i = added.nextSetBit(i + 1)) {
+            changeFeed.publish(ChangeEvent.Type.FRIEND_ADDED, userIds[i], friendIds[i]);
+        }
+        errors.sort(Comparator.comparingInt(BatchResult.ItemError::index));
+        int accepted = added.cardinality();
+        int duplicates = friendships.size() - accepted - errors.size();
+        friendsAdded.increment(accepted);
+        log.atInfo().setMessage("Пакетная загрузка дружбы").addKeyValue("accepted", accepted)
+                .addKeyValue("rejected", errors.size()).addKeyValue("duplicates", duplicates).log();
+        return new BatchResult(accepted, errors.size(), duplicates, new int[0], errors);
+    }
+
+    @Timed(value = MethodTimer.METRIC, histogram = true)
     public User update(User user) {
-        getUserById(user.getId());
+        // Сначала тело: некорректный пользователь с несуществующим id получает 400, а не 404
         validateUser(user);
+        getUserById(user.getId());
         User updatedUser = userStorage.update(user);
-        log.info("Обновлен пользователь с ID: {}", updatedUser.getId());
+        recommender.invalidateAll();
+        changeFeed.publish(ChangeEvent.Type.USER_UPDATED, updatedUser.getId(), 0);
+        log.atInfo().setMessage("Обновлен пользователь").addKeyValue("userId", updatedUser.getId()).log();
         return updatedUser;
     }
 
+    // Сначала пользователь удаляется (вместе с дружбой), затем снимаются его лайки по обратному индексу:
+    // лайк, записанный до удаления, каскад увидит, а записанный после - снимет сам addLike
+    @Timed(value = MethodTimer.METRIC, histogram = true)
+    public void delete(int userId) {
+        userStorage.delete(userId);
+        filmService.removeUserLikes(userId);
+        recommender.invalidateAll();
+        changeFeed.publish(ChangeEvent.Type.USER_DELETED, userId, 0);
+        log.atInfo().setMessage("Удален пользователь").addKeyValue("userId", userId).log();
+    }
+
     private User getUserById(int userId) {
         return userStorage.getUserById(userId).orElseThrow(() -> {
             log.error("Пользователь с ID {} не найден", userId);
@@ -96,35 +253,8 @@ public class UserService {
     }
 
 
-    private void validateUser(User user) {
-        if (user == null) {
-            log.error("Передан null user");
-            throw new ValidationException("Пользователь не может быть null");
-        }
-        if (!isValidEmail(user.getEmail())) {
-            log.error("Невалидный email: {}", user.getEmail());
-            throw new ValidationException("Невалидный email");
-        }
-        if (!isValidLogin(user.getLogin())) {
-            log.error("Невалидный логин: {}", user.getLogin());
-            throw new ValidationException("Невалидный логин");
-        }
-        if (!isValidBirthday(user.getBirthday())) {
-            log.error("Невалидная дата рождения: {}", user.getBirthday());
-            throw new ValidationException("Невалидная дата рождения");
-        }
-    }
-
-    private boolean isValidEmail(String email) {
-        return email != null && email.contains("@");
-    }
-
-    private boolean isValidLogin(String login) {
-        return login != null && !login.contains(" ");
-    }
-
-    private boolean isValidBirthday(LocalDate birthday) {
-        return birthday != null && birthday.isBefore(LocalDate.now());
+    private static void validateUser(User user) {
+        EntityValidators.USER.validate(user);
     }
 }
 
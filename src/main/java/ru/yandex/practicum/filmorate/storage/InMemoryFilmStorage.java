@@ -1,28 +1,72 @@
 package ru.yandex.practicum.filmorate.storage;
 
-import lombok.Getter;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Profile;
 import org.springframework.stereotype.Component;
 import ru.yandex.practicum.filmorate.exceptions.NotFoundException;
 import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.FilmQuery;
+import ru.yandex.practicum.filmorate.model.IdTable;
+import ru.yandex.practicum.filmorate.model.IntSet;
+import ru.yandex.practicum.filmorate.model.TopIds;
 import ru.yandex.practicum.filmorate.storage.interfaces.FilmStorage;
+import ru.yandex.practicum.filmorate.storage.interfaces.PairChanges;
+import ru.yandex.practicum.filmorate.storage.persistence.StorageJournal;
 
 import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
 import java.util.Collection;
-import java.util.HashMap;
-import java.util.Map;
+import java.util.Comparator;
+import java.util.List;
+import java.util.NavigableSet;
+import java.util.Objects;
 import java.util.Optional;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
-@Component
+@Component("filmStorage")
+@Profile("!jdbc & !sharded")
 @Slf4j
 public class InMemoryFilmStorage implements FilmStorage {
 
     private static final LocalDate FILM_BIRTHDAY = LocalDate.of(1895, 12, 28);
     private static final int MAX_DESCRIPTION_LENGTH = 200;
+    private static final int MAX_PAGE_HINT = 1000;
+    private static final int[] NO_FILMS = new int[0];
 
-    @Getter
-    private final Map<Integer, Film> films = new HashMap<>();
-    private int current = 0;
+    // Упорядочено по id: постраничная выдача по курсору идет прямо по основному индексу.
+    // Поиск по id без упаковки ключа, поэтому лайк не выделяет Integer
+    private final IdTable<Film> films = new IdTable<>();
+    // Индекс популярности: ключ (количество лайков, id), по убыванию лайков, при равенстве - по возрастанию id
+    private final NavigableSet<Long> popularity = new ConcurrentSkipListSet<>(Comparator.reverseOrder());
+    // Обратный индекс лайков: пользователь -> фильмы. Меняется под блокировкой фильма вместе с Film.likeScore,
+    // опустевшее множество остается до удаления пользователя: иначе пользователь с единственным лайком
+    // создавал бы новое множество на каждом лайке
+    private final IdTable<IntSet> likedFilms = new IdTable<>();
+    // Вторичные индексы для выборок по диапазонам
+    private final RangeIndex releaseDates = new RangeIndex();
+    private final RangeIndex durations = new RangeIndex();
+    private final AtomicInteger current = new AtomicInteger();
+    // Размер и сумма лайков ведутся счетчиками, чтобы метрики не обходили таблицу
+    private final AtomicInteger filmCount = new AtomicInteger();
+    private final AtomicLong likeCount = new AtomicLong();
+    // Растет при каждом изменении фильмов и лайков; его значение становится версией измененного фильма
+    private final AtomicLong version = new AtomicLong();
+    private final StripedLock locks = new StripedLock();
+    private final StorageJournal journal;
+
+    public InMemoryFilmStorage() {
+        this(StorageJournal.NONE);
+    }
+
+    @Autowired
+    public InMemoryFilmStorage(StorageJournal journal) {
+        this.journal = journal;
+    }
 
     @Override
     public Collection<Film> getAllFilms() {
@@ -31,36 +75,114 @@ public class InMemoryFilmStorage implements FilmStorage {
 
     @Override
     public Film create(Film film) {
-        film.setId(++current);
-        films.put(film.getId(), film);
+        film.setId(current.incrementAndGet());
+        return insert(film);
+    }
+
+    // Создание с id, выделенным снаружи: так шарды получают фильмы от маршрутизатора
+    public Film createWithId(Film film) {
+        current.accumulateAndGet(film.getId(), Math::max);
+        return insert(film);
+    }
+
+    private Film insert(Film film) {
+        int filmId = film.getId();
+        long entry;
+        locks.lock(filmId);
+        try {
+            films.put(filmId, film);
+            popularity.add(popularityKey(film.getLikeScore().size(), filmId));
+            reindexFields(filmId, null, film);
+            filmCount.incrementAndGet();
+            likeCount.addAndGet(film.getLikeScore().size());
+            indexLikes(filmId, film.getLikeScore().toIntArray());
+            touch(film);
+            entry = journal.filmSaved(film);
+        } finally {
+            locks.unlock(filmId);
+        }
+        journal.awaitDurable(entry);
         log.info("Создан фильм с ID: {}", film.getId());
         log.debug("film: {}", film);
         return film;
     }
 
+    // Диапазон id берется одним getAndAdd, на диск пакет уходит одной групповой записью
+    @Override
+    public List<Film> createAll(List<Film> newFilms) {
+        int firstId = current.getAndAdd(newFilms.size()) + 1;
+        long entry = 0;
+        for (int i = 0; i < newFilms.size(); i++) {
+            Film film = newFilms.get(i);
+            int filmId = firstId + i;
+            film.setId(filmId);
+            locks.lock(filmId);
+            try {
+                films.put(filmId, film);
+                popularity.add(popularityKey(film.getLikeScore().size(), filmId));
+                reindexFields(filmId, null, film);
+                filmCount.incrementAndGet();
+                likeCount.addAndGet(film.getLikeScore().size());
+                indexLikes(filmId, film.getLikeScore().toIntArray());
+                touch(film);
+                entry = journal.filmSaved(film);
+            } finally {
+                locks.unlock(filmId);
+            }
+        }
+        journal.awaitDurable(entry);
+        log.info("Создано {} фильмов", newFilms.size());
+        return newFilms;
+    }
+
     @Override
     public Film update(Film film) {
         int filmId = film.getId();
 
-        if (!films.containsKey(filmId)) {
-            log.error("Фильм с ID {} не найден", filmId);
-            throw new NotFoundException("Фильм с ID " + filmId + " не найден");
+        long entry;
+        locks.lock(filmId);
+        try {
+            Film oldFilm = getExistingFilm(filmId);
+            films.put(filmId, film); // Просто обновляем фильм
+            reindex(filmId, oldFilm.getLikeScore().size(), film.getLikeScore().size());
+            reindexFields(filmId, oldFilm, film);
+            replaceLikes(filmId, oldFilm.getLikeScore(), film.getLikeScore());
+            touch(film);
+            entry = journal.filmSaved(film);
+        } finally {
+            locks.unlock(filmId);
         }
-
-        films.put(filmId, film); // Просто обновляем фильм
+        journal.awaitDurable(entry);
         log.info("Обновлен фильм с ID: {}", film.getId());
         log.debug("film: {}", film);
         return film;
     }
 
     @Override
-    public void delete(int filmId) {
-        if (!films.containsKey(filmId)) {
-            log.error("Фильм с ID {} не найден для удаления", filmId);
-            throw new NotFoundException("Фильм с ID " + filmId + " не найден");
+    public int[] delete(int filmId) {
+        long entry;
+        int[] likedBy;
+        locks.lock(filmId);
+        try {
+            Film film = films.remove(filmId);
+            if (film == null) {
+                log.error("Фильм с ID {} не найден для удаления", filmId);
+                throw new NotFoundException("Фильм с ID " + filmId + " не найден");
+            }
+            popularity.remove(popularityKey(film.getLikeScore().size(), filmId));
+            reindexFields(filmId, film, null);
+            filmCount.decrementAndGet();
+            likeCount.addAndGet(-film.getLikeScore().size());
+            likedBy = film.getLikeScore().toIntArray();
+            unindexLikes(filmId, likedBy);
+            version.incrementAndGet();
+            entry = journal.filmDeleted(filmId);
+        } finally {
+            locks.unlock(filmId);
         }
-        films.remove(filmId);
+        journal.awaitDurable(entry);
         log.info("Фильм с ID {} удален", filmId);
+        return likedBy;
     }
 
     @Override
@@ -68,5 +190,422 @@ public class InMemoryFilmStorage implements FilmStorage {
         return Optional.ofNullable(films.get(id));
     }
 
-}
+    @Override
+    public List<Film> getFilms(int afterId, int limit) {
+        List<Film> result = new ArrayList<>(Math.min(limit, MAX_PAGE_HINT));
+        for (int id = films.nextId(afterId); id >= 0 && result.size() < limit; id = films.nextId(id)) {
+            Film film = films.get(id);
+            if (film != null) {
+                result.add(film);
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public boolean addLike(int filmId, int userId) {
+        long entry = 0;
+        boolean added;
+        locks.lock(filmId);
+        try {
+            Film film = getExistingFilm(filmId);
+            int likes = film.getLikeScore().size();
+            added = film.addLike(userId);
+            if (added) {
+                reindex(filmId, likes, likes + 1);
+                indexLike(filmId, userId);
+                touch(film);
+                entry = journal.likeAdded(filmId, userId);
+            }
+        } finally {
+            locks.unlock(filmId);
+        }
+        journal.awaitDurable(entry);
+        return added;
+    }
+
+    @Override
+    public boolean removeLike(int filmId, int userId) {
+        long entry = 0;
+        boolean removed;
+        locks.lock(filmId);
+        try {
+            Film film = getExistingFilm(filmId);
+            int likes = film.getLikeScore().size();
+            removed = film.removeLike(userId);
+            if (removed) {
+                reindex(filmId, likes, likes - 1);
+                unindexLike(filmId, userId);
+                touch(film);
+                entry = journal.likeRemoved(filmId, userId);
+            }
+        } finally {
+            locks.unlock(filmId);
+        }
+        journal.awaitDurable(entry);
+        return removed;
+    }
+
+    // Пары группируются по фильму: блокировка и перестроение индекса популярности - один раз на фильм
+    @Override
+    public PairChanges addLikes(int[] filmIds, int[] userIds) {
+        long[] order = new long[filmIds.length];
+        for (int i = 0; i < filmIds.length; i++) {
+            order[i] = ((long) filmIds[i] << 32) | i;
+        }
+        Arrays.sort(order);
+        BitSet missing = new BitSet();
+        BitSet added = new BitSet();
+        long entry = 0;
+        int from = 0;
+        while (from < order.length) {
+            int filmId = (int) (order[from] >> 32);
+            int to = from;
+            while (to < order.length && (int) (order[to] >> 32) == filmId) {
+                to++;
+            }
+            locks.lock(filmId);
+            try {
+                Film film = films.get(filmId);
+                if (film == null) {
+                    for (int i = from; i < to; i++) {
+                        missing.set((int) order[i]);
+                    }
+                } else {
+                    int likes = film.getLikeScore().size();
+                    for (int i = from; i < to; i++) {
+                        int userId = userIds[(int) order[i]];
+                        if (film.addLike(userId)) {
+                            indexLike(filmId, userId);
+                            added.set((int) order[i]);
+                            entry = journal.likeAdded(filmId, userId);
+                        }
+                    }
+                    if (film.getLikeScore().size() != likes) {
+                        reindex(filmId, likes, film.getLikeScore().size());
+                        touch(film);
+                    }
+                }
+            } finally {
+                locks.unlock(filmId);
+            }
+            from = to;
+        }
+        journal.awaitDurable(entry);
+        return new PairChanges(missing, added);
+    }
+
+    @Override
+    public List<Film> getPopularFilms(int count) {
+        List<Film> result = new ArrayList<>(Math.min(count, MAX_PAGE_HINT));
+        for (long key : popularity) {
+            if (result.size() >= count) {
+                break;
+            }
+            Film film = films.get(filmIdOf(key));
+            if (film != null) {
+                result.add(film);
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public List<Film> findFilms(FilmQuery query, int afterId, int limit) {
+        if (query.isEmpty()) {
+            return getFilms(afterId, limit);
+        }
+        RangeScan.OrderedPath<Integer> byId = new RangeScan.OrderedPath<>(films.ids(afterId),
+                Integer::intValue, id -> matches(query, id), limit);
+        RangeScan.Path best = RangeScan.race(paths(query, byId));
+        if (best == byId) {
+            return filmsByIds(byId.ids());
+        }
+        int[] candidates = best.ids();
+        Arrays.sort(candidates);
+        int from = Arrays.binarySearch(candidates, afterId + 1);
+        List<Film> result = new ArrayList<>(Math.min(limit, MAX_PAGE_HINT));
+        for (int i = from < 0 ? -from - 1 : from; i < candidates.length && result.size() < limit; i++) {
+            Film film = films.get(candidates[i]);
+            if (film != null && query.matches(film)) {
+                result.add(film);
+            }
+        }
+        return result;
+    }
+
+    // Узкий диапазон ранжируется по лайкам в куче; широкий проигрывает обходу индекса популярности
+    @Override
+    public List<Film> findPopularFilms(FilmQuery query, int count) {
+        if (query.isEmpty()) {
+            return getPopularFilms(count);
+        }
+        RangeScan.OrderedPath<Long> byLikes = new RangeScan.OrderedPath<>(popularity.iterator(),
+                InMemoryFilmStorage::filmIdOf, id -> matches(query, id), count);
+        RangeScan.Path best = RangeScan.race(paths(query, byLikes));
+        if (best == byLikes) {
+            return filmsByIds(byLikes.ids());
+        }
+        TopIds top = new TopIds(count);
+        for (int filmId : best.ids()) {
+            Film film = films.get(filmId);
+            if (film != null && query.matches(film)) {
+                top.offer(filmId, film.getLikeScore().size());
+            }
+        }
+        return filmsByIds(top.ids());
+    }
+
+    @Override
+    public int[] getLikedFilmIds(int userId) {
+        IntSet liked = likedFilms.get(userId);
+        return liked == null ? NO_FILMS : liked.toIntArray();
+    }
+
+    // Обходятся только фильмы из обратного индекса - O(лайков пользователя), а не O(каталога)
+    @Override
+    public int[] removeUserLikes(int userId) {
+        int[] liked = getLikedFilmIds(userId);
+        int[] removed = new int[liked.length];
+        int count = 0;
+        long entry = 0;
+        for (int filmId : liked) {
+            locks.lock(filmId);
+            try {
+                Film film = films.get(filmId);
+                if (film == null) {
+                    continue;
+                }
+                int likes = film.getLikeScore().size();
+                if (film.removeLike(userId)) {
+                    reindex(filmId, likes, likes - 1);
+                    unindexLike(filmId, userId);
+                    touch(film);
+                    entry = journal.likeRemoved(filmId, userId);
+                    removed[count++] = filmId;
+                }
+            } finally {
+                locks.unlock(filmId);
+            }
+        }
+        dropLikedFilms(userId);
+        journal.awaitDurable(entry);
+        return Arrays.copyOf(removed, count);
+    }
+
+    @Override
+    public int getFilmCount() {
+        return filmCount.get();
+    }
+
+    @Override
+    public long getLikeCount() {
+        return likeCount.get();
+    }
+
+    @Override
+    public long getVersion() {
+        return version.get();
+    }
+
+    public int getLastId() {
+        return current.get();
+    }
+
+    // Методы восстановления применяются при загрузке снимка и журнала и сами в журнал не пишут
+    public void restoreFilm(Film film) {
+        int filmId = film.getId();
+        current.accumulateAndGet(filmId, Math::max);
+        locks.lock(filmId);
+        try {
+            Film oldFilm = films.put(filmId, film);
+            reindexFields(filmId, oldFilm, film);
+            if (oldFilm == null) {
+                popularity.add(popularityKey(film.getLikeScore().size(), filmId));
+                filmCount.incrementAndGet();
+                likeCount.addAndGet(film.getLikeScore().size());
+                indexLikes(filmId, film.getLikeScore().toIntArray());
+            } else {
+                reindex(filmId, oldFilm.getLikeScore().size(), film.getLikeScore().size());
+                replaceLikes(filmId, oldFilm.getLikeScore(), film.getLikeScore());
+            }
+            touch(film);
+        } finally {
+            locks.unlock(filmId);
+        }
+    }
+
+    public void restoreDelete(int filmId) {
+        locks.lock(filmId);
+        try {
+            Film film = films.remove(filmId);
+            if (film != null) {
+                popularity.remove(popularityKey(film.getLikeScore().size(), filmId));
+                reindexFields(filmId, film, null);
+                filmCount.decrementAndGet();
+                likeCount.addAndGet(-film.getLikeScore().size());
+                unindexLikes(filmId, film.getLikeScore().toIntArray());
+                version.incrementAndGet();
+            }
+        } finally {
+            locks.unlock(filmId);
+        }
+    }
+
+    public void restoreLike(int filmId, int userId, boolean liked) {
+        locks.lock(filmId);
+        try {
+            Film film = films.get(filmId);
+            if (film == null) {
+                return;
+            }
+            int likes = film.getLikeScore().size();
+            if (liked && film.addLike(userId)) {
+                indexLike(filmId, userId);
+            } else if (!liked && film.removeLike(userId)) {
+                unindexLike(filmId, userId);
+            }
+            if (film.getLikeScore().size() != likes) {
+                reindex(filmId, likes, film.getLikeScore().size());
+                touch(film);
+            }
+        } finally {
+            locks.unlock(filmId);
+        }
+    }
+
+    public void restoreLastId(int lastId) {
+        current.accumulateAndGet(lastId, Math::max);
+    }
+
+    private Film getExistingFilm(int filmId) {
+        Film film = films.get(filmId);
+        if (film == null) {
+            log.error("Фильм с ID {} не найден", filmId);
+            throw new NotFoundException("Фильм с ID " + filmId + " не найден");
+        }
+        return film;
+    }
+
+    // Вызывается под блокировкой фильма после изменения: новая версия видна только вместе с ним
+    private void touch(Film film) {
+        film.setVersion(version.incrementAndGet());
+    }
+
+    private boolean matches(FilmQuery query, int filmId) {
+        Film film = films.get(filmId);
+        return film != null && query.matches(film);
+    }
+
+    // Пути доступа для выборки: диапазон каждого заданного индекса и обход в порядке выдачи
+    private List<RangeScan.Path> paths(FilmQuery query, RangeScan.Path ordered) {
+        List<RangeScan.Path> paths = new ArrayList<>(3);
+        if (query.hasReleaseRange()) {
+            paths.add(new RangeScan.IndexPath(releaseDates.range(RangeIndex.day(query.releasedFrom(), Integer.MIN_VALUE),
+                    RangeIndex.day(query.releasedTo(), Integer.MAX_VALUE))));
+        }
+        if (query.hasDurationRange()) {
+            paths.add(new RangeScan.IndexPath(durations.range(Objects.requireNonNullElse(query.minDuration(), Integer.MIN_VALUE),
+                    Objects.requireNonNullElse(query.maxDuration(), Integer.MAX_VALUE))));
+        }
+        paths.add(ordered);
+        return paths;
+    }
 
+    private List<Film> filmsByIds(int[] ids) {
+        List<Film> result = new ArrayList<>(ids.length);
+        for (int id : ids) {
+            Film film = films.get(id);
+            if (film != null) {
+                result.add(film);
+            }
+        }
+        return result;
+    }
+
+    // Вторичные индексы; null вместо фильма - его еще нет или уже нет
+    private void reindexFields(int filmId, Film oldFilm, Film newFilm) {
+        releaseDates.replace(oldFilm == null ? null : RangeIndex.day(oldFilm.getReleaseDate()),
+                newFilm == null ? null : RangeIndex.day(newFilm.getReleaseDate()), filmId);
+        durations.replace(oldFilm == null ? null : oldFilm.getDuration(),
+                newFilm == null ? null : newFilm.getDuration(), filmId);
+    }
+
+    // Без захватывающих лямбд, чтобы лайк не выделял память. Множество удаленного пользователя убирается из таблицы
+    // под своим монитором, а вставка под тем же монитором убеждается, что множество еще в таблице, иначе повторяет
+    private void indexLike(int filmId, int userId) {
+        while (true) {
+            IntSet liked = likedFilms.get(userId);
+            if (liked == null) {
+                liked = likedFilms.computeIfAbsent(userId, id -> new IntSet());
+            }
+            synchronized (liked) {
+                if (likedFilms.get(userId) == liked) {
+                    liked.add(filmId);
+                    return;
+                }
+            }
+        }
+    }
+
+    private void unindexLike(int filmId, int userId) {
+        IntSet liked = likedFilms.get(userId);
+        if (liked == null) {
+            return;
+        }
+        liked.remove(filmId);
+    }
+
+    // Пустое множество удаленного пользователя убирается из таблицы. Лайк, который addLike снимет сам после гонки
+    // с удалением, оставит пустое множество - одну запись на такую гонку
+    private void dropLikedFilms(int userId) {
+        IntSet liked = likedFilms.get(userId);
+        if (liked == null) {
+            return;
+        }
+        synchronized (liked) {
+            if (liked.isEmpty()) {
+                likedFilms.remove(userId, liked);
+            }
+        }
+    }
+
+    private void indexLikes(int filmId, int[] userIds) {
+        for (int userId : userIds) {
+            indexLike(filmId, userId);
+        }
+    }
+
+    private void unindexLikes(int filmId, int[] userIds) {
+        for (int userId : userIds) {
+            unindexLike(filmId, userId);
+        }
+    }
+
+    // Общие для старого и нового набора лайки из индекса не пропадают даже на мгновение
+    private void replaceLikes(int filmId, IntSet oldLikes, IntSet newLikes) {
+        for (int userId : oldLikes.toIntArray()) {
+            if (!newLikes.contains(userId)) {
+                unindexLike(filmId, userId);
+            }
+        }
+        indexLikes(filmId, newLikes.toIntArray());
+    }
+
+    private void reindex(int filmId, int oldLikes, int newLikes) {
+        if (oldLikes == newLikes) {
+            return;
+        }
+        likeCount.addAndGet(newLikes - oldLikes);
+        popularity.remove(popularityKey(oldLikes, filmId));
+        popularity.add(popularityKey(newLikes, filmId));
+    }
+
+    private static long popularityKey(int likes, int filmId) {
+        return ((long) likes << 32) | (Integer.MAX_VALUE - filmId);
+    }
+
+    private static int filmIdOf(long key) {
+        return Integer.MAX_VALUE - (int) key;
+    }
+}
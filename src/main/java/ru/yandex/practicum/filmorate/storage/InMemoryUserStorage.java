@@ -1,62 +1,513 @@
 package ru.yandex.practicum.filmorate.storage;
 
-import lombok.Getter;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Profile;
 import org.springframework.stereotype.Component;
 import ru.yandex.practicum.filmorate.exceptions.NotFoundException;
+import ru.yandex.practicum.filmorate.model.IdTable;
 import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.model.UserQuery;
+import ru.yandex.practicum.filmorate.storage.interfaces.PairChanges;
 import ru.yandex.practicum.filmorate.storage.interfaces.UserStorage;
+import ru.yandex.practicum.filmorate.storage.persistence.StorageJournal;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
 import java.util.Collection;
-import java.util.HashMap;
-import java.util.Map;
+import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
-@Component
+@Component("userStorage")
+@Profile("!jdbc & !sharded")
 @Slf4j
 public class InMemoryUserStorage implements UserStorage {
-    @Getter
-    private final Map<Integer, User> users = new HashMap<>();
-    private int current = 0;
+    private static final int MAX_PAGE_HINT = 1000;
+
+    // Поиск по id без упаковки ключа: на пути дружбы и лайков не выделяется Integer
+    private final IdTable<User> users = new IdTable<>();
+    private final AtomicInteger current = new AtomicInteger();
+    // Число пользователей и сумма длин списков друзей, чтобы не обходить карту ради метрик
+    private final AtomicInteger userCount = new AtomicInteger();
+    private final AtomicLong friendLinks = new AtomicLong();
+    // Растет при каждом изменении пользователей и дружбы; его значение становится версией измененного пользователя
+    private final AtomicLong version = new AtomicLong();
+    // Вторичный индекс по дате рождения для выборок по диапазону
+    private final RangeIndex birthdays = new RangeIndex();
+    private final StripedLock locks = new StripedLock();
+    private final StorageJournal journal;
+
+    public InMemoryUserStorage() {
+        this(StorageJournal.NONE);
+    }
+
+    @Autowired
+    public InMemoryUserStorage(StorageJournal journal) {
+        this.journal = journal;
+    }
 
     public Collection<User> getAllUsers() {
         return users.values();
     }
 
     public User create(User user) {
-        user.setId(++current);
+        user.setId(current.incrementAndGet());
+        return insert(user);
+    }
+
+    // Создание с id, выделенным снаружи: так шарды получают пользователей от маршрутизатора
+    public User createWithId(User user) {
+        current.accumulateAndGet(user.getId(), Math::max);
+        return insert(user);
+    }
+
+    private User insert(User user) {
         //Устанавливаем имя пользователя, если оно не задано
         if (user.getName() == null || user.getName().isEmpty()) {
             user.setName(user.getLogin());
         }
 
-        users.put(user.getId(), user);
+        long entry;
+        locks.lock(user.getId());
+        try {
+            users.put(user.getId(), user);
+            reindexBirthday(user.getId(), null, user);
+            userCount.incrementAndGet();
+            friendLinks.addAndGet(user.getFriendsList().size());
+            touch(user);
+            entry = journal.userSaved(user);
+        } finally {
+            locks.unlock(user.getId());
+        }
+        journal.awaitDurable(entry);
         log.info("Создан пользователь с ID: {}", user.getId());
         log.debug("user: {}", user);
         return user;
     }
 
+    // Диапазон id берется одним getAndAdd, на диск пакет уходит одной групповой записью
+    @Override
+    public List<User> createAll(List<User> newUsers) {
+        int firstId = current.getAndAdd(newUsers.size()) + 1;
+        long entry = 0;
+        for (int i = 0; i < newUsers.size(); i++) {
+            User user = newUsers.get(i);
+            int userId = firstId + i;
+            user.setId(userId);
+            if (user.getName() == null || user.getName().isEmpty()) {
+                user.setName(user.getLogin());
+            }
+            locks.lock(userId);
+            try {
+                users.put(userId, user);
+                reindexBirthday(userId, null, user);
+                userCount.incrementAndGet();
+                friendLinks.addAndGet(user.getFriendsList().size());
+                touch(user);
+                entry = journal.userSaved(user);
+            } finally {
+                locks.unlock(userId);
+            }
+        }
+        journal.awaitDurable(entry);
+        log.info("Создано {} пользователей", newUsers.size());
+        return newUsers;
+    }
+
     public User update(User user) {
         int userId = user.getId();
-        if (!users.containsKey(userId)) {
-            log.error("Пользователь с ID {} не найден", userId);
-            throw new NotFoundException("Пользователь с ID " + userId + " не найден");
-        }
 
         //Устанавливаем имя пользователя, если оно не задано
         if (user.getName() == null || user.getName().isEmpty()) {
             user.setName(user.getLogin());
         }
 
-        users.put(userId, user);
+        long entry;
+        locks.lock(userId);
+        try {
+            User oldUser = getExistingUser(userId);
+            users.put(userId, user);
+            reindexBirthday(userId, oldUser, user);
+            friendLinks.addAndGet(user.getFriendsList().size() - oldUser.getFriendsList().size());
+            touch(user);
+            entry = journal.userSaved(user);
+        } finally {
+            locks.unlock(userId);
+        }
+        journal.awaitDurable(entry);
         log.info("Обновлен пользователь с ID: {}", user.getId());
         log.debug("user: {}", user);
         return user;
     }
 
+    // Обходятся только друзья удаляемого пользователя - O(степени вершины)
+    @Override
+    public void delete(int userId) {
+        deleteWithFriends(userId);
+    }
+
+    // Удаляет пользователя и возвращает список его друзей, снятый под блокировкой: по нему шардированный режим
+    // чистит другие шарды, и дружба, добавленная перед самым удалением, в этом списке уже есть
+    public int[] deleteWithFriends(int userId) {
+        long entry;
+        int[] friendIds;
+        locks.lock(userId);
+        try {
+            User user = users.remove(userId);
+            if (user == null) {
+                log.error("Пользователь с ID {} не найден для удаления", userId);
+                throw new NotFoundException("Пользователь с ID " + userId + " не найден");
+            }
+            reindexBirthday(userId, user, null);
+            userCount.decrementAndGet();
+            friendIds = user.getFriendsList().toIntArray();
+            friendLinks.addAndGet(-friendIds.length);
+            version.incrementAndGet();
+            entry = journal.userDeleted(userId);
+        } finally {
+            locks.unlock(userId);
+        }
+        unlinkFriends(userId, friendIds);
+        journal.awaitDurable(entry);
+        log.info("Пользователь с ID {} удален", userId);
+        return friendIds;
+    }
+
     @Override
     public Optional<User> getUserById(int id) {
         return Optional.ofNullable(users.get(id));
     }
-}
 
+    @Override
+    public boolean exists(int id) {
+        return users.containsKey(id);
+    }
+
+    @Override
+    public List<User> getUsers(int afterId, int limit) {
+        List<User> result = new ArrayList<>(Math.min(limit, MAX_PAGE_HINT));
+        for (int id = users.nextId(afterId); id >= 0 && result.size() < limit; id = users.nextId(id)) {
+            User user = users.get(id);
+            if (user != null) {
+                result.add(user);
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public List<User> getUsersByIds(int[] ids) {
+        List<User> result = new ArrayList<>(ids.length);
+        for (int id : ids) {
+            User user = users.get(id);
+            if (user != null) {
+                result.add(user);
+            }
+        }
+        return result;
+    }
+
+    // Диапазон дат рождения соревнуется с обходом по id: берется тот, что закончится раньше
+    @Override
+    public List<User> findUsers(UserQuery query, int afterId, int limit) {
+        if (query.isEmpty()) {
+            return getUsers(afterId, limit);
+        }
+        RangeScan.OrderedPath<Integer> byId = new RangeScan.OrderedPath<>(users.ids(afterId),
+                Integer::intValue, id -> {
+                    User user = users.get(id);
+                    return user != null && query.matches(user);
+                }, limit);
+        RangeScan.Path byBirthday = new RangeScan.IndexPath(birthdays.range(RangeIndex.day(query.bornFrom(), Integer.MIN_VALUE),
+                RangeIndex.day(query.bornTo(), Integer.MAX_VALUE)));
+        if (RangeScan.race(List.of(byBirthday, byId)) == byId) {
+            return getUsersByIds(byId.ids());
+        }
+        int[] candidates = byBirthday.ids();
+        Arrays.sort(candidates);
+        int from = Arrays.binarySearch(candidates, afterId + 1);
+        List<User> result = new ArrayList<>(Math.min(limit, MAX_PAGE_HINT));
+        for (int i = from < 0 ? -from - 1 : from; i < candidates.length && result.size() < limit; i++) {
+            User user = users.get(candidates[i]);
+            if (user != null && query.matches(user)) {
+                result.add(user);
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public List<User> getFriends(int userId) {
+        return getUsersByIds(getExistingUser(userId).getFriendsList().toIntArray());
+    }
+
+    @Override
+    public List<User> getCommonFriends(int userId, int otherId) {
+        User user = getExistingUser(userId);
+        User other = getExistingUser(otherId);
+        return getUsersByIds(user.getFriendsList().intersect(other.getFriendsList()));
+    }
+
+    @Override
+    public boolean addFriend(int userId, int friendId) {
+        long entry = 0;
+        boolean added;
+        locks.lockBoth(userId, friendId);
+        try {
+            User user = getExistingUser(userId);
+            User friend = getExistingUser(friendId);
+            long links = friendLinks(user, friend);
+            added = user.addFriend(friendId) | friend.addFriend(userId);
+            friendLinks.addAndGet(friendLinks(user, friend) - links);
+            if (added) {
+                touch(user);
+                touch(friend);
+                entry = journal.friendAdded(userId, friendId);
+            }
+        } finally {
+            locks.unlockBoth(userId, friendId);
+        }
+        journal.awaitDurable(entry);
+        return added;
+    }
+
+    @Override
+    public boolean removeFriend(int userId, int friendId) {
+        long entry = 0;
+        boolean removed;
+        locks.lockBoth(userId, friendId);
+        try {
+            User user = getExistingUser(userId);
+            User friend = getExistingUser(friendId);
+            long links = friendLinks(user, friend);
+            removed = user.removeFriend(friendId) | friend.removeFriend(userId);
+            friendLinks.addAndGet(friendLinks(user, friend) - links);
+            if (removed) {
+                touch(user);
+                touch(friend);
+                entry = journal.friendRemoved(userId, friendId);
+            }
+        } finally {
+            locks.unlockBoth(userId, friendId);
+        }
+        journal.awaitDurable(entry);
+        return removed;
+    }
+
+    @Override
+    public PairChanges addFriends(int[] userIds, int[] friendIds) {
+        BitSet missing = new BitSet();
+        BitSet added = new BitSet();
+        long entry = 0;
+        for (int i = 0; i < userIds.length; i++) {
+            int userId = userIds[i];
+            int friendId = friendIds[i];
+            locks.lockBoth(userId, friendId);
+            try {
+                User user = users.get(userId);
+                User friend = users.get(friendId);
+                if (user == null || friend == null) {
+                    missing.set(i);
+                    continue;
+                }
+                long links = friendLinks(user, friend);
+                if (user.addFriend(friendId) | friend.addFriend(userId)) {
+                    friendLinks.addAndGet(friendLinks(user, friend) - links);
+                    touch(user);
+                    touch(friend);
+                    entry = journal.friendAdded(userId, friendId);
+                    added.set(i);
+                }
+            } finally {
+                locks.unlockBoth(userId, friendId);
+            }
+        }
+        journal.awaitDurable(entry);
+        return new PairChanges(missing, added);
+    }
+
+    // Половина дружбы для шардированного режима, где друг может жить в другом шарде: меняется только список
+    // userId. В журнал не пишется - шарды живут только в памяти
+    public HalfLink linkFriend(int userId, int friendId) {
+        locks.lock(userId);
+        try {
+            User user = users.get(userId);
+            if (user == null) {
+                return HalfLink.MISSING;
+            }
+            if (!user.getFriendsList().add(friendId)) {
+                return HalfLink.UNCHANGED;
+            }
+            friendLinks.incrementAndGet();
+            touch(user);
+            return HalfLink.CHANGED;
+        } finally {
+            locks.unlock(userId);
+        }
+    }
+
+    public HalfLink unlinkFriend(int userId, int friendId) {
+        locks.lock(userId);
+        try {
+            User user = users.get(userId);
+            if (user == null) {
+                return HalfLink.MISSING;
+            }
+            if (!user.getFriendsList().remove(friendId)) {
+                return HalfLink.UNCHANGED;
+            }
+            friendLinks.decrementAndGet();
+            touch(user);
+            return HalfLink.CHANGED;
+        } finally {
+            locks.unlock(userId);
+        }
+    }
+
+    @Override
+    public int getUserCount() {
+        return userCount.get();
+    }
+
+    @Override
+    public long getFriendshipCount() {
+        return friendLinks.get() / 2;
+    }
+
+    // Сумма длин списков друзей: дружба между шардами учитывается половинами в двух шардах
+    public long getFriendLinkCount() {
+        return friendLinks.get();
+    }
+
+    @Override
+    public long getVersion() {
+        return version.get();
+    }
+
+    public int getLastId() {
+        return current.get();
+    }
+
+    // Методы восстановления применяются при загрузке снимка и журнала и сами в журнал не пишут
+    public void restoreUser(User user) {
+        current.accumulateAndGet(user.getId(), Math::max);
+        locks.lock(user.getId());
+        try {
+            User oldUser = users.put(user.getId(), user);
+            reindexBirthday(user.getId(), oldUser, user);
+            if (oldUser == null) {
+                userCount.incrementAndGet();
+                friendLinks.addAndGet(user.getFriendsList().size());
+            } else {
+                friendLinks.addAndGet(user.getFriendsList().size() - oldUser.getFriendsList().size());
+            }
+            touch(user);
+        } finally {
+            locks.unlock(user.getId());
+        }
+    }
+
+    public void restoreDelete(int userId) {
+        int[] friendIds;
+        locks.lock(userId);
+        try {
+            User user = users.remove(userId);
+            if (user == null) {
+                return;
+            }
+            reindexBirthday(userId, user, null);
+            userCount.decrementAndGet();
+            friendIds = user.getFriendsList().toIntArray();
+            friendLinks.addAndGet(-friendIds.length);
+            version.incrementAndGet();
+        } finally {
+            locks.unlock(userId);
+        }
+        unlinkFriends(userId, friendIds);
+    }
+
+    public void restoreFriend(int userId, int friendId, boolean friends) {
+        locks.lockBoth(userId, friendId);
+        try {
+            User user = users.get(userId);
+            User friend = users.get(friendId);
+            if (user == null || friend == null) {
+                return;
+            }
+            long links = friendLinks(user, friend);
+            if (friends) {
+                user.addFriend(friendId);
+                friend.addFriend(userId);
+            } else {
+                user.removeFriend(friendId);
+                friend.removeFriend(userId);
+            }
+            friendLinks.addAndGet(friendLinks(user, friend) - links);
+            touchBoth(user, friend, links);
+        } finally {
+            locks.unlockBoth(userId, friendId);
+        }
+    }
+
+    public void restoreLastId(int lastId) {
+        current.accumulateAndGet(lastId, Math::max);
+    }
+
+    // Удаленный пользователь уже не в карте, поэтому новая дружба с ним не появится, пока чистятся обратные ссылки
+    private void unlinkFriends(int userId, int[] friendIds) {
+        for (int friendId : friendIds) {
+            locks.lock(friendId);
+            try {
+                User friend = users.get(friendId);
+                if (friend != null && friend.getFriendsList().remove(userId)) {
+                    friendLinks.decrementAndGet();
+                    touch(friend);
+                }
+            } finally {
+                locks.unlock(friendId);
+            }
+        }
+    }
+
+    // null вместо пользователя - его еще нет или уже нет
+    private void reindexBirthday(int userId, User oldUser, User newUser) {
+        birthdays.replace(oldUser == null ? null : RangeIndex.day(oldUser.getBirthday()),
+                newUser == null ? null : RangeIndex.day(newUser.getBirthday()), userId);
+    }
+
+    // Вызывается под блокировкой пользователя после изменения: новая версия видна только вместе с ним
+    private void touch(User user) {
+        user.setVersion(version.incrementAndGet());
+    }
+
+    // Версии меняются, только если дружба действительно появилась или пропала
+    private void touchBoth(User user, User friend, long linksBefore) {
+        if (friendLinks(user, friend) != linksBefore) {
+            touch(user);
+            touch(friend);
+        }
+    }
+
+    private static long friendLinks(User user, User friend) {
+        return user.getFriendsList().size() + friend.getFriendsList().size();
+    }
+
+    private User getExistingUser(int userId) {
+        User user = users.get(userId);
+        if (user == null) {
+            log.error("Пользователь с ID {} не найден", userId);
+            throw new NotFoundException("Пользователь с ID " + userId + " не найден");
+        }
+        return user;
+    }
+
+    // Итог изменения половины дружбы: пользователя нет, список уже был таким или изменился
+    public enum HalfLink {
+        MISSING,
+        UNCHANGED,
+        CHANGED
+    }
+}
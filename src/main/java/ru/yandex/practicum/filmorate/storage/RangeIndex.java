@@ -0,0 +1,52 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import java.time.LocalDate;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.NavigableSet;
+import java.util.concurrent.ConcurrentSkipListSet;
+
+// Вторичный индекс по целому значению (дата - номер дня, продолжительность). Ключ (значение, id) лежит
+// в skip-list, поэтому диапазон значений - непрерывный отрезок ключей, а равные значения идут по id.
+// Меняется под блокировкой сущности вместе с основной картой
+final class RangeIndex {
+    private final NavigableSet<Long> keys = new ConcurrentSkipListSet<>();
+
+    // null - у сущности нет значения, в индекс она не попадает. Новый ключ добавляется раньше, чем
+    // удаляется старый, чтобы параллельная выборка не потеряла сущность
+    void replace(Integer oldValue, Integer newValue, int id) {
+        if (oldValue != null && oldValue.equals(newValue)) {
+            return;
+        }
+        if (newValue != null) {
+            keys.add(key(newValue, id));
+        }
+        if (oldValue != null) {
+            keys.remove(key(oldValue, id));
+        }
+    }
+
+    // Ключи со значениями от from до to включительно
+    Iterator<Long> range(int from, int to) {
+        if (from > to) {
+            return Collections.emptyIterator();
+        }
+        return keys.subSet(key(from, 0), true, key(to, Integer.MAX_VALUE), true).iterator();
+    }
+
+    static int idOf(long key) {
+        return (int) key;
+    }
+
+    static Integer day(LocalDate date) {
+        return date == null ? null : (int) date.toEpochDay();
+    }
+
+    static int day(LocalDate date, int unbounded) {
+        return date == null ? unbounded : (int) date.toEpochDay();
+    }
+
+    private static long key(int value, int id) {
+        return ((long) value << 32) | id;
+    }
+}
@@ -0,0 +1,95 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.function.IntPredicate;
+import java.util.function.ToIntFunction;
+
+// Выбор пути доступа для выборки по диапазонам. Сколько ключей попадет в диапазон skip-list, заранее не узнать,
+// поэтому все пути продвигаются по очереди на один шаг и берется первый закончившийся: самый узкий диапазон
+// вторичного индекса (его id затем пересекаются с остальными условиями) или обход в порядке выдачи,
+// который уже набрал страницу. Работа ограничена числом путей, умноженным на цену лучшего из них
+final class RangeScan {
+    private RangeScan() {
+    }
+
+    static Path race(List<Path> paths) {
+        while (true) {
+            for (Path path : paths) {
+                if (!path.step()) {
+                    return path;
+                }
+            }
+        }
+    }
+
+    abstract static class Path {
+        private int[] ids = new int[16];
+        private int size;
+
+        // Один шаг обхода; false - путь закончен
+        abstract boolean step();
+
+        // Собранные id в порядке обхода
+        int[] ids() {
+            return Arrays.copyOf(ids, size);
+        }
+
+        int size() {
+            return size;
+        }
+
+        void add(int id) {
+            if (size == ids.length) {
+                ids = Arrays.copyOf(ids, size * 2);
+            }
+            ids[size++] = id;
+        }
+    }
+
+    // Все id из диапазона вторичного индекса - кандидаты для пересечения с остальными условиями
+    static final class IndexPath extends Path {
+        private final Iterator<Long> keys;
+
+        IndexPath(Iterator<Long> keys) {
+            this.keys = keys;
+        }
+
+        @Override
+        boolean step() {
+            if (!keys.hasNext()) {
+                return false;
+            }
+            add(RangeIndex.idOf(keys.next()));
+            return true;
+        }
+    }
+
+    // Обход в порядке выдачи (по id или по популярности) с проверкой всех условий; заканчивается на limit совпадениях
+    static final class OrderedPath<T> extends Path {
+        private final Iterator<T> order;
+        private final ToIntFunction<T> idOf;
+        private final IntPredicate matches;
+        private final int limit;
+
+        OrderedPath(Iterator<T> order, ToIntFunction<T> idOf, IntPredicate matches, int limit) {
+            this.order = order;
+            this.idOf = idOf;
+            this.matches = matches;
+            this.limit = limit;
+        }
+
+        @Override
+        boolean step() {
+            if (size() >= limit || !order.hasNext()) {
+                return false;
+            }
+            int id = idOf.applyAsInt(order.next());
+            if (matches.test(id)) {
+                add(id);
+            }
+            return true;
+        }
+    }
+}
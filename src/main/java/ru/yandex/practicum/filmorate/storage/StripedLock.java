@@ -0,0 +1,63 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import java.util.concurrent.locks.ReentrantLock;
+
+// Набор блокировок, распределенных по id сущностей: операции над разными сущностями
+// почти никогда не конкурируют, а над одной и той же - выполняются атомарно
+public class StripedLock {
+    private final ReentrantLock[] locks;
+    private final int mask;
+
+    public StripedLock() {
+        this(Runtime.getRuntime().availableProcessors() * 4);
+    }
+
+    public StripedLock(int stripes) {
+        int size = 16;
+        while (size < stripes) {
+            size <<= 1;
+        }
+        locks = new ReentrantLock[size];
+        for (int i = 0; i < size; i++) {
+            locks[i] = new ReentrantLock();
+        }
+        mask = size - 1;
+    }
+
+    public void lock(int id) {
+        locks[stripe(id)].lock();
+    }
+
+    public void unlock(int id) {
+        locks[stripe(id)].unlock();
+    }
+
+    // Блокировки берутся в порядке номеров полос, чтобы встречные операции не приводили к взаимной блокировке
+    public void lockBoth(int firstId, int secondId) {
+        int first = stripe(firstId);
+        int second = stripe(secondId);
+        if (first == second) {
+            locks[first].lock();
+        } else if (first < second) {
+            locks[first].lock();
+            locks[second].lock();
+        } else {
+            locks[second].lock();
+            locks[first].lock();
+        }
+    }
+
+    public void unlockBoth(int firstId, int secondId) {
+        int first = stripe(firstId);
+        int second = stripe(secondId);
+        locks[first].unlock();
+        if (first != second) {
+            locks[second].unlock();
+        }
+    }
+
+    private int stripe(int id) {
+        int h = id * 0x9E3779B9;
+        return (h ^ (h >>> 16)) & mask;
+    }
+}
@@ -0,0 +1,146 @@
+package ru.yandex.practicum.filmorate.storage.cache;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.FilmQuery;
+import ru.yandex.practicum.filmorate.storage.interfaces.FilmStorage;
+import ru.yandex.practicum.filmorate.storage.interfaces.PairChanges;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+// Кэш фильмов по id поверх другого хранилища. Отсутствие фильма тоже кэшируется (Optional.empty()),
+// любое изменение фильма выбрасывает его из кэша, списки и топ читаются из хранилища напрямую
+public class CachingFilmStorage implements FilmStorage {
+    private final FilmStorage delegate;
+    private final Cache<Integer, Optional<Film>> films;
+
+    public CachingFilmStorage(FilmStorage delegate, Cache<Integer, Optional<Film>> films) {
+        this.delegate = delegate;
+        this.films = films;
+    }
+
+    @Override
+    public Film create(Film film) {
+        Film created = delegate.create(film);
+        films.put(created.getId(), Optional.of(created));
+        return created;
+    }
+
+    @Override
+    public List<Film> createAll(List<Film> newFilms) {
+        List<Film> created = delegate.createAll(newFilms);
+        for (Film film : created) {
+            films.put(film.getId(), Optional.of(film));
+        }
+        return created;
+    }
+
+    @Override
+    public Film update(Film film) {
+        try {
+            return delegate.update(film);
+        } finally {
+            films.invalidate(film.getId());
+        }
+    }
+
+    @Override
+    public int[] delete(int filmId) {
+        try {
+            return delegate.delete(filmId);
+        } finally {
+            films.invalidate(filmId);
+        }
+    }
+
+    @Override
+    public Collection<Film> getAllFilms() {
+        return delegate.getAllFilms();
+    }
+
+    // Загрузка идет атомарно по ключу: инвалидация во время загрузки дождется ее и удалит результат
+    @Override
+    public Optional<Film> getFilmById(int id) {
+        return films.get(id, delegate::getFilmById);
+    }
+
+    @Override
+    public List<Film> getFilms(int afterId, int limit) {
+        return delegate.getFilms(afterId, limit);
+    }
+
+    @Override
+    public boolean addLike(int filmId, int userId) {
+        try {
+            return delegate.addLike(filmId, userId);
+        } finally {
+            films.invalidate(filmId);
+        }
+    }
+
+    @Override
+    public boolean removeLike(int filmId, int userId) {
+        try {
+            return delegate.removeLike(filmId, userId);
+        } finally {
+            films.invalidate(filmId);
+        }
+    }
+
+    @Override
+    public PairChanges addLikes(int[] filmIds, int[] userIds) {
+        try {
+            return delegate.addLikes(filmIds, userIds);
+        } finally {
+            for (int filmId : filmIds) {
+                films.invalidate(filmId);
+            }
+        }
+    }
+
+    @Override
+    public List<Film> getPopularFilms(int count) {
+        return delegate.getPopularFilms(count);
+    }
+
+    @Override
+    public List<Film> findFilms(FilmQuery query, int afterId, int limit) {
+        return delegate.findFilms(query, afterId, limit);
+    }
+
+    @Override
+    public List<Film> findPopularFilms(FilmQuery query, int count) {
+        return delegate.findPopularFilms(query, count);
+    }
+
+    @Override
+    public int[] getLikedFilmIds(int userId) {
+        return delegate.getLikedFilmIds(userId);
+    }
+
+    @Override
+    public int[] removeUserLikes(int userId) {
+        int[] unliked = delegate.removeUserLikes(userId);
+        for (int filmId : unliked) {
+            films.invalidate(filmId);
+        }
+        return unliked;
+    }
+
+    @Override
+    public int getFilmCount() {
+        return delegate.getFilmCount();
+    }
+
+    @Override
+    public long getLikeCount() {
+        return delegate.getLikeCount();
+    }
+
+    @Override
+    public long getVersion() {
+        return delegate.getVersion();
+    }
+}
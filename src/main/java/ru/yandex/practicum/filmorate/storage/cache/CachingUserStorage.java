@@ -0,0 +1,199 @@
+package ru.yandex.practicum.filmorate.storage.cache;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import lombok.extern.slf4j.Slf4j;
+import ru.yandex.practicum.filmorate.exceptions.NotFoundException;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.model.UserQuery;
+import ru.yandex.practicum.filmorate.storage.interfaces.PairChanges;
+import ru.yandex.practicum.filmorate.storage.interfaces.UserStorage;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+
+// Кэш пользователей по id поверх другого хранилища. Друзья и общие друзья собираются из кэша:
+// список id берется у закэшированного пользователя, недостающие друзья догружаются одним запросом
+@Slf4j
+public class CachingUserStorage implements UserStorage {
+    private final UserStorage delegate;
+    private final Cache<Integer, Optional<User>> users;
+
+    public CachingUserStorage(UserStorage delegate, Cache<Integer, Optional<User>> users) {
+        this.delegate = delegate;
+        this.users = users;
+    }
+
+    @Override
+    public User create(User user) {
+        User created = delegate.create(user);
+        users.put(created.getId(), Optional.of(created));
+        // Дружба симметрична: у тех, кто указан в списке друзей, список тоже поменялся
+        users.invalidateAll(created.getFriendsList());
+        return created;
+    }
+
+    @Override
+    public List<User> createAll(List<User> newUsers) {
+        List<User> created = delegate.createAll(newUsers);
+        for (User user : created) {
+            users.put(user.getId(), Optional.of(user));
+            users.invalidateAll(user.getFriendsList());
+        }
+        return created;
+    }
+
+    // Обновление может переписать дружбу в обе стороны, поэтому выбрасываются и старые, и новые друзья
+    @Override
+    public User update(User user) {
+        Optional<User> old = users.getIfPresent(user.getId());
+        try {
+            return delegate.update(user);
+        } finally {
+            users.invalidate(user.getId());
+            users.invalidateAll(user.getFriendsList());
+            if (old != null) {
+                old.ifPresent(previous -> users.invalidateAll(previous.getFriendsList()));
+            }
+        }
+    }
+
+    // Удаленный пользователь пропадает из списков друзей, поэтому выбрасываются и они
+    @Override
+    public void delete(int userId) {
+        Optional<User> old = getUserById(userId);
+        try {
+            delegate.delete(userId);
+        } finally {
+            users.invalidate(userId);
+            old.ifPresent(user -> users.invalidateAll(user.getFriendsList()));
+        }
+    }
+
+    @Override
+    public Collection<User> getAllUsers() {
+        return delegate.getAllUsers();
+    }
+
+    @Override
+    public Optional<User> getUserById(int id) {
+        return users.get(id, delegate::getUserById);
+    }
+
+    // Пользователь загружается в кэш: следующие проверки и чтения не пойдут в хранилище
+    @Override
+    public boolean exists(int id) {
+        return getUserById(id).isPresent();
+    }
+
+    @Override
+    public List<User> getUsers(int afterId, int limit) {
+        return delegate.getUsers(afterId, limit);
+    }
+
+    @Override
+    public List<User> findUsers(UserQuery query, int afterId, int limit) {
+        return delegate.findUsers(query, afterId, limit);
+    }
+
+    // Промахи загружаются одним обращением к хранилищу, ненайденные id кэшируются как отсутствующие
+    @Override
+    public List<User> getUsersByIds(int[] ids) {
+        List<Integer> keys = new ArrayList<>(ids.length);
+        for (int id : ids) {
+            keys.add(id);
+        }
+        Map<Integer, Optional<User>> found = users.getAll(keys, this::loadAll);
+        List<User> result = new ArrayList<>(ids.length);
+        for (int id : ids) {
+            found.getOrDefault(id, Optional.empty()).ifPresent(result::add);
+        }
+        return result;
+    }
+
+    @Override
+    public List<User> getFriends(int userId) {
+        return getUsersByIds(getExistingUser(userId).getFriendsList().toIntArray());
+    }
+
+    @Override
+    public List<User> getCommonFriends(int userId, int otherId) {
+        User user = getExistingUser(userId);
+        User other = getExistingUser(otherId);
+        return getUsersByIds(user.getFriendsList().intersect(other.getFriendsList()));
+    }
+
+    @Override
+    public boolean addFriend(int userId, int friendId) {
+        try {
+            return delegate.addFriend(userId, friendId);
+        } finally {
+            users.invalidate(userId);
+            users.invalidate(friendId);
+        }
+    }
+
+    @Override
+    public boolean removeFriend(int userId, int friendId) {
+        try {
+            return delegate.removeFriend(userId, friendId);
+        } finally {
+            users.invalidate(userId);
+            users.invalidate(friendId);
+        }
+    }
+
+    @Override
+    public PairChanges addFriends(int[] userIds, int[] friendIds) {
+        try {
+            return delegate.addFriends(userIds, friendIds);
+        } finally {
+            for (int i = 0; i < userIds.length; i++) {
+                users.invalidate(userIds[i]);
+                users.invalidate(friendIds[i]);
+            }
+        }
+    }
+
+    @Override
+    public int getUserCount() {
+        return delegate.getUserCount();
+    }
+
+    @Override
+    public long getFriendshipCount() {
+        return delegate.getFriendshipCount();
+    }
+
+    @Override
+    public long getVersion() {
+        return delegate.getVersion();
+    }
+
+    private Map<Integer, Optional<User>> loadAll(Set<? extends Integer> ids) {
+        int[] missing = new int[ids.size()];
+        int index = 0;
+        for (int id : ids) {
+            missing[index++] = id;
+        }
+        Map<Integer, Optional<User>> loaded = new HashMap<>(ids.size() * 2);
+        for (int id : missing) {
+            loaded.put(id, Optional.empty());
+        }
+        for (User user : delegate.getUsersByIds(missing)) {
+            loaded.put(user.getId(), Optional.of(user));
+        }
+        return loaded;
+    }
+
+    private User getExistingUser(int userId) {
+        return getUserById(userId).orElseThrow(() -> {
+            log.error("Пользователь с ID {} не найден", userId);
+            return new NotFoundException("Пользователь с ID " + userId + " не найден");
+        });
+    }
+}
@@ -0,0 +1,32 @@
+package ru.yandex.practicum.filmorate.storage.cache;
+
+import com.github.benmanes.caffeine.cache.Expiry;
+
+import java.time.Duration;
+import java.util.Optional;
+
+// Найденные сущности живут expireAfterWrite, отметки об отсутствии - negativeTtl
+final class EntityExpiry<T> implements Expiry<Integer, Optional<T>> {
+    private final long presentNanos;
+    private final long absentNanos;
+
+    EntityExpiry(Duration present, Duration absent) {
+        this.presentNanos = present.toNanos();
+        this.absentNanos = absent.toNanos();
+    }
+
+    @Override
+    public long expireAfterCreate(Integer id, Optional<T> value, long currentTime) {
+        return value.isPresent() ? presentNanos : absentNanos;
+    }
+
+    @Override
+    public long expireAfterUpdate(Integer id, Optional<T> value, long currentTime, long currentDuration) {
+        return expireAfterCreate(id, value, currentTime);
+    }
+
+    @Override
+    public long expireAfterRead(Integer id, Optional<T> value, long currentTime, long currentDuration) {
+        return currentDuration;
+    }
+}
@@ -0,0 +1,52 @@
+package ru.yandex.practicum.filmorate.storage.cache;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.storage.interfaces.FilmStorage;
+import ru.yandex.practicum.filmorate.storage.interfaces.UserStorage;
+
+import java.util.Optional;
+
+// Кэш включается свойством filmorate.cache.enabled и оборачивает бины filmStorage и userStorage.
+// Попадания, промахи и вытеснения видны в /actuator/metrics/cache.gets и cache.evictions с тегом cache
+@Configuration
+@ConditionalOnProperty(name = "filmorate.cache.enabled", havingValue = "true")
+@EnableConfigurationProperties(StorageCacheProperties.class)
+public class StorageCacheConfiguration {
+
+    @Bean
+    @Primary
+    public CachingFilmStorage cachingFilmStorage(@Qualifier("filmStorage") FilmStorage delegate,
+                                                 StorageCacheProperties properties, MeterRegistry registry) {
+        Cache<Integer, Optional<Film>> cache = newCache(properties);
+        CaffeineCacheMetrics.monitor(registry, cache, "films");
+        return new CachingFilmStorage(delegate, cache);
+    }
+
+    @Bean
+    @Primary
+    public CachingUserStorage cachingUserStorage(@Qualifier("userStorage") UserStorage delegate,
+                                                 StorageCacheProperties properties, MeterRegistry registry) {
+        Cache<Integer, Optional<User>> cache = newCache(properties);
+        CaffeineCacheMetrics.monitor(registry, cache, "users");
+        return new CachingUserStorage(delegate, cache);
+    }
+
+    private static <T> Cache<Integer, Optional<T>> newCache(StorageCacheProperties properties) {
+        return Caffeine.newBuilder()
+                .maximumSize(properties.maximumSize())
+                .expireAfter(new EntityExpiry<T>(properties.expireAfterWrite(), properties.negativeTtl()))
+                .recordStats()
+                .build();
+    }
+}
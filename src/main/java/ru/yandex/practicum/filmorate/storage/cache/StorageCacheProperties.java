@@ -0,0 +1,16 @@
+package ru.yandex.practicum.filmorate.storage.cache;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.time.Duration;
+
+@ConfigurationProperties(prefix = "filmorate.cache")
+public record StorageCacheProperties(
+        @DefaultValue("false") boolean enabled,
+        // Предел записей на каждый кэш; вытеснение по W-TinyLFU
+        @DefaultValue("100000") long maximumSize,
+        @DefaultValue("10m") Duration expireAfterWrite,
+        // Отсутствующие id помним недолго, чтобы созданная в обход кэша запись быстро стала видна
+        @DefaultValue("30s") Duration negativeTtl) {
+}
@@ -0,0 +1,358 @@
+package ru.yandex.practicum.filmorate.storage.db;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.annotation.Profile;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.core.simple.SimpleJdbcInsert;
+import org.springframework.jdbc.support.GeneratedKeyHolder;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+import ru.yandex.practicum.filmorate.exceptions.NotFoundException;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.FilmQuery;
+import ru.yandex.practicum.filmorate.storage.interfaces.FilmStorage;
+import ru.yandex.practicum.filmorate.storage.interfaces.PairChanges;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+
+// Хранилище фильмов в БД. Фильм вместе с лайками читается одним запросом (LEFT JOIN likes),
+// количество лайков денормализовано в films.like_count и проиндексировано для топа
+@Repository("filmStorage")
+@Profile("jdbc")
+@Slf4j
+public class JdbcFilmStorage implements FilmStorage {
+    private static final String SELECT_FILMS = "SELECT f.id, f.name, f.description, f.release_date, f.duration, "
+            + "l.user_id AS liked_by FROM %s f LEFT JOIN likes l ON l.film_id = f.id ";
+
+    private final JdbcTemplate jdbc;
+    private final NamedParameterJdbcTemplate namedJdbc;
+    private final SimpleJdbcInsert filmInsert;
+
+    public JdbcFilmStorage(JdbcTemplate jdbc) {
+        this.jdbc = jdbc;
+        this.namedJdbc = new NamedParameterJdbcTemplate(jdbc);
+        this.filmInsert = new SimpleJdbcInsert(jdbc).withTableName("films").usingGeneratedKeyColumns("id");
+    }
+
+    @Override
+    @Transactional
+    public Film create(Film film) {
+        int[] likes = film.getLikeScore().toIntArray();
+        Number id = filmInsert.executeAndReturnKey(new MapSqlParameterSource()
+                .addValue("name", film.getName())
+                .addValue("description", film.getDescription())
+                .addValue("release_date", film.getReleaseDate())
+                .addValue("duration", film.getDuration())
+                .addValue("like_count", likes.length));
+        film.setId(id.intValue());
+        insertLikes(film.getId(), likes);
+        log.info("Создан фильм с ID: {}", film.getId());
+        return film;
+    }
+
+    // Фильмы вставляются одним пакетом JDBC, id возвращаются сгенерированными ключами
+    @Override
+    @Transactional
+    public List<Film> createAll(List<Film> newFilms) {
+        if (newFilms.isEmpty()) {
+            return newFilms;
+        }
+        GeneratedKeyHolder keys = new GeneratedKeyHolder();
+        jdbc.batchUpdate(connection -> connection.prepareStatement("INSERT INTO films "
+                        + "(name, description, release_date, duration, like_count) VALUES (?, ?, ?, ?, ?)",
+                        new String[]{"id"}),
+                new BatchPreparedStatementSetter() {
+                    @Override
+                    public void setValues(PreparedStatement ps, int i) throws SQLException {
+                        Film film = newFilms.get(i);
+                        ps.setString(1, film.getName());
+                        ps.setString(2, film.getDescription());
+                        ps.setObject(3, film.getReleaseDate());
+                        ps.setInt(4, film.getDuration());
+                        ps.setInt(5, film.getLikeScore().size());
+                    }
+
+                    @Override
+                    public int getBatchSize() {
+                        return newFilms.size();
+                    }
+                }, keys);
+        List<Object[]> likes = new ArrayList<>();
+        List<Map<String, Object>> generated = keys.getKeyList();
+        for (int i = 0; i < newFilms.size(); i++) {
+            Film film = newFilms.get(i);
+            film.setId(((Number) generated.get(i).values().iterator().next()).intValue());
+            for (int userId : film.getLikeScore().toIntArray()) {
+                likes.add(new Object[]{film.getId(), userId});
+            }
+        }
+        if (!likes.isEmpty()) {
+            jdbc.batchUpdate("INSERT INTO likes (film_id, user_id) VALUES (?, ?)", likes);
+        }
+        log.info("Создано {} фильмов", newFilms.size());
+        return newFilms;
+    }
+
+    @Override
+    @Transactional
+    public Film update(Film film) {
+        int[] likes = film.getLikeScore().toIntArray();
+        int updated = jdbc.update("UPDATE films SET name = ?, description = ?, release_date = ?, duration = ?, "
+                        + "like_count = ? WHERE id = ?",
+                film.getName(), film.getDescription(), film.getReleaseDate(), film.getDuration(), likes.length, film.getId());
+        if (updated == 0) {
+            throw notFound(film.getId());
+        }
+        jdbc.update("DELETE FROM likes WHERE film_id = ?", film.getId());
+        insertLikes(film.getId(), likes);
+        log.info("Обновлен фильм с ID: {}", film.getId());
+        return film;
+    }
+
+    // Лайки удаляются и возвращаются одним запросом (дельта-таблица H2), затем каскадом уходит фильм
+    @Override
+    @Transactional
+    public int[] delete(int filmId) {
+        int[] likedBy = jdbc.queryForList("SELECT user_id FROM OLD TABLE (DELETE FROM likes WHERE film_id = ?)",
+                Integer.class, filmId).stream().mapToInt(Integer::intValue).toArray();
+        if (jdbc.update("DELETE FROM films WHERE id = ?", filmId) == 0) {
+            throw notFound(filmId);
+        }
+        log.info("Фильм с ID {} удален", filmId);
+        return likedBy;
+    }
+
+    @Override
+    public Collection<Film> getAllFilms() {
+        return jdbc.query(String.format(SELECT_FILMS, "films") + "ORDER BY f.id", this::extractFilms);
+    }
+
+    @Override
+    public Optional<Film> getFilmById(int id) {
+        List<Film> films = jdbc.query(String.format(SELECT_FILMS, "films") + "WHERE f.id = ?", this::extractFilms, id);
+        return films.isEmpty() ? Optional.empty() : Optional.of(films.get(0));
+    }
+
+    @Override
+    public List<Film> getFilms(int afterId, int limit) {
+        String page = "(SELECT * FROM films WHERE id > ? ORDER BY id LIMIT ?)";
+        return jdbc.query(String.format(SELECT_FILMS, page) + "ORDER BY f.id", this::extractFilms, afterId, limit);
+    }
+
+    // Лайк и счетчик меняются в одной транзакции; повторный лайк ничего не меняет
+    @Override
+    @Transactional
+    public boolean addLike(int filmId, int userId) {
+        int inserted;
+        try {
+            inserted = jdbc.update("INSERT INTO likes (film_id, user_id) SELECT id, ? FROM films WHERE id = ? "
+                    + "AND NOT EXISTS (SELECT 1 FROM likes WHERE film_id = ? AND user_id = ?)", userId, filmId, filmId, userId);
+        } catch (DuplicateKeyException e) {
+            return false;
+        }
+        if (inserted == 0) {
+            requireFilm(filmId);
+            return false;
+        }
+        jdbc.update("UPDATE films SET like_count = like_count + 1 WHERE id = ?", filmId);
+        return true;
+    }
+
+    @Override
+    @Transactional
+    public boolean removeLike(int filmId, int userId) {
+        if (jdbc.update("DELETE FROM likes WHERE film_id = ? AND user_id = ?", filmId, userId) == 0) {
+            requireFilm(filmId);
+            return false;
+        }
+        jdbc.update("UPDATE films SET like_count = like_count - 1 WHERE id = ?", filmId);
+        return true;
+    }
+
+    // Лайки вставляются одним пакетом, счетчик пересчитывается один раз на каждый затронутый фильм.
+    // Вставка без существующей пары возвращает 0 строк - так отличаются новые лайки от повторов
+    @Override
+    @Transactional
+    public PairChanges addLikes(int[] filmIds, int[] userIds) {
+        Set<Integer> existing = JdbcSupport.existingIds(namedJdbc, "films", filmIds);
+        BitSet missing = new BitSet();
+        BitSet added = new BitSet();
+        int[] positions = new int[filmIds.length];
+        List<Object[]> likes = new ArrayList<>(filmIds.length);
+        for (int i = 0; i < filmIds.length; i++) {
+            if (existing.contains(filmIds[i])) {
+                positions[likes.size()] = i;
+                likes.add(new Object[]{filmIds[i], userIds[i], filmIds[i], userIds[i]});
+            } else {
+                missing.set(i);
+            }
+        }
+        if (likes.isEmpty()) {
+            return new PairChanges(missing, added);
+        }
+        int[] inserted = jdbc.batchUpdate("INSERT INTO likes (film_id, user_id) SELECT ?, ? "
+                + "WHERE NOT EXISTS (SELECT 1 FROM likes WHERE film_id = ? AND user_id = ?)", likes);
+        for (int i = 0; i < inserted.length; i++) {
+            if (inserted[i] > 0) {
+                added.set(positions[i]);
+            }
+        }
+        if (!added.isEmpty()) {
+            jdbc.batchUpdate("UPDATE films SET like_count = (SELECT COUNT(*) FROM likes WHERE film_id = ?) WHERE id = ?",
+                    existing.stream().map(id -> new Object[]{id, id}).toList());
+        }
+        return new PairChanges(missing, added);
+    }
+
+    // Один запрос: топ берется по индексу (like_count DESC, id), к нему присоединяются лайки
+    @Override
+    public List<Film> getPopularFilms(int count) {
+        String top = "(SELECT * FROM films ORDER BY like_count DESC, id LIMIT ?)";
+        return jdbc.query(String.format(SELECT_FILMS, top) + "ORDER BY f.like_count DESC, f.id", this::extractFilms, count);
+    }
+
+    // План (индекс по дате, по продолжительности или обход по первичному ключу) выбирает сама БД
+    @Override
+    public List<Film> findFilms(FilmQuery query, int afterId, int limit) {
+        List<Object> args = new ArrayList<>(6);
+        args.add(afterId);
+        String page = "(SELECT * FROM films WHERE id > ?" + conditions(query, args) + " ORDER BY id LIMIT ?)";
+        args.add(limit);
+        return jdbc.query(String.format(SELECT_FILMS, page) + "ORDER BY f.id", this::extractFilms, args.toArray());
+    }
+
+    @Override
+    public List<Film> findPopularFilms(FilmQuery query, int count) {
+        List<Object> args = new ArrayList<>(5);
+        String top = "(SELECT * FROM films WHERE TRUE" + conditions(query, args)
+                + " ORDER BY like_count DESC, id LIMIT ?)";
+        args.add(count);
+        return jdbc.query(String.format(SELECT_FILMS, top) + "ORDER BY f.like_count DESC, f.id",
+                this::extractFilms, args.toArray());
+    }
+
+    // По индексу likes_user_idx, без обхода фильмов
+    @Override
+    public int[] getLikedFilmIds(int userId) {
+        return jdbc.queryForList("SELECT film_id FROM likes WHERE user_id = ? ORDER BY film_id", Integer.class, userId)
+                .stream().mapToInt(Integer::intValue).toArray();
+    }
+
+    @Override
+    @Transactional
+    public int[] removeUserLikes(int userId) {
+        int[] liked = getLikedFilmIds(userId);
+        if (liked.length > 0) {
+            jdbc.update("UPDATE films SET like_count = like_count - 1 "
+                    + "WHERE id IN (SELECT film_id FROM likes WHERE user_id = ?)", userId);
+            jdbc.update("DELETE FROM likes WHERE user_id = ?", userId);
+        }
+        return liked;
+    }
+
+    @Override
+    public int getFilmCount() {
+        return jdbc.queryForObject("SELECT COUNT(*) FROM films", Integer.class);
+    }
+
+    @Override
+    public long getLikeCount() {
+        return jdbc.queryForObject("SELECT COALESCE(SUM(like_count), 0) FROM films", Long.class);
+    }
+
+    // Строки могут меняться в обход приложения, поэтому счетчик в памяти не был бы версией
+    @Override
+    public long getVersion() {
+        return 0;
+    }
+
+    private void insertLikes(int filmId, int[] userIds) {
+        if (userIds.length == 0) {
+            return;
+        }
+        jdbc.batchUpdate("INSERT INTO likes (film_id, user_id) VALUES (?, ?)", new BatchPreparedStatementSetter() {
+            @Override
+            public void setValues(PreparedStatement ps, int i) throws SQLException {
+                ps.setInt(1, filmId);
+                ps.setInt(2, userIds[i]);
+            }
+
+            @Override
+            public int getBatchSize() {
+                return userIds.length;
+            }
+        });
+    }
+
+    // Условия выборки в виде " AND ..." с параметрами в args
+    private static String conditions(FilmQuery query, List<Object> args) {
+        StringBuilder sql = new StringBuilder();
+        if (query.releasedFrom() != null) {
+            sql.append(" AND release_date >= ?");
+            args.add(query.releasedFrom());
+        }
+        if (query.releasedTo() != null) {
+            sql.append(" AND release_date <= ?");
+            args.add(query.releasedTo());
+        }
+        if (query.minDuration() != null) {
+            sql.append(" AND duration >= ?");
+            args.add(query.minDuration());
+        }
+        if (query.maxDuration() != null) {
+            sql.append(" AND duration <= ?");
+            args.add(query.maxDuration());
+        }
+        return sql.toString();
+    }
+
+    private void requireFilm(int filmId) {
+        Integer found = jdbc.queryForObject("SELECT COUNT(*) FROM films WHERE id = ?", Integer.class, filmId);
+        if (found == null || found == 0) {
+            throw notFound(filmId);
+        }
+    }
+
+    private NotFoundException notFound(int filmId) {
+        log.error("Фильм с ID {} не найден", filmId);
+        return new NotFoundException("Фильм с ID " + filmId + " не найден");
+    }
+
+    // Строки одного фильма идут подряд (по одной на лайк), из них собирается один объект
+    private List<Film> extractFilms(ResultSet rs) throws SQLException {
+        Map<Integer, Film> films = new LinkedHashMap<>();
+        while (rs.next()) {
+            int id = rs.getInt("id");
+            Film film = films.get(id);
+            if (film == null) {
+                film = new Film();
+                film.setId(id);
+                film.setName(rs.getString("name"));
+                film.setDescription(rs.getString("description"));
+                film.setReleaseDate(rs.getObject("release_date", LocalDate.class));
+                film.setDuration(rs.getInt("duration"));
+                films.put(id, film);
+            }
+            int userId = rs.getInt("liked_by");
+            if (!rs.wasNull()) {
+                film.addLike(userId);
+            }
+        }
+        return new ArrayList<>(films.values());
+    }
+}
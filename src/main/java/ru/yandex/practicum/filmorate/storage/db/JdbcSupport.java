@@ -0,0 +1,32 @@
+package ru.yandex.practicum.filmorate.storage.db;
+
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+final class JdbcSupport {
+    // Ограничение на размер списка IN (...), чтобы не упираться в лимиты драйвера
+    static final int MAX_IN_LIST = 1000;
+
+    private JdbcSupport() {
+    }
+
+    // Какие из переданных id есть в таблице; запросы идут пачками по MAX_IN_LIST
+    static Set<Integer> existingIds(NamedParameterJdbcTemplate jdbc, String table, int[] ids) {
+        int[] distinct = Arrays.stream(ids).distinct().toArray();
+        Set<Integer> found = new HashSet<>(distinct.length * 2);
+        for (int from = 0; from < distinct.length; from += MAX_IN_LIST) {
+            MapSqlParameterSource params = new MapSqlParameterSource("ids", chunk(distinct, from));
+            found.addAll(jdbc.queryForList("SELECT id FROM " + table + " WHERE id IN (:ids)", params, Integer.class));
+        }
+        return found;
+    }
+
+    static List<Integer> chunk(int[] ids, int from) {
+        return Arrays.stream(ids, from, Math.min(ids.length, from + MAX_IN_LIST)).boxed().toList();
+    }
+}
@@ -0,0 +1,375 @@
+package ru.yandex.practicum.filmorate.storage.db;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.annotation.Profile;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.core.simple.SimpleJdbcInsert;
+import org.springframework.jdbc.support.GeneratedKeyHolder;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+import ru.yandex.practicum.filmorate.exceptions.NotFoundException;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.model.UserQuery;
+import ru.yandex.practicum.filmorate.storage.interfaces.PairChanges;
+import ru.yandex.practicum.filmorate.storage.interfaces.UserStorage;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+
+// Хранилище пользователей в БД. Пользователь вместе со списком друзей читается одним запросом
+// (LEFT JOIN friendships), друзья и общие друзья - одним соединением без запросов по каждому id
+@Repository("userStorage")
+@Profile("jdbc")
+@Slf4j
+public class JdbcUserStorage implements UserStorage {
+    private static final String SELECT_USERS = "SELECT u.id, u.email, u.login, u.name, u.birthday, "
+            + "fr.friend_id AS friend FROM %s u LEFT JOIN friendships fr ON fr.user_id = u.id ";
+    private static final String MERGE_FRIENDSHIP =
+            "MERGE INTO friendships (user_id, friend_id) KEY (user_id, friend_id) VALUES (?, ?)";
+    // В отличие от MERGE, существующая пара дает 0 строк - так видно, изменилась ли дружба
+    private static final String INSERT_FRIENDSHIP = "INSERT INTO friendships (user_id, friend_id) SELECT ?, ? "
+            + "WHERE NOT EXISTS (SELECT 1 FROM friendships WHERE user_id = ? AND friend_id = ?)";
+
+    private final JdbcTemplate jdbc;
+    private final NamedParameterJdbcTemplate namedJdbc;
+    private final SimpleJdbcInsert userInsert;
+
+    public JdbcUserStorage(JdbcTemplate jdbc) {
+        this.jdbc = jdbc;
+        this.namedJdbc = new NamedParameterJdbcTemplate(jdbc);
+        this.userInsert = new SimpleJdbcInsert(jdbc).withTableName("users").usingGeneratedKeyColumns("id");
+    }
+
+    @Override
+    @Transactional
+    public User create(User user) {
+        //Устанавливаем имя пользователя, если оно не задано
+        if (user.getName() == null || user.getName().isEmpty()) {
+            user.setName(user.getLogin());
+        }
+        Number id = userInsert.executeAndReturnKey(new MapSqlParameterSource()
+                .addValue("email", user.getEmail())
+                .addValue("login", user.getLogin())
+                .addValue("name", user.getName())
+                .addValue("birthday", user.getBirthday()));
+        user.setId(id.intValue());
+        insertFriends(user.getId(), user.getFriendsList().toIntArray());
+        log.info("Создан пользователь с ID: {}", user.getId());
+        return user;
+    }
+
+    // Пользователи вставляются одним пакетом JDBC, id возвращаются сгенерированными ключами
+    @Override
+    @Transactional
+    public List<User> createAll(List<User> newUsers) {
+        if (newUsers.isEmpty()) {
+            return newUsers;
+        }
+        for (User user : newUsers) {
+            if (user.getName() == null || user.getName().isEmpty()) {
+                user.setName(user.getLogin());
+            }
+        }
+        GeneratedKeyHolder keys = new GeneratedKeyHolder();
+        jdbc.batchUpdate(connection -> connection.prepareStatement(
+                "INSERT INTO users (email, login, name, birthday) VALUES (?, ?, ?, ?)", new String[]{"id"}),
+                new BatchPreparedStatementSetter() {
+                    @Override
+                    public void setValues(PreparedStatement ps, int i) throws SQLException {
+                        User user = newUsers.get(i);
+                        ps.setString(1, user.getEmail());
+                        ps.setString(2, user.getLogin());
+                        ps.setString(3, user.getName());
+                        ps.setObject(4, user.getBirthday());
+                    }
+
+                    @Override
+                    public int getBatchSize() {
+                        return newUsers.size();
+                    }
+                }, keys);
+        List<Object[]> friendships = new ArrayList<>();
+        List<Map<String, Object>> generated = keys.getKeyList();
+        for (int i = 0; i < newUsers.size(); i++) {
+            User user = newUsers.get(i);
+            user.setId(((Number) generated.get(i).values().iterator().next()).intValue());
+            for (int friendId : user.getFriendsList().toIntArray()) {
+                friendships.add(new Object[]{user.getId(), friendId});
+                friendships.add(new Object[]{friendId, user.getId()});
+            }
+        }
+        if (!friendships.isEmpty()) {
+            jdbc.batchUpdate(MERGE_FRIENDSHIP, friendships);
+        }
+        log.info("Создано {} пользователей", newUsers.size());
+        return newUsers;
+    }
+
+    @Override
+    @Transactional
+    public User update(User user) {
+        //Устанавливаем имя пользователя, если оно не задано
+        if (user.getName() == null || user.getName().isEmpty()) {
+            user.setName(user.getLogin());
+        }
+        int updated = jdbc.update("UPDATE users SET email = ?, login = ?, name = ?, birthday = ? WHERE id = ?",
+                user.getEmail(), user.getLogin(), user.getName(), user.getBirthday(), user.getId());
+        if (updated == 0) {
+            throw notFound(user.getId());
+        }
+        jdbc.update("DELETE FROM friendships WHERE user_id = ? OR friend_id = ?", user.getId(), user.getId());
+        insertFriends(user.getId(), user.getFriendsList().toIntArray());
+        log.info("Обновлен пользователь с ID: {}", user.getId());
+        return user;
+    }
+
+    // Дружба в обе стороны удаляется каскадом по внешним ключам friendships
+    @Override
+    public void delete(int userId) {
+        if (jdbc.update("DELETE FROM users WHERE id = ?", userId) == 0) {
+            throw notFound(userId);
+        }
+        log.info("Пользователь с ID {} удален", userId);
+    }
+
+    @Override
+    public Collection<User> getAllUsers() {
+        return jdbc.query(String.format(SELECT_USERS, "users") + "ORDER BY u.id", this::extractUsers);
+    }
+
+    @Override
+    public Optional<User> getUserById(int id) {
+        List<User> users = jdbc.query(String.format(SELECT_USERS, "users") + "WHERE u.id = ?", this::extractUsers, id);
+        return users.isEmpty() ? Optional.empty() : Optional.of(users.get(0));
+    }
+
+    @Override
+    public boolean exists(int id) {
+        Integer found = jdbc.queryForObject("SELECT COUNT(*) FROM users WHERE id = ?", Integer.class, id);
+        return found != null && found > 0;
+    }
+
+    @Override
+    public List<User> getUsers(int afterId, int limit) {
+        String page = "(SELECT * FROM users WHERE id > ? ORDER BY id LIMIT ?)";
+        return jdbc.query(String.format(SELECT_USERS, page) + "ORDER BY u.id", this::extractUsers, afterId, limit);
+    }
+
+    // Диапазон дат рождения - по индексу users_birthday_idx
+    @Override
+    public List<User> findUsers(UserQuery query, int afterId, int limit) {
+        List<Object> args = new ArrayList<>(4);
+        args.add(afterId);
+        StringBuilder page = new StringBuilder("(SELECT * FROM users WHERE id > ?");
+        if (query.bornFrom() != null) {
+            page.append(" AND birthday >= ?");
+            args.add(query.bornFrom());
+        }
+        if (query.bornTo() != null) {
+            page.append(" AND birthday <= ?");
+            args.add(query.bornTo());
+        }
+        page.append(" ORDER BY id LIMIT ?)");
+        args.add(limit);
+        return jdbc.query(String.format(SELECT_USERS, page) + "ORDER BY u.id", this::extractUsers, args.toArray());
+    }
+
+    // Пользователи в порядке переданных id; отсутствующие пропускаются
+    @Override
+    public List<User> getUsersByIds(int[] ids) {
+        Map<Integer, User> found = new HashMap<>();
+        String sql = String.format(SELECT_USERS, "users") + "WHERE u.id IN (:ids)";
+        for (int from = 0; from < ids.length; from += JdbcSupport.MAX_IN_LIST) {
+            MapSqlParameterSource params = new MapSqlParameterSource("ids", JdbcSupport.chunk(ids, from));
+            for (User user : namedJdbc.query(sql, params, this::extractUsers)) {
+                found.put(user.getId(), user);
+            }
+        }
+        List<User> result = new ArrayList<>(found.size());
+        for (int id : ids) {
+            User user = found.get(id);
+            if (user != null) {
+                result.add(user);
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public List<User> getFriends(int userId) {
+        String friends = "(SELECT u.* FROM friendships a JOIN users u ON u.id = a.friend_id WHERE a.user_id = ?)";
+        List<User> result = jdbc.query(String.format(SELECT_USERS, friends) + "ORDER BY u.id",
+                this::extractUsers, userId);
+        if (result.isEmpty()) {
+            requireUsers(userId, userId);
+        }
+        return result;
+    }
+
+    // Одно соединение двух списков дружбы по friend_id
+    @Override
+    public List<User> getCommonFriends(int userId, int otherId) {
+        String common = "(SELECT u.* FROM friendships a JOIN friendships b ON b.friend_id = a.friend_id "
+                + "JOIN users u ON u.id = a.friend_id WHERE a.user_id = ? AND b.user_id = ?)";
+        List<User> result = jdbc.query(String.format(SELECT_USERS, common) + "ORDER BY u.id",
+                this::extractUsers, userId, otherId);
+        if (result.isEmpty()) {
+            requireUsers(userId, otherId);
+        }
+        return result;
+    }
+
+    // Дружба записывается в обе стороны одним пакетом
+    @Override
+    @Transactional
+    public boolean addFriend(int userId, int friendId) {
+        requireUsers(userId, friendId);
+        try {
+            return changed(jdbc.batchUpdate(INSERT_FRIENDSHIP, List.of(new Object[]{userId, friendId, userId, friendId},
+                    new Object[]{friendId, userId, friendId, userId})));
+        } catch (DuplicateKeyException e) {
+            return false;
+        }
+    }
+
+    @Override
+    @Transactional
+    public boolean removeFriend(int userId, int friendId) {
+        requireUsers(userId, friendId);
+        return changed(jdbc.batchUpdate("DELETE FROM friendships WHERE user_id = ? AND friend_id = ?",
+                List.of(new Object[]{userId, friendId}, new Object[]{friendId, userId})));
+    }
+
+    @Override
+    @Transactional
+    public PairChanges addFriends(int[] userIds, int[] friendIds) {
+        int[] ids = Arrays.copyOf(userIds, userIds.length + friendIds.length);
+        System.arraycopy(friendIds, 0, ids, userIds.length, friendIds.length);
+        Set<Integer> existing = JdbcSupport.existingIds(namedJdbc, "users", ids);
+        BitSet missing = new BitSet();
+        BitSet added = new BitSet();
+        int[] positions = new int[userIds.length];
+        List<Object[]> friendships = new ArrayList<>(userIds.length * 2);
+        for (int i = 0; i < userIds.length; i++) {
+            if (!existing.contains(userIds[i]) || !existing.contains(friendIds[i])) {
+                missing.set(i);
+                continue;
+            }
+            positions[friendships.size() / 2] = i;
+            friendships.add(new Object[]{userIds[i], friendIds[i], userIds[i], friendIds[i]});
+            friendships.add(new Object[]{friendIds[i], userIds[i], friendIds[i], userIds[i]});
+        }
+        if (friendships.isEmpty()) {
+            return new PairChanges(missing, added);
+        }
+        // Строки пакета идут парами: прямая и обратная связь одной дружбы. Повтор пары в пакете дает 0 строк
+        int[] inserted = jdbc.batchUpdate(INSERT_FRIENDSHIP, friendships);
+        for (int row = 0; row < inserted.length; row++) {
+            if (inserted[row] > 0) {
+                added.set(positions[row / 2]);
+            }
+        }
+        return new PairChanges(missing, added);
+    }
+
+    @Override
+    public int getUserCount() {
+        return jdbc.queryForObject("SELECT COUNT(*) FROM users", Integer.class);
+    }
+
+    // Дружба хранится в обе стороны
+    @Override
+    public long getFriendshipCount() {
+        return jdbc.queryForObject("SELECT COUNT(*) FROM friendships", Long.class) / 2;
+    }
+
+    // Строки могут меняться в обход приложения, поэтому счетчик в памяти не был бы версией
+    @Override
+    public long getVersion() {
+        return 0;
+    }
+
+    private void insertFriends(int userId, int[] friendIds) {
+        if (friendIds.length == 0) {
+            return;
+        }
+        jdbc.batchUpdate(MERGE_FRIENDSHIP, new BatchPreparedStatementSetter() {
+            @Override
+            public void setValues(PreparedStatement ps, int i) throws SQLException {
+                // Четные строки пакета - прямая связь, нечетные - обратная
+                int friendId = friendIds[i >> 1];
+                ps.setInt(1, (i & 1) == 0 ? userId : friendId);
+                ps.setInt(2, (i & 1) == 0 ? friendId : userId);
+            }
+
+            @Override
+            public int getBatchSize() {
+                return friendIds.length * 2;
+            }
+        });
+    }
+
+    private static boolean changed(int[] rows) {
+        for (int count : rows) {
+            if (count > 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void requireUsers(int userId, int otherId) {
+        List<Integer> found = jdbc.queryForList("SELECT id FROM users WHERE id IN (?, ?)", Integer.class,
+                userId, otherId);
+        if (!found.contains(userId)) {
+            throw notFound(userId);
+        }
+        if (!found.contains(otherId)) {
+            throw notFound(otherId);
+        }
+    }
+
+    private NotFoundException notFound(int userId) {
+        log.error("Пользователь с ID {} не найден", userId);
+        return new NotFoundException("Пользователь с ID " + userId + " не найден");
+    }
+
+    // Строки одного пользователя идут подряд (по одной на друга), из них собирается один объект
+    private List<User> extractUsers(ResultSet rs) throws SQLException {
+        Map<Integer, User> users = new LinkedHashMap<>();
+        while (rs.next()) {
+            int id = rs.getInt("id");
+            User user = users.get(id);
+            if (user == null) {
+                user = new User();
+                user.setId(id);
+                user.setEmail(rs.getString("email"));
+                user.setLogin(rs.getString("login"));
+                user.setName(rs.getString("name"));
+                user.setBirthday(rs.getObject("birthday", LocalDate.class));
+                users.put(id, user);
+            }
+            int friendId = rs.getInt("friend");
+            if (!rs.wasNull()) {
+                user.addFriend(friendId);
+            }
+        }
+        return new ArrayList<>(users.values());
+    }
+}
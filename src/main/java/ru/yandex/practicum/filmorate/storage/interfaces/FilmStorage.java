@@ -1,19 +1,60 @@
 package ru.yandex.practicum.filmorate.storage.interfaces;
 
 import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.FilmQuery;
 
 import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
 public interface FilmStorage {
     Film create(Film film);
 
+    // Создает фильмы одним проходом, id выделяются непрерывным диапазоном в порядке списка
+    List<Film> createAll(List<Film> films);
+
     Film update(Film film);
 
-    void delete(int filmId);
+    // Удаляет фильм вместе с его лайками. Возвращает id пользователей, чьи лайки удалены
+    int[] delete(int filmId);
 
     Collection<Film> getAllFilms();
 
     Optional<Film> getFilmById(int id);
-}
 
+    // Страница фильмов с id больше afterId в порядке возрастания id
+    List<Film> getFilms(int afterId, int limit);
+
+    // true, если лайка еще не было
+    boolean addLike(int filmId, int userId);
+
+    // true, если лайк был и удален
+    boolean removeLike(int filmId, int userId);
+
+    // Ставит лайки парами filmIds[i] - userIds[i]. Возвращает номера пар, фильм которых не найден,
+    // и номера пар, лайк которых действительно поставлен
+    PairChanges addLikes(int[] filmIds, int[] userIds);
+
+    List<Film> getPopularFilms(int count);
+
+    // Страница подходящих под условия фильмов с id больше afterId в порядке возрастания id
+    List<Film> findFilms(FilmQuery query, int afterId, int limit);
+
+    // Самые популярные из подходящих под условия фильмов
+    List<Film> findPopularFilms(FilmQuery query, int count);
+
+    // id фильмов, которые лайкнул пользователь, по возрастанию
+    int[] getLikedFilmIds(int userId);
+
+    // Снимает все лайки пользователя (при его удалении). Возвращает id фильмов, с которых лайк снят
+    int[] removeUserLikes(int userId);
+
+    int getFilmCount();
+
+    // Сумма лайков по всем фильмам
+    long getLikeCount();
+
+    // Растет при любом изменении фильмов или лайков и задает версии фильмов (Film.version) для ETag.
+    // 0 - хранилище версий не ведет
+    long getVersion();
+}
@@ -0,0 +1,8 @@
+package ru.yandex.practicum.filmorate.storage.interfaces;
+
+import java.util.BitSet;
+
+// Итог пакета пар: missing - номера пар, где сущность не найдена, added - номера пар, которые действительно
+// что-то добавили (повторы и уже существующие связи в added не попадают)
+public record PairChanges(BitSet missing, BitSet added) {
+}
@@ -1,18 +1,60 @@
 package ru.yandex.practicum.filmorate.storage.interfaces;
 
 import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.model.UserQuery;
 
 import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
 public interface UserStorage {
     User create(User user);
 
+    // Создает пользователей одним проходом, id выделяются непрерывным диапазоном в порядке списка
+    List<User> createAll(List<User> users);
+
     User update(User user);
 
+    // Удаляет пользователя и убирает его из списков друзей; лайки снимаются отдельно через FilmStorage
+    void delete(int userId);
+
     Collection<User> getAllUsers();
 
     Optional<User> getUserById(int id);
 
+    // Проверка существования без загрузки пользователя и без Optional - для горячих путей
+    boolean exists(int id);
+
+    // Страница пользователей с id больше afterId в порядке возрастания id
+    List<User> getUsers(int afterId, int limit);
+
+    List<User> getUsersByIds(int[] ids);
+
+    // Страница подходящих под условия пользователей с id больше afterId в порядке возрастания id
+    List<User> findUsers(UserQuery query, int afterId, int limit);
+
+    List<User> getFriends(int userId);
+
+    List<User> getCommonFriends(int userId, int otherId);
+
+    // true, если дружба появилась; false, если пользователи уже были друзьями
+    boolean addFriend(int userId, int friendId);
+
+    // true, если дружба была и снята
+    boolean removeFriend(int userId, int friendId);
+
+    // Добавляет дружбу парами userIds[i] - friendIds[i]. missing - пары, где кто-то из двоих не найден,
+    // added - пары, где дружба действительно появилась
+    PairChanges addFriends(int[] userIds, int[] friendIds);
+
+    int getUserCount();
+
+    // Количество пар друзей (каждая дружба считается один раз)
+    long getFriendshipCount();
+
+    // Растет при любом изменении пользователей или дружбы и задает версии пользователей (User.version) для ETag.
+    // 0 - хранилище версий не ведет
+    long getVersion();
+
 }
 
@@ -0,0 +1,359 @@
+package ru.yandex.practicum.filmorate.storage.persistence;
+
+import lombok.extern.slf4j.Slf4j;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.User;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Stream;
+import java.util.zip.CRC32C;
+
+// Журнал упреждающей записи. Записи копятся в общем буфере, отдельный поток пишет их пачкой в FileChannel
+// и делает один fsync на всю пачку (group commit). Формат записи: [длина][CRC32C][тип][данные]
+@Slf4j
+public class FileStorageJournal implements StorageJournal, Closeable {
+    static final byte FILM_SAVED = 1;
+    static final byte FILM_DELETED = 2;
+    static final byte LIKE_ADDED = 3;
+    static final byte LIKE_REMOVED = 4;
+    static final byte USER_SAVED = 5;
+    static final byte FRIEND_ADDED = 6;
+    static final byte FRIEND_REMOVED = 7;
+    static final byte USER_DELETED = 8;
+
+    static final int HEADER_SIZE = 8;
+    private static final String LOG_PREFIX = "journal-";
+    private static final String LOG_SUFFIX = ".log";
+
+    private final Path directory;
+    private final boolean syncWrites;
+    private final long maxPendingBytes;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition hasWork = lock.newCondition();
+    private final Condition flushed = lock.newCondition();
+    private final ByteArrayOutputStream pending = new ByteArrayOutputStream(64 * 1024);
+    private long appended;
+    private long durable;
+    private long generation;
+    private long requestedGeneration;
+    private long logBytes;
+    private boolean running;
+    private IOException failure;
+
+    private FileChannel channel;
+    private Thread writer;
+
+    public FileStorageJournal(Path directory, boolean syncWrites, long maxPendingBytes) {
+        this.directory = directory;
+        this.syncWrites = syncWrites;
+        this.maxPendingBytes = maxPendingBytes;
+    }
+
+    // Начинает запись в журнал указанного поколения. Вызывается после восстановления
+    public void open(long generation) throws IOException {
+        lock.lock();
+        try {
+            this.generation = generation;
+            this.requestedGeneration = generation;
+            this.channel = openLog(generation);
+            this.logBytes = channel.size();
+            this.running = true;
+        } finally {
+            lock.unlock();
+        }
+        writer = Thread.ofPlatform().name("storage-journal-writer").daemon().start(this::writeLoop);
+        log.info("Журнал хранилищ открыт: {}", logFile(directory, generation));
+    }
+
+    // Переключает запись на новый файл журнала и возвращает его поколение.
+    // Все записи, принятые до вызова, к этому моменту уже сброшены на диск в старый файл
+    public long rotate() {
+        lock.lock();
+        try {
+            long target = generation + 1;
+            requestedGeneration = target;
+            hasWork.signal();
+            while (generation < target && failure == null) {
+                flushed.awaitUninterruptibly();
+            }
+            checkFailure();
+            return target;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public long logBytes() {
+        lock.lock();
+        try {
+            return logBytes;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public long filmSaved(Film film) {
+        return append(FILM_SAVED, out -> EntityCodec.writeFilm(out, film));
+    }
+
+    @Override
+    public long filmDeleted(int filmId) {
+        return append(FILM_DELETED, out -> out.writeInt(filmId));
+    }
+
+    @Override
+    public long likeAdded(int filmId, int userId) {
+        return append(LIKE_ADDED, out -> writePair(out, filmId, userId));
+    }
+
+    @Override
+    public long likeRemoved(int filmId, int userId) {
+        return append(LIKE_REMOVED, out -> writePair(out, filmId, userId));
+    }
+
+    @Override
+    public long userSaved(User user) {
+        return append(USER_SAVED, out -> EntityCodec.writeUser(out, user));
+    }
+
+    @Override
+    public long userDeleted(int userId) {
+        return append(USER_DELETED, out -> out.writeInt(userId));
+    }
+
+    @Override
+    public long friendAdded(int userId, int friendId) {
+        return append(FRIEND_ADDED, out -> writePair(out, userId, friendId));
+    }
+
+    @Override
+    public long friendRemoved(int userId, int friendId) {
+        return append(FRIEND_REMOVED, out -> writePair(out, userId, friendId));
+    }
+
+    @Override
+    public void awaitDurable(long entry) {
+        if (!syncWrites || entry == 0) {
+            return;
+        }
+        lock.lock();
+        try {
+            while (durable < entry && failure == null && running) {
+                flushed.awaitUninterruptibly();
+            }
+            checkFailure();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        lock.lock();
+        try {
+            running = false;
+            hasWork.signal();
+        } finally {
+            lock.unlock();
+        }
+        if (writer != null) {
+            try {
+                writer.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        if (channel != null) {
+            channel.close();
+        }
+    }
+
+    static Path logFile(Path directory, long generation) {
+        return directory.resolve(String.format("%s%020d%s", LOG_PREFIX, generation, LOG_SUFFIX));
+    }
+
+    // Файлы журнала начиная с указанного поколения, по возрастанию поколения
+    static List<Path> logFiles(Path directory, long fromGeneration) throws IOException {
+        List<Path> result = new ArrayList<>();
+        try (Stream<Path> files = Files.list(directory)) {
+            files.filter(file -> isLogFile(file) && generationOf(file) >= fromGeneration).forEach(result::add);
+        }
+        result.sort(Comparator.comparingLong(FileStorageJournal::generationOf));
+        return result;
+    }
+
+    // Читает записи файла журнала по порядку. Недописанный или поврежденный хвост (обрыв при сбое) пропускается
+    static long read(Path file, RecordHandler handler) throws IOException {
+        long records = 0;
+        try (MappedRecords in = new MappedRecords(file)) {
+            CRC32C crc = new CRC32C();
+            while (in.remaining() >= HEADER_SIZE) {
+                ByteBuffer header = in.read(HEADER_SIZE);
+                int length = header.getInt();
+                int checksum = header.getInt();
+                if (length <= 0 || length > in.remaining()) {
+                    log.warn("Журнал {} обрывается после {} записей", file, records);
+                    break;
+                }
+                ByteBuffer record = in.read(length);
+                crc.reset();
+                crc.update(record.duplicate());
+                if ((int) crc.getValue() != checksum) {
+                    log.warn("Поврежденная запись в журнале {} после {} записей", file, records);
+                    break;
+                }
+                handler.handle(record.get(), record);
+                records++;
+            }
+        }
+        return records;
+    }
+
+    static boolean isLogFile(Path file) {
+        String name = file.getFileName().toString();
+        return name.startsWith(LOG_PREFIX) && name.endsWith(LOG_SUFFIX);
+    }
+
+    static long generationOf(Path file) {
+        String name = file.getFileName().toString();
+        return Long.parseLong(name.substring(LOG_PREFIX.length(), name.length() - LOG_SUFFIX.length()));
+    }
+
+    private long append(byte type, RecordBody body) {
+        byte[] record = encode(type, body);
+        lock.lock();
+        try {
+            checkFailure();
+            // Если диск не успевает, пишущие потоки притормаживают, а не раздувают буфер без предела
+            while (pending.size() >= maxPendingBytes && running && failure == null) {
+                flushed.awaitUninterruptibly();
+            }
+            pending.write(record, 0, record.length);
+            hasWork.signal();
+            return ++appended;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void writeLoop() {
+        while (true) {
+            byte[] batch;
+            long batchEnd;
+            long targetGeneration;
+            lock.lock();
+            try {
+                while (running && pending.size() == 0 && requestedGeneration == generation) {
+                    hasWork.awaitUninterruptibly();
+                }
+                if (!running && pending.size() == 0) {
+                    return;
+                }
+                batch = pending.toByteArray();
+                pending.reset();
+                batchEnd = appended;
+                targetGeneration = requestedGeneration;
+                flushed.signalAll();
+            } finally {
+                lock.unlock();
+            }
+
+            try {
+                ByteBuffer buffer = ByteBuffer.wrap(batch);
+                while (buffer.hasRemaining()) {
+                    channel.write(buffer);
+                }
+                channel.force(false);
+                if (targetGeneration != generation) {
+                    channel.close();
+                    channel = openLog(targetGeneration);
+                }
+            } catch (IOException e) {
+                log.error("Ошибка записи журнала хранилищ", e);
+                lock.lock();
+                try {
+                    failure = e;
+                    flushed.signalAll();
+                } finally {
+                    lock.unlock();
+                }
+                return;
+            }
+
+            lock.lock();
+            try {
+                durable = batchEnd;
+                if (targetGeneration != generation) {
+                    generation = targetGeneration;
+                    logBytes = 0;
+                } else {
+                    logBytes += batch.length;
+                }
+                flushed.signalAll();
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    private FileChannel openLog(long generation) throws IOException {
+        return FileChannel.open(logFile(directory, generation),
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+    }
+
+    private void checkFailure() {
+        if (failure != null) {
+            throw new UncheckedIOException("Журнал хранилищ недоступен", failure);
+        }
+    }
+
+    private static byte[] encode(byte type, RecordBody body) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(64);
+        DataOutputStream out = new DataOutputStream(bytes);
+        try {
+            out.writeLong(0); // место под длину и контрольную сумму
+            out.writeByte(type);
+            body.write(out);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        byte[] record = bytes.toByteArray();
+        int length = record.length - HEADER_SIZE;
+        CRC32C crc = new CRC32C();
+        crc.update(record, HEADER_SIZE, length);
+        ByteBuffer.wrap(record).putInt(0, length).putInt(4, (int) crc.getValue());
+        return record;
+    }
+
+    private static void writePair(DataOutput out, int first, int second) throws IOException {
+        out.writeInt(first);
+        out.writeInt(second);
+    }
+
+    @FunctionalInterface
+    private interface RecordBody {
+        void write(DataOutput out) throws IOException;
+    }
+
+    @FunctionalInterface
+    interface RecordHandler {
+        void handle(byte type, ByteBuffer data);
+    }
+}
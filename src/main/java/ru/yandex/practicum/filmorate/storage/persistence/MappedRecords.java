@@ -0,0 +1,49 @@
+package ru.yandex.practicum.filmorate.storage.persistence;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+// Последовательное чтение файла через отображение в память окнами до 1 ГБ,
+// поэтому файлы больше 2 ГБ тоже читаются без копирования в кучу
+final class MappedRecords implements Closeable {
+    private static final long WINDOW_SIZE = 1L << 30;
+
+    private final FileChannel channel;
+    private final long size;
+    private MappedByteBuffer window;
+    private long windowStart;
+    private long position;
+
+    MappedRecords(Path file) throws IOException {
+        channel = FileChannel.open(file, StandardOpenOption.READ);
+        size = channel.size();
+    }
+
+    long remaining() {
+        return size - position;
+    }
+
+    // Следующие count байт файла как отдельный буфер; позиция чтения сдвигается за них
+    ByteBuffer read(int count) throws IOException {
+        if (count > remaining()) {
+            throw new IOException("Неожиданный конец файла");
+        }
+        if (window == null || position + count > windowStart + window.limit()) {
+            windowStart = position;
+            window = channel.map(FileChannel.MapMode.READ_ONLY, position, Math.min(WINDOW_SIZE, remaining()));
+        }
+        ByteBuffer slice = window.slice((int) (position - windowStart), count);
+        position += count;
+        return slice;
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+}
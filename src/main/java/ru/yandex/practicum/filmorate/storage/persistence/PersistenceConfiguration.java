@@ -0,0 +1,35 @@
+package ru.yandex.practicum.filmorate.storage.persistence;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+import ru.yandex.practicum.filmorate.storage.InMemoryFilmStorage;
+import ru.yandex.practicum.filmorate.storage.InMemoryUserStorage;
+
+// Журнал и снимки включаются свойством filmorate.persistence.enabled, по умолчанию данные живут только в памяти
+@Configuration
+@Profile("!jdbc & !sharded")
+@EnableConfigurationProperties(PersistenceProperties.class)
+public class PersistenceConfiguration {
+
+    @Bean
+    @ConditionalOnProperty(name = "filmorate.persistence.enabled", havingValue = "true")
+    public FileStorageJournal fileStorageJournal(PersistenceProperties properties) {
+        return new FileStorageJournal(properties.directory(), properties.syncWrites(), properties.maxPendingSize().toBytes());
+    }
+
+    @Bean
+    @ConditionalOnProperty(name = "filmorate.persistence.enabled", havingValue = "true")
+    public PersistenceManager persistenceManager(PersistenceProperties properties, FileStorageJournal journal,
+                                                 InMemoryFilmStorage filmStorage, InMemoryUserStorage userStorage) {
+        return new PersistenceManager(properties, journal, filmStorage, userStorage);
+    }
+
+    @Bean
+    @ConditionalOnProperty(name = "filmorate.persistence.enabled", havingValue = "false", matchIfMissing = true)
+    public StorageJournal storageJournal() {
+        return StorageJournal.NONE;
+    }
+}
@@ -0,0 +1,137 @@
+package ru.yandex.practicum.filmorate.storage.persistence;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import ru.yandex.practicum.filmorate.storage.InMemoryFilmStorage;
+import ru.yandex.practicum.filmorate.storage.InMemoryUserStorage;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+// Восстанавливает хранилища при старте (снимок + хвост журнала) и периодически делает новые снимки,
+// после которых старые журналы и снимки удаляются
+@Slf4j
+@RequiredArgsConstructor
+public class PersistenceManager {
+    private static final long CHECK_PERIOD_SECONDS = 10;
+
+    private final PersistenceProperties properties;
+    private final FileStorageJournal journal;
+    private final InMemoryFilmStorage filmStorage;
+    private final InMemoryUserStorage userStorage;
+
+    private ScheduledExecutorService scheduler;
+    private volatile long lastSnapshotNanos;
+
+    @PostConstruct
+    public void recover() throws IOException {
+        Path directory = properties.directory();
+        Files.createDirectories(directory);
+        long started = System.nanoTime();
+
+        long generation = 0;
+        Optional<Path> snapshot = SnapshotStore.latest(directory);
+        if (snapshot.isPresent()) {
+            SnapshotStore.Header header = SnapshotStore.read(snapshot.get(), userStorage::restoreUser, filmStorage::restoreFilm);
+            filmStorage.restoreLastId(header.lastFilmId());
+            userStorage.restoreLastId(header.lastUserId());
+            generation = header.generation();
+            log.info("Загружен снимок {}", snapshot.get());
+        }
+
+        long records = 0;
+        List<Path> logs = FileStorageJournal.logFiles(directory, generation);
+        for (Path file : logs) {
+            records += FileStorageJournal.read(file, this::replay);
+            generation = Math.max(generation, FileStorageJournal.generationOf(file));
+        }
+        log.info("Хранилища восстановлены за {} мс: снимок {}, записей журнала {}",
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started), snapshot.isPresent(), records);
+
+        // Новые изменения пишутся в следующее поколение, а восстановленное состояние сразу сжимается в снимок
+        journal.open(generation + 1);
+        scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "storage-snapshots");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.execute(this::snapshotQuietly);
+        scheduler.scheduleWithFixedDelay(this::snapshotIfNeeded, CHECK_PERIOD_SECONDS, CHECK_PERIOD_SECONDS, TimeUnit.SECONDS);
+    }
+
+    public synchronized void snapshot() throws IOException {
+        long started = System.nanoTime();
+        long generation = journal.rotate();
+        SnapshotStore.Header header = new SnapshotStore.Header(generation, filmStorage.getLastId(), userStorage.getLastId());
+        SnapshotStore.write(properties.directory(), header, userStorage.getAllUsers(), filmStorage.getAllFilms());
+        lastSnapshotNanos = System.nanoTime();
+        deleteBefore(generation);
+        log.info("Снимок хранилищ поколения {} записан за {} мс",
+                generation, TimeUnit.NANOSECONDS.toMillis(lastSnapshotNanos - started));
+    }
+
+    @PreDestroy
+    public void shutdown() throws IOException {
+        if (scheduler != null) {
+            // Начатый снимок дописывается до закрытия журнала: прерванный оставил бы недописанный файл
+            scheduler.shutdown();
+            try {
+                scheduler.awaitTermination(1, TimeUnit.MINUTES);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        journal.close();
+    }
+
+    private void snapshotIfNeeded() {
+        boolean intervalPassed = System.nanoTime() - lastSnapshotNanos >= properties.snapshotInterval().toNanos();
+        if (intervalPassed || journal.logBytes() >= properties.snapshotLogSize().toBytes()) {
+            snapshotQuietly();
+        }
+    }
+
+    private void snapshotQuietly() {
+        try {
+            snapshot();
+        } catch (IOException | RuntimeException e) {
+            log.error("Не удалось записать снимок хранилищ", e);
+        }
+    }
+
+    private void replay(byte type, ByteBuffer data) {
+        switch (type) {
+            case FileStorageJournal.FILM_SAVED -> filmStorage.restoreFilm(EntityCodec.readFilm(data));
+            case FileStorageJournal.FILM_DELETED -> filmStorage.restoreDelete(data.getInt());
+            case FileStorageJournal.LIKE_ADDED -> filmStorage.restoreLike(data.getInt(), data.getInt(), true);
+            case FileStorageJournal.LIKE_REMOVED -> filmStorage.restoreLike(data.getInt(), data.getInt(), false);
+            case FileStorageJournal.USER_SAVED -> userStorage.restoreUser(EntityCodec.readUser(data));
+            case FileStorageJournal.USER_DELETED -> userStorage.restoreDelete(data.getInt());
+            case FileStorageJournal.FRIEND_ADDED -> userStorage.restoreFriend(data.getInt(), data.getInt(), true);
+            case FileStorageJournal.FRIEND_REMOVED -> userStorage.restoreFriend(data.getInt(), data.getInt(), false);
+            default -> log.warn("Неизвестный тип записи журнала: {}", type);
+        }
+    }
+
+    private void deleteBefore(long generation) throws IOException {
+        try (Stream<Path> files = Files.list(properties.directory())) {
+            for (Path file : (Iterable<Path>) files::iterator) {
+                boolean oldLog = FileStorageJournal.isLogFile(file) && FileStorageJournal.generationOf(file) < generation;
+                boolean oldSnapshot = SnapshotStore.isSnapshot(file) && SnapshotStore.generationOf(file) < generation;
+                if (oldLog || oldSnapshot) {
+                    Files.deleteIfExists(file);
+                }
+            }
+        }
+    }
+}
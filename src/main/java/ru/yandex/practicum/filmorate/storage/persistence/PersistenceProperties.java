@@ -0,0 +1,19 @@
+package ru.yandex.practicum.filmorate.storage.persistence;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+import org.springframework.util.unit.DataSize;
+
+import java.nio.file.Path;
+import java.time.Duration;
+
+@ConfigurationProperties(prefix = "filmorate.persistence")
+public record PersistenceProperties(
+        @DefaultValue("false") boolean enabled,
+        @DefaultValue("data") Path directory,
+        // Ждать ли fsync перед ответом клиенту. Без ожидания при сбое теряются последние миллисекунды изменений
+        @DefaultValue("true") boolean syncWrites,
+        @DefaultValue("8MB") DataSize maxPendingSize,
+        @DefaultValue("10m") Duration snapshotInterval,
+        @DefaultValue("256MB") DataSize snapshotLogSize) {
+}
@@ -0,0 +1,118 @@
+package ru.yandex.practicum.filmorate.storage.persistence;
+
+import lombok.extern.slf4j.Slf4j;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.User;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.Optional;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+// Двоичные снимки хранилищ. Снимок поколения N содержит состояние на момент начала журнала N,
+// дополненное частью изменений из него; повторное применение журнала N поверх снимка дает точное состояние.
+// Формат: заголовок, затем записи [тип][длина][данные], в конце тип END
+@Slf4j
+final class SnapshotStore {
+    private static final int MAGIC = 0x464C4D53;
+    private static final int VERSION = 1;
+    private static final byte END = 0;
+    private static final byte USER = 1;
+    private static final byte FILM = 2;
+    private static final String PREFIX = "snapshot-";
+    private static final String SUFFIX = ".bin";
+
+    private SnapshotStore() {
+    }
+
+    record Header(long generation, int lastFilmId, int lastUserId) {
+    }
+
+    static void write(Path directory, Header header, Collection<User> users, Collection<Film> films) throws IOException {
+        Path target = file(directory, header.generation());
+        Path temporary = target.resolveSibling(target.getFileName() + ".tmp");
+        ByteArrayOutputStream record = new ByteArrayOutputStream(256);
+        DataOutputStream recordOut = new DataOutputStream(record);
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temporary), 1 << 16))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeLong(header.generation());
+            out.writeInt(header.lastFilmId());
+            out.writeInt(header.lastUserId());
+            for (User user : users) {
+                record.reset();
+                EntityCodec.writeUser(recordOut, user);
+                writeRecord(out, USER, record);
+            }
+            for (Film film : films) {
+                record.reset();
+                EntityCodec.writeFilm(recordOut, film);
+                writeRecord(out, FILM, record);
+            }
+            out.writeByte(END);
+        }
+        try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.WRITE)) {
+            channel.force(true);
+        }
+        Files.move(temporary, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    static Header read(Path file, Consumer<User> users, Consumer<Film> films) throws IOException {
+        try (MappedRecords in = new MappedRecords(file)) {
+            ByteBuffer headerBuffer = in.read(24);
+            if (headerBuffer.getInt() != MAGIC || headerBuffer.getInt() != VERSION) {
+                throw new IOException("Неизвестный формат снимка " + file);
+            }
+            Header header = new Header(headerBuffer.getLong(), headerBuffer.getInt(), headerBuffer.getInt());
+            while (true) {
+                byte type = in.read(1).get();
+                if (type == END) {
+                    return header;
+                }
+                ByteBuffer record = in.read(in.read(4).getInt());
+                switch (type) {
+                    case USER -> users.accept(EntityCodec.readUser(record));
+                    case FILM -> films.accept(EntityCodec.readFilm(record));
+                    default -> throw new IOException("Неизвестный тип записи снимка: " + type);
+                }
+            }
+        }
+    }
+
+    static Optional<Path> latest(Path directory) throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(SnapshotStore::isSnapshot).max(Comparator.comparingLong(SnapshotStore::generationOf));
+        }
+    }
+
+    static boolean isSnapshot(Path file) {
+        String name = file.getFileName().toString();
+        return name.startsWith(PREFIX) && name.endsWith(SUFFIX);
+    }
+
+    static long generationOf(Path file) {
+        String name = file.getFileName().toString();
+        return Long.parseLong(name.substring(PREFIX.length(), name.length() - SUFFIX.length()));
+    }
+
+    private static Path file(Path directory, long generation) {
+        return directory.resolve(String.format("%s%020d%s", PREFIX, generation, SUFFIX));
+    }
+
+    private static void writeRecord(DataOutputStream out, byte type, ByteArrayOutputStream record) throws IOException {
+        out.writeByte(type);
+        out.writeInt(record.size());
+        record.writeTo(out);
+    }
+}
@@ -0,0 +1,46 @@
+package ru.yandex.practicum.filmorate.storage.persistence;
+
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.User;
+
+// Журнал изменений хранилищ. Методы записи вызываются под блокировкой сущности и только ставят запись
+// в очередь, возвращая ее номер; дождаться сброса на диск нужно через awaitDurable уже после снятия блокировки
+public interface StorageJournal {
+    StorageJournal NONE = new StorageJournal() {
+    };
+
+    default long filmSaved(Film film) {
+        return 0;
+    }
+
+    default long filmDeleted(int filmId) {
+        return 0;
+    }
+
+    default long likeAdded(int filmId, int userId) {
+        return 0;
+    }
+
+    default long likeRemoved(int filmId, int userId) {
+        return 0;
+    }
+
+    default long userSaved(User user) {
+        return 0;
+    }
+
+    default long userDeleted(int userId) {
+        return 0;
+    }
+
+    default long friendAdded(int userId, int friendId) {
+        return 0;
+    }
+
+    default long friendRemoved(int userId, int friendId) {
+        return 0;
+    }
+
+    default void awaitDurable(long entry) {
+    }
+}
@@ -0,0 +1,50 @@
+package ru.yandex.practicum.filmorate.storage.shard;
+
+import java.util.Arrays;
+
+// Консистентное хеширование id по шардам. У каждого шарда virtualNodes точек на кольце int, id принадлежит
+// шарду первой точки не меньше хеша id. Виртуальные узлы выравнивают доли шардов, а при изменении числа
+// шардов переезжает около 1/N ключей. Кольцо неизменяемо и читается без блокировок
+final class ConsistentHashRing {
+    private final int[] points;
+    private final int[] owners;
+
+    ConsistentHashRing(int shards, int virtualNodes) {
+        if (shards <= 0 || virtualNodes <= 0) {
+            throw new IllegalArgumentException("Число шардов и виртуальных узлов должно быть больше 0");
+        }
+        // Точка в старших 32 битах, шард в младших: сортировка long упорядочивает кольцо по точкам
+        long[] ring = new long[shards * virtualNodes];
+        for (int shard = 0; shard < shards; shard++) {
+            for (int node = 0; node < virtualNodes; node++) {
+                int point = (int) mix(((long) shard << 32) | node);
+                ring[shard * virtualNodes + node] = ((long) point << 32) | shard;
+            }
+        }
+        Arrays.sort(ring);
+        points = new int[ring.length];
+        owners = new int[ring.length];
+        for (int i = 0; i < ring.length; i++) {
+            points[i] = (int) (ring[i] >> 32);
+            owners[i] = (int) ring[i];
+        }
+    }
+
+    int shardOf(int id) {
+        int index = Arrays.binarySearch(points, (int) mix(id));
+        if (index < 0) {
+            index = -index - 1;
+        }
+        return owners[index == points.length ? 0 : index];
+    }
+
+    // Финализатор MurmurHash3: последовательные id расходятся по всему кольцу
+    private static long mix(long x) {
+        x ^= x >>> 33;
+        x *= 0xff51afd7ed558ccdL;
+        x ^= x >>> 33;
+        x *= 0xc4ceb9fe1a85ec53L;
+        x ^= x >>> 33;
+        return x;
+    }
+}
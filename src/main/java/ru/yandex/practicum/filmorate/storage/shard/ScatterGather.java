@@ -0,0 +1,72 @@
+package ru.yandex.practicum.filmorate.storage.shard;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Function;
+import java.util.function.IntFunction;
+
+// Рассылка запроса по шардам и сбор ответов. Каждый шард опрашивается в своем виртуальном потоке,
+// исключение шарда пробрасывается вызывающему без обертки
+final class ScatterGather implements AutoCloseable {
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+
+    // Ответы в порядке шардов
+    <S, T> List<T> all(List<S> shards, Function<S, T> call) {
+        return each(shards.size(), index -> call.apply(shards.get(index)));
+    }
+
+    // Вызов для каждого номера шарда от 0 до count - 1
+    <T> List<T> each(int count, IntFunction<T> call) {
+        if (count == 1) {
+            return Collections.singletonList(call.apply(0));
+        }
+        List<CompletableFuture<T>> futures = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            int index = i;
+            futures.add(CompletableFuture.supplyAsync(() -> call.apply(index), executor));
+        }
+        List<T> results = new ArrayList<>(count);
+        try {
+            for (CompletableFuture<T> future : futures) {
+                results.add(future.join());
+            }
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
+        }
+        return results;
+    }
+
+    // Слияние списков, каждый из которых уже упорядочен, с отбором первых limit элементов
+    static <T> List<T> merge(List<List<T>> sorted, Comparator<? super T> order, int limit) {
+        int[] positions = new int[sorted.size()];
+        List<T> result = new ArrayList<>(Math.min(limit, sorted.stream().mapToInt(List::size).sum()));
+        while (result.size() < limit) {
+            int best = -1;
+            for (int i = 0; i < positions.length; i++) {
+                if (positions[i] < sorted.get(i).size() && (best < 0
+                        || order.compare(sorted.get(i).get(positions[i]), sorted.get(best).get(positions[best])) < 0)) {
+                    best = i;
+                }
+            }
+            if (best < 0) {
+                break;
+            }
+            result.add(sorted.get(best).get(positions[best]++));
+        }
+        return result;
+    }
+
+    @Override
+    public void close() {
+        executor.close();
+    }
+}
@@ -0,0 +1,230 @@
+package ru.yandex.practicum.filmorate.storage.shard;
+
+import lombok.extern.slf4j.Slf4j;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.FilmQuery;
+import ru.yandex.practicum.filmorate.storage.InMemoryFilmStorage;
+import ru.yandex.practicum.filmorate.storage.interfaces.FilmStorage;
+import ru.yandex.practicum.filmorate.storage.interfaces.PairChanges;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Фильмы, распределенные по шардам консистентным хешированием id. Операции над одним фильмом уходят в его шард,
+// выборки и топы рассылаются по всем шардам, и упорядоченные ответы сливаются с отбором первых K.
+// id выделяет маршрутизатор, чтобы шард фильма был известен до создания
+@Slf4j
+public class ShardedFilmStorage implements FilmStorage, AutoCloseable {
+    private static final Comparator<Film> BY_ID = Comparator.comparingInt(Film::getId);
+    // Порядок индекса популярности шарда: по убыванию лайков, при равенстве - по возрастанию id
+    private static final Comparator<Film> BY_LIKES = Comparator.<Film>comparingInt(film -> -film.getLikeScore().size())
+            .thenComparingInt(Film::getId);
+
+    private final List<InMemoryFilmStorage> shards;
+    private final ConsistentHashRing ring;
+    private final ScatterGather scatter = new ScatterGather();
+    private final AtomicInteger current = new AtomicInteger();
+
+    public ShardedFilmStorage(List<InMemoryFilmStorage> shards, int virtualNodes) {
+        this.shards = List.copyOf(shards);
+        this.ring = new ConsistentHashRing(shards.size(), virtualNodes);
+        log.info("Хранилище фильмов разбито на {} шардов", shards.size());
+    }
+
+    @Override
+    public Film create(Film film) {
+        film.setId(current.incrementAndGet());
+        return shard(film.getId()).createWithId(film);
+    }
+
+    // Диапазон id берется одним getAndAdd, каждый шард принимает свою часть пакета параллельно с остальными
+    @Override
+    public List<Film> createAll(List<Film> films) {
+        int firstId = current.getAndAdd(films.size()) + 1;
+        List<List<Film>> byShard = emptyLists();
+        for (int i = 0; i < films.size(); i++) {
+            Film film = films.get(i);
+            film.setId(firstId + i);
+            byShard.get(ring.shardOf(film.getId())).add(film);
+        }
+        scatter.each(shards.size(), index -> {
+            for (Film film : byShard.get(index)) {
+                shards.get(index).createWithId(film);
+            }
+            return null;
+        });
+        log.info("Создано {} фильмов", films.size());
+        return films;
+    }
+
+    @Override
+    public Film update(Film film) {
+        return shard(film.getId()).update(film);
+    }
+
+    @Override
+    public int[] delete(int filmId) {
+        return shard(filmId).delete(filmId);
+    }
+
+    @Override
+    public Collection<Film> getAllFilms() {
+        List<Film> films = new ArrayList<>();
+        for (Collection<Film> part : scatter.all(shards, InMemoryFilmStorage::getAllFilms)) {
+            films.addAll(part);
+        }
+        films.sort(BY_ID);
+        return films;
+    }
+
+    @Override
+    public Optional<Film> getFilmById(int id) {
+        return shard(id).getFilmById(id);
+    }
+
+    @Override
+    public List<Film> getFilms(int afterId, int limit) {
+        return ScatterGather.merge(scatter.all(shards, shard -> shard.getFilms(afterId, limit)), BY_ID, limit);
+    }
+
+    @Override
+    public boolean addLike(int filmId, int userId) {
+        return shard(filmId).addLike(filmId, userId);
+    }
+
+    @Override
+    public boolean removeLike(int filmId, int userId) {
+        return shard(filmId).removeLike(filmId, userId);
+    }
+
+    // Пары делятся по шардам фильмов; номера пар каждого шарда переводятся обратно в номера пакета
+    @Override
+    public PairChanges addLikes(int[] filmIds, int[] userIds) {
+        int[] counts = new int[shards.size()];
+        int[] shardOf = new int[filmIds.length];
+        for (int i = 0; i < filmIds.length; i++) {
+            shardOf[i] = ring.shardOf(filmIds[i]);
+            counts[shardOf[i]]++;
+        }
+        int[][] positions = new int[shards.size()][];
+        for (int shard = 0; shard < positions.length; shard++) {
+            positions[shard] = new int[counts[shard]];
+        }
+        Arrays.fill(counts, 0);
+        for (int i = 0; i < filmIds.length; i++) {
+            positions[shardOf[i]][counts[shardOf[i]]++] = i;
+        }
+        List<PairChanges> changesByShard = scatter.each(shards.size(), index -> {
+            int[] local = positions[index];
+            if (local.length == 0) {
+                return new PairChanges(new BitSet(), new BitSet());
+            }
+            int[] localFilms = new int[local.length];
+            int[] localUsers = new int[local.length];
+            for (int i = 0; i < local.length; i++) {
+                localFilms[i] = filmIds[local[i]];
+                localUsers[i] = userIds[local[i]];
+            }
+            return shards.get(index).addLikes(localFilms, localUsers);
+        });
+        BitSet missing = new BitSet();
+        BitSet added = new BitSet();
+        for (int shard = 0; shard < changesByShard.size(); shard++) {
+            PairChanges local = changesByShard.get(shard);
+            toBatch(local.missing(), positions[shard], missing);
+            toBatch(local.added(), positions[shard], added);
+        }
+        return new PairChanges(missing, added);
+    }
+
+    private static void toBatch(BitSet local, int[] positions, BitSet batch) {
+        for (int i = local.nextSetBit(0); i >= 0; i = local.nextSetBit(i + 1)) {
+            batch.set(positions[i]);
+        }
+    }
+
+    // Топ каждого шарда уже упорядочен по лайкам, общий топ - слияние первых count из каждого
+    @Override
+    public List<Film> getPopularFilms(int count) {
+        return ScatterGather.merge(scatter.all(shards, shard -> shard.getPopularFilms(count)), BY_LIKES, count);
+    }
+
+    @Override
+    public List<Film> findFilms(FilmQuery query, int afterId, int limit) {
+        return ScatterGather.merge(scatter.all(shards, shard -> shard.findFilms(query, afterId, limit)), BY_ID, limit);
+    }
+
+    @Override
+    public List<Film> findPopularFilms(FilmQuery query, int count) {
+        return ScatterGather.merge(scatter.all(shards, shard -> shard.findPopularFilms(query, count)), BY_LIKES, count);
+    }
+
+    // Лайки пользователя лежат в шардах фильмов, обратный индекс у каждого шарда свой
+    @Override
+    public int[] getLikedFilmIds(int userId) {
+        return union(scatter.all(shards, shard -> shard.getLikedFilmIds(userId)));
+    }
+
+    @Override
+    public int[] removeUserLikes(int userId) {
+        return union(scatter.all(shards, shard -> shard.removeUserLikes(userId)));
+    }
+
+    @Override
+    public int getFilmCount() {
+        int count = 0;
+        for (InMemoryFilmStorage shard : shards) {
+            count += shard.getFilmCount();
+        }
+        return count;
+    }
+
+    @Override
+    public long getLikeCount() {
+        long count = 0;
+        for (InMemoryFilmStorage shard : shards) {
+            count += shard.getLikeCount();
+        }
+        return count;
+    }
+
+    // Сумма версий шардов растет при изменении в любом из них
+    @Override
+    public long getVersion() {
+        long version = 0;
+        for (InMemoryFilmStorage shard : shards) {
+            version += shard.getVersion();
+        }
+        return version;
+    }
+
+    @Override
+    public void close() {
+        scatter.close();
+    }
+
+    private InMemoryFilmStorage shard(int filmId) {
+        return shards.get(ring.shardOf(filmId));
+    }
+
+    private List<List<Film>> emptyLists() {
+        List<List<Film>> lists = new ArrayList<>(shards.size());
+        for (int i = 0; i < shards.size(); i++) {
+            lists.add(new ArrayList<>());
+        }
+        return lists;
+    }
+
+    // Каждый фильм живет ровно в одном шарде, поэтому части не пересекаются
+    private static int[] union(List<int[]> parts) {
+        int[] result = parts.stream().flatMapToInt(Arrays::stream).toArray();
+        Arrays.sort(result);
+        return result;
+    }
+}
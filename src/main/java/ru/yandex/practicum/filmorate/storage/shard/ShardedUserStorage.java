@@ -0,0 +1,283 @@
+package ru.yandex.practicum.filmorate.storage.shard;
+
+import lombok.extern.slf4j.Slf4j;
+import ru.yandex.practicum.filmorate.exceptions.NotFoundException;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.model.UserQuery;
+import ru.yandex.practicum.filmorate.storage.InMemoryUserStorage;
+import ru.yandex.practicum.filmorate.storage.InMemoryUserStorage.HalfLink;
+import ru.yandex.practicum.filmorate.storage.interfaces.PairChanges;
+import ru.yandex.practicum.filmorate.storage.interfaces.UserStorage;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Пользователи, распределенные по шардам консистентным хешированием id. Дружба внутри шарда меняется им самим
+// атомарно, дружба между шардами - двумя половинами (список друзей каждого меняет его шард); при одновременном
+// удалении одного из пользователей половина откатывается. Друзья и общие друзья собираются со всех шардов
+@Slf4j
+public class ShardedUserStorage implements UserStorage, AutoCloseable {
+    private static final Comparator<User> BY_ID = Comparator.comparingInt(User::getId);
+
+    private final List<InMemoryUserStorage> shards;
+    private final ConsistentHashRing ring;
+    private final ScatterGather scatter = new ScatterGather();
+    private final AtomicInteger current = new AtomicInteger();
+
+    public ShardedUserStorage(List<InMemoryUserStorage> shards, int virtualNodes) {
+        this.shards = List.copyOf(shards);
+        this.ring = new ConsistentHashRing(shards.size(), virtualNodes);
+        log.info("Хранилище пользователей разбито на {} шардов", shards.size());
+    }
+
+    @Override
+    public User create(User user) {
+        user.setId(current.incrementAndGet());
+        return shard(user.getId()).createWithId(user);
+    }
+
+    @Override
+    public List<User> createAll(List<User> users) {
+        int firstId = current.getAndAdd(users.size()) + 1;
+        List<List<User>> byShard = new ArrayList<>(shards.size());
+        for (int i = 0; i < shards.size(); i++) {
+            byShard.add(new ArrayList<>());
+        }
+        for (int i = 0; i < users.size(); i++) {
+            User user = users.get(i);
+            user.setId(firstId + i);
+            byShard.get(ring.shardOf(user.getId())).add(user);
+        }
+        scatter.each(shards.size(), index -> {
+            for (User user : byShard.get(index)) {
+                shards.get(index).createWithId(user);
+            }
+            return null;
+        });
+        log.info("Создано {} пользователей", users.size());
+        return users;
+    }
+
+    @Override
+    public User update(User user) {
+        return shard(user.getId()).update(user);
+    }
+
+    // Шард пользователя сам чистит списки друзей в своем шарде, остальные шарды - по списку удаленного
+    @Override
+    public void delete(int userId) {
+        InMemoryUserStorage home = shard(userId);
+        int[] friendIds = home.deleteWithFriends(userId);
+        for (int friendId : friendIds) {
+            InMemoryUserStorage friendShard = shard(friendId);
+            if (friendShard != home) {
+                friendShard.unlinkFriend(friendId, userId);
+            }
+        }
+    }
+
+    @Override
+    public Collection<User> getAllUsers() {
+        List<User> users = new ArrayList<>();
+        for (Collection<User> part : scatter.all(shards, InMemoryUserStorage::getAllUsers)) {
+            users.addAll(part);
+        }
+        users.sort(BY_ID);
+        return users;
+    }
+
+    @Override
+    public Optional<User> getUserById(int id) {
+        return shard(id).getUserById(id);
+    }
+
+    @Override
+    public boolean exists(int id) {
+        return shard(id).exists(id);
+    }
+
+    @Override
+    public List<User> getUsers(int afterId, int limit) {
+        return ScatterGather.merge(scatter.all(shards, shard -> shard.getUsers(afterId, limit)), BY_ID, limit);
+    }
+
+    @Override
+    public List<User> findUsers(UserQuery query, int afterId, int limit) {
+        return ScatterGather.merge(scatter.all(shards, shard -> shard.findUsers(query, afterId, limit)), BY_ID, limit);
+    }
+
+    // id делятся по шардам, каждый шард отдает своих одним вызовом; порядок - как в запросе
+    @Override
+    public List<User> getUsersByIds(int[] ids) {
+        int[] counts = new int[shards.size()];
+        for (int id : ids) {
+            counts[ring.shardOf(id)]++;
+        }
+        int[][] idsByShard = new int[shards.size()][];
+        for (int shard = 0; shard < idsByShard.length; shard++) {
+            idsByShard[shard] = new int[counts[shard]];
+            counts[shard] = 0;
+        }
+        for (int id : ids) {
+            int shard = ring.shardOf(id);
+            idsByShard[shard][counts[shard]++] = id;
+        }
+        Map<Integer, User> found = new HashMap<>(ids.length * 2);
+        for (List<User> part : scatter.each(shards.size(), index -> idsByShard[index].length == 0
+                ? List.<User>of() : shards.get(index).getUsersByIds(idsByShard[index]))) {
+            for (User user : part) {
+                found.put(user.getId(), user);
+            }
+        }
+        List<User> result = new ArrayList<>(found.size());
+        for (int id : ids) {
+            User user = found.get(id);
+            if (user != null) {
+                result.add(user);
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public List<User> getFriends(int userId) {
+        return getUsersByIds(getExistingUser(userId).getFriendsList().toIntArray());
+    }
+
+    // Списки друзей двух пользователей пересекаются на маршрутизаторе, сами друзья собираются со всех шардов
+    @Override
+    public List<User> getCommonFriends(int userId, int otherId) {
+        User user = getExistingUser(userId);
+        User other = getExistingUser(otherId);
+        return getUsersByIds(user.getFriendsList().intersect(other.getFriendsList()));
+    }
+
+    @Override
+    public boolean addFriend(int userId, int friendId) {
+        InMemoryUserStorage userShard = shard(userId);
+        if (userShard == shard(friendId)) {
+            return userShard.addFriend(userId, friendId);
+        }
+        HalfLink link = linkAcross(userId, friendId);
+        if (link == HalfLink.MISSING) {
+            throw notFound(userShard.exists(userId) ? friendId : userId);
+        }
+        return link == HalfLink.CHANGED;
+    }
+
+    @Override
+    public boolean removeFriend(int userId, int friendId) {
+        requireUser(userId);
+        requireUser(friendId);
+        InMemoryUserStorage userShard = shard(userId);
+        InMemoryUserStorage friendShard = shard(friendId);
+        if (userShard == friendShard) {
+            return userShard.removeFriend(userId, friendId);
+        }
+        return userShard.unlinkFriend(userId, friendId) == HalfLink.CHANGED
+                | friendShard.unlinkFriend(friendId, userId) == HalfLink.CHANGED;
+    }
+
+    @Override
+    public PairChanges addFriends(int[] userIds, int[] friendIds) {
+        BitSet missing = new BitSet();
+        BitSet added = new BitSet();
+        for (int i = 0; i < userIds.length; i++) {
+            HalfLink link = link(userIds[i], friendIds[i]);
+            if (link == HalfLink.MISSING) {
+                missing.set(i);
+            } else if (link == HalfLink.CHANGED) {
+                added.set(i);
+            }
+        }
+        return new PairChanges(missing, added);
+    }
+
+    @Override
+    public int getUserCount() {
+        int count = 0;
+        for (InMemoryUserStorage shard : shards) {
+            count += shard.getUserCount();
+        }
+        return count;
+    }
+
+    @Override
+    public long getFriendshipCount() {
+        long links = 0;
+        for (InMemoryUserStorage shard : shards) {
+            links += shard.getFriendLinkCount();
+        }
+        return links / 2;
+    }
+
+    @Override
+    public long getVersion() {
+        long version = 0;
+        for (InMemoryUserStorage shard : shards) {
+            version += shard.getVersion();
+        }
+        return version;
+    }
+
+    @Override
+    public void close() {
+        scatter.close();
+    }
+
+    private HalfLink link(int userId, int friendId) {
+        InMemoryUserStorage userShard = shard(userId);
+        if (userShard != shard(friendId)) {
+            return linkAcross(userId, friendId);
+        }
+        PairChanges changes = userShard.addFriends(new int[]{userId}, new int[]{friendId});
+        if (changes.missing().get(0)) {
+            return HalfLink.MISSING;
+        }
+        return changes.added().get(0) ? HalfLink.CHANGED : HalfLink.UNCHANGED;
+    }
+
+    // Дружба пользователей из разных шардов. Если второго нет, откатывается только половина, созданная здесь:
+    // половина уже существовавшей дружбы остается
+    private HalfLink linkAcross(int userId, int friendId) {
+        InMemoryUserStorage userShard = shard(userId);
+        HalfLink forward = userShard.linkFriend(userId, friendId);
+        if (forward == HalfLink.MISSING) {
+            return HalfLink.MISSING;
+        }
+        HalfLink backward = shard(friendId).linkFriend(friendId, userId);
+        if (backward == HalfLink.MISSING) {
+            if (forward == HalfLink.CHANGED) {
+                userShard.unlinkFriend(userId, friendId);
+            }
+            return HalfLink.MISSING;
+        }
+        return forward == HalfLink.CHANGED || backward == HalfLink.CHANGED ? HalfLink.CHANGED : HalfLink.UNCHANGED;
+    }
+
+    private InMemoryUserStorage shard(int userId) {
+        return shards.get(ring.shardOf(userId));
+    }
+
+    private void requireUser(int userId) {
+        if (!exists(userId)) {
+            throw notFound(userId);
+        }
+    }
+
+    private User getExistingUser(int userId) {
+        return shard(userId).getUserById(userId).orElseThrow(() -> notFound(userId));
+    }
+
+    private static NotFoundException notFound(int userId) {
+        log.error("Пользователь с ID {} не найден", userId);
+        return new NotFoundException("Пользователь с ID " + userId + " не найден");
+    }
+}
@@ -0,0 +1,38 @@
+package ru.yandex.practicum.filmorate.storage.shard;
+
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+import ru.yandex.practicum.filmorate.storage.InMemoryFilmStorage;
+import ru.yandex.practicum.filmorate.storage.InMemoryUserStorage;
+
+import java.util.ArrayList;
+import java.util.List;
+
+// Профиль sharded: вместо одного хранилища в памяти - filmorate.sharding.shards узлов в этом же процессе.
+// Узлы без журнала, маршрутизаторы регистрируются под именами filmStorage и userStorage, поэтому кэш
+// (filmorate.cache.enabled) оборачивает их так же, как обычные хранилища
+@Configuration
+@Profile("sharded")
+@EnableConfigurationProperties(ShardingProperties.class)
+public class ShardingConfiguration {
+
+    @Bean("filmStorage")
+    public ShardedFilmStorage shardedFilmStorage(ShardingProperties properties) {
+        List<InMemoryFilmStorage> nodes = new ArrayList<>(properties.shards());
+        for (int i = 0; i < properties.shards(); i++) {
+            nodes.add(new InMemoryFilmStorage());
+        }
+        return new ShardedFilmStorage(nodes, properties.virtualNodes());
+    }
+
+    @Bean("userStorage")
+    public ShardedUserStorage shardedUserStorage(ShardingProperties properties) {
+        List<InMemoryUserStorage> nodes = new ArrayList<>(properties.shards());
+        for (int i = 0; i < properties.shards(); i++) {
+            nodes.add(new InMemoryUserStorage());
+        }
+        return new ShardedUserStorage(nodes, properties.virtualNodes());
+    }
+}
@@ -0,0 +1,12 @@
+package ru.yandex.practicum.filmorate.storage.shard;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+@ConfigurationProperties(prefix = "filmorate.sharding")
+public record ShardingProperties(
+        // Число шардов-узлов в профиле sharded
+        @DefaultValue("4") int shards,
+        // Точек каждого шарда на кольце хешей: чем больше, тем ровнее доли шардов
+        @DefaultValue("128") int virtualNodes) {
+}
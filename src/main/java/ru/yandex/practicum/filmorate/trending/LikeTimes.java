@@ -0,0 +1,102 @@
+package ru.yandex.practicum.filmorate.trending;
+
+// Время лайка по id пользователя на открытой адресации, без упаковки в Integer/Long.
+// Ключ 0 обозначает пустую ячейку: id пользователей начинаются с 1. Не потокобезопасен
+final class LikeTimes {
+    static final long ABSENT = Long.MIN_VALUE;
+
+    private int[] keys = new int[8];
+    private long[] times = new long[8];
+    private int size;
+
+    // Запоминает время, если лайка еще не было; возвращает ранее записанное время или ABSENT
+    long putIfAbsent(int userId, long time) {
+        int mask = keys.length - 1;
+        int index = mix(userId) & mask;
+        while (keys[index] != 0) {
+            if (keys[index] == userId) {
+                return times[index];
+            }
+            index = (index + 1) & mask;
+        }
+        keys[index] = userId;
+        times[index] = time;
+        if (++size * 2 > keys.length) {
+            grow();
+        }
+        return ABSENT;
+    }
+
+    // Удаляет лайк и возвращает его время или ABSENT
+    long remove(int userId) {
+        int mask = keys.length - 1;
+        int index = mix(userId) & mask;
+        while (keys[index] != 0) {
+            if (keys[index] == userId) {
+                long time = times[index];
+                delete(index);
+                return time;
+            }
+            index = (index + 1) & mask;
+        }
+        return ABSENT;
+    }
+
+    // Удаляет лайки, поставленные раньше cutoff
+    void removeOlderThan(long cutoff) {
+        int index = 0;
+        while (index < keys.length) {
+            // delete сдвигает в освободившуюся ячейку следующий элемент цепочки - его нужно проверить заново
+            if (keys[index] != 0 && times[index] < cutoff) {
+                delete(index);
+            } else {
+                index++;
+            }
+        }
+    }
+
+    int size() {
+        return size;
+    }
+
+    boolean isEmpty() {
+        return size == 0;
+    }
+
+    // Удаление без надгробий: элементы цепочки за освободившейся ячейкой сдвигаются назад,
+    // если их исходная позиция не лежит между дыркой и текущей ячейкой
+    private void delete(int hole) {
+        int mask = keys.length - 1;
+        int index = (hole + 1) & mask;
+        while (keys[index] != 0) {
+            int home = mix(keys[index]) & mask;
+            if (((index - home) & mask) >= ((index - hole) & mask)) {
+                keys[hole] = keys[index];
+                times[hole] = times[index];
+                hole = index;
+            }
+            index = (index + 1) & mask;
+        }
+        keys[hole] = 0;
+        size--;
+    }
+
+    private void grow() {
+        int[] oldKeys = keys;
+        long[] oldTimes = times;
+        keys = new int[oldKeys.length * 2];
+        times = new long[oldKeys.length * 2];
+        size = 0;
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] != 0) {
+                putIfAbsent(oldKeys[i], oldTimes[i]);
+            }
+        }
+    }
+
+    // Последовательные id не должны попадать в соседние ячейки одной цепочкой
+    private static int mix(int key) {
+        int hash = key * 0x9E3779B9;
+        return hash ^ (hash >>> 16);
+    }
+}
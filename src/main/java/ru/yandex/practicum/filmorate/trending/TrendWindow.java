@@ -0,0 +1,34 @@
+package ru.yandex.practicum.filmorate.trending;
+
+import ru.yandex.practicum.filmorate.exceptions.ValidationException;
+
+// Окна для топа по числу лайков за последнее время (?window=24h|7d)
+public enum TrendWindow {
+    DAY("24h", 24),
+    WEEK("7d", 168);
+
+    private final String param;
+    private final int hours;
+
+    TrendWindow(String param, int hours) {
+        this.param = param;
+        this.hours = hours;
+    }
+
+    public String param() {
+        return param;
+    }
+
+    public int hours() {
+        return hours;
+    }
+
+    public static TrendWindow fromParam(String param) {
+        for (TrendWindow window : values()) {
+            if (window.param.equals(param)) {
+                return window;
+            }
+        }
+        throw new ValidationException("Окно должно быть 24h или 7d");
+    }
+}
@@ -0,0 +1,17 @@
+package ru.yandex.practicum.filmorate.trending;
+
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Clock;
+
+@Configuration
+@EnableConfigurationProperties(TrendingProperties.class)
+public class TrendingConfiguration {
+
+    @Bean
+    public TrendingIndex trendingIndex(TrendingProperties properties) {
+        return new TrendingIndex(properties.halfLife(), Clock.systemUTC());
+    }
+}
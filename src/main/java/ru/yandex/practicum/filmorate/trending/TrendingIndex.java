@@ -0,0 +1,286 @@
+package ru.yandex.practicum.filmorate.trending;
+
+import ru.yandex.practicum.filmorate.model.IdTable;
+import ru.yandex.practicum.filmorate.model.IntSet;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.NavigableSet;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+// Тренды без пересканирования лайков. У фильма с лайками за последнюю неделю есть кольцо почасовых счетчиков
+// и рейтинг с экспоненциальным затуханием. Затухание прямое (forward decay): вес лайка exp(λ(t - t0)) растет
+// со временем, поэтому старые вклады не пересчитываются, а порядок совпадает с порядком по затухшим оценкам.
+// Рейтинг хранится логарифмом суммы весов, поэтому веса не переполняются и не приводятся к новой точке отсчета.
+// Три индекса (за сутки, за неделю, рейтинг) обновляются на каждом лайке, топ читается с головы индекса.
+// Общей блокировки на лайк нет: состояние фильма защищено его монитором, смену часа выполняет один поток.
+// Состояние живет только в памяти и после перезапуска набирается заново
+public class TrendingIndex {
+    private static final int WEEK_HOURS = 168;
+    private static final long HOUR_MILLIS = TimeUnit.HOURS.toMillis(1);
+    private static final long NOT_INDEXED = -1;
+    private static final double EMPTY_SCORE = Double.NEGATIVE_INFINITY;
+    private static final int MAX_RESULT_HINT = 1000;
+
+    private final Clock clock;
+    private final double decayPerMilli;
+    private final long landmarkMillis;
+    private final IdTable<FilmTrend> trends = new IdTable<>();
+    // Ключи как в индексе популярности хранилища: (значение, Integer.MAX_VALUE - id), по убыванию
+    private final NavigableSet<Long> byScore = new ConcurrentSkipListSet<>(Comparator.reverseOrder());
+    private final NavigableSet<Long> byDay = new ConcurrentSkipListSet<>(Comparator.reverseOrder());
+    private final NavigableSet<Long> byWeek = new ConcurrentSkipListSet<>(Comparator.reverseOrder());
+    // Фильмы, получавшие лайки в каждый час последней недели: при смене часа пересчитываются только они
+    private final IntSet[] activeByHour = new IntSet[WEEK_HOURS];
+    // Смену часа выполняет один поток; лайки ждут его, только если сами попали в новый час
+    private final ReentrantLock advancing = new ReentrantLock();
+    private volatile long currentHour;
+
+    public TrendingIndex(Duration halfLife, Clock clock) {
+        this.clock = clock;
+        this.decayPerMilli = Math.log(2) / halfLife.toMillis();
+        this.landmarkMillis = clock.millis();
+        this.currentHour = landmarkMillis / HOUR_MILLIS;
+        for (int i = 0; i < WEEK_HOURS; i++) {
+            activeByHour[i] = new IntSet();
+        }
+    }
+
+    public void likeAdded(int filmId, int userId) {
+        long now = currentTime();
+        long hour = now / HOUR_MILLIS;
+        while (true) {
+            FilmTrend trend = trends.computeIfAbsent(filmId, FilmTrend::new);
+            synchronized (trend) {
+                // Устаревший фильм мог быть убран сменой часа между поиском и захватом монитора
+                if (trend.removed) {
+                    continue;
+                }
+                if (trend.likedAt.putIfAbsent(userId, now) != LikeTimes.ABSENT) {
+                    return;
+                }
+                trend.add(hour, 1);
+                trend.score = logAdd(trend.score, logWeight(now));
+                activeByHour[slot(hour)].add(filmId);
+                reindex(trend, hour);
+                return;
+            }
+        }
+    }
+
+    // Снимается вклад лайка, если он был поставлен в пределах недели; более старые лайки в трендах уже не видны
+    public void likeRemoved(int filmId, int userId) {
+        long now = currentTime();
+        FilmTrend trend = trends.get(filmId);
+        if (trend == null) {
+            return;
+        }
+        synchronized (trend) {
+            long likedAt = trend.likedAt.remove(userId);
+            if (trend.removed || likedAt == LikeTimes.ABSENT) {
+                return;
+            }
+            trend.add(likedAt / HOUR_MILLIS, -1);
+            trend.score = trend.likedAt.isEmpty() ? EMPTY_SCORE : logSubtract(trend.score, logWeight(likedAt));
+            reindex(trend, now / HOUR_MILLIS);
+        }
+    }
+
+    public void filmDeleted(int filmId) {
+        FilmTrend trend = trends.remove(filmId);
+        if (trend != null) {
+            synchronized (trend) {
+                drop(trend);
+            }
+        }
+    }
+
+    // id фильмов с наибольшим числом лайков за окно
+    public int[] top(TrendWindow window, int count) {
+        return top(window == TrendWindow.DAY ? byDay : byWeek, count);
+    }
+
+    // id фильмов с наибольшим затухающим рейтингом
+    public int[] topTrending(int count) {
+        return top(byScore, count);
+    }
+
+    private int[] top(NavigableSet<Long> index, int count) {
+        currentTime();
+        int[] ids = new int[Math.min(count, Math.min(trends.size(), MAX_RESULT_HINT))];
+        int size = 0;
+        for (long key : index) {
+            if (size >= count) {
+                break;
+            }
+            if (size == ids.length) {
+                ids = Arrays.copyOf(ids, Math.max(4, size * 2));
+            }
+            ids[size++] = Integer.MAX_VALUE - (int) key;
+        }
+        return size == ids.length ? ids : Arrays.copyOf(ids, size);
+    }
+
+    // Текущее время; если начался новый час, индекс сначала сдвигается на него
+    private long currentTime() {
+        long now = clock.millis();
+        if (now / HOUR_MILLIS > currentHour) {
+            advance(now);
+        }
+        return now;
+    }
+
+    // Смена часа: из суточного окна выпадает час h-24, из недельного - h-168, слот которого освобождается.
+    // Слоты очищаются до публикации нового часа, поэтому лайк нового часа не потеряет отметку в своем слоте
+    private void advance(long now) {
+        advancing.lock();
+        try {
+            long hour = now / HOUR_MILLIS;
+            long from = currentHour;
+            if (hour <= from) {
+                return;
+            }
+            IntSet affected = new IntSet();
+            if (hour - from >= WEEK_HOURS) {
+                for (IntSet films : activeByHour) {
+                    affected.addAll(films);
+                    films.clear();
+                }
+            } else {
+                for (long h = from + 1; h <= hour; h++) {
+                    affected.addAll(activeByHour[slot(h - TrendWindow.DAY.hours())]);
+                    affected.addAll(activeByHour[slot(h)]);
+                    activeByHour[slot(h)].clear();
+                }
+            }
+            long cutoff = (hour - WEEK_HOURS + 1) * HOUR_MILLIS;
+            for (int filmId : affected.toIntArray()) {
+                FilmTrend trend = trends.get(filmId);
+                if (trend == null) {
+                    continue;
+                }
+                synchronized (trend) {
+                    if (trend.removed) {
+                        continue;
+                    }
+                    trend.likedAt.removeOlderThan(cutoff);
+                    if (trend.likedAt.isEmpty()) {
+                        trends.remove(filmId, trend);
+                        drop(trend);
+                    } else {
+                        reindex(trend, hour);
+                    }
+                }
+            }
+            currentHour = hour;
+        } finally {
+            advancing.unlock();
+        }
+    }
+
+    // Логарифм веса лайка: λ(t - t0) вместо exp(λ(t - t0))
+    private double logWeight(long millis) {
+        return decayPerMilli * Math.max(0, millis - landmarkMillis);
+    }
+
+    // log(e^a + e^b) без переполнения
+    private static double logAdd(double a, double b) {
+        if (a == EMPTY_SCORE) {
+            return b;
+        }
+        double max = Math.max(a, b);
+        return max + Math.log1p(Math.exp(Math.min(a, b) - max));
+    }
+
+    // log(e^a - e^b) для b <= a; оставшиеся лайки весят не меньше единицы, поэтому результат не меньше нуля
+    private static double logSubtract(double a, double b) {
+        return Math.max(0, a + Math.log1p(-Math.min(1, Math.exp(b - a))));
+    }
+
+    private void reindex(FilmTrend trend, long hour) {
+        int filmId = trend.filmId;
+        trend.dayKey = reposition(byDay, trend.dayKey, countKey(trend.sum(hour, TrendWindow.DAY.hours()), filmId));
+        trend.weekKey = reposition(byWeek, trend.weekKey, countKey(trend.sum(hour, TrendWindow.WEEK.hours()), filmId));
+        trend.scoreKey = reposition(byScore, trend.scoreKey, scoreKey(trend.score, filmId));
+    }
+
+    private void drop(FilmTrend trend) {
+        trend.removed = true;
+        trend.dayKey = reposition(byDay, trend.dayKey, NOT_INDEXED);
+        trend.weekKey = reposition(byWeek, trend.weekKey, NOT_INDEXED);
+        trend.scoreKey = reposition(byScore, trend.scoreKey, NOT_INDEXED);
+    }
+
+    private static long reposition(NavigableSet<Long> index, long oldKey, long newKey) {
+        if (oldKey == newKey) {
+            return oldKey;
+        }
+        if (oldKey != NOT_INDEXED) {
+            index.remove(oldKey);
+        }
+        if (newKey != NOT_INDEXED) {
+            index.add(newKey);
+        }
+        return newKey;
+    }
+
+    private static long countKey(int count, int filmId) {
+        return count <= 0 ? NOT_INDEXED : ((long) count << 32) | (Integer.MAX_VALUE - filmId);
+    }
+
+    // Логарифм рейтинга фильма с лайками не меньше нуля. Для неотрицательных float порядок битового представления совпадает с порядком значений
+    private static long scoreKey(double score, int filmId) {
+        return score == EMPTY_SCORE ? NOT_INDEXED : ((long) Float.floatToIntBits((float) score) << 32) | (Integer.MAX_VALUE - filmId);
+    }
+
+    private static int slot(long hour) {
+        return Math.floorMod(hour, WEEK_HOURS);
+    }
+
+    // Состояние одного фильма, защищено его монитором
+    private static final class FilmTrend {
+        private final int filmId;
+        private final int[] hourly = new int[WEEK_HOURS];
+        // Когда каждый пользователь поставил лайк (только за последнюю неделю) - чтобы снять его вклад при удалении
+        private final LikeTimes likedAt = new LikeTimes();
+        private long newestHour = Long.MIN_VALUE;
+        private double score = EMPTY_SCORE;
+        private long dayKey = NOT_INDEXED;
+        private long weekKey = NOT_INDEXED;
+        private long scoreKey = NOT_INDEXED;
+        private boolean removed;
+
+        private FilmTrend(int filmId) {
+            this.filmId = filmId;
+        }
+
+        // Слоты кольца, через которые перешагнул новый час, обнуляются лениво
+        private void add(long hour, int delta) {
+            if (hour > newestHour) {
+                long from = newestHour == Long.MIN_VALUE ? hour - WEEK_HOURS + 1
+                        : Math.max(newestHour + 1, hour - WEEK_HOURS + 1);
+                for (long h = from; h <= hour; h++) {
+                    hourly[slot(h)] = 0;
+                }
+                newestHour = hour;
+            }
+            if (hour > newestHour - WEEK_HOURS) {
+                hourly[slot(hour)] += delta;
+            }
+        }
+
+        private int sum(long hour, int hours) {
+            long from = Math.max(hour - hours + 1, newestHour - WEEK_HOURS + 1);
+            long to = Math.min(hour, newestHour);
+            int total = 0;
+            for (long h = from; h <= to; h++) {
+                total += hourly[slot(h)];
+            }
+            return total;
+        }
+    }
+}
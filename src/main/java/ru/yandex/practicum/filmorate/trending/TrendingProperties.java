@@ -0,0 +1,12 @@
+package ru.yandex.practicum.filmorate.trending;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.time.Duration;
+
+@ConfigurationProperties(prefix = "filmorate.trending")
+public record TrendingProperties(
+        // За это время вклад лайка в трендовый рейтинг уменьшается вдвое
+        @DefaultValue("24h") Duration halfLife) {
+}
@@ -0,0 +1,133 @@
+package ru.yandex.practicum.filmorate.validation;
+
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.User;
+
+import java.net.IDN;
+import java.time.LocalDate;
+import java.util.regex.Pattern;
+
+// Единственное место проверки фильмов и пользователей: прежние ограничения Bean Validation на модели
+// и ручные проверки сервисов сведены в одни правила (действовало их пересечение, оно и сохранено)
+public final class EntityValidators {
+    private static final LocalDate FIRST_FILM_DATE = LocalDate.of(1895, 12, 28);
+    private static final int MAX_DESCRIPTION_LENGTH = 200;
+
+    // Правила @Email из Hibernate Validator, которые действовали до EntityValidators. Квантификаторы захватывающие:
+    // проверка не откатывается и линейна по длине строки
+    private static final int MAX_LOCAL_PART_LENGTH = 64;
+    private static final int MAX_DOMAIN_LENGTH = 255;
+    private static final int MAX_LABEL_LENGTH = 63;
+    private static final String LOCAL_ATOM = "[a-z0-9!#$%&'*+/=?^_`{|}~\u0080-\uFFFF-]++";
+    private static final String LOCAL_QUOTED =
+            "\"(?:[a-z0-9!#$%&'*.(),<>\\[\\]:; @+/=?^_`{|}~\u0080-\uFFFF-]|\\\\\\\\|\\\\\")++\"";
+    private static final String LOCAL_WORD = "(?:" + LOCAL_ATOM + "|" + LOCAL_QUOTED + ")";
+    private static final Pattern LOCAL_PART = Pattern.compile(LOCAL_WORD + "(?:\\." + LOCAL_WORD + ")*+",
+            Pattern.CASE_INSENSITIVE);
+    private static final String DOMAIN_CHAR = "[a-z\u0080-\uFFFF0-9!#$%&'*+/=?^_`{|}~]";
+    // Дефисы только внутри метки
+    private static final String DOMAIN_LABEL = DOMAIN_CHAR + "++(?:-++" + DOMAIN_CHAR + "++)*+";
+    private static final String IP_V4 = "[0-9]{1,3}(?:\\.[0-9]{1,3}){3}";
+    private static final String IP_V6_PART = "[0-9a-f]{1,4}";
+    private static final String IP_V6_BYTE = "(?:25[0-5]|(?:2[0-4]|1?[0-9])?[0-9])";
+    private static final String IP_V6 = "(?:(?:" + IP_V6_PART + ":){7}" + IP_V6_PART
+            + "|(?:" + IP_V6_PART + ":){1,7}:"
+            + "|(?:" + IP_V6_PART + ":){1,6}:" + IP_V6_PART
+            + "|(?:" + IP_V6_PART + ":){1,5}(?::" + IP_V6_PART + "){1,2}"
+            + "|(?:" + IP_V6_PART + ":){1,4}(?::" + IP_V6_PART + "){1,3}"
+            + "|(?:" + IP_V6_PART + ":){1,3}(?::" + IP_V6_PART + "){1,4}"
+            + "|(?:" + IP_V6_PART + ":){1,2}(?::" + IP_V6_PART + "){1,5}"
+            + "|" + IP_V6_PART + ":(?::" + IP_V6_PART + "){1,6}"
+            + "|:(?:(?::" + IP_V6_PART + "){1,7}|:)"
+            + "|fe80:(?::[0-9a-f]{0,4}){0,4}%[0-9a-z]+"
+            + "|::(?:ffff(?::0{1,4})?:)?(?:" + IP_V6_BYTE + "\\.){3}" + IP_V6_BYTE
+            + "|(?:" + IP_V6_PART + ":){1,4}:(?:" + IP_V6_BYTE + "\\.){3}" + IP_V6_BYTE + ")";
+    private static final Pattern DOMAIN = Pattern.compile(DOMAIN_LABEL + "(?:\\." + DOMAIN_LABEL + ")*+"
+            + "|\\[" + IP_V4 + "\\]|\\[IPv6:" + IP_V6 + "\\]", Pattern.CASE_INSENSITIVE);
+
+    // Правило "в прошлом" опирается на предыдущее: до него дата уже проверена на null
+    public static final Validator<Film> FILM = Validator.<Film>builder("film", "Фильм не может быть null")
+            .rule("name", "Имя фильма не может быть пустым",
+                    film -> film.getName() != null && !film.getName().isBlank())
+            .rule("description", "Длина описания фильма должна быть до 200 символов",
+                    film -> film.getDescription() != null && film.getDescription().length() <= MAX_DESCRIPTION_LENGTH)
+            .rule("releaseDate", "Дата релиза фильма не может быть раньше 28 декабря 1895 года",
+                    film -> film.getReleaseDate() != null && !film.getReleaseDate().isBefore(FIRST_FILM_DATE))
+            .rule("releaseDate", "Дата релиза фильма должна быть в прошлом",
+                    film -> film.getReleaseDate().isBefore(Today.get()))
+            .rule("duration", "Продолжительность фильма должна быть положительной",
+                    film -> film.getDuration() > 0)
+            .build();
+
+    public static final Validator<User> USER = Validator.<User>builder("user", "Пользователь не может быть null")
+            .rule("email", "Невалидный email", user -> isEmail(user.getEmail()))
+            .rule("login", "Невалидный логин", user -> isLogin(user.getLogin()))
+            .rule("birthday", "Невалидная дата рождения",
+                    user -> user.getBirthday() != null && user.getBirthday().isBefore(Today.get()))
+            .build();
+
+    private EntityValidators() {
+    }
+
+    // Как @Email вместе с @NotBlank: локальная часть до последнего '@' - атомы или строки в кавычках через точку,
+    // не длиннее 64 символов; домен - метки через точку или IP-литерал в скобках, в ASCII-форме (IDN)
+    // не длиннее 255 символов, метка не длиннее 63. Точка в домене не обязательна: user@localhost корректен
+    static boolean isEmail(String email) {
+        if (email == null || email.isBlank()) {
+            return false;
+        }
+        int at = email.lastIndexOf('@');
+        if (at < 0 || at > MAX_LOCAL_PART_LENGTH || email.endsWith(".")
+                || !LOCAL_PART.matcher(email).region(0, at).matches()
+                || !DOMAIN.matcher(email).region(at + 1, email.length()).matches()) {
+            return false;
+        }
+        return isAscii(email, at + 1) ? hasShortLabels(email, at + 1) : hasShortIdnForm(email.substring(at + 1));
+    }
+
+    private static boolean isAscii(String text, int from) {
+        for (int i = from; i < text.length(); i++) {
+            if (text.charAt(i) >= 0x80) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // ASCII-домен IDN не меняет, поэтому его пределы проверяются без преобразования
+    private static boolean hasShortLabels(String email, int from) {
+        if (email.length() - from > MAX_DOMAIN_LENGTH) {
+            return false;
+        }
+        int labelStart = from;
+        for (int i = from; i <= email.length(); i++) {
+            if (i == email.length() || email.charAt(i) == '.') {
+                if (i - labelStart > MAX_LABEL_LENGTH) {
+                    return false;
+                }
+                labelStart = i + 1;
+            }
+        }
+        return true;
+    }
+
+    private static boolean hasShortIdnForm(String domain) {
+        try {
+            return IDN.toASCII(domain).length() <= MAX_DOMAIN_LENGTH;
+        } catch (IllegalArgumentException e) {
+            return false;
+        }
+    }
+
+    static boolean isLogin(String login) {
+        if (login == null || login.isEmpty()) {
+            return false;
+        }
+        for (int i = 0; i < login.length(); i++) {
+            if (Character.isWhitespace(login.charAt(i))) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,30 @@
+package ru.yandex.practicum.filmorate.validation;
+
+import java.time.LocalDate;
+import java.time.ZoneId;
+
+// Текущая дата для правил "в прошлом": вычисляется раз в сутки, проверка сравнивает только миллисекунды
+final class Today {
+    private static volatile Snapshot current = compute();
+
+    private Today() {
+    }
+
+    static LocalDate get() {
+        Snapshot snapshot = current;
+        if (System.currentTimeMillis() >= snapshot.until()) {
+            snapshot = compute();
+            current = snapshot;
+        }
+        return snapshot.date();
+    }
+
+    private static Snapshot compute() {
+        ZoneId zone = ZoneId.systemDefault();
+        LocalDate date = LocalDate.now(zone);
+        return new Snapshot(date, date.plusDays(1).atStartOfDay(zone).toInstant().toEpochMilli());
+    }
+
+    private record Snapshot(LocalDate date, long until) {
+    }
+}
@@ -0,0 +1,81 @@
+package ru.yandex.practicum.filmorate.validation;
+
+import ru.yandex.practicum.filmorate.model.BatchResult;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Predicate;
+
+// Правила сущности, собранные в неизменяемый список один раз. check идет по правилам до первого нарушения и возвращает его
+// (или null) без исключений; нарушения - заранее созданные объекты, поэтому отказ стоит столько же, сколько успех
+public final class Validator<T> {
+    private final Violation ifNull;
+    private final List<Predicate<T>> rules;
+    private final List<Violation> violations;
+
+    private Validator(Violation ifNull, List<Predicate<T>> rules, List<Violation> violations) {
+        this.ifNull = ifNull;
+        this.rules = rules;
+        this.violations = violations;
+    }
+
+    public static <T> Builder<T> builder(String entity, String nullMessage) {
+        return new Builder<>(new Violation(entity, nullMessage));
+    }
+
+    public Violation check(T entity) {
+        if (entity == null) {
+            return ifNull;
+        }
+        for (int i = 0; i < rules.size(); i++) {
+            if (!rules.get(i).test(entity)) {
+                return violations.get(i);
+            }
+        }
+        return null;
+    }
+
+    // Одиночные операции сервисов: нарушение бросается закрепленным за ним исключением
+    public void validate(T entity) {
+        Violation violation = check(entity);
+        if (violation != null) {
+            throw violation.exception();
+        }
+    }
+
+    // Пакет: нарушения дописываются в errors с номером элемента, корректные элементы возвращаются по порядку
+    public List<T> validateAll(List<T> items, List<BatchResult.ItemError> errors) {
+        List<T> valid = new ArrayList<>(items.size());
+        for (int i = 0; i < items.size(); i++) {
+            T item = items.get(i);
+            Violation violation = check(item);
+            if (violation == null) {
+                valid.add(item);
+            } else {
+                errors.add(new BatchResult.ItemError(i, violation.message()));
+            }
+        }
+        return valid;
+    }
+
+    public static final class Builder<T> {
+        private final Violation ifNull;
+        private final List<Predicate<T>> rules = new ArrayList<>();
+        private final List<Violation> violations = new ArrayList<>();
+
+        private Builder(Violation ifNull) {
+            this.ifNull = ifNull;
+        }
+
+        // Правила проверяются в порядке добавления: дешевые и частые - первыми
+        public Builder<T> rule(String field, String message, Predicate<T> valid) {
+            rules.add(valid);
+            violations.add(new Violation(field, message));
+            return this;
+        }
+
+        public Validator<T> build() {
+            return new Validator<>(ifNull, List.copyOf(rules), List.copyOf(violations));
+        }
+    }
+}
@@ -0,0 +1,41 @@
+package ru.yandex.practicum.filmorate.validation;
+
+import java.util.Map;
+
+// Нарушение одного правила. Создается вместе с правилом, поэтому отказ не выделяет памяти:
+// тело ответа и исключение для одиночных операций готовы заранее
+public final class Violation {
+    private final String field;
+    private final String message;
+    private final Map<String, String> body;
+    private final ViolationException exception;
+
+    Violation(String field, String message) {
+        this.field = field;
+        this.message = message;
+        // Та же форма, что отдавал @Valid: {"<поле>": "<сообщение>"}
+        this.body = Map.of(field, message);
+        this.exception = new ViolationException(this);
+    }
+
+    public String field() {
+        return field;
+    }
+
+    public String message() {
+        return message;
+    }
+
+    public Map<String, String> body() {
+        return body;
+    }
+
+    public ViolationException exception() {
+        return exception;
+    }
+
+    @Override
+    public String toString() {
+        return field + ": " + message;
+    }
+}
@@ -0,0 +1,18 @@
+package ru.yandex.practicum.filmorate.validation;
+
+import ru.yandex.practicum.filmorate.exceptions.ValidationException;
+
+// Исключение, закрепленное за нарушением: создается один раз и бросается повторно из любых потоков,
+// поэтому без стека и подавленных исключений - бросок не обходит стек и ничего не выделяет
+public final class ViolationException extends ValidationException {
+    private final transient Violation violation;
+
+    ViolationException(Violation violation) {
+        super(violation.message(), false);
+        this.violation = violation;
+    }
+
+    public Violation getViolation() {
+        return violation;
+    }
+}
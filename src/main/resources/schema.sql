@@ -0,0 +1,41 @@
+CREATE TABLE IF NOT EXISTS users (
+    id       INT AUTO_INCREMENT PRIMARY KEY,
+    email    VARCHAR(255) NOT NULL,
+    login    VARCHAR(255) NOT NULL,
+    name     VARCHAR(255),
+    birthday DATE
+);
+
+CREATE INDEX IF NOT EXISTS users_birthday_idx ON users (birthday, id);
+
+-- like_count хранится в самой таблице, чтобы топ популярных читался по индексу без агрегации
+CREATE TABLE IF NOT EXISTS films (
+    id           INT AUTO_INCREMENT PRIMARY KEY,
+    name         VARCHAR(255) NOT NULL,
+    description  VARCHAR(200),
+    release_date DATE,
+    duration     INT,
+    like_count   INT NOT NULL DEFAULT 0
+);
+
+CREATE INDEX IF NOT EXISTS films_popularity_idx ON films (like_count DESC, id);
+-- Выборки по диапазонам дат и продолжительности
+CREATE INDEX IF NOT EXISTS films_release_date_idx ON films (release_date, id);
+CREATE INDEX IF NOT EXISTS films_duration_idx ON films (duration, id);
+
+CREATE TABLE IF NOT EXISTS likes (
+    film_id INT NOT NULL REFERENCES films (id) ON DELETE CASCADE,
+    user_id INT NOT NULL,
+    PRIMARY KEY (film_id, user_id)
+);
+
+CREATE INDEX IF NOT EXISTS likes_user_idx ON likes (user_id);
+
+-- Дружба симметрична и хранится в обе стороны
+CREATE TABLE IF NOT EXISTS friendships (
+    user_id   INT NOT NULL REFERENCES users (id) ON DELETE CASCADE,
+    friend_id INT NOT NULL REFERENCES users (id) ON DELETE CASCADE,
+    PRIMARY KEY (user_id, friend_id)
+);
+
+CREATE INDEX IF NOT EXISTS friendships_friend_idx ON friendships (friend_id);
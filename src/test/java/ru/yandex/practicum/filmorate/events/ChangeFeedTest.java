@@ -0,0 +1,161 @@
+package ru.yandex.practicum.filmorate.events;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// Чтение ленты по смещениям: продолжение с batch.next, разрыв при отставании больше чем на емкость
+// и сквозная нумерация при одновременных писателях
+class ChangeFeedTest {
+
+    @Test
+    void resumesFromNextOffset() {
+        ChangeFeed feed = new ChangeFeed(8);
+        for (int i = 0; i < 5; i++) {
+            feed.publish(ChangeEvent.Type.LIKE_ADDED, 100 + i, i);
+        }
+
+        ChangeFeed.Batch first = feed.read(0, 3);
+        ChangeFeed.Batch second = feed.read(first.next(), 10);
+        ChangeFeed.Batch empty = feed.read(second.next(), 10);
+
+        assertEquals(List.of(0L, 1L, 2L), offsets(first));
+        assertEquals(3, first.next());
+        assertEquals(List.of(3L, 4L), offsets(second));
+        assertEquals(5, second.next());
+        assertEquals(0, first.missed() + second.missed() + empty.missed());
+        assertTrue(empty.events().isEmpty());
+        assertEquals(5, empty.next());
+        ChangeEvent event = second.events().get(1);
+        assertEquals(ChangeEvent.Type.LIKE_ADDED, event.type());
+        assertEquals(104, event.id());
+        assertEquals(4, event.otherId());
+    }
+
+    @Test
+    void overwrittenOffsetsAreReportedAsGapBeforeEvents() {
+        ChangeFeed feed = new ChangeFeed(8);
+        for (int i = 0; i < 20; i++) {
+            feed.publish(ChangeEvent.Type.FRIEND_ADDED, i, i + 1);
+        }
+
+        ChangeFeed.Batch batch = feed.read(0, 100);
+
+        assertEquals(12, batch.missed());
+        assertEquals(12, feed.oldest());
+        assertEquals(List.of(12L, 13L, 14L, 15L, 16L, 17L, 18L, 19L), offsets(batch));
+        assertEquals(12, batch.events().get(0).id());
+        assertEquals(20, batch.next());
+    }
+
+    @Test
+    void readerThatFellBehindResumesAfterGap() {
+        ChangeFeed feed = new ChangeFeed(8);
+        for (int i = 0; i < 5; i++) {
+            feed.publish(ChangeEvent.Type.FILM_CREATED, i, 0);
+        }
+        ChangeFeed.Batch caughtUp = feed.read(0, 3);
+        for (int i = 5; i < 15; i++) {
+            feed.publish(ChangeEvent.Type.FILM_CREATED, i, 0);
+        }
+
+        ChangeFeed.Batch afterGap = feed.read(caughtUp.next(), 2);
+        ChangeFeed.Batch rest = feed.read(afterGap.next(), 100);
+
+        // Пропущены смещения 3..6: буфер хранит только 7..14
+        assertEquals(4, afterGap.missed());
+        assertEquals(List.of(7L, 8L), offsets(afterGap));
+        assertEquals(0, rest.missed());
+        assertEquals(List.of(9L, 10L, 11L, 12L, 13L, 14L), offsets(rest));
+        assertEquals(15, rest.next());
+    }
+
+    @Test
+    void readingBeforeStartBeginsAtZero() {
+        ChangeFeed feed = new ChangeFeed(8);
+        feed.publish(ChangeEvent.Type.USER_CREATED, 1, 0);
+
+        ChangeFeed.Batch batch = feed.read(-5, 10);
+
+        assertEquals(0, batch.missed());
+        assertEquals(List.of(0L), offsets(batch));
+    }
+
+    // Каждое смещение читатель получает либо событием, либо в разрыве, ровно один раз и по порядку,
+    // а поля события не смешаны с чужой записью
+    @Test
+    void concurrentWritersAreSeenOnceInOffsetOrderOrAsGaps() throws InterruptedException {
+        ChangeFeed feed = new ChangeFeed(64);
+        int writers = 4;
+        int perWriter = 50_000;
+        CountDownLatch start = new CountDownLatch(1);
+        AtomicBoolean failed = new AtomicBoolean();
+        List<Thread> threads = new ArrayList<>();
+        for (int w = 0; w < writers; w++) {
+            int writer = w;
+            threads.add(Thread.ofPlatform().start(() -> {
+                try {
+                    start.await();
+                    for (int i = 0; i < perWriter; i++) {
+                        int value = writer * perWriter + i;
+                        feed.publish(typeOf(value), value, -value);
+                    }
+                } catch (InterruptedException e) {
+                    failed.set(true);
+                }
+            }));
+        }
+        start.countDown();
+
+        long total = (long) writers * perWriter;
+        long next = 0;
+        long seen = 0;
+        long missed = 0;
+        while (next < total) {
+            ChangeFeed.Batch batch = feed.read(next, 16);
+            missed += batch.missed();
+            long expected = next + batch.missed();
+            for (ChangeEvent event : batch.events()) {
+                assertEquals(expected++, event.offset());
+                assertEquals(-event.id(), event.otherId());
+                assertEquals(typeOf(event.id()), event.type());
+                seen++;
+            }
+            next = batch.next();
+            if (batch.events().isEmpty() && batch.missed() == 0) {
+                Thread.onSpinWait();
+            }
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        assertEquals(total, next);
+        assertEquals(total, seen + missed);
+        assertEquals(total, feed.head());
+        assertFalse(failed.get());
+    }
+
+    @Test
+    void capacityMustBePowerOfTwo() {
+        assertThrows(IllegalArgumentException.class, () -> new ChangeFeed(0));
+        assertThrows(IllegalArgumentException.class, () -> new ChangeFeed(100));
+    }
+
+    private static ChangeEvent.Type typeOf(int value) {
+        ChangeEvent.Type[] types = ChangeEvent.Type.values();
+        return types[value % types.length];
+    }
+
+    private static List<Long> offsets(ChangeFeed.Batch batch) {
+        return batch.events().stream().map(ChangeEvent::offset).toList();
+    }
+}
@@ -0,0 +1,58 @@
+package ru.yandex.practicum.filmorate.metrics;
+
+import io.micrometer.prometheusmetrics.PrometheusConfig;
+import io.micrometer.prometheusmetrics.PrometheusMeterRegistry;
+import org.junit.jupiter.api.Test;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.storage.InMemoryFilmStorage;
+import ru.yandex.practicum.filmorate.storage.InMemoryUserStorage;
+
+import java.time.LocalDate;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// Размеры хранилищ в выдаче /actuator/prometheus рядом со счетчиками сервисов с похожими именами
+class StorageMetricsTest {
+
+    @Test
+    void gaugesAreScrapedNextToServiceCounters() {
+        InMemoryFilmStorage films = new InMemoryFilmStorage();
+        InMemoryUserStorage users = new InMemoryUserStorage();
+        int first = users.create(user(1)).getId();
+        int second = users.create(user(2)).getId();
+        int filmId = films.create(film()).getId();
+        films.addLike(filmId, first);
+        users.addFriend(first, second);
+        PrometheusMeterRegistry registry = new PrometheusMeterRegistry(PrometheusConfig.DEFAULT);
+        // Те же счетчики, что регистрируют FilmService и UserService: в Prometheus они становятся *_total
+        registry.counter("filmorate.likes", "action", "added");
+        registry.counter("filmorate.friendships", "action", "added");
+
+        new StorageMetrics(films, users).bindTo(registry);
+        String scrape = registry.scrape();
+
+        assertTrue(scrape.contains("filmorate_likes_stored 1.0"), scrape);
+        assertTrue(scrape.contains("filmorate_friendships_stored 1.0"), scrape);
+        assertTrue(scrape.contains("filmorate_films 1.0"), scrape);
+        assertTrue(scrape.contains("filmorate_users 2.0"), scrape);
+        assertTrue(scrape.contains("filmorate_likes_total{action=\"added\"}"), scrape);
+    }
+
+    private static User user(int index) {
+        User user = new User();
+        user.setEmail("user" + index + "@example.com");
+        user.setLogin("user" + index);
+        user.setBirthday(LocalDate.of(1990, 1, 1));
+        return user;
+    }
+
+    private static Film film() {
+        Film film = new Film();
+        film.setName("Film");
+        film.setDescription("Description");
+        film.setReleaseDate(LocalDate.of(2000, 1, 1));
+        film.setDuration(90);
+        return film;
+    }
+}
@@ -0,0 +1,79 @@
+package ru.yandex.practicum.filmorate.model;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.TreeMap;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class IdTableTest {
+
+    @Test
+    void matchesSortedMapUnderRandomUpdates() {
+        IdTable<String> table = new IdTable<>();
+        TreeMap<Integer, String> expected = new TreeMap<>();
+        SplittableRandom random = new SplittableRandom(42);
+        for (int i = 0; i < 50_000; i++) {
+            int id = random.nextInt(10_000);
+            if (random.nextBoolean()) {
+                assertEquals(expected.put(id, "v" + i), table.put(id, "v" + i));
+            } else {
+                assertEquals(expected.remove(id), table.remove(id));
+            }
+        }
+        assertEquals(expected.size(), table.size());
+        assertEquals(new ArrayList<>(expected.values()), table.values());
+        List<Integer> ids = new ArrayList<>();
+        table.ids(-1).forEachRemaining((int id) -> ids.add(id));
+        assertEquals(new ArrayList<>(expected.keySet()), ids);
+        for (int afterId : new int[]{-5, 0, 1023, 1024, 5000, 9999}) {
+            Map.Entry<Integer, String> next = expected.higherEntry(afterId);
+            assertEquals(next == null ? -1 : next.getKey(), table.nextId(afterId));
+        }
+    }
+
+    @Test
+    void growsToDistantIdsAndSkipsEmptyPages() {
+        IdTable<String> table = new IdTable<>();
+        table.put(3, "a");
+        table.put(5_000_000, "b");
+
+        assertEquals("b", table.get(5_000_000));
+        assertNull(table.get(4_999_999));
+        assertNull(table.get(Integer.MAX_VALUE));
+        assertEquals(5_000_000, table.nextId(3));
+        assertEquals(-1, table.nextId(5_000_000));
+        assertEquals(-1, table.nextId(Integer.MAX_VALUE));
+    }
+
+    @Test
+    void conditionalUpdatesCompareByIdentity() {
+        IdTable<String> table = new IdTable<>();
+        String first = table.computeIfAbsent(7, id -> "film " + id);
+
+        assertSame(first, table.computeIfAbsent(7, id -> "other"));
+        assertSame(first, table.putIfAbsent(7, "other"));
+        assertFalse(table.remove(7, new String("film 7")));
+        assertTrue(table.remove(7, first));
+        assertFalse(table.containsKey(7));
+        assertEquals(0, table.size());
+    }
+
+    @Test
+    void negativeIdsAreAbsentAndCannotBeStored() {
+        IdTable<String> table = new IdTable<>();
+
+        assertNull(table.get(-1));
+        assertNull(table.remove(-1));
+        assertThrows(IllegalArgumentException.class, () -> table.put(-1, "x"));
+    }
+}
@@ -0,0 +1,87 @@
+package ru.yandex.practicum.filmorate.model;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.SplittableRandom;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+// Каждая ветка пересечения (слияние, галопирование, проба массива по карте, AND карт, параллельное деление)
+// сверяется с пересечением, посчитанным в лоб
+class IntSetIntersectionTest {
+    private final SplittableRandom random = new SplittableRandom(42);
+
+    @Test
+    void arraysOfSimilarSizeAreMerged() {
+        check(randomSet(1000, 1 << 20), randomSet(1500, 1 << 20), false, false);
+    }
+
+    @Test
+    void smallArrayGallopsThroughLargeArray() {
+        IntSet small = randomSet(50, 1 << 24);
+        IntSet large = randomSet(20_000, 1 << 24);
+        // Часть меньшего множества гарантированно попадает в большее
+        int[] largeValues = large.toIntArray();
+        for (int i = 0; i < largeValues.length; i += 1000) {
+            small.add(largeValues[i]);
+        }
+        check(small, large, false, false);
+    }
+
+    @Test
+    void arrayIsProbedAgainstBitmap() {
+        check(randomSet(100, 10_000), randomSet(8000, 10_000), false, true);
+    }
+
+    @Test
+    void bitmapsAreAnded() {
+        check(randomSet(5000, 10_000), randomSet(30_000, 40_000), true, true);
+    }
+
+    @Test
+    void largeBitmapsAreAndedInParallel() {
+        check(randomSet(600_000, 1 << 20), randomSet(700_000, 1 << 20), true, true);
+    }
+
+    @Test
+    void largeArraysAreSplitBetweenThreads() {
+        check(randomSet(100_000, Integer.MAX_VALUE), randomSet(120_000, Integer.MAX_VALUE), false, false);
+    }
+
+    @Test
+    void emptyAndSelfIntersections() {
+        IntSet set = randomSet(1000, 5000);
+        assertEquals(0, set.intersect(new IntSet()).length);
+        assertEquals(0, new IntSet().intersect(set).length);
+        assertArrayEquals(set.toIntArray(), set.intersect(set));
+    }
+
+    @Test
+    void negativeValuesAreIntersected() {
+        IntSet first = new IntSet(-10, -3, 0, 5, 7);
+        IntSet second = new IntSet(-3, 5, 9);
+        assertArrayEquals(new int[]{-3, 5}, first.intersect(second));
+    }
+
+    private void check(IntSet first, IntSet second, boolean firstBitmap, boolean secondBitmap) {
+        assertEquals(firstBitmap, first.isBitmap(), "представление первого множества");
+        assertEquals(secondBitmap, second.isBitmap(), "представление второго множества");
+        int[] expected = naive(first.toIntArray(), second.toIntArray());
+        assertArrayEquals(expected, first.intersect(second));
+        assertArrayEquals(expected, second.intersect(first));
+    }
+
+    private IntSet randomSet(int size, int bound) {
+        IntSet set = new IntSet();
+        while (set.size() < size) {
+            set.add(random.nextInt(bound));
+        }
+        return set;
+    }
+
+    private static int[] naive(int[] first, int[] second) {
+        return Arrays.stream(first).filter(value -> Arrays.binarySearch(second, value) >= 0).toArray();
+    }
+}
@@ -0,0 +1,111 @@
+package ru.yandex.practicum.filmorate.model;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.SplittableRandom;
+import java.util.TreeSet;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class IntSetTest {
+
+    @Test
+    void denseSetSwitchesToBitmapAndKeepsContents() {
+        IntSet set = new IntSet();
+        for (int i = 0; i < 1000; i++) {
+            assertTrue(set.add(i));
+        }
+        assertTrue(set.isBitmap());
+        assertFalse(set.add(500));
+        assertEquals(1000, set.size());
+        assertTrue(set.contains(999));
+        assertFalse(set.contains(1000));
+        assertFalse(set.contains(-1));
+        assertEquals(999, set.toIntArray()[999]);
+    }
+
+    @Test
+    void sparseSetStaysArray() {
+        IntSet set = new IntSet();
+        for (int i = 0; i < 1000; i++) {
+            set.add(i * 1000);
+        }
+        assertFalse(set.isBitmap());
+        assertTrue(set.contains(999_000));
+        assertFalse(set.contains(999_001));
+    }
+
+    @Test
+    void largeValueInDenseBitmapSwitchesToArrayInsteadOfGrowing() {
+        IntSet set = new IntSet();
+        for (int i = 0; i < 200; i++) {
+            set.add(i);
+        }
+        assertTrue(set.isBitmap());
+
+        assertTrue(set.add(Integer.MAX_VALUE));
+        assertFalse(set.isBitmap());
+        assertEquals(201, set.size());
+        assertTrue(set.contains(Integer.MAX_VALUE));
+        assertTrue(set.contains(199));
+    }
+
+    @Test
+    void bitmapGrowsWhileItStaysDense() {
+        IntSet set = new IntSet();
+        for (int i = 0; i < 2000; i++) {
+            set.add(i);
+            assertTrue(i < 63 || set.isBitmap(), "плотное множество размера " + (i + 1) + " должно быть картой");
+        }
+    }
+
+    @Test
+    void negativeValueSwitchesBitmapToArray() {
+        IntSet set = new IntSet();
+        for (int i = 0; i < 100; i++) {
+            set.add(i);
+        }
+        assertTrue(set.isBitmap());
+        assertTrue(set.add(-5));
+        assertFalse(set.isBitmap());
+        assertEquals(-5, set.toIntArray()[0]);
+        assertEquals(101, set.size());
+    }
+
+    @Test
+    void removingMostValuesReturnsToArray() {
+        IntSet set = new IntSet();
+        for (int i = 0; i < 1000; i++) {
+            set.add(i);
+        }
+        for (int i = 0; i < 990; i++) {
+            assertTrue(set.remove(i));
+        }
+        assertFalse(set.isBitmap());
+        assertArrayEquals(new int[]{990, 991, 992, 993, 994, 995, 996, 997, 998, 999}, set.toIntArray());
+        assertFalse(set.remove(0));
+    }
+
+    @Test
+    void randomOperationsMatchTreeSet() {
+        SplittableRandom random = new SplittableRandom(42);
+        IntSet set = new IntSet();
+        TreeSet<Integer> expected = new TreeSet<>();
+        for (int i = 0; i < 200_000; i++) {
+            // Диапазон меняется, чтобы множество переходило между массивом и картой в обе стороны
+            int bound = (i / 20_000) % 2 == 0 ? 4096 : 1 << 24;
+            int value = random.nextInt(bound);
+            if (random.nextInt(3) == 0) {
+                assertEquals(expected.remove(value), set.remove(value));
+            } else {
+                assertEquals(expected.add(value), set.add(value));
+            }
+        }
+        assertEquals(expected.size(), set.size());
+        assertArrayEquals(expected.stream().mapToInt(Integer::intValue).toArray(), set.toIntArray());
+        assertEquals(expected.hashCode(), set.hashCode());
+    }
+}
@@ -0,0 +1,78 @@
+package ru.yandex.practicum.filmorate.recommendations;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+
+// Пределы пересчета: буфер событий, лайки пользователя в матрице, ширина строки
+class FilmRecommenderTest {
+
+    @Test
+    void fullBufferIsAppliedByLikingThread() {
+        FilmRecommender recommender = recommender(200, 2000, 4);
+        recommender.likeAdded(1, 1);
+        recommender.likeAdded(2, 1);
+        recommender.likeAdded(1, 2);
+        recommender.likeAdded(3, 3);
+        // Пятое событие не помещается: первые четыре применяются без вызова refresh
+        recommender.likeAdded(3, 4);
+        assertArrayEquals(new int[]{2}, recommender.recommend(2, 10));
+    }
+
+    @Test
+    void likesBeyondLimitDoNotEnterMatrix() {
+        FilmRecommender recommender = recommender(2, 2000, 1000);
+        recommender.likeAdded(1, 1);
+        recommender.likeAdded(2, 1);
+        recommender.likeAdded(3, 1);
+        recommender.likeAdded(1, 2);
+        recommender.refresh();
+        assertArrayEquals(new int[]{2}, recommender.recommend(2, 10));
+
+        // Снятие неучтенного лайка матрицу не трогает, снятие учтенного - убирает его пары
+        recommender.likeRemoved(3, 1);
+        recommender.likeRemoved(2, 1);
+        recommender.refresh();
+        assertArrayEquals(new int[0], recommender.recommend(2, 10));
+    }
+
+    @Test
+    void rowKeepsMostCoLikedFilms() {
+        FilmRecommender recommender = recommender(200, 2, 1000);
+        // С фильмом 1 вместе лайкали: 2 - трижды, 3 - дважды, 4, 5, 6 - по разу
+        int[][] likes = {{1, 2, 3, 4}, {1, 2, 3, 5}, {1, 2, 6}};
+        for (int user = 0; user < likes.length; user++) {
+            for (int filmId : likes[user]) {
+                recommender.likeAdded(filmId, user + 1);
+            }
+        }
+        recommender.likeAdded(1, 10);
+        recommender.refresh();
+        assertArrayEquals(new int[]{2, 3}, recommender.recommend(10, 10));
+    }
+
+    @Test
+    void heavilyCoLikedPairRanksFirst() {
+        FilmRecommender recommender = recommender(200, 2000, 1_000_000);
+        // 3000 совместных лайков у пары 1-2 - больше 2147, где SIMILARITY_SCALE * together переполнял int
+        int user = 1;
+        for (; user <= 3000; user++) {
+            recommender.likeAdded(1, user);
+            recommender.likeAdded(2, user);
+        }
+        for (int last = user + 10; user < last; user++) {
+            recommender.likeAdded(1, user);
+            recommender.likeAdded(3, user);
+        }
+        recommender.likeAdded(1, user);
+        recommender.refresh();
+        assertArrayEquals(new int[]{2, 3}, recommender.recommend(user, 10));
+    }
+
+    private static FilmRecommender recommender(int maxUserLikes, int maxRowSize, int maxPending) {
+        return new FilmRecommender(new FilmRecommendationProperties(50, maxUserLikes, maxRowSize, maxPending, 100,
+                Duration.ZERO));
+    }
+}
@@ -0,0 +1,21 @@
+package ru.yandex.practicum.filmorate.recommendations;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class IntCounterTest {
+
+    @Test
+    void cappedSumStopsAtMaxValueInsteadOfWrapping() {
+        IntCounter counter = new IntCounter(4);
+        for (int i = 0; i < 3000; i++) {
+            counter.addCapped(1, 1_000_000);
+        }
+        counter.addCapped(2, 1_000_000);
+
+        assertEquals(Integer.MAX_VALUE, counter.get(1));
+        assertArrayEquals(new int[]{1, 2}, counter.top(2));
+    }
+}
@@ -0,0 +1,145 @@
+package ru.yandex.practicum.filmorate.search;
+
+import org.junit.jupiter.api.Test;
+import ru.yandex.practicum.filmorate.model.Film;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.TreeSet;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+// Выдача с остановкой по слоям лайков сверяется с полным перебором; продолжения префикса - по частоте
+class FilmSearchIndexTest {
+    private static final char[] LETTERS = {'a', 'b', 'c'};
+
+    @Test
+    void frequentCompletionIsNotCutOffByAlphabet() {
+        FilmSearchIndex index = new FilmSearchIndex();
+        int id = 1;
+        // 70 редких продолжений идут по алфавиту раньше частого "pzz"
+        for (int i = 0; i < 70; i++) {
+            index.index(film(id++, String.format("p%02d", i), ""));
+        }
+        for (int i = 0; i < 3; i++) {
+            index.index(film(id++, "pzz", ""));
+        }
+        assertArrayEquals(new int[]{71, 72, 73}, index.search("pz", 10));
+        // Из 71 продолжения берутся 64: частое и 63 редких
+        int[] found = index.search("p", 100);
+        assertEquals(66, found.length);
+        assertArrayEquals(new int[]{71, 72, 73}, Arrays.copyOfRange(found, 63, 66));
+    }
+
+    @Test
+    void earlyStopMatchesFullScan() {
+        Random random = new Random(17);
+        FilmSearchIndex index = new FilmSearchIndex();
+        Map<Integer, Film> films = new HashMap<>();
+        Map<Integer, Integer> likes = new HashMap<>();
+        for (int id = 1; id <= 2_000; id++) {
+            Film film = film(id, text(random, 2), text(random, 5));
+            films.put(id, film);
+            index.index(film);
+            int count = random.nextInt(3) == 0 ? 0 : random.nextInt(1 << random.nextInt(14));
+            index.likesChanged(id, count);
+            likes.put(id, count);
+        }
+        // Переходы через границы слоев по одному лайку
+        for (int i = 0; i < 5_000; i++) {
+            int id = 1 + random.nextInt(films.size());
+            if (random.nextBoolean()) {
+                index.likeAdded(id);
+                likes.merge(id, 1, Integer::sum);
+            } else if (likes.get(id) > 0) {
+                index.likeRemoved(id);
+                likes.merge(id, -1, Integer::sum);
+            }
+        }
+        for (int i = 0; i < 600; i++) {
+            // Одно слово, слово и префикс, два слова и префикс: проходы по продолжениям и по точному слову
+            String query = switch (random.nextInt(3)) {
+                case 0 -> word(random);
+                case 1 -> word(random) + " " + word(random).substring(0, 1);
+                default -> word(random) + " " + word(random) + " " + word(random);
+            };
+            int limit = 1 + random.nextInt(20);
+            assertArrayEquals(fullScan(films, likes, query, limit), index.search(query, limit), query);
+        }
+    }
+
+    // Та же формула релевантности, что в индексе, но по всем фильмам
+    private static int[] fullScan(Map<Integer, Film> films, Map<Integer, Integer> likes, String query, int limit) {
+        List<String> tokens = Tokenizer.tokens(query);
+        String prefix = tokens.get(tokens.size() - 1);
+        List<float[]> scored = new ArrayList<>();
+        for (Film film : films.values()) {
+            Set<String> title = new TreeSet<>();
+            Tokenizer.addTokens(film.getName(), title);
+            Set<String> all = new TreeSet<>(title);
+            Tokenizer.addTokens(film.getDescription(), all);
+            float relevance = 0;
+            boolean matches = true;
+            for (String token : tokens.subList(0, tokens.size() - 1)) {
+                if (!all.contains(token)) {
+                    matches = false;
+                    break;
+                }
+                relevance += title.contains(token) ? 3f : 1f;
+            }
+            float prefixRelevance = 0;
+            if (all.contains(prefix)) {
+                prefixRelevance = title.contains(prefix) ? 3f : 1f;
+            } else {
+                for (String term : all) {
+                    if (term.startsWith(prefix)) {
+                        prefixRelevance = Math.max(prefixRelevance, title.contains(term) ? 3f : 1f);
+                    }
+                }
+                prefixRelevance *= 0.5f;
+            }
+            if (!matches || prefixRelevance == 0) {
+                continue;
+            }
+            float score = relevance + prefixRelevance + 0.5f * (float) Math.log1p(likes.get(film.getId()));
+            scored.add(new float[]{score, film.getId()});
+        }
+        scored.sort(Comparator.<float[]>comparingDouble(entry -> -entry[0]).thenComparingDouble(entry -> entry[1]));
+        return scored.stream().limit(limit).mapToInt(entry -> (int) entry[1]).toArray();
+    }
+
+    // Слова из 1-3 букв алфавита из трех букв: продолжений у префикса меньше предела
+    private static String word(Random random) {
+        StringBuilder word = new StringBuilder();
+        for (int length = 1 + random.nextInt(3); length > 0; length--) {
+            word.append(LETTERS[random.nextInt(LETTERS.length)]);
+        }
+        return word.toString();
+    }
+
+    private static String text(Random random, int words) {
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < words; i++) {
+            text.append(word(random)).append(' ');
+        }
+        return text.toString();
+    }
+
+    private static Film film(int id, String name, String description) {
+        Film film = new Film();
+        film.setId(id);
+        film.setName(name);
+        film.setDescription(description);
+        film.setReleaseDate(LocalDate.of(2000, 1, 1));
+        film.setDuration(90);
+        return film;
+    }
+}
@@ -0,0 +1,68 @@
+package ru.yandex.practicum.filmorate.services;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import ru.yandex.practicum.filmorate.events.ChangeFeed;
+import ru.yandex.practicum.filmorate.model.BatchResult;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.Like;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.recommendations.FilmRecommendationProperties;
+import ru.yandex.practicum.filmorate.recommendations.FilmRecommender;
+import ru.yandex.practicum.filmorate.search.FilmSearchIndex;
+import ru.yandex.practicum.filmorate.storage.InMemoryFilmStorage;
+import ru.yandex.practicum.filmorate.storage.InMemoryUserStorage;
+import ru.yandex.practicum.filmorate.trending.TrendingIndex;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+// Пакет лайков: каждый элемент попадает ровно в одну из групп - принятые, отклоненные, повторы
+class FilmServiceTest {
+    private final InMemoryFilmStorage films = new InMemoryFilmStorage();
+    private final InMemoryUserStorage users = new InMemoryUserStorage();
+    private final ChangeFeed changeFeed = new ChangeFeed(64);
+    private final FilmService filmService = new FilmService(films, users, new SimpleMeterRegistry(),
+            new TrendingIndex(Duration.ofHours(24), Clock.systemUTC()),
+            new FilmRecommender(new FilmRecommendationProperties(50, 200, 2000, 1_000_000, 100, Duration.ZERO)),
+            new FilmSearchIndex(), changeFeed);
+
+    @Test
+    void batchReportsDuplicateLikesSeparately() {
+        films.create(film());
+        users.create(user(1));
+        users.create(user(2));
+        filmService.addLike(1, 1);
+
+        // Пары: уже поставленный лайк, новый, его повтор, несуществующий фильм, несуществующий пользователь
+        BatchResult result = filmService.addLikes(List.of(new Like(1, 1), new Like(1, 2), new Like(1, 2),
+                new Like(5, 1), new Like(1, 9)));
+
+        assertEquals(1, result.accepted());
+        assertEquals(2, result.rejected());
+        assertEquals(2, result.duplicates());
+        assertEquals(List.of(3, 4), result.errors().stream().map(BatchResult.ItemError::index).toList());
+        assertEquals(2, changeFeed.read(0, 10).events().size());
+    }
+
+    private static Film film() {
+        Film film = new Film();
+        film.setName("Film");
+        film.setDescription("Description");
+        film.setReleaseDate(LocalDate.of(2000, 1, 1));
+        film.setDuration(90);
+        return film;
+    }
+
+    private static User user(int index) {
+        User user = new User();
+        user.setEmail("user" + index + "@example.com");
+        user.setLogin("user" + index);
+        user.setBirthday(LocalDate.of(1990, 1, 1));
+        return user;
+    }
+}
@@ -0,0 +1,139 @@
+package ru.yandex.practicum.filmorate.services;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import ru.yandex.practicum.filmorate.events.ChangeFeed;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.recommendations.FilmRecommendationProperties;
+import ru.yandex.practicum.filmorate.recommendations.FilmRecommender;
+import ru.yandex.practicum.filmorate.recommendations.FriendRecommender;
+import ru.yandex.practicum.filmorate.recommendations.RecommendationProperties;
+import ru.yandex.practicum.filmorate.search.FilmSearchIndex;
+import ru.yandex.practicum.filmorate.storage.InMemoryFilmStorage;
+import ru.yandex.practicum.filmorate.storage.InMemoryUserStorage;
+import ru.yandex.practicum.filmorate.trending.TrendingIndex;
+
+import java.lang.management.ManagementFactory;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// Выделение памяти на прогретом пути лайков и дружбы, через сервисы со всеми индексами, как в приложении.
+// Дружба не выделяет ничего; запас на операцию покрывает редкое расширение массивов IntSet.
+// Лайк и его снятие переставляют фильм в четырех skip-list: индексе популярности хранилища и трех индексах трендов
+// (сутки, неделя, рейтинг). Перестановка ключа в ConcurrentSkipListSet - новый Long и узел, маркер удаления
+// старого узла и в среднем треть индексного узла, около 110 байт. Упорядоченного конкурентного индекса без узлов
+// в проекте нет, поэтому для лайков бюджет - ровно эти перестановки; все остальное на пути лайка не выделяет
+class MutationAllocationTest {
+    private static final int ENTITIES = 2000;
+    private static final int OPERATIONS = 20_000;
+    private static final int WARMUP_ROUNDS = 10;
+    private static final long FRIEND_BYTES_PER_OPERATION = 8;
+    private static final int REPOSITIONS_PER_LIKE = 4;
+    private static final long BYTES_PER_REPOSITION = 128;
+
+    private FilmRecommender filmRecommender;
+    private FilmService filmService;
+    private UserService userService;
+
+    @BeforeEach
+    void setUp() {
+        InMemoryUserStorage users = new InMemoryUserStorage();
+        InMemoryFilmStorage films = new InMemoryFilmStorage();
+        for (int i = 0; i < ENTITIES; i++) {
+            users.create(user(i));
+            films.create(film(i));
+        }
+        filmRecommender = new FilmRecommender(new FilmRecommendationProperties(50, 200, 2000, 1_000_000, 100,
+                Duration.ZERO));
+        FilmSearchIndex searchIndex = new FilmSearchIndex();
+        searchIndex.indexAll(films.getAllFilms());
+        filmService = new FilmService(films, users, new SimpleMeterRegistry(),
+                new TrendingIndex(Duration.ofHours(24), Clock.fixed(Instant.parse("2024-01-01T12:30:00Z"), ZoneOffset.UTC)),
+                filmRecommender, searchIndex, new ChangeFeed(65_536));
+        userService = new UserService(users, new SimpleMeterRegistry(),
+                new FriendRecommender(users, new RecommendationProperties(1000, 64, 100, false, 0)), filmService,
+                new ChangeFeed(65_536));
+        // Пользователь 1 лайкает все фильмы: тогда лайк меняет уже стоящие в индексах ключи, а не добавляет первые
+        for (int filmId = 1; filmId <= ENTITIES; filmId++) {
+            filmService.addLike(filmId, 1);
+        }
+    }
+
+    @Test
+    void friendAndUnfriendAllocateNothing() {
+        for (int round = 0; round < WARMUP_ROUNDS; round++) {
+            friendAndUnfriend();
+        }
+
+        long perOperation = friendAndUnfriend() / OPERATIONS;
+
+        assertTrue(perOperation <= FRIEND_BYTES_PER_OPERATION,
+                "Дружба выделяет " + perOperation + " байт на пару операций");
+    }
+
+    @Test
+    void likeAndUnlikeAllocateOnlySkipListNodes() {
+        // Пересчет рекомендаций в приложении идет фоновым потоком; здесь он вызывается между прогонами,
+        // чтобы буфер событий достиг рабочего размера
+        for (int round = 0; round < WARMUP_ROUNDS; round++) {
+            likeAndUnlike();
+            filmRecommender.refresh();
+        }
+
+        long perOperation = likeAndUnlike() / OPERATIONS;
+
+        long budget = 2 * REPOSITIONS_PER_LIKE * BYTES_PER_REPOSITION;
+        assertTrue(perOperation <= budget, "Лайк и его снятие выделяют " + perOperation + " байт, бюджет " + budget);
+    }
+
+    private long friendAndUnfriend() {
+        long start = allocatedBytes();
+        for (int i = 0; i < OPERATIONS; i++) {
+            int userId = 1 + i % ENTITIES;
+            int friendId = 1 + (userId + i * 17 % (ENTITIES - 1)) % ENTITIES;
+            userService.addFriend(userId, friendId);
+            userService.deleteFriend(userId, friendId);
+        }
+        return allocatedBytes() - start;
+    }
+
+    private long likeAndUnlike() {
+        long start = allocatedBytes();
+        for (int i = 0; i < OPERATIONS; i++) {
+            int filmId = 1 + i * 31 % ENTITIES;
+            int userId = 2 + i * 17 % (ENTITIES - 1);
+            filmService.addLike(filmId, userId);
+            filmService.removeLike(filmId, userId);
+        }
+        return allocatedBytes() - start;
+    }
+
+    private static long allocatedBytes() {
+        return ((com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean()).getCurrentThreadAllocatedBytes();
+    }
+
+    private static User user(int index) {
+        User user = new User();
+        user.setEmail("user" + index + "@example.com");
+        user.setLogin("user" + index);
+        user.setName("User " + index);
+        user.setBirthday(LocalDate.of(1990, 1, 1));
+        return user;
+    }
+
+    private static Film film(int index) {
+        Film film = new Film();
+        film.setName("Film " + index);
+        film.setDescription("Description");
+        film.setReleaseDate(LocalDate.of(2000, 1, 1));
+        film.setDuration(90);
+        return film;
+    }
+}
@@ -0,0 +1,84 @@
+package ru.yandex.practicum.filmorate.services;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import ru.yandex.practicum.filmorate.events.ChangeEvent;
+import ru.yandex.practicum.filmorate.events.ChangeFeed;
+import ru.yandex.practicum.filmorate.model.BatchResult;
+import ru.yandex.practicum.filmorate.model.Friendship;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.recommendations.FilmRecommendationProperties;
+import ru.yandex.practicum.filmorate.recommendations.FilmRecommender;
+import ru.yandex.practicum.filmorate.recommendations.FriendRecommender;
+import ru.yandex.practicum.filmorate.recommendations.RecommendationProperties;
+import ru.yandex.practicum.filmorate.search.FilmSearchIndex;
+import ru.yandex.practicum.filmorate.storage.InMemoryFilmStorage;
+import ru.yandex.practicum.filmorate.storage.InMemoryUserStorage;
+import ru.yandex.practicum.filmorate.trending.TrendingIndex;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+// Повторное добавление и снятие отсутствующей дружбы не попадают ни в ленту изменений, ни в счетчики;
+// пакет отчитывается о них отдельно от принятых и отклоненных
+class UserServiceTest {
+    private final InMemoryUserStorage users = new InMemoryUserStorage();
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private final ChangeFeed changeFeed = new ChangeFeed(64);
+    private final UserService userService = new UserService(users, registry,
+            new FriendRecommender(users, new RecommendationProperties(1000, 64, 100, false, 0)),
+            new FilmService(new InMemoryFilmStorage(), users, new SimpleMeterRegistry(),
+                    new TrendingIndex(Duration.ofHours(24), Clock.systemUTC()),
+                    new FilmRecommender(new FilmRecommendationProperties(50, 200, 2000, 1_000_000, 100,
+                            Duration.ZERO)), new FilmSearchIndex(), new ChangeFeed(64)),
+            changeFeed);
+
+    @Test
+    void noOpFriendshipChangesAreNeitherPublishedNorCounted() {
+        users.create(user(1));
+        users.create(user(2));
+
+        userService.addFriend(1, 2);
+        userService.addFriend(2, 1);
+        userService.deleteFriend(1, 2);
+        userService.deleteFriend(2, 1);
+
+        List<ChangeEvent.Type> types = changeFeed.read(0, 10).events().stream().map(ChangeEvent::type).toList();
+        assertEquals(List.of(ChangeEvent.Type.FRIEND_ADDED, ChangeEvent.Type.FRIEND_REMOVED), types);
+        assertEquals(1, registry.counter("filmorate.friendships", "action", "added").count());
+        assertEquals(1, registry.counter("filmorate.friendships", "action", "removed").count());
+    }
+
+    @Test
+    void batchCountsExistingAndRepeatedFriendshipsAsDuplicates() {
+        for (int i = 1; i <= 3; i++) {
+            users.create(user(i));
+        }
+        userService.addFriend(1, 2);
+
+        // Пары: уже друзья, новая, та же новая наоборот, несуществующий пользователь, сам себе
+        BatchResult result = userService.addFriends(List.of(new Friendship(2, 1), new Friendship(1, 3),
+                new Friendship(3, 1), new Friendship(1, 99), new Friendship(2, 2)));
+
+        assertEquals(1, result.accepted());
+        assertEquals(2, result.rejected());
+        assertEquals(2, result.duplicates());
+        assertEquals(List.of(3, 4), result.errors().stream().map(BatchResult.ItemError::index).toList());
+        List<ChangeEvent> events = changeFeed.read(0, 10).events();
+        assertEquals(2, events.size());
+        assertEquals(3, events.get(1).otherId());
+        assertEquals(2, registry.counter("filmorate.friendships", "action", "added").count());
+    }
+
+    private static User user(int index) {
+        User user = new User();
+        user.setEmail("user" + index + "@example.com");
+        user.setLogin("user" + index);
+        user.setBirthday(LocalDate.of(1990, 1, 1));
+        return user;
+    }
+}
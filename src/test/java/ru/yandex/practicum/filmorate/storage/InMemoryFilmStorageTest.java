@@ -0,0 +1,62 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import org.junit.jupiter.api.Test;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.storage.interfaces.PairChanges;
+import ru.yandex.practicum.filmorate.storage.persistence.StorageJournal;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+// Пакет лайков сообщает, какие пары что-то изменили, и пишет в журнал только их; удаление фильма - чьи лайки ушли
+class InMemoryFilmStorageTest {
+
+    @Test
+    void batchReportsAndJournalsOnlyNewLikes() {
+        List<String> journaled = new ArrayList<>();
+        InMemoryFilmStorage storage = new InMemoryFilmStorage(new StorageJournal() {
+            @Override
+            public long likeAdded(int filmId, int userId) {
+                journaled.add(filmId + ":" + userId);
+                return 0;
+            }
+        });
+        storage.create(film());
+        storage.create(film());
+        storage.addLike(1, 10);
+        journaled.clear();
+
+        // Пары: уже существующий лайк, новый, повтор нового в том же пакете, несуществующий фильм, новый
+        PairChanges changes = storage.addLikes(new int[]{1, 1, 1, 5, 2}, new int[]{10, 11, 11, 10, 10});
+
+        assertEquals(BitSet.valueOf(new long[]{0b01000}), changes.missing());
+        assertEquals(BitSet.valueOf(new long[]{0b10010}), changes.added());
+        assertEquals(List.of("1:11", "2:10"), journaled);
+        assertEquals(2, storage.getFilmById(1).orElseThrow().getLikeScore().size());
+        assertEquals(1, storage.getFilmById(2).orElseThrow().getLikeScore().size());
+    }
+
+    @Test
+    void deleteReturnsLikesRemovedWithFilm() {
+        InMemoryFilmStorage storage = new InMemoryFilmStorage();
+        storage.create(film());
+        storage.addLikes(new int[]{1, 1, 1}, new int[]{3, 1, 2});
+
+        assertArrayEquals(new int[]{1, 2, 3}, storage.delete(1));
+        assertArrayEquals(new int[0], storage.getLikedFilmIds(2));
+    }
+
+    private static Film film() {
+        Film film = new Film();
+        film.setName("Film");
+        film.setDescription("Description");
+        film.setReleaseDate(LocalDate.of(2000, 1, 1));
+        film.setDuration(90);
+        return film;
+    }
+}
@@ -0,0 +1,97 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import org.junit.jupiter.api.Test;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.storage.interfaces.PairChanges;
+import ru.yandex.practicum.filmorate.storage.persistence.StorageJournal;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// Дружба сообщает, изменилось ли что-то: повторное добавление и снятие отсутствующей дружбы - не изменения,
+// они не попадают в журнал и не меняют версию пользователей
+class InMemoryUserStorageTest {
+
+    @Test
+    void friendshipChangesAreReportedOnce() {
+        InMemoryUserStorage storage = new InMemoryUserStorage();
+        storage.create(user(1));
+        storage.create(user(2));
+
+        assertTrue(storage.addFriend(1, 2));
+        assertFalse(storage.addFriend(1, 2));
+        assertFalse(storage.addFriend(2, 1));
+        assertEquals(1, storage.getFriendshipCount());
+        assertTrue(storage.removeFriend(2, 1));
+        assertFalse(storage.removeFriend(1, 2));
+        assertEquals(0, storage.getFriendshipCount());
+    }
+
+    @Test
+    void unchangedFriendshipIsNotJournaled() {
+        List<String> journaled = new ArrayList<>();
+        InMemoryUserStorage storage = new InMemoryUserStorage(new StorageJournal() {
+            @Override
+            public long friendAdded(int userId, int friendId) {
+                journaled.add("+" + userId + ":" + friendId);
+                return 0;
+            }
+
+            @Override
+            public long friendRemoved(int userId, int friendId) {
+                journaled.add("-" + userId + ":" + friendId);
+                return 0;
+            }
+        });
+        storage.create(user(1));
+        storage.create(user(2));
+
+        storage.addFriend(1, 2);
+        long version = storage.getVersion();
+        storage.addFriend(2, 1);
+        assertEquals(version, storage.getVersion());
+        storage.removeFriend(1, 2);
+        storage.removeFriend(1, 2);
+
+        assertEquals(List.of("+1:2", "-1:2"), journaled);
+    }
+
+    @Test
+    void batchReportsAndJournalsOnlyNewFriendships() {
+        List<String> journaled = new ArrayList<>();
+        InMemoryUserStorage storage = new InMemoryUserStorage(new StorageJournal() {
+            @Override
+            public long friendAdded(int userId, int friendId) {
+                journaled.add(userId + ":" + friendId);
+                return 0;
+            }
+        });
+        for (int i = 1; i <= 3; i++) {
+            storage.create(user(i));
+        }
+        storage.addFriend(1, 2);
+        journaled.clear();
+
+        // Пары: уже друзья, новая, та же наоборот, несуществующий пользователь
+        PairChanges changes = storage.addFriends(new int[]{2, 1, 3, 1}, new int[]{1, 3, 1, 9});
+
+        assertEquals(BitSet.valueOf(new long[]{0b1000}), changes.missing());
+        assertEquals(BitSet.valueOf(new long[]{0b0010}), changes.added());
+        assertEquals(List.of("1:3"), journaled);
+        assertEquals(2, storage.getFriendshipCount());
+    }
+
+    private static User user(int index) {
+        User user = new User();
+        user.setEmail("user" + index + "@example.com");
+        user.setLogin("user" + index);
+        user.setBirthday(LocalDate.of(1990, 1, 1));
+        return user;
+    }
+}
@@ -0,0 +1,100 @@
+package ru.yandex.practicum.filmorate.storage.persistence;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class FileStorageJournalTest {
+    // Запись лайка: заголовок, тип и два int
+    private static final int LIKE_RECORD_SIZE = FileStorageJournal.HEADER_SIZE + 1 + 8;
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void appendedRecordsAreReadBackInOrder() throws IOException {
+        writeLikes(1, 10);
+
+        List<int[]> likes = readLikes(FileStorageJournal.logFile(directory, 1));
+        assertEquals(10, likes.size());
+        for (int i = 0; i < likes.size(); i++) {
+            assertEquals(i, likes.get(i)[0]);
+            assertEquals(i + 100, likes.get(i)[1]);
+        }
+    }
+
+    @Test
+    void tornTailIsSkipped() throws IOException {
+        writeLikes(1, 10);
+        Path file = FileStorageJournal.logFile(directory, 1);
+        assertEquals(10L * LIKE_RECORD_SIZE, Files.size(file));
+
+        // Сбой посреди последней записи: от нее остались заголовок и часть данных
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+            channel.truncate(Files.size(file) - 3);
+        }
+        assertEquals(9, readLikes(file).size());
+
+        // Обрыв внутри заголовка
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+            channel.truncate(9L * LIKE_RECORD_SIZE + 5);
+        }
+        assertEquals(9, readLikes(file).size());
+    }
+
+    @Test
+    void replayStopsAtCorruptedRecord() throws IOException {
+        writeLikes(1, 10);
+        Path file = FileStorageJournal.logFile(directory, 1);
+        byte[] bytes = Files.readAllBytes(file);
+        bytes[4 * LIKE_RECORD_SIZE + FileStorageJournal.HEADER_SIZE + 2] ^= 0x10;
+        Files.write(file, bytes);
+
+        assertEquals(4, readLikes(file).size());
+    }
+
+    @Test
+    void rotationMovesNewRecordsToNextGeneration() throws IOException {
+        FileStorageJournal journal = new FileStorageJournal(directory, true, 1 << 20);
+        journal.open(1);
+        journal.awaitDurable(journal.likeAdded(1, 1));
+        assertEquals(2, journal.rotate());
+        journal.awaitDurable(journal.likeAdded(2, 2));
+        journal.close();
+
+        List<Path> files = FileStorageJournal.logFiles(directory, 0);
+        assertEquals(List.of(FileStorageJournal.logFile(directory, 1), FileStorageJournal.logFile(directory, 2)), files);
+        assertEquals(1, readLikes(files.get(0)).size());
+        assertEquals(2, readLikes(files.get(1)).get(0)[0]);
+        assertEquals(List.of(FileStorageJournal.logFile(directory, 2)), FileStorageJournal.logFiles(directory, 2));
+    }
+
+    private void writeLikes(long generation, int count) throws IOException {
+        FileStorageJournal journal = new FileStorageJournal(directory, true, 1 << 20);
+        journal.open(generation);
+        long entry = 0;
+        for (int i = 0; i < count; i++) {
+            entry = journal.likeAdded(i, i + 100);
+        }
+        journal.awaitDurable(entry);
+        journal.close();
+    }
+
+    private static List<int[]> readLikes(Path file) throws IOException {
+        List<int[]> likes = new ArrayList<>();
+        FileStorageJournal.read(file, (type, data) -> {
+            assertEquals(FileStorageJournal.LIKE_ADDED, type);
+            likes.add(new int[]{data.getInt(), data.getInt()});
+        });
+        return likes;
+    }
+}
@@ -0,0 +1,118 @@
+package ru.yandex.practicum.filmorate.storage.persistence;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.util.unit.DataSize;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.storage.InMemoryFilmStorage;
+import ru.yandex.practicum.filmorate.storage.InMemoryUserStorage;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// Восстановление из снимка и хвоста журнала; хранилища и журнал собираются так же, как в PersistenceConfiguration
+class PersistenceManagerTest {
+    @TempDir
+    Path directory;
+
+    @Test
+    void stateIsRecoveredFromSnapshotAndLogTail() throws IOException {
+        Node node = start();
+        for (int i = 0; i < 5; i++) {
+            node.films.create(film(i));
+            node.users.create(user(i));
+        }
+        node.films.addLike(1, 1);
+        node.films.addLike(1, 2);
+        node.users.addFriend(1, 2);
+        node.manager.snapshot();
+
+        // Хвост после снимка: только в журнале следующего поколения
+        node.films.addLike(2, 3);
+        node.films.removeLike(1, 2);
+        node.films.delete(5);
+        node.users.addFriend(3, 4);
+        node.users.removeFriend(1, 2);
+        node.manager.shutdown();
+
+        Node recovered = start();
+        assertEquals(4, recovered.films.getFilmCount());
+        assertFalse(recovered.films.getFilmById(5).isPresent());
+        assertArrayEquals(new int[]{1}, recovered.films.getFilmById(1).orElseThrow().getLikeScore().toIntArray());
+        assertArrayEquals(new int[]{3}, recovered.films.getFilmById(2).orElseThrow().getLikeScore().toIntArray());
+        assertArrayEquals(new int[]{4}, recovered.users.getUserById(3).orElseThrow().getFriendsList().toIntArray());
+        assertTrue(recovered.users.getUserById(1).orElseThrow().getFriendsList().isEmpty());
+        assertEquals(1, recovered.films.getPopularFilms(1).get(0).getId());
+        // Новые id продолжают восстановленные
+        assertEquals(6, recovered.films.create(film(6)).getId());
+        recovered.manager.shutdown();
+    }
+
+    @Test
+    void tornLastRecordIsDroppedOnRecovery() throws IOException {
+        Node node = start();
+        node.films.create(film(1));
+        node.users.create(user(1));
+        node.users.create(user(2));
+        node.manager.snapshot();
+        node.films.addLike(1, 1);
+        node.films.addLike(1, 2);
+        node.manager.shutdown();
+
+        // Последний лайк записан не до конца
+        List<Path> logs = FileStorageJournal.logFiles(directory, 0);
+        Path last = logs.get(logs.size() - 1);
+        try (FileChannel channel = FileChannel.open(last, StandardOpenOption.WRITE)) {
+            channel.truncate(Files.size(last) - 1);
+        }
+
+        Node recovered = start();
+        assertArrayEquals(new int[]{1}, recovered.films.getFilmById(1).orElseThrow().getLikeScore().toIntArray());
+        assertEquals(1, recovered.films.getLikeCount());
+        recovered.manager.shutdown();
+    }
+
+    private Node start() throws IOException {
+        PersistenceProperties properties = new PersistenceProperties(true, directory, true, DataSize.ofMegabytes(8),
+                Duration.ofHours(1), DataSize.ofGigabytes(1));
+        FileStorageJournal journal = new FileStorageJournal(directory, true, properties.maxPendingSize().toBytes());
+        InMemoryFilmStorage films = new InMemoryFilmStorage(journal);
+        InMemoryUserStorage users = new InMemoryUserStorage(journal);
+        PersistenceManager manager = new PersistenceManager(properties, journal, films, users);
+        manager.recover();
+        return new Node(films, users, manager);
+    }
+
+    private static Film film(int index) {
+        Film film = new Film();
+        film.setName("Film " + index);
+        film.setDescription("Description " + index);
+        film.setReleaseDate(LocalDate.of(2000, 1, 1).plusDays(index));
+        film.setDuration(90);
+        return film;
+    }
+
+    private static User user(int index) {
+        User user = new User();
+        user.setEmail("user" + index + "@example.com");
+        user.setLogin("user" + index);
+        user.setName("User " + index);
+        user.setBirthday(LocalDate.of(1990, 1, 1));
+        return user;
+    }
+
+    private record Node(InMemoryFilmStorage films, InMemoryUserStorage users, PersistenceManager manager) {
+    }
+}
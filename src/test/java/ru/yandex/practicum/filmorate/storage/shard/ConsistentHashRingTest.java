@@ -0,0 +1,73 @@
+package ru.yandex.practicum.filmorate.storage.shard;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// Доли шардов на подряд идущих id (так их выдает хранилище) и переезд ключей при добавлении шарда.
+// Хеш детерминирован, поэтому пороги проверяются на тех же точках кольца при каждом запуске
+class ConsistentHashRingTest {
+    private static final int IDS = 1_000_000;
+    private static final int VIRTUAL_NODES = 128;
+    // При 128 виртуальных узлах отклонение доли шарда - около 1/sqrt(128), то есть 9%
+    private static final double MAX_SHARE_DEVIATION = 0.15;
+
+    @Test
+    void sequentialIdsSpreadEvenlyAcrossShards() {
+        for (int shards : new int[]{2, 4, 8, 16}) {
+            ConsistentHashRing ring = new ConsistentHashRing(shards, VIRTUAL_NODES);
+            int[] counts = new int[shards];
+            for (int id = 1; id <= IDS; id++) {
+                counts[ring.shardOf(id)]++;
+            }
+
+            double ideal = (double) IDS / shards;
+            for (int shard = 0; shard < shards; shard++) {
+                double share = counts[shard] / ideal;
+                assertTrue(Math.abs(share - 1) <= MAX_SHARE_DEVIATION,
+                        "Шард " + shard + " из " + shards + " получил " + share + " от равной доли");
+            }
+        }
+    }
+
+    @Test
+    void addedShardTakesAboutItsShareOnlyFromOthers() {
+        for (int shards : new int[]{2, 4, 8, 16}) {
+            ConsistentHashRing ring = new ConsistentHashRing(shards, VIRTUAL_NODES);
+            ConsistentHashRing grown = new ConsistentHashRing(shards + 1, VIRTUAL_NODES);
+            int moved = 0;
+            for (int id = 1; id <= IDS; id++) {
+                int before = ring.shardOf(id);
+                int after = grown.shardOf(id);
+                if (before != after) {
+                    assertEquals(shards, after, "id " + id + " переехал не на новый шард");
+                    moved++;
+                }
+            }
+
+            double share = (double) moved / IDS * (shards + 1);
+            assertTrue(Math.abs(share - 1) <= MAX_SHARE_DEVIATION,
+                    "При добавлении шарда к " + shards + " переехало " + moved + " ключей");
+        }
+    }
+
+    @Test
+    void sameIdAlwaysMapsToSameShard() {
+        ConsistentHashRing ring = new ConsistentHashRing(8, VIRTUAL_NODES);
+        ConsistentHashRing copy = new ConsistentHashRing(8, VIRTUAL_NODES);
+
+        for (int id : new int[]{0, 1, 42, Integer.MAX_VALUE, Integer.MIN_VALUE, -1}) {
+            int shard = ring.shardOf(id);
+            assertTrue(shard >= 0 && shard < 8);
+            assertEquals(shard, copy.shardOf(id));
+        }
+    }
+
+    @Test
+    void rejectsEmptyRing() {
+        assertThrows(IllegalArgumentException.class, () -> new ConsistentHashRing(0, VIRTUAL_NODES));
+        assertThrows(IllegalArgumentException.class, () -> new ConsistentHashRing(4, 0));
+    }
+}
@@ -0,0 +1,53 @@
+package ru.yandex.practicum.filmorate.storage.shard;
+
+import org.junit.jupiter.api.Test;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.storage.InMemoryUserStorage;
+
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// Дружба внутри шарда и между шардами сообщает об изменении одинаково
+class ShardedUserStorageTest {
+    private static final int SHARDS = 2;
+    private static final int VIRTUAL_NODES = 128;
+
+    @Test
+    void friendshipChangesAreReportedOnceWithinAndAcrossShards() {
+        ConsistentHashRing ring = new ConsistentHashRing(SHARDS, VIRTUAL_NODES);
+        ShardedUserStorage storage = new ShardedUserStorage(
+                List.of(new InMemoryUserStorage(), new InMemoryUserStorage()), VIRTUAL_NODES);
+        int sameShard = 2;
+        while (ring.shardOf(sameShard) != ring.shardOf(1)) {
+            sameShard++;
+        }
+        int otherShard = 2;
+        while (ring.shardOf(otherShard) == ring.shardOf(1)) {
+            otherShard++;
+        }
+        // Подряд идущие id лежат на кольце кучно: второй шард может начаться только с сотен
+        for (int i = 1; i <= Math.max(sameShard, otherShard); i++) {
+            storage.create(user(i));
+        }
+
+        for (int friendId : new int[]{sameShard, otherShard}) {
+            assertTrue(storage.addFriend(1, friendId));
+            assertFalse(storage.addFriend(friendId, 1));
+            assertTrue(storage.removeFriend(1, friendId));
+            assertFalse(storage.removeFriend(friendId, 1));
+        }
+        assertEquals(0, storage.getFriendshipCount());
+    }
+
+    private static User user(int index) {
+        User user = new User();
+        user.setEmail("user" + index + "@example.com");
+        user.setLogin("user" + index);
+        user.setBirthday(LocalDate.of(1990, 1, 1));
+        return user;
+    }
+}
@@ -0,0 +1,43 @@
+package ru.yandex.practicum.filmorate.trending;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+// Открытая адресация с удалением сдвигом сверяется с HashMap на случайной последовательности операций
+class LikeTimesTest {
+
+    @Test
+    void matchesHashMapUnderRandomOperations() {
+        Random random = new Random(13);
+        LikeTimes times = new LikeTimes();
+        Map<Integer, Long> expected = new HashMap<>();
+        for (int step = 0; step < 50_000; step++) {
+            int userId = 1 + random.nextInt(2_000);
+            long time = random.nextInt(1_000);
+            switch (random.nextInt(3)) {
+                case 0 -> assertEquals(orAbsent(expected.putIfAbsent(userId, time)), times.putIfAbsent(userId, time));
+                case 1 -> assertEquals(orAbsent(expected.remove(userId)), times.remove(userId));
+                default -> {
+                    if (step % 100 == 0) {
+                        times.removeOlderThan(time);
+                        expected.values().removeIf(likedAt -> likedAt < time);
+                    }
+                }
+            }
+            assertEquals(expected.size(), times.size());
+        }
+        for (Map.Entry<Integer, Long> entry : expected.entrySet()) {
+            assertEquals(entry.getValue(), times.remove(entry.getKey()));
+        }
+        assertEquals(0, times.size());
+    }
+
+    private static long orAbsent(Long time) {
+        return time == null ? LikeTimes.ABSENT : time;
+    }
+}
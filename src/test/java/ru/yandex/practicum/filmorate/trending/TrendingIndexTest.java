@@ -0,0 +1,115 @@
+package ru.yandex.practicum.filmorate.trending;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+
+// Окна по часам и затухание рейтинга; время двигается вручную
+class TrendingIndexTest {
+    private final ManualClock clock = new ManualClock();
+    private final TrendingIndex index = new TrendingIndex(Duration.ofHours(24), clock);
+
+    @Test
+    void olderLikesWeighLessByHalfLife() {
+        // Через двое суток лайк весит 1/4: три старых лайка (3/4) уступают одному свежему, пять (5/4) - нет
+        like(1, 1, 2, 3);
+        like(3, 1, 2, 3, 4, 5);
+        clock.advance(Duration.ofHours(48));
+        like(2, 1);
+        assertArrayEquals(new int[]{3, 2, 1}, index.topTrending(10));
+        assertArrayEquals(new int[]{3, 1, 2}, index.top(TrendWindow.WEEK, 10));
+    }
+
+    @Test
+    void removedLikeTakesBackItsWeight() {
+        like(1, 1, 2);
+        like(2, 1);
+        clock.advance(Duration.ofHours(1));
+        like(2, 2);
+        index.likeRemoved(2, 2);
+        assertArrayEquals(new int[]{1, 2}, index.topTrending(10));
+        assertArrayEquals(new int[]{1, 2}, index.top(TrendWindow.DAY, 10));
+
+        index.likeRemoved(2, 1);
+        assertArrayEquals(new int[]{1}, index.topTrending(10));
+        assertArrayEquals(new int[]{1}, index.top(TrendWindow.WEEK, 10));
+    }
+
+    @Test
+    void repeatedLikeIsCountedOnce() {
+        like(1, 1, 1, 1);
+        like(2, 1, 2);
+        assertArrayEquals(new int[]{2, 1}, index.top(TrendWindow.DAY, 10));
+        assertArrayEquals(new int[]{2, 1}, index.topTrending(10));
+    }
+
+    @Test
+    void likesLeaveDayThenWeekWindow() {
+        like(1, 1, 2);
+        clock.advance(Duration.ofHours(12));
+        like(2, 1);
+        assertArrayEquals(new int[]{1, 2}, index.top(TrendWindow.DAY, 10));
+
+        clock.advance(Duration.ofHours(13));
+        assertArrayEquals(new int[]{2}, index.top(TrendWindow.DAY, 10));
+        assertArrayEquals(new int[]{1, 2}, index.top(TrendWindow.WEEK, 10));
+
+        clock.advance(Duration.ofDays(6));
+        assertArrayEquals(new int[]{2}, index.top(TrendWindow.WEEK, 10));
+        assertArrayEquals(new int[]{2}, index.topTrending(10));
+
+        clock.advance(Duration.ofDays(8));
+        assertArrayEquals(new int[0], index.top(TrendWindow.WEEK, 10));
+        assertArrayEquals(new int[0], index.topTrending(10));
+    }
+
+    @Test
+    void deletedFilmLeavesAllIndexes() {
+        like(1, 1, 2);
+        like(2, 1);
+        index.filmDeleted(1);
+        assertArrayEquals(new int[]{2}, index.top(TrendWindow.DAY, 10));
+        assertArrayEquals(new int[]{2}, index.top(TrendWindow.WEEK, 10));
+        assertArrayEquals(new int[]{2}, index.topTrending(10));
+    }
+
+    private void like(int filmId, int... userIds) {
+        for (int userId : userIds) {
+            index.likeAdded(filmId, userId);
+        }
+    }
+
+    private static final class ManualClock extends Clock {
+        private Instant now = Instant.parse("2026-01-01T00:30:00Z");
+
+        void advance(Duration duration) {
+            now = now.plus(duration);
+        }
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            return this;
+        }
+
+        @Override
+        public Instant instant() {
+            return now;
+        }
+
+        @Override
+        public long millis() {
+            return now.toEpochMilli();
+        }
+    }
+}
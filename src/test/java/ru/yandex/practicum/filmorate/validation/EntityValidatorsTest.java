@@ -0,0 +1,68 @@
+package ru.yandex.practicum.filmorate.validation;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// Адреса, которые принимал и отклонял @Email, и форма тела ответа, которую отдавал @Valid
+class EntityValidatorsTest {
+
+    @Test
+    void acceptsAddressesThatEmailAnnotationAccepted() {
+        for (String email : new String[]{
+                "user@example.com",
+                "user@localhost",
+                "first.last+tag@sub.example.org",
+                "\"a b\"@example.com",
+                "o'neil@example.com",
+                "user@[192.168.0.1]",
+                "user@[IPv6:2001:db8::1]",
+                "пользователь@пример.рф",
+                "a".repeat(64) + "@example.com",
+                "user@" + "a".repeat(63) + ".com"}) {
+            assertTrue(EntityValidators.isEmail(email), email);
+        }
+    }
+
+    @Test
+    void rejectsAddressesThatEmailAnnotationRejected() {
+        for (String email : new String[]{
+                null,
+                "",
+                " ",
+                "user",
+                "@example.com",
+                "user@",
+                "a..b@example.com",
+                ".user@example.com",
+                "user.@example.com",
+                "user@-example.com",
+                "user@example-.com",
+                "user@example..com",
+                "user@example.com.",
+                "us er@example.com",
+                "a".repeat(65) + "@example.com",
+                "user@" + "a".repeat(64) + ".com",
+                "user@" + ("a".repeat(60) + ".").repeat(5) + "com"}) {
+            assertFalse(EntityValidators.isEmail(email), String.valueOf(email));
+        }
+    }
+
+    @Test
+    void longInvalidAddressIsRejectedWithoutBacktracking() {
+        String email = "a".repeat(50_000) + "!";
+
+        assertFalse(EntityValidators.isEmail(email + "@" + email + "-"));
+    }
+
+    @Test
+    void violationBodyIsFieldToMessage() {
+        Violation violation = new Violation("email", "Невалидный email");
+
+        assertEquals(Map.of("email", "Невалидный email"), violation.body());
+    }
+}